@@ -4,39 +4,66 @@ import android.app.Application;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 
-import com.tencent.map.geolocation.TencentLocationManager;
-import com.tencent.navi.api.TencentCarNaviManager;
-import com.tencent.navi.api.listener.INaviInitListener;
-import com.tencent.navi.api.model.NaviInitConfig;
+import com.sp.dazi2.bridge.BridgeLog;
+import com.sp.dazi2.metrics.UiMonitor;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SP搭子 2.0 Application
  *
  * 初始化顺序：
- * 1. 通知渠道（前台服务）
- * 2. 腾讯地图SDK隐私合规
- * 3. 腾讯定位SDK隐私合规
- * 4. 腾讯导航SDK初始化（NaviInitConfig + init回调）
+ * 0. bridge-core 日志接到 Logcat；主线程消息计时（UiMonitor）
+ * 1. 通知渠道（前台服务，主线程同步完成，START_STICKY 重启时服务会立刻用到）
+ * 2. 其余阶段交给 AppStartup 在后台并行：
+ *    读取配置 / 腾讯SDK隐私合规 → 腾讯导航SDK初始化
  */
 public class App extends Application {
-    private static final String TAG = "App";
     public static final String CHANNEL_ID = "sp_dazi2_channel";
 
-    // 导航SDK初始化状态（NaviActivity 启动前需检查）
-    private static volatile boolean sNaviSdkReady = false;
+    private static AppStartup sStartup;
 
+    /** 导航SDK是否已就绪（仅用于状态显示，发起导航请用 whenNaviSdkReady） */
     public static boolean isNaviSdkReady() {
-        return sNaviSdkReady;
+        return sStartup != null && sStartup.isNaviReady();
+    }
+
+    /** 导航SDK就绪 future，导航请求在此排队 */
+    public static CompletableFuture<Void> whenNaviSdkReady() {
+        return sStartup.whenNaviReady();
+    }
+
+    /** 启动时读取并缓存的配置（地图Key等），后台尚未读完时返回 null，不阻塞 */
+    public static AppStartup.Config getConfigIfReady() {
+        return sStartup.getConfigIfReady();
+    }
+
+    /** 配置读完的 future，未读完时在此排队 */
+    public static CompletableFuture<AppStartup.Config> whenConfigReady() {
+        return sStartup.whenConfigReady();
+    }
+
+    /** 冷启动各阶段耗时 */
+    public static String getStartupTimings() {
+        return sStartup != null ? sStartup.getStageTimings() : "";
     }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        BridgeLog.setSink((level, tag, msg, t) -> {
+            if (t != null) Log.println(level, tag, msg + '\n' + Log.getStackTraceString(t));
+            else Log.println(level, tag, msg);
+        });
+        UiMonitor.install();
+        sStartup = new AppStartup(getApplicationContext());
+        long t0 = SystemClock.elapsedRealtime();
         createNotificationChannel();
-        initTencentMapPrivacy();
-        initNaviSdk();
+        sStartup.recordStage("channel", t0, SystemClock.elapsedRealtime());
+        sStartup.start();
     }
 
     private void createNotificationChannel() {
@@ -51,51 +78,4 @@ public class App extends Application {
             if (nm != null) nm.createNotificationChannel(channel);
         }
     }
-
-    /**
-     * 腾讯定位SDK 隐私合规初始化
-     * 必须在使用定位功能之前调用
-     */
-    private void initTencentMapPrivacy() {
-        TencentLocationManager.setUserAgreePrivacy(true);
-    }
-
-    /**
-     * 腾讯导航SDK初始化
-     * 使用 NaviInitConfig 配置 Key + 上下文，通过 INaviInitListener 回调确认初始化结果
-     */
-    private void initNaviSdk() {
-        // 从 AndroidManifest.xml 的 meta-data 读取 Key
-        String appKey = "";
-        try {
-            android.content.pm.ApplicationInfo ai = getPackageManager()
-                .getApplicationInfo(getPackageName(), android.content.pm.PackageManager.GET_META_DATA);
-            if (ai.metaData != null) {
-                appKey = ai.metaData.getString("TencentMapSDK", "");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "读取TencentMapSDK Key失败", e);
-        }
-
-        NaviInitConfig initConfig = new NaviInitConfig.Builder()
-            .setContext(getApplicationContext())
-            .setAppKey(appKey)
-            .setLogEnable(BuildConfig.DEBUG)
-            .setNaviType(NaviInitConfig.NAVI_TYPE_CAR)
-            .build();
-
-        TencentCarNaviManager.getInstance().init(initConfig, new INaviInitListener() {
-            @Override
-            public void onInitSuccess() {
-                sNaviSdkReady = true;
-                Log.i(TAG, "腾讯导航SDK初始化成功");
-            }
-
-            @Override
-            public void onInitFailed(int errorCode, String errorMsg) {
-                sNaviSdkReady = false;
-                Log.e(TAG, "腾讯导航SDK初始化失败: " + errorCode + " - " + errorMsg);
-            }
-        });
-    }
 }
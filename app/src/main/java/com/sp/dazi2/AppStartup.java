@@ -0,0 +1,202 @@
+package com.sp.dazi2;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.sp.dazi2.metrics.EventLog;
+import com.tencent.map.geolocation.TencentLocationManager;
+import com.tencent.navi.api.TencentCarNaviManager;
+import com.tencent.navi.api.listener.INaviInitListener;
+import com.tencent.navi.api.model.NaviInitConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段异步启动
+ *
+ * 冷启动阶段依赖关系：
+ *   config（读 manifest Key）──┐
+ *                              ├─→ naviInit（TencentCarNaviManager.init）
+ *   privacy（隐私合规）────────┘
+ *   eventLog（事件环接到映射文件，独立）
+ *
+ * config 与 privacy 在后台线程并行，两者都完成后才初始化导航SDK。
+ * 导航SDK的 init 回调完成 naviReady；导航请求在它上面排队，而不是轮询标志位。
+ * 各阶段相对进程启动的耗时记录在 getStageTimings()。
+ */
+public class AppStartup {
+    private static final String TAG = "AppStartup";
+
+    /** 启动时读取一次的配置 */
+    public static final class Config {
+        public final String mapKey;
+
+        Config(String mapKey) { this.mapKey = mapKey; }
+    }
+
+    private final Context appContext;
+    private final ExecutorService executor;
+    private final long processStartMs = Process.getStartElapsedRealtime();
+    private final Map<String, long[]> stageTimings = new LinkedHashMap<>();
+
+    private CompletableFuture<Config> configFuture;
+    private final CompletableFuture<Void> naviReady = new CompletableFuture<>();
+
+    AppStartup(Context appContext) {
+        this.appContext = appContext;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "Startup-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 在主线程调用，立即返回 */
+    void start() {
+        configFuture = CompletableFuture.supplyAsync(() -> timed("config", this::readConfig), executor);
+        CompletableFuture<Void> privacy = CompletableFuture.runAsync(
+            () -> timed("privacy", () -> { initPrivacy(); return null; }), executor);
+        CompletableFuture.runAsync(() -> timed("eventLog", () -> { attachEventLog(); return null; }), executor);
+
+        configFuture.thenCombineAsync(privacy, (config, ignored) -> {
+            beginStage("naviInit");
+            initNaviSdk(config);
+            return null;
+        }, executor).exceptionally(e -> {
+            Log.e(TAG, "启动阶段异常", e);
+            naviReady.completeExceptionally(e);
+            return null;
+        });
+
+        naviReady.whenComplete((v, e) -> {
+            endStage("naviInit");
+            executor.shutdown();
+            Log.i(TAG, "冷启动完成: " + getStageTimings());
+        });
+    }
+
+    /** 已读完的配置，尚未读完时返回 null（不阻塞，可在主线程调用） */
+    public Config getConfigIfReady() { return configFuture.getNow(null); }
+
+    /** 配置 future；需要配置又可能早于读完的调用方在此排队 */
+    public CompletableFuture<Config> whenConfigReady() { return configFuture; }
+
+    /** 导航SDK就绪 future；初始化失败时以异常完成 */
+    public CompletableFuture<Void> whenNaviReady() { return naviReady; }
+
+    public boolean isNaviReady() {
+        return naviReady.isDone() && !naviReady.isCompletedExceptionally();
+    }
+
+    /** 各阶段耗时，格式：name=开始偏移+耗时ms */
+    public String getStageTimings() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (stageTimings) {
+            for (Map.Entry<String, long[]> e : stageTimings.entrySet()) {
+                long[] t = e.getValue();
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(e.getKey()).append('=').append(t[0] - processStartMs)
+                    .append('+').append(t[1] > 0 ? t[1] - t[0] : -1).append("ms");
+            }
+        }
+        return sb.toString();
+    }
+
+    void recordStage(String name, long startMs, long endMs) {
+        synchronized (stageTimings) {
+            stageTimings.put(name, new long[] { startMs, endMs });
+        }
+    }
+
+    private void beginStage(String name) {
+        recordStage(name, SystemClock.elapsedRealtime(), 0);
+    }
+
+    private void endStage(String name) {
+        synchronized (stageTimings) {
+            long[] t = stageTimings.get(name);
+            if (t != null && t[1] == 0) t[1] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private <T> T timed(String name, java.util.function.Supplier<T> stage) {
+        beginStage(name);
+        try {
+            return stage.get();
+        } finally {
+            endStage(name);
+        }
+    }
+
+    /** 从 AndroidManifest.xml 的 meta-data 读取 Key（全应用只读这一次） */
+    private Config readConfig() {
+        String mapKey = "";
+        try {
+            ApplicationInfo ai = appContext.getPackageManager()
+                .getApplicationInfo(appContext.getPackageName(), PackageManager.GET_META_DATA);
+            if (ai.metaData != null) {
+                mapKey = ai.metaData.getString("TencentMapSDK", "");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "读取TencentMapSDK Key失败", e);
+        }
+        return new Config(mapKey);
+    }
+
+    /** 事件环落盘到 files/events.bin，上次运行的记录保留为 events.bin.prev */
+    private void attachEventLog() {
+        try {
+            EventLog.attachFile(new File(appContext.getFilesDir(), "events.bin"));
+        } catch (IOException e) {
+            Log.e(TAG, "事件记录文件打开失败，只保留内存中的记录", e);
+        }
+    }
+
+    /**
+     * 腾讯定位SDK 隐私合规初始化
+     * 必须在使用定位功能之前调用
+     */
+    private void initPrivacy() {
+        TencentLocationManager.setUserAgreePrivacy(true);
+    }
+
+    /**
+     * 腾讯导航SDK初始化
+     * 使用 NaviInitConfig 配置 Key + 上下文，通过 INaviInitListener 回调确认初始化结果
+     */
+    private void initNaviSdk(Config config) {
+        NaviInitConfig initConfig = new NaviInitConfig.Builder()
+            .setContext(appContext)
+            .setAppKey(config.mapKey)
+            .setLogEnable(BuildConfig.DEBUG)
+            .setNaviType(NaviInitConfig.NAVI_TYPE_CAR)
+            .build();
+
+        TencentCarNaviManager.getInstance().init(initConfig, new INaviInitListener() {
+            @Override
+            public void onInitSuccess() {
+                Log.i(TAG, "腾讯导航SDK初始化成功");
+                naviReady.complete(null);
+            }
+
+            @Override
+            public void onInitFailed(int errorCode, String errorMsg) {
+                Log.e(TAG, "腾讯导航SDK初始化失败: " + errorCode + " - " + errorMsg);
+                naviReady.completeExceptionally(
+                    new IllegalStateException("导航SDK初始化失败: " + errorCode + " " + errorMsg));
+            }
+        });
+    }
+}
@@ -11,15 +11,21 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
+import android.view.Window;
 import android.webkit.JavascriptInterface;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -28,8 +34,17 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
+import com.sp.dazi2.bridge.BridgeEngine.ConnectionState;
+import com.sp.dazi2.metrics.Responsiveness;
+import com.sp.dazi2.metrics.UiMonitor;
 import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.navi.NaviTiming;
+import com.sp.dazi2.navi.RoutePlanner;
+import com.sp.dazi2.navi.RouteScorer;
+import com.sp.dazi2.navi.SpeedFusion;
+import com.sp.dazi2.navi.TripStats;
 import com.sp.dazi2.service.BridgeService;
+import com.sp.dazi2.service.PowerGovernor;
 
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -47,20 +62,25 @@ import java.util.List;
  *
  * 功能：
  * 1. C3 连接管理（手动IP / 自动发现）
- * 2. 目的地搜索 → 启动 NaviActivity 导航
+ * 2. 目的地搜索 → BridgeService 开始导航，可选打开 NaviActivity 地图界面
  * 3. C3 视频流显示 + HUD 叠加
- * 4. 导航数据状态显示
+ * 4. 导航数据状态显示、功耗和界面响应统计
  */
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity2";
     private static final int PERMISSION_REQUEST_CODE = 100;
-    private static final String PREFS_NAME = "sp_dazi2_prefs";
+    public static final String PREFS_NAME = "sp_dazi2_prefs";
     private static final String KEY_C3_IP = "c3_ip";
+    private static final String KEY_HEADLESS_NAVI = "headless_navi";
+    /** 路线选择策略，值为 RouteScorer.Policy 名称；NaviSession 算路后读取 */
+    public static final String KEY_ROUTE_POLICY = "route_policy";
 
     // Views
     private EditText etC3Ip, etDestination;
     private Button btnConnect, btnStartStop, btnStartNavi;
-    private TextView tvConnectionState, tvNaviStatus;
+    private CheckBox cbHeadlessNavi;
+    private Spinner spRoutePolicy;
+    private TextView tvConnectionState, tvNaviStatus, tvStats;
     private WebView wvVideo;
     private View tvVideoHint;
     private LinearLayout hudOverlay;
@@ -76,9 +96,16 @@ public class MainActivity extends AppCompatActivity {
     private boolean serviceBound = false;
     private boolean serviceRunning = false;
     private boolean videoLoaded = false;
+    private String videoIp = null;
+    private int videoFps = 0;
+
+    // 功耗调度：视频帧率 / HUD 刷新随等级降低
+    private PowerGovernor powerGovernor;
+    private volatile long lastHudUpdateMs = 0;
 
     private final Handler uiHandler = new Handler(Looper.getMainLooper());
     private Runnable uiUpdateRunnable;
+    private Window.OnFrameMetricsAvailableListener frameListener;
 
     private final ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
@@ -88,10 +115,11 @@ public class MainActivity extends AppCompatActivity {
             serviceBound = true;
             bridgeService.setStateCallback(new BridgeService.StateCallback() {
                 @Override
-                public void onStateChanged(BridgeService.ConnectionState state, String c3Ip) {
+                public void onStateChanged(ConnectionState state, String c3Ip) {
+                    Responsiveness.callback(UiMonitor.CB_BRIDGE_STATE);
                     uiHandler.post(() -> {
                         updateConnectionUI(state, c3Ip);
-                        if (state == BridgeService.ConnectionState.CONNECTED && c3Ip != null) {
+                        if (state == ConnectionState.CONNECTED && c3Ip != null) {
                             loadVideo(c3Ip);
                         }
                     });
@@ -100,7 +128,7 @@ public class MainActivity extends AppCompatActivity {
                 public void onDataSent(int count) { }
             });
             updateConnectionUI(bridgeService.getConnectionState(), bridgeService.getC3IpAddress());
-            if (bridgeService.getConnectionState() == BridgeService.ConnectionState.CONNECTED) {
+            if (bridgeService.getConnectionState() == ConnectionState.CONNECTED) {
                 loadVideo(bridgeService.getC3IpAddress());
             }
         }
@@ -116,6 +144,8 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         initViews();
+        powerGovernor = PowerGovernor.get(this);
+        powerGovernor.addListener(powerListener);
         loadSavedIp();
         requestPermissions();
         // 默认限速映射：120→110
@@ -125,6 +155,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        frameListener = UiMonitor.attach(this, Responsiveness.SCREEN_MAIN);
         startUIUpdate();
     }
 
@@ -132,11 +163,14 @@ public class MainActivity extends AppCompatActivity {
     protected void onPause() {
         super.onPause();
         stopUIUpdate();
+        UiMonitor.detach(this, frameListener, Responsiveness.SCREEN_MAIN);
+        frameListener = null;
     }
 
     @Override
     protected void onDestroy() {
         if (serviceBound) { unbindService(serviceConnection); serviceBound = false; }
+        powerGovernor.removeListener(powerListener);
         disconnectWs();
         if (wvVideo != null) wvVideo.destroy();
         super.onDestroy();
@@ -148,8 +182,11 @@ public class MainActivity extends AppCompatActivity {
         btnConnect = findViewById(R.id.btn_connect);
         btnStartStop = findViewById(R.id.btn_start_stop);
         btnStartNavi = findViewById(R.id.btn_start_navi);
+        cbHeadlessNavi = findViewById(R.id.cb_headless_navi);
+        spRoutePolicy = findViewById(R.id.sp_route_policy);
         tvConnectionState = findViewById(R.id.tv_connection_state);
         tvNaviStatus = findViewById(R.id.tv_navi_status);
+        tvStats = findViewById(R.id.tv_stats);
         wvVideo = findViewById(R.id.wv_video);
         tvVideoHint = findViewById(R.id.tv_video_hint);
         hudOverlay = findViewById(R.id.hud_overlay);
@@ -166,6 +203,32 @@ public class MainActivity extends AppCompatActivity {
         btnConnect.setOnClickListener(v -> onConnectClicked());
         btnStartStop.setOnClickListener(v -> onStartStopClicked());
         btnStartNavi.setOnClickListener(v -> onStartNaviClicked());
+        cbHeadlessNavi.setChecked(getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+            .getBoolean(KEY_HEADLESS_NAVI, false));
+        cbHeadlessNavi.setOnCheckedChangeListener((b, checked) ->
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit().putBoolean(KEY_HEADLESS_NAVI, checked).apply());
+        initRoutePolicy();
+    }
+
+    /** 路线偏好下拉框，顺序与 RouteScorer.Policy 一致 */
+    private void initRoutePolicy() {
+        String[] labels = {"路线：最快（SDK推荐）", "路线：均衡", "路线：少测速", "路线：平顺（限速少变、弯道少）"};
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, labels);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spRoutePolicy.setAdapter(adapter);
+        RouteScorer.Policy current = RouteScorer.Policy.parse(
+            getSharedPreferences(PREFS_NAME, MODE_PRIVATE).getString(KEY_ROUTE_POLICY, null));
+        spRoutePolicy.setSelection(current.ordinal());
+        spRoutePolicy.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
+                    .putString(KEY_ROUTE_POLICY, RouteScorer.Policy.values()[position].name()).apply();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) { }
+        });
     }
 
     private void onConnectClicked() {
@@ -201,18 +264,26 @@ public class MainActivity extends AppCompatActivity {
         }
         hideKeyboard();
 
-        if (!App.isNaviSdkReady()) {
-            Toast.makeText(this, "导航SDK未就绪，请稍后重试", Toast.LENGTH_SHORT).show();
-            return;
+        // 配置在后台读取，冷启动后立刻点击时还没读完，读完后再回到主线程继续
+        AppStartup.Config config = App.getConfigIfReady();
+        if (config != null) {
+            searchAndNavigate(dest, config.mapKey);
+        } else {
+            App.whenConfigReady().thenAcceptAsync(c -> {
+                if (!isFinishing()) searchAndNavigate(dest, c.mapKey);
+            }, ContextCompat.getMainExecutor(this));
         }
+    }
 
-        String mapKey = getMapKey();
+    /** 主线程调用：检查 Key 后在后台搜索 POI，SDK 就绪后进入导航 */
+    private void searchAndNavigate(String dest, String mapKey) {
         if (mapKey.isEmpty()) {
             Toast.makeText(this, "腾讯地图Key未配置",
                 Toast.LENGTH_LONG).show();
             return;
         }
 
+        NaviTiming.markTap();
         Toast.makeText(this, "正在搜索: " + dest, Toast.LENGTH_SHORT).show();
 
         // 异步搜索POI
@@ -249,7 +320,22 @@ public class MainActivity extends AppCompatActivity {
                 double lng = location.getDouble("lng");
 
                 Log.i(TAG, "POI搜索结果: " + title + " (" + lat + "," + lng + ")");
-                runOnUiThread(() -> startNavigation(lat, lng, title));
+                NaviTiming.markPoiResolved();
+                // POI 搜索与导航SDK初始化并行，SDK 就绪后再进入导航
+                if (!App.isNaviSdkReady()) {
+                    runOnUiThread(() -> Toast.makeText(this, "导航SDK初始化中，就绪后自动开始导航",
+                        Toast.LENGTH_SHORT).show());
+                }
+                App.whenNaviSdkReady().whenComplete((v, err) -> runOnUiThread(() -> {
+                    if (err != null) {
+                        Toast.makeText(this, "导航SDK初始化失败: " + err.getMessage(),
+                            Toast.LENGTH_LONG).show();
+                    } else if (!isFinishing()) {
+                        // 先投机算路，服务启动导航会话期间路线已在计算
+                        RoutePlanner.get().speculate(this, lat, lng);
+                        startNavigation(lat, lng, title);
+                    }
+                }));
 
             } catch (Exception e) {
                 Log.e(TAG, "POI搜索异常", e);
@@ -259,25 +345,19 @@ public class MainActivity extends AppCompatActivity {
         }).start();
     }
 
-    /** 从 AndroidManifest 读取腾讯地图Key */
-    private String getMapKey() {
-        try {
-            android.content.pm.ApplicationInfo ai = getPackageManager()
-                .getApplicationInfo(getPackageName(), android.content.pm.PackageManager.GET_META_DATA);
-            if (ai.metaData != null) {
-                return ai.metaData.getString("TencentMapSDK", "");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "读取Key失败", e);
-        }
-        return "";
-    }
-
-    /** 启动导航到指定坐标（供POI搜索结果调用） */
+    /**
+     * 启动导航到指定坐标（供POI搜索结果调用）
+     *
+     * 导航会话由 BridgeService 持有；勾选"仅后台导航"时不打开地图界面
+     */
     public void startNavigation(double lat, double lng, String name) {
+        if (!serviceRunning) startBridgeService();
+        BridgeService.startNavigation(this, lat, lng);
+        if (cbHeadlessNavi.isChecked()) {
+            Toast.makeText(this, "后台导航到 " + name, Toast.LENGTH_SHORT).show();
+            return;
+        }
         Intent intent = new Intent(this, NaviActivity.class);
-        intent.putExtra("end_lat", lat);
-        intent.putExtra("end_lng", lng);
         intent.putExtra("end_name", name);
         startActivity(intent);
     }
@@ -302,6 +382,7 @@ public class MainActivity extends AppCompatActivity {
         serviceRunning = false;
         bridgeService = null;
         videoLoaded = false;
+        videoIp = null;
         disconnectWs();
         btnStartStop.setText("启动服务");
         tvConnectionState.setText("未启动");
@@ -312,13 +393,29 @@ public class MainActivity extends AppCompatActivity {
 
     private void loadVideo(String c3Ip) {
         if (c3Ip == null || videoLoaded) return;
-        wvVideo.loadUrl("http://" + c3Ip + ":8099?cam=road");
+        videoIp = c3Ip;
+        loadVideoUrl();
         tvVideoHint.setVisibility(View.GONE);
         hudOverlay.setVisibility(View.VISIBLE);
         videoLoaded = true;
         connectWs(c3Ip);
     }
 
+    /** fps 参数由功耗调度决定，0 表示不限（C3 视频服务不认该参数时按原帧率） */
+    private void loadVideoUrl() {
+        videoFps = powerGovernor.getVideoFps();
+        String url = "http://" + videoIp + ":8099?cam=road";
+        if (videoFps > 0) url += "&fps=" + videoFps;
+        wvVideo.loadUrl(url);
+    }
+
+    private final PowerGovernor.Listener powerListener = level -> {
+        if (videoLoaded && videoIp != null && powerGovernor.getVideoFps() != videoFps) {
+            loadVideoUrl();
+        }
+        updateStats();
+    };
+
     private void connectWs(String c3Ip) {
         if (wsConnected) return;
         if (wsClient == null) wsClient = new OkHttpClient();
@@ -327,11 +424,21 @@ public class MainActivity extends AppCompatActivity {
             @Override public void onOpen(WebSocket ws, Response resp) { wsConnected = true; }
             @Override
             public void onMessage(WebSocket ws, String text) {
+                Responsiveness.callback(UiMonitor.CB_CARSTATE);
                 try {
                     JSONObject j = new JSONObject(text);
                     double vEgo = j.optDouble("vEgo", 0);
+                    // 轮速进融合定位和行程统计，不受 HUD 刷新节流影响
+                    if (j.has("vEgo")) {
+                        long nowNs = System.nanoTime();
+                        SpeedFusion.shared().onWheelSpeed(vEgo, nowNs);
+                        TripStats.shared().onSpeed(vEgo, true, nowNs);
+                    }
                     double vSet = j.optDouble("vSetKph", 0);
                     String gear = j.optString("gear", "P");
+                    long now = SystemClock.elapsedRealtime();
+                    if (now - lastHudUpdateMs < powerGovernor.getHudIntervalMs()) return;
+                    lastHudUpdateMs = now;
                     int speedKph = (int) Math.round(vEgo * 3.6);
                     int cruiseKph = (int) Math.round(vSet);
                     uiHandler.post(() -> {
@@ -360,7 +467,7 @@ public class MainActivity extends AppCompatActivity {
         if (carStateWs != null) { carStateWs.cancel(); carStateWs = null; }
     }
 
-    private void updateConnectionUI(BridgeService.ConnectionState state, String ip) {
+    private void updateConnectionUI(ConnectionState state, String ip) {
         switch (state) {
             case SEARCHING:
                 tvConnectionState.setText("搜索C3中...");
@@ -381,7 +488,8 @@ public class MainActivity extends AppCompatActivity {
         uiUpdateRunnable = new Runnable() {
             @Override public void run() {
                 updateNaviStatus();
-                uiHandler.postDelayed(this, 1000);
+                updateStats();
+                uiHandler.postDelayed(this, powerGovernor.getStatusIntervalMs());
             }
         };
         uiHandler.post(uiUpdateRunnable);
@@ -410,6 +518,12 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    private void updateStats() {
+        String trip = TripStats.shared().getStatusText();
+        tvStats.setText(powerGovernor.getStatsText() + '\n' + Responsiveness.getSummaryText()
+            + (trip.isEmpty() ? "" : "\n" + trip));
+    }
+
     // ═══ 权限和存储 ═══
 
     private void requestPermissions() {
@@ -0,0 +1,91 @@
+package com.sp.dazi2.metrics;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Printer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/**
+ * 界面响应采集（Android 侧），累加和汇总见 bridge-core 的 Responsiveness
+ *
+ * - install()：Application 启动时给主线程 Looper 挂消息打印钩子，
+ *   按 ">>>>> Dispatching" / "<<<<< Finished" 两行给每条消息计时
+ * - attach() / detach()：界面可见期间挂 FrameMetrics 监听，回调在独立 HandlerThread 上，不占主线程
+ * - CB_*：业务回调入口调用 Responsiveness.callback(CB_x) 记录所在线程
+ *
+ * 打印钩子会让 Looper 每条消息多拼两行字符串（每条约几微秒），换来卡顿能归到具体 Handler。
+ */
+public final class UiMonitor {
+    private UiMonitor() {}
+
+    public static final int CB_GUIDANCE = Responsiveness.defineCallback("吸附定位");
+    public static final int CB_LOCATION = Responsiveness.defineCallback("定位");
+    public static final int CB_ROUTE = Responsiveness.defineCallback("算路结果");
+    public static final int CB_NAVI_EVENT = Responsiveness.defineCallback("偏航/重算");
+    public static final int CB_CARSTATE = Responsiveness.defineCallback("carstate");
+    public static final int CB_BRIDGE_STATE = Responsiveness.defineCallback("C3连接");
+
+    private static Handler sFrameHandler;
+
+    /** 主线程调用一次 */
+    public static void install() {
+        Looper main = Looper.getMainLooper();
+        Responsiveness.setMainThread(main.getThread());
+        main.setMessageLogging(new Printer() {
+            private long startNs;
+            private String dispatch;
+
+            @Override
+            public void println(String x) {
+                if (x.charAt(0) == '>') {
+                    dispatch = x;
+                    Responsiveness.onMessageStart();
+                    startNs = System.nanoTime();
+                } else if (x.charAt(0) == '<' && dispatch != null) {
+                    Responsiveness.onMessage(System.nanoTime() - startNs, dispatch);
+                    dispatch = null;
+                }
+            }
+        });
+    }
+
+    /** 开始统计该界面的帧耗时，onResume 调用；返回值交给 detach() */
+    public static Window.OnFrameMetricsAvailableListener attach(Activity activity, int screen) {
+        if (sFrameHandler == null) {
+            HandlerThread t = new HandlerThread("FrameMetrics");
+            t.start();
+            sFrameHandler = new Handler(t.getLooper());
+        }
+        float hz = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long budgetNs = (long) (1e9 / (hz > 1 ? hz : 60));
+        long[] phases = new long[Responsiveness.PHASE_COUNT];
+        Window.OnFrameMetricsAvailableListener l = (window, m, dropped) -> {
+            if (m.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) return;    // 首帧含布局膨胀，不计
+            phases[Responsiveness.PHASE_INPUT] = m.getMetric(FrameMetrics.INPUT_HANDLING_DURATION);
+            phases[Responsiveness.PHASE_ANIMATION] = m.getMetric(FrameMetrics.ANIMATION_DURATION);
+            phases[Responsiveness.PHASE_LAYOUT] = m.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION);
+            phases[Responsiveness.PHASE_DRAW] = m.getMetric(FrameMetrics.DRAW_DURATION);
+            phases[Responsiveness.PHASE_SYNC] = m.getMetric(FrameMetrics.SYNC_DURATION);
+            phases[Responsiveness.PHASE_GPU] = m.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION)
+                + m.getMetric(FrameMetrics.SWAP_BUFFERS_DURATION);
+            phases[Responsiveness.PHASE_OTHER] = m.getMetric(FrameMetrics.UNKNOWN_DELAY_DURATION);
+            Responsiveness.onFrame(screen, m.getMetric(FrameMetrics.TOTAL_DURATION), budgetNs, phases);
+        };
+        activity.getWindow().addOnFrameMetricsAvailableListener(l, sFrameHandler);
+        return l;
+    }
+
+    /** 停止统计并写一条汇总事件，onPause 调用 */
+    public static void detach(Activity activity, Window.OnFrameMetricsAvailableListener l, int screen) {
+        if (l == null) return;
+        try {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(l);
+        } catch (IllegalArgumentException e) {
+            // 窗口已销毁
+        }
+        Responsiveness.logSummary(screen);
+    }
+}
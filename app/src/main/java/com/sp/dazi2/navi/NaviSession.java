@@ -0,0 +1,653 @@
+package com.sp.dazi2.navi;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+
+import com.sp.dazi2.MainActivity;
+import com.sp.dazi2.metrics.BridgeEvents;
+import com.sp.dazi2.metrics.BridgeMetrics;
+import com.sp.dazi2.metrics.EventLog;
+import com.sp.dazi2.metrics.Responsiveness;
+import com.sp.dazi2.metrics.UiMonitor;
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.service.BridgeService;
+import com.sp.dazi2.service.PowerGovernor;
+import com.tencent.map.geolocation.TencentLocation;
+import com.tencent.map.geolocation.TencentLocationListener;
+import com.tencent.map.geolocation.TencentLocationManager;
+import com.tencent.map.geolocation.TencentLocationRequest;
+import com.tencent.navi.api.TencentCarNaviManager;
+import com.tencent.navi.api.listener.INaviListener;
+import com.tencent.navi.api.model.AttachedLocation;
+import com.tencent.navi.api.model.NaviLatLng;
+import com.tencent.navi.api.model.NaviRouteInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导航会话（由 BridgeService 持有）
+ *
+ * 原先在 NaviActivity 里的导航逻辑整体移到这里：导航管理器、INaviListener、
+ * 定位灌点和轮速融合线程都跟随前台服务，界面被划掉或被系统回收时
+ * C3 数据流不中断。NaviActivity 只是可选的地图界面，打开时挂上 Listener，关闭时摘下。
+ *
+ * 关键修正（基于官方文档）：
+ * 1. 包名: com.tencent.navi.api.* (非 com.tencent.map.navi.*)
+ * 2. 初始化: AppStartup 后台通过 NaviInitConfig + init() 完成，调用方等就绪 future 后再 start()
+ * 3. 算路: searchRoute(RoutePlanParam, IRoutePlanListener)
+ * 4. 定位联动: TencentLocationManager → updateLocation 灌点；
+ *    有 C3 轮速时改由融合线程以 5Hz 灌入轮速+GNSS 融合位置（SpeedFusion）
+ * 5. AttachedLocation: getSpeedLimit/getCameraType/getNextTurnDistance 等
+ *
+ * 除融合线程外全部在主线程调用。
+ */
+public class NaviSession {
+    private static final String TAG = "NaviSession";
+
+    /** 界面回调，在主线程调用 */
+    public interface Listener {
+        void onRouteFailed(String message);
+        void onNaviEnded();
+    }
+
+    private final Context appContext;
+    private final Runnable onEnded;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private volatile Listener mListener;
+
+    private TencentCarNaviManager mNaviManager;
+    private TencentLocationManager mLocationManager;
+    // 字段一律经 setter 写入，BridgeService 据变更位发送增量帧。
+    // 会话随服务常驻，每次 start() 换新对象：上一趟的剩余距离/ETA/道路名/摄像头不会带进新导航，
+    // 引擎发现数据源对象更换时整体复制并发关键帧
+    private volatile NaviData mNaviData = new NaviData();
+
+    // 导航信息更新频率控制
+    private long mLastUpdateTime = 0;
+    private static final long UPDATE_INTERVAL_MS = 200; // 200ms = 5Hz
+
+    // 会话状态
+    private boolean mActive = false;
+    private boolean mIsNavigating = false;
+    private final RerouteController mReroute = new RerouteController();
+    // 沿线游标：按路线几何查转弯类型和前方拥堵
+    private final RouteTracker mRouteTracker = new RouteTracker();
+    private final RouteProgress mRouteProgress = new RouteProgress();
+    private static final double TMC_AHEAD_M = 3000;
+    private static final long TRAFFIC_REFRESH_MS = 30_000;
+    private long mLastTrafficRefreshMs = 0;
+
+    // 定位灌点间隔随功耗等级调整
+    private PowerGovernor mPowerGovernor;
+    private long mLocationIntervalMs = 0;
+
+    // 轮速融合灌点：独立线程，复用同一个 Location 和输出数组，每次灌点不分配
+    private static final long FUSION_INTERVAL_MS = 200;
+    private final SpeedFusion mFusion = SpeedFusion.shared();
+    private final double[] mFusedOut = new double[4];
+    // 出站坐标 GCJ-02 → WGS-84，只在导航回调线程使用
+    private final double[] mWgsOut = new double[2];
+    private com.tencent.navi.api.model.Location mFusedLocation;
+    private HandlerThread mFusionThread;
+    private Handler mFusionHandler;
+
+    // 行程统计：发布的每帧和 SDK 车速喂入，会话结束时出汇总（轮速由 MainActivity 喂入同一实例）
+    private final TripStats mTrip = TripStats.shared();
+    private TripStats.Summary mLastTrip;
+
+    // 算路触发：首次有效定位即算路，超时后退回最近已知位置
+    private static final long FIRST_FIX_TIMEOUT_MS = 3000;
+
+    // 多路线评分：限时，超时取 SDK 推荐的第 0 条
+    private static final long ROUTE_SCORE_BUDGET_MS = 150;
+    private static final AtomicInteger sScoreThreads = new AtomicInteger();
+    private static final ExecutorService sScorePool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "RouteScore-" + sScoreThreads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    // 每次 start() 加一，丢弃上一次会话迟到的评分结果
+    private int mStartGeneration = 0;
+    private double mEndLat, mEndLng;
+    private boolean mRouteRequested = false;
+    private final Runnable mFirstFixTimeout = this::onFirstFixTimeout;
+
+    /** @param onEnded 会话结束时在主线程调用（服务据此更新通知） */
+    public NaviSession(Context context, Runnable onEnded) {
+        this.appContext = context.getApplicationContext();
+        this.onEnded = onEnded;
+    }
+
+    public void setListener(Listener l) { this.mListener = l; }
+    /** 会话已开始（含算路中） */
+    public boolean isActive() { return mActive; }
+    public boolean isNavigating() { return mIsNavigating; }
+    public double getEndLat() { return mEndLat; }
+    public double getEndLng() { return mEndLng; }
+    /** 上一次结束的行程汇总，尚无时为 null */
+    public TripStats.Summary getLastTrip() { return mLastTrip; }
+
+    /**
+     * 开始导航到终点；已有会话时先结束旧会话。须在导航SDK就绪后调用。
+     */
+    public void start(double endLat, double endLng) {
+        if (mActive) stop();
+        mActive = true;
+        mStartGeneration++;
+        mEndLat = endLat;
+        mEndLng = endLng;
+        mRouteRequested = false;
+        mNaviData = new NaviData();
+        mTrip.start(System.currentTimeMillis());
+
+        // 获取导航管理器单例并注册回调
+        mNaviManager = TencentCarNaviManager.getInstance();
+        mNaviManager.addNaviListener(mNaviListener);
+
+        // 初始化定位SDK并开始灌点
+        initLocationManager();
+
+        CompletableFuture<List<NaviRouteInfo>> spec =
+            RoutePlanner.get().takeSpeculative(mEndLat, mEndLng);
+        if (spec != null) {
+            // MainActivity 已按最近已知位置投机算路，直接用
+            Log.i(TAG, "使用投机算路结果");
+            mRouteRequested = true;
+            spec.whenComplete((routes, err) -> mHandler.post(() -> {
+                if (!mActive) return;
+                if (err != null) {
+                    Log.w(TAG, "投机算路失败，改为等待首次定位", err);
+                    mRouteRequested = false;
+                    mHandler.postDelayed(mFirstFixTimeout, FIRST_FIX_TIMEOUT_MS);
+                } else {
+                    onRoutesReady(routes);
+                }
+            }));
+        } else {
+            // 等首次有效定位触发算路（见 mLocationListener）
+            mHandler.postDelayed(mFirstFixTimeout, FIRST_FIX_TIMEOUT_MS);
+        }
+    }
+
+    /** 结束会话：停止导航、定位和融合线程，C3 收到空数据；界面收到 onNaviEnded */
+    public void stop() {
+        if (!mActive) return;
+        mActive = false;
+        mHandler.removeCallbacks(mFirstFixTimeout);
+        if (mNaviManager != null) {
+            mNaviManager.removeNaviListener(mNaviListener);
+            if (mIsNavigating) mNaviManager.stopNavi();
+        }
+        onNaviStopped();
+        if (mPowerGovernor != null) mPowerGovernor.removeListener(mPowerListener);
+        if (mLocationManager != null) mLocationManager.removeUpdates(mLocationListener);
+        if (mFusionThread != null) {
+            mFusionHandler.removeCallbacks(mFusionTick);
+            mFusionThread.quitSafely();
+            mFusionThread = null;
+        }
+        mFusion.reset();
+        mLastTrip = mTrip.finish(System.currentTimeMillis());
+        Log.i(TAG, "导航会话结束");
+        if (onEnded != null) onEnded.run();
+        Listener l = mListener;
+        if (l != null) l.onNaviEnded();
+    }
+
+    /** 首次定位超时：用最近已知位置作起点，没有则交给SDK用当前GPS */
+    private void onFirstFixTimeout() {
+        if (mRouteRequested || !mActive) return;
+        TencentLocation last = RoutePlanner.lastKnownLocation(appContext);
+        Log.i(TAG, "首次定位超时，" + (last != null ? "使用最近已知位置算路" : "不指定起点算路"));
+        startRouteSearch(last != null ? new NaviLatLng(last.getLatitude(), last.getLongitude()) : null);
+    }
+
+    /**
+     * 初始化腾讯定位SDK，将定位数据灌入导航SDK
+     *
+     * 官方文档要求：导航SDK依赖定位数据驱动，
+     * 需通过 updateLocation() 将定位SDK的结果传递给导航SDK。
+     * 灌点频率：1Hz（1秒/次），功耗调度到定位级时降为 0.5Hz
+     */
+    private void initLocationManager() {
+        mLocationManager = TencentLocationManager.getInstance(appContext);
+        mPowerGovernor = PowerGovernor.get(appContext);
+        mPowerGovernor.addListener(mPowerListener);
+        requestLocationUpdates(mPowerGovernor.getLocationIntervalMs());
+
+        mFusedLocation = new com.tencent.navi.api.model.Location();
+        mFusionThread = new HandlerThread("SpeedFusion");
+        mFusionThread.start();
+        mFusionHandler = new Handler(mFusionThread.getLooper());
+        mFusionHandler.post(mFusionTick);
+    }
+
+    private void requestLocationUpdates(long intervalMs) {
+        mLocationIntervalMs = intervalMs;
+        TencentLocationRequest request = TencentLocationRequest.create()
+            .setInterval(intervalMs)
+            .setAllowGPS(true);
+
+        int error = mLocationManager.requestLocationUpdates(request, mLocationListener);
+        if (error == 0) {
+            Log.i(TAG, "定位SDK启动成功，开始灌点，间隔 " + intervalMs + "ms");
+        } else {
+            Log.e(TAG, "定位SDK启动失败，错误码: " + error);
+        }
+    }
+
+    private final PowerGovernor.Listener mPowerListener = level -> {
+        long interval = mPowerGovernor.getLocationIntervalMs();
+        if (mLocationManager != null && interval != mLocationIntervalMs) {
+            mLocationManager.removeUpdates(mLocationListener);
+            requestLocationUpdates(interval);
+        }
+    };
+
+    /**
+     * 融合灌点：轮速新鲜时每 FUSION_INTERVAL_MS 把融合位置灌入导航SDK，
+     * 隧道里没有定位也继续按轮速推算，地图吸附和距离倒数不停
+     */
+    private final Runnable mFusionTick = new Runnable() {
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            if (mNaviManager != null && mFusion.isWheelFresh(now) && mFusion.estimate(now, mFusedOut)) {
+                com.tencent.navi.api.model.Location loc = mFusedLocation;
+                loc.setLatitude(mFusedOut[0]);
+                loc.setLongitude(mFusedOut[1]);
+                loc.setSpeed((float) mFusedOut[2]);
+                loc.setBearing((float) mFusedOut[3]);
+                loc.setTime(System.currentTimeMillis());
+                mNaviManager.updateLocation(loc);
+                if (mFusion.isDeadReckoning(now)) {
+                    BridgeMetrics.FUSED_DEAD_RECKONING.inc();
+                } else {
+                    BridgeMetrics.FUSED_GNSS.inc();
+                }
+                BridgeMetrics.WHEEL_SCALE.set(mFusion.getWheelScale());
+            }
+            mFusionHandler.postDelayed(this, FUSION_INTERVAL_MS);
+        }
+    };
+
+    /**
+     * 定位SDK回调 — 将定位数据灌入导航SDK
+     */
+    private final TencentLocationListener mLocationListener = new TencentLocationListener() {
+        @Override
+        public void onLocationChanged(TencentLocation location, int error, String reason) {
+            Responsiveness.callback(UiMonitor.CB_LOCATION);
+            if (error != TencentLocation.ERROR_OK || location == null) return;
+
+            long nowNs = System.nanoTime();
+            RouteContext ctx = RouteContext.current();
+            mFusion.onGnssFix(location.getLatitude(), location.getLongitude(), location.getSpeed(),
+                location.getBearing(), location.getAccuracy(), ctx != null ? ctx.geometry : null, nowNs);
+            BridgeMetrics.LOCATION_FIXES.inc();
+            if (location.getTime() > 0) {
+                BridgeMetrics.LOCATION_FIX_AGE_MS.set(System.currentTimeMillis() - location.getTime());
+            }
+
+            // 首次有效定位立即算路
+            if (!mRouteRequested && mEndLat != 0 && mEndLng != 0) {
+                mHandler.removeCallbacks(mFirstFixTimeout);
+                startRouteSearch(new NaviLatLng(location.getLatitude(), location.getLongitude()));
+            }
+
+            // 有轮速时由融合线程灌点，这里只在没有 C3 轮速时直接灌
+            if (mFusion.isWheelFresh(nowNs)) return;
+
+            // 构建导航SDK的Location对象并灌入
+            com.tencent.navi.api.model.Location naviLocation =
+                new com.tencent.navi.api.model.Location();
+            naviLocation.setLatitude(location.getLatitude());
+            naviLocation.setLongitude(location.getLongitude());
+            naviLocation.setSpeed(location.getSpeed());
+            naviLocation.setBearing(location.getBearing());
+            naviLocation.setTime(System.currentTimeMillis());
+
+            mNaviManager.updateLocation(naviLocation);
+        }
+
+        /** 每次定位状态变化都会回调，只记事件不打日志 */
+        @Override
+        public void onStatusUpdate(String provider, int status, String desc) {
+            EventLog.log(BridgeEvents.LOCATION_STATUS, providerCode(provider), status);
+        }
+    };
+
+    private static int providerCode(String provider) {
+        if (provider == null) return BridgeEvents.PROVIDER_OTHER;
+        switch (provider) {
+            case "gps": return BridgeEvents.PROVIDER_GPS;
+            case "network": return BridgeEvents.PROVIDER_NETWORK;
+            case "cell": return BridgeEvents.PROVIDER_CELL;
+            case "wifi": return BridgeEvents.PROVIDER_WIFI;
+            default: return BridgeEvents.PROVIDER_OTHER;
+        }
+    }
+
+    /**
+     * 路线规划（算路）
+     *
+     * start 为空时使用当前GPS位置（需定位SDK已启动）
+     */
+    private void startRouteSearch(NaviLatLng start) {
+        mRouteRequested = true;
+        RoutePlanner.get().search(start, mEndLat, mEndLng, new RoutePlanner.Callback() {
+            @Override
+            public void onRoutes(List<NaviRouteInfo> routeList) {
+                Responsiveness.callback(UiMonitor.CB_ROUTE);
+                mHandler.post(() -> {
+                    if (mActive) onRoutesReady(routeList);
+                });
+            }
+
+            @Override
+            public void onFailed(int errorCode, String errorMsg) {
+                Responsiveness.callback(UiMonitor.CB_ROUTE);
+                Log.e(TAG, "算路失败: " + errorCode + " " + errorMsg);
+                EventLog.log(BridgeEvents.ROUTE_FAILED, errorCode);
+                mHandler.post(() -> {
+                    Listener l = mListener;
+                    if (l != null) l.onRouteFailed("路线规划失败: " + errorMsg);
+                });
+            }
+        });
+    }
+
+    /**
+     * 算路结果到达：在评分线程池上按用户选择的策略挑路线，限时 ROUTE_SCORE_BUDGET_MS，
+     * 结果回到主线程启动导航。偏航重新规划不走这里，直接用 SDK 推荐路线以免增加延迟。
+     */
+    private void onRoutesReady(List<NaviRouteInfo> routeList) {
+        if (routeList == null || routeList.isEmpty()) {
+            Log.w(TAG, "算路成功但无路线");
+            return;
+        }
+        Log.i(TAG, "算路成功，共 " + routeList.size() + " 条路线");
+        RouteScorer.Policy policy = RouteScorer.Policy.parse(
+            appContext.getSharedPreferences(MainActivity.PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(MainActivity.KEY_ROUTE_POLICY, null));
+        List<Callable<RouteScorer.Candidate>> jobs = new ArrayList<>(routeList.size());
+        for (NaviRouteInfo r : routeList) jobs.add(RouteContext.extractor(r));
+        int generation = mStartGeneration;
+        sScorePool.execute(() -> {
+            RouteScorer.Selection sel = null;
+            try {
+                sel = RouteScorer.select(sScorePool, jobs, policy, ROUTE_SCORE_BUDGET_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "路线评分失败，使用推荐路线", e);
+            }
+            RouteScorer.Selection result = sel;
+            mHandler.post(() -> {
+                if (mActive && generation == mStartGeneration) beginNavi(routeList, policy, result);
+            });
+        });
+    }
+
+    private void beginNavi(List<NaviRouteInfo> routeList, RouteScorer.Policy policy, RouteScorer.Selection sel) {
+        int index = sel != null ? sel.index : 0;
+        RouteScorer.Candidate chosen = sel != null ? sel.selected() : null;
+        if (sel != null && routeList.size() > 1 && policy != RouteScorer.Policy.FASTEST) {
+            BridgeMetrics.ROUTE_SCORING_MS.observe(sel.elapsedMs);
+            if (sel.timedOut) BridgeMetrics.ROUTE_SCORING_TIMEOUTS.inc();
+            if (sel.incomplete) BridgeMetrics.ROUTE_SCORING_INCOMPLETE.inc();
+            EventLog.log(BridgeEvents.ROUTE_SELECTED, index, routeList.size(), sel.elapsedMs);
+            Log.i(TAG, "路线评分（" + policy + "）: 选第 " + index + " 条，耗时 " + sel.elapsedMs + "ms"
+                + (sel.timedOut ? "，超时" : "") + (sel.incomplete ? "，缺路线属性，用推荐路线" : ""));
+        }
+        try {
+            NaviRouteInfo route = routeList.get(index);
+            RouteContext.publish(RouteContext.build(route, chosen != null ? chosen.geometry : null));
+            mNaviManager.startNavi(route);
+            mIsNavigating = true;
+            NaviTiming.markNaviStarted();
+            EventLog.log(BridgeEvents.NAVI_STARTED);
+            Log.i(TAG, "导航已启动");
+        } catch (Exception e) {
+            Log.e(TAG, "启动导航失败", e);
+        }
+    }
+
+    private void onNaviStopped() {
+        EventLog.log(BridgeEvents.NAVI_STOPPED);
+        mIsNavigating = false;
+        mReroute.reset(mNaviData);
+        RouteContext.clear();
+        mRouteTracker.reset();
+        mRouteProgress.reset();
+        BridgeService.setCurrentData(new NaviData());
+    }
+
+    /**
+     * 导航回调 — 核心数据采集
+     *
+     * 通过 INaviListener 获取导航事件和 AttachedLocation 数据，
+     * 转换为 NaviData 格式注入 BridgeService 发送给 C3。
+     */
+    private final INaviListener mNaviListener = new INaviListener() {
+
+        @Override
+        public void onStartNavi() {
+            Log.i(TAG, "导航开始");
+        }
+
+        @Override
+        public void onStopNavi() {
+            Log.i(TAG, "导航结束");
+            // SDK 自行结束（如到达后）时整个会话一起收尾
+            mIsNavigating = false;
+            mHandler.post(NaviSession.this::stop);
+        }
+
+        @Override
+        public void onArrivedDestination() {
+            Log.i(TAG, "到达目的地");
+            mNaviData.setGoPosDist(0);
+            mNaviData.setGoPosTime(0);
+            pushNaviData();
+        }
+
+        @Override
+        public void onOffRoute() {
+            Responsiveness.callback(UiMonitor.CB_NAVI_EVENT);
+            Log.w(TAG, "偏航，等待重新规划");
+            // 保持偏航前的限速/摄像头，标记为保持值
+            BridgeMetrics.OFF_ROUTE.inc();
+            EventLog.log(BridgeEvents.OFF_ROUTE);
+            mReroute.onOffRoute(mNaviData);
+            pushNaviData();
+        }
+
+        /**
+         * 重新规划成功：先构建新路线的预计算数据，再立即在新路线上导航，
+         * 最后整体替换 RouteContext，每帧不会看到新旧混合的数据
+         */
+        @Override
+        public void onRecalculateRouteSuccess(List<NaviRouteInfo> routeList) {
+            Responsiveness.callback(UiMonitor.CB_NAVI_EVENT);
+            if (routeList == null || routeList.isEmpty()) {
+                Log.w(TAG, "重新规划成功但无路线");
+                return;
+            }
+            NaviRouteInfo route = routeList.get(0);
+            RouteContext ctx = RouteContext.build(route);
+            try {
+                mNaviManager.startNavi(route);
+            } catch (Exception e) {
+                Log.e(TAG, "新路线启动导航失败", e);
+            }
+            RouteContext.publish(ctx);
+            long latency = mReroute.onRerouteSuccess(mNaviData);
+            BridgeMetrics.REROUTES.inc();
+            EventLog.log(BridgeEvents.REROUTED, (int) latency);
+            Log.i(TAG, "重新规划成功，耗时 " + latency + "ms（累计 "
+                + mReroute.getRerouteCount() + " 次，最长 " + mReroute.getMaxLatencyMs() + "ms）");
+            pushNaviData();
+        }
+
+        @Override
+        public void onRecalculateRouteFailed(int errorCode, String errorMsg) {
+            Responsiveness.callback(UiMonitor.CB_NAVI_EVENT);
+            Log.e(TAG, "重新规划失败: " + errorCode + " " + errorMsg);
+            mReroute.onRerouteFailed();
+            BridgeMetrics.REROUTES_FAILED.inc();
+            EventLog.log(BridgeEvents.REROUTE_FAILED, errorCode);
+        }
+
+        /**
+         * 吸附定位更新 — 最核心的数据来源
+         *
+         * AttachedLocation 包含（官方文档确认）：
+         * - getLatitude/getLongitude: 吸附到道路上的精确坐标
+         * - getSpeed: 当前车速 (km/h)
+         * - getBearing: 车头朝向
+         * - getRoadName: 当前道路名称
+         * - getSpeedLimit: 道路限速 (km/h)
+         * - getCameraType: 摄像头类型 (0=无,1=测速,2=违章拍照,3=区间测速)
+         * - getNextTurnDistance: 到下一转弯点距离 (米)
+         */
+        @Override
+        public void onUpdateAttachedLocation(AttachedLocation loc) {
+            Responsiveness.callback(UiMonitor.CB_GUIDANCE);
+            if (loc == null) return;
+
+            long now = System.currentTimeMillis();
+            if (now - mLastUpdateTime < UPDATE_INTERVAL_MS) return;
+            mLastUpdateTime = now;
+
+            // GPS 坐标（吸附到道路上的精确坐标）：SDK 给 GCJ-02，C3 要 WGS-84；
+            // 路线查表仍用 GCJ-02，与路线折线一致
+            GeoDatum.gcjToWgs(loc.getLatitude(), loc.getLongitude(), mWgsOut);
+            mNaviData.setPosPointLat(mWgsOut[0]);
+            mNaviData.setPosPointLon(mWgsOut[1]);
+            mNaviData.setPosAngle(loc.getBearing());
+
+            // 道路信息
+            String roadName = loc.getRoadName();
+            if (roadName != null && !roadName.isEmpty()) {
+                mNaviData.setPosRoadName(roadName);
+            }
+
+            // 道路限速（官方确认: getSpeedLimit 返回 int, 单位 km/h）
+            int speedLimit = loc.getSpeedLimit();
+            if (speedLimit > 0) {
+                mNaviData.setRoadLimitSpeed(mNaviData.applySpeedMapping(speedLimit));
+            } else {
+                mNaviData.setRoadLimitSpeed(0);
+            }
+
+            // 转弯：SDK 没有直接的 getNextTurnType，类型和距离一起由路线几何预计算的机动点查表，
+            // 保证图标和距离指向同一个机动点；没有路线几何时退回 SDK 的
+            // getNextTurnDistance（官方确认: float, 单位 米），类型为无。
+            // 同时按沿线里程填前方拥堵长度
+            fillFromRoute(loc.getLatitude(), loc.getLongitude(), loc.getNextTurnDistance(), now);
+
+            // 电子眼/测速摄像头
+            // 官方确认: getCameraType 返回 int
+            // 0=无, 1=测速, 2=违章拍照, 3=区间测速
+            int cameraType = loc.getCameraType();
+            handleCameraData(cameraType, loc);
+
+            // 重新规划期间覆盖为偏航前的确认值
+            mReroute.applyHold(mNaviData);
+
+            // ETA 格式化（使用剩余时间计算预计到达时间）
+            if (mNaviData.nGoPosTime > 0) {
+                formatEta(mNaviData.nGoPosTime);
+            }
+
+            NaviTiming.markGuidance();
+            BridgeMetrics.NAVI_CALLBACKS.inc();
+            // 没有轮速时行程里程按 SDK 车速积分
+            mTrip.onSpeed(loc.getSpeed() / 3.6, false, System.nanoTime());
+            pushNaviData();
+        }
+    };
+
+    /**
+     * 按沿线里程查表填转弯和拥堵字段
+     *
+     * 转弯：下一/下下个机动点的高德 ICON 值和到下一机动点的沿线距离，机动点在 RouteContext.build 时已算好；
+     * 路线几何不可用时距离取 sdkTurnDist、类型为无。
+     * 拥堵：前方 TMC_AHEAD_M 内缓行/拥堵/阻断长度，路况每 TRAFFIC_REFRESH_MS 增量刷新一次。
+     * 剩余距离/时间：RouteProgress 按沿线里程估计；偏航重新规划期间或离线时保持上一次的值，
+     * 新路线发布后 RouteTracker/RouteProgress 随几何实例变化自动重来。
+     */
+    private void fillFromRoute(double lat, double lon, float sdkTurnDist, long now) {
+        RouteContext ctx = RouteContext.current();
+        RouteGeometry g = ctx != null ? ctx.geometry : null;
+        double s = mRouteTracker.update(g, lat, lon);
+        if (s < 0) {
+            mNaviData.setTBTDist(sdkTurnDist);
+            mNaviData.setTBTTurnType(RouteGeometry.ICON_NONE);
+            mNaviData.setNextNextTurnIcon(RouteGeometry.ICON_NONE);
+            return;
+        }
+
+        CongestionIndex c = ctx.congestion;
+        if (now - mLastTrafficRefreshMs >= TRAFFIC_REFRESH_MS) {
+            mLastTrafficRefreshMs = now;
+            ctx.refreshTraffic();
+        }
+        mNaviData.setTmcSlowDist(c.distanceAhead(CongestionIndex.LEVEL_SLOW, s, TMC_AHEAD_M));
+        mNaviData.setTmcJamDist(c.distanceAhead(CongestionIndex.LEVEL_JAM, s, TMC_AHEAD_M));
+        mNaviData.setTmcBlockDist(c.distanceAhead(CongestionIndex.LEVEL_BLOCK, s, TMC_AHEAD_M));
+
+        if (mReroute.getState() == RerouteController.State.NORMAL && !mRouteTracker.isLost()
+                && mRouteProgress.update(g, ctx.etaSec, c, s, now) >= 0) {
+            mNaviData.setGoPosDist(mRouteProgress.getRemainingDistance());
+            mNaviData.setGoPosTime(mRouteProgress.getRemainingTime());
+        }
+
+        int next = g.nextManeuverIndex(s);
+        if (next < 0) {
+            mNaviData.setTBTDist(0);
+            mNaviData.setTBTTurnType(RouteGeometry.ICON_NONE);
+            mNaviData.setNextNextTurnIcon(RouteGeometry.ICON_NONE);
+            return;
+        }
+        mNaviData.setTBTDist(g.maneuverDistance(next) - s);
+        mNaviData.setTBTTurnType(g.maneuverIcon(next));
+        mNaviData.setNextNextTurnIcon(next + 1 < g.getManeuverCount()
+            ? g.maneuverIcon(next + 1) : RouteGeometry.ICON_NONE);
+    }
+
+    /**
+     * 处理摄像头数据（类型映射见 CameraMapping）
+     */
+    private void handleCameraData(int cameraType, AttachedLocation loc) {
+        // 注意：官方文档只确认了 getCameraType()
+        // getSpeedLimit() 是道路限速，摄像头限速可能需要从其他回调获取
+        // 这里用道路限速作为摄像头限速的近似值，转弯距离近似摄像头距离
+        int cameraSpeed = cameraType > 0 ? loc.getSpeedLimit() : 0;
+        float cameraDist = cameraType > 0 ? loc.getNextTurnDistance() : 0;
+        CameraMapping.apply(mNaviData, cameraType, cameraSpeed, cameraDist);
+    }
+
+    /** 格式化 ETA 到达时间 */
+    private void formatEta(int remainSec) {
+        String text = EtaFormat.format(remainSec, System.currentTimeMillis());
+        if (text != null) mNaviData.setEtaText(text);
+    }
+
+    /** 将导航数据推送给 BridgeService */
+    private void pushNaviData() {
+        mNaviData.markSourceUpdated();
+        BridgeService.setCurrentData(mNaviData);
+        mTrip.onFrame(mNaviData, mNaviData.nRoadLimitSpeed > 0 ? NaviData.getOriginalSpeed() : 0);
+    }
+}
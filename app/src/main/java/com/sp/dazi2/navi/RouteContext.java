@@ -0,0 +1,178 @@
+package com.sp.dazi2.navi;
+
+import android.util.Log;
+
+import com.tencent.navi.api.model.NaviLatLng;
+import com.tencent.navi.api.model.NaviRouteInfo;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 当前路线及其预计算数据
+ *
+ * 每次算路/重新规划成功生成一个新的不可变实例，
+ * 通过 publish() 整体替换；每帧处理用 current() 取一次引用，
+ * 同一帧内看到的路线与预计算数据必然来自同一次规划。
+ * 例外是 congestion：随路况刷新原地增量更新，只在导航回调线程读写。
+ */
+public final class RouteContext {
+    private static final String TAG = "RouteContext";
+    private static final AtomicReference<RouteContext> sCurrent = new AtomicReference<>();
+    private static final AtomicInteger sGeneration = new AtomicInteger();
+
+    public final NaviRouteInfo route;
+    public final int generation;
+    public final long plannedAtMs;
+    /** 曲率/建议速度剖面与机动点；拿不到折线时为 null */
+    public final RouteGeometry geometry;
+    /** 沿线拥堵汇总；geometry 为 null 时也为 null */
+    public final CongestionIndex congestion;
+    /** SDK 给出的路线 ETA s，取不到时 0 */
+    public final int etaSec;
+
+    private RouteContext(NaviRouteInfo route, long plannedAtMs, RouteGeometry geometry) {
+        this.route = route;
+        this.etaSec = etaOf(route);
+        this.generation = sGeneration.incrementAndGet();
+        this.plannedAtMs = plannedAtMs;
+        this.geometry = geometry;
+        this.congestion = geometry != null ? new CongestionIndex(geometry) : null;
+    }
+
+    /** 为新路线构建上下文（在算路回调线程执行） */
+    public static RouteContext build(NaviRouteInfo route) {
+        return build(route, null);
+    }
+
+    /** 同上，geometry 非空时直接复用（路线评分时已构建） */
+    public static RouteContext build(NaviRouteInfo route, RouteGeometry prebuilt) {
+        long t0 = System.nanoTime();
+        RouteGeometry geometry = prebuilt != null ? prebuilt : buildGeometry(route);
+        if (geometry != null && prebuilt == null) {
+            Log.i(TAG, "路线几何: " + geometry.getPointCount() + " 点 / "
+                + geometry.getStore().sizeBytes() / 1024 + "KB, "
+                + Math.round(geometry.getTotalLength()) + "m, "
+                + geometry.getManeuverCount() + " 个机动点, 耗时 "
+                + (System.nanoTime() - t0) / 1_000_000 + "ms");
+        }
+        RouteContext ctx = new RouteContext(route, System.currentTimeMillis(), geometry);
+        ctx.refreshTraffic();
+        return ctx;
+    }
+
+    /**
+     * 从路线对象重新读取路况并增量更新 congestion
+     *
+     * NaviRouteInfo 的路况分段和 TrafficItem 的方法名待实际SDK确认（见 README 已知限制），
+     * 经 RouteInfoAccess 反射调用。分段按折线点下标给出范围，
+     * 状态 2=缓行、3=拥堵、4=严重拥堵/阻断，其余视为畅通。
+     *
+     * @return 等级变化的段数；无路况数据时返回 -1
+     */
+    public int refreshTraffic() {
+        if (congestion == null) return -1;
+        List<?> items = RouteInfoAccess.trafficItems(route);
+        if (items == null) return -1;
+        congestion.beginRefresh();
+        for (Object item : items) {
+            int from = RouteInfoAccess.intOf(item, "getFromIndex");
+            int to = RouteInfoAccess.intOf(item, "getToIndex");
+            int status = RouteInfoAccess.intOf(item, "getTrafficStatus");
+            if (from == RouteInfoAccess.MISSING || to == RouteInfoAccess.MISSING
+                    || status == RouteInfoAccess.MISSING) {
+                // 分段对象取不到字段：放弃本次刷新，不提交半套数据
+                return -1;
+            }
+            congestion.stage(from, to, levelOf(status));
+        }
+        return congestion.commitRefresh();
+    }
+
+    private static int levelOf(int trafficStatus) {
+        switch (trafficStatus) {
+            case 2: return CongestionIndex.LEVEL_SLOW;
+            case 3: return CongestionIndex.LEVEL_JAM;
+            case 4: return CongestionIndex.LEVEL_BLOCK;
+            default: return CongestionIndex.LEVEL_NONE;
+        }
+    }
+
+    /** 路线 ETA；getTotalTime 方法名待确认（见 README 已知限制），经 RouteInfoAccess 反射调用，取不到时 0 */
+    private static int etaOf(NaviRouteInfo route) {
+        return Math.max(0, RouteInfoAccess.totalTime(route));
+    }
+
+    /**
+     * 路线评分特征提取任务，在 RouteScorer 的线程池上执行
+     *
+     * ETA/长度和沿线摄像头列表（getTotalTime/getTotalDistance/getRouteCameras，
+     * 摄像头对象的 getType/getSpeedLimit）方法名待实际SDK确认（见 README 已知限制），
+     * 经 RouteInfoAccess 反射调用。全部取到才置 attributes，否则 RouteScorer 退回 SDK 推荐路线。
+     * 限速变化次数按沿线摄像头的限速序列近似。
+     */
+    public static Callable<RouteScorer.Candidate> extractor(NaviRouteInfo route) {
+        return () -> {
+            RouteScorer.Candidate c = new RouteScorer.Candidate();
+            c.geometry = buildGeometry(route);
+            if (c.geometry != null) {
+                c.lengthM = c.geometry.getTotalLength();
+                c.curvedLengthM = c.geometry.lengthBelowAdvice(RouteScorer.CURVE_KPH);
+            }
+            int eta = RouteInfoAccess.totalTime(route);
+            int dist = RouteInfoAccess.totalDistance(route);
+            List<?> cameras = RouteInfoAccess.routeCameras(route);
+            if (eta <= 0 || dist == RouteInfoAccess.MISSING || cameras == null) return c;
+            if (dist > 0) c.lengthM = dist;
+            int lastLimit = 0;
+            for (Object cam : cameras) {
+                int type = RouteInfoAccess.intOf(cam, "getType");
+                int limit = RouteInfoAccess.intOf(cam, "getSpeedLimit");
+                if (type == RouteInfoAccess.MISSING || limit == RouteInfoAccess.MISSING) return c;
+                if (type == CameraMapping.TENCENT_SECTION) c.sectionCount++;
+                else if (type > CameraMapping.TENCENT_NONE) c.cameraCount++;
+                if (limit > 0) {
+                    if (lastLimit > 0 && limit != lastLimit) c.limitChanges++;
+                    lastLimit = limit;
+                }
+            }
+            c.etaSec = eta;
+            c.attributes = true;
+            return c;
+        };
+    }
+
+    /**
+     * 取路线折线
+     *
+     * NaviRouteInfo 的折线方法名待实际SDK确认（见 README 已知限制），经 RouteInfoAccess 反射调用，
+     * 取不到时返回 null，每帧的转弯字段退回 SDK 原值。
+     */
+    private static RouteGeometry buildGeometry(NaviRouteInfo route) {
+        List<?> points = RouteInfoAccess.routePoints(route);
+        if (points == null || points.size() < 2) return null;
+        // 直接喂入紧凑存储，不经中间 double 数组
+        RouteStore.Builder b = new RouteStore.Builder(points.size());
+        for (Object p : points) {
+            if (p instanceof NaviLatLng) {
+                b.add(((NaviLatLng) p).getLatitude(), ((NaviLatLng) p).getLongitude());
+            } else {
+                double lat = RouteInfoAccess.doubleOf(p, "getLatitude");
+                double lon = RouteInfoAccess.doubleOf(p, "getLongitude");
+                if (Double.isNaN(lat) || Double.isNaN(lon)) return null;
+                b.add(lat, lon);
+            }
+        }
+        return RouteGeometry.build(b.build());
+    }
+
+    /** 原子替换当前路线 */
+    public static void publish(RouteContext ctx) { sCurrent.set(ctx); }
+
+    /** 导航结束时清空 */
+    public static void clear() { sCurrent.set(null); }
+
+    public static RouteContext current() { return sCurrent.get(); }
+}
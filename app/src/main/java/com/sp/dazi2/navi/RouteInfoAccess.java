@@ -0,0 +1,95 @@
+package com.sp.dazi2.navi;
+
+import android.util.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NaviRouteInfo 及其子对象上未经官方文档确认的方法，一律经反射调用
+ *
+ * 折线（getRoutePoints）、路况分段（getTrafficItems + TrafficItem 的下标/状态）、
+ * ETA/长度（getTotalTime/getTotalDistance）、沿线摄像头（getRouteCameras + RouteCamera 的类型/限速）
+ * 的方法名都是按旧版SDK推测的（见 README 已知限制）。直接调用时方法名不对编译不过，
+ * 编译用的SDK与运行时不一致则抛 NoSuchMethodError（Error，普通 catch 接不住），导航直接崩。
+ * 这里按类和方法名查一次并缓存，查不到时记一次日志，之后返回 MISSING / null，调用方按"取不到"处理。
+ * SDK 方法自己抛的异常同样当作本次取不到。
+ *
+ * 任意线程可调用。
+ */
+final class RouteInfoAccess {
+    private RouteInfoAccess() {}
+
+    private static final String TAG = "RouteInfoAccess";
+
+    /** 取不到的整数值 */
+    static final int MISSING = Integer.MIN_VALUE;
+
+    // 类名#方法名 → Method；查不到的存 NONE
+    private static final ConcurrentHashMap<String, Object> sMethods = new ConcurrentHashMap<>();
+    private static final Object NONE = new Object();
+
+    /** 路线折线点（元素为 NaviLatLng 或同样有 getLatitude/getLongitude 的对象），取不到时 null */
+    static List<?> routePoints(Object route) { return list(route, "getRoutePoints"); }
+
+    /** 路况分段，取不到时 null */
+    static List<?> trafficItems(Object route) { return list(route, "getTrafficItems"); }
+
+    /** 沿线摄像头，取不到时 null */
+    static List<?> routeCameras(Object route) { return list(route, "getRouteCameras"); }
+
+    /** 路线 ETA s，取不到时 MISSING */
+    static int totalTime(Object route) { return intOf(route, "getTotalTime"); }
+
+    /** 路线长度 m，取不到时 MISSING */
+    static int totalDistance(Object route) { return intOf(route, "getTotalDistance"); }
+
+    /** 无参方法的数值结果，取不到或不是数值时 MISSING */
+    static int intOf(Object target, String name) {
+        Object v = call(target, name);
+        return v instanceof Number ? ((Number) v).intValue() : MISSING;
+    }
+
+    /** 无参方法的数值结果，取不到或不是数值时 NaN */
+    static double doubleOf(Object target, String name) {
+        Object v = call(target, name);
+        return v instanceof Number ? ((Number) v).doubleValue() : Double.NaN;
+    }
+
+    private static List<?> list(Object target, String name) {
+        Object v = call(target, name);
+        return v instanceof List ? (List<?>) v : null;
+    }
+
+    private static Object call(Object target, String name) {
+        if (target == null) return null;
+        Method m = find(target.getClass(), name);
+        if (m == null) return null;
+        try {
+            return m.invoke(target);
+        } catch (InvocationTargetException e) {
+            Log.w(TAG, target.getClass().getSimpleName() + "." + name + " 调用失败", e.getCause());
+            return null;
+        } catch (IllegalAccessException | RuntimeException | LinkageError e) {
+            Log.w(TAG, target.getClass().getSimpleName() + "." + name + " 调用失败", e);
+            return null;
+        }
+    }
+
+    private static Method find(Class<?> cls, String name) {
+        String key = cls.getName() + '#' + name;
+        Object cached = sMethods.get(key);
+        if (cached == null) {
+            try {
+                cached = cls.getMethod(name);
+            } catch (NoSuchMethodException | SecurityException | LinkageError e) {
+                Log.w(TAG, "SDK 没有 " + cls.getSimpleName() + "." + name + "()，相关功能停用");
+                cached = NONE;
+            }
+            sMethods.put(key, cached);
+        }
+        return cached == NONE ? null : (Method) cached;
+    }
+}
@@ -0,0 +1,125 @@
+package com.sp.dazi2.navi;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.tencent.map.geolocation.TencentLocation;
+import com.tencent.map.geolocation.TencentLocationManager;
+import com.tencent.navi.api.TencentCarNaviManager;
+import com.tencent.navi.api.listener.IRoutePlanListener;
+import com.tencent.navi.api.model.NaviLatLng;
+import com.tencent.navi.api.model.NaviRouteInfo;
+import com.tencent.navi.api.model.RoutePlanParam;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 算路调度
+ *
+ * 1. 投机算路：MainActivity 拿到 POI 首个结果后立即以最近已知位置为起点算路，
+ *    不等导航会话启动和 GNSS 首次定位。
+ * 2. NaviSession 取用投机结果（终点一致且未过期时），否则按首次定位
+ *    或最近已知位置为起点重新算路。
+ *
+ * 投机结果只保留一份，由主线程读写。
+ */
+public class RoutePlanner {
+    private static final String TAG = "RoutePlanner";
+    private static final long SPECULATION_TTL_MS = 60_000;
+    private static final double SAME_POINT_METERS = 50;
+
+    private static final RoutePlanner sInstance = new RoutePlanner();
+
+    public static RoutePlanner get() { return sInstance; }
+
+    public interface Callback {
+        void onRoutes(List<NaviRouteInfo> routes);
+        void onFailed(int errorCode, String errorMsg);
+    }
+
+    // 投机算路
+    private double mSpecEndLat, mSpecEndLng;
+    private long mSpecAtMs;
+    private CompletableFuture<List<NaviRouteInfo>> mSpecFuture;
+
+    private RoutePlanner() { }
+
+    /** POI 结果到手即调用（导航SDK须已就绪） */
+    public void speculate(Context ctx, double endLat, double endLng) {
+        TencentLocation last = lastKnownLocation(ctx);
+        if (last == null) {
+            Log.i(TAG, "无最近已知位置，跳过投机算路");
+            return;
+        }
+        CompletableFuture<List<NaviRouteInfo>> future = new CompletableFuture<>();
+        mSpecEndLat = endLat;
+        mSpecEndLng = endLng;
+        mSpecAtMs = SystemClock.elapsedRealtime();
+        mSpecFuture = future;
+        search(new NaviLatLng(last.getLatitude(), last.getLongitude()), endLat, endLng, new Callback() {
+            @Override public void onRoutes(List<NaviRouteInfo> routes) { future.complete(routes); }
+            @Override public void onFailed(int errorCode, String errorMsg) {
+                future.completeExceptionally(new IllegalStateException(errorCode + " " + errorMsg));
+            }
+        });
+        Log.i(TAG, "投机算路已发起");
+    }
+
+    /**
+     * 取走与终点匹配的投机算路结果
+     *
+     * @return 进行中或已完成的结果；没有可用投机结果时返回 null
+     */
+    public CompletableFuture<List<NaviRouteInfo>> takeSpeculative(double endLat, double endLng) {
+        CompletableFuture<List<NaviRouteInfo>> future = mSpecFuture;
+        mSpecFuture = null;
+        if (future == null || future.isCompletedExceptionally()) return null;
+        if (SystemClock.elapsedRealtime() - mSpecAtMs > SPECULATION_TTL_MS) return null;
+        if (distanceMeters(mSpecEndLat, mSpecEndLng, endLat, endLng) > SAME_POINT_METERS) return null;
+        return future;
+    }
+
+    /**
+     * 路线规划（算路）
+     *
+     * 官方API: searchRoute(RoutePlanParam, IRoutePlanListener)
+     * start 为空时使用当前GPS位置（需定位SDK已启动）
+     */
+    public void search(NaviLatLng start, double endLat, double endLng, Callback cb) {
+        RoutePlanParam.Builder builder = new RoutePlanParam.Builder()
+            .setEndPoint(new NaviLatLng(endLat, endLng))
+            .setRoutePlanType(RoutePlanParam.ROUTE_PLAN_TYPE_FASTEST)
+            .setAvoidCongestion(true);
+        if (start != null) builder.setStartPoint(start);
+
+        TencentCarNaviManager.getInstance().searchRoute(builder.build(), new IRoutePlanListener() {
+            @Override
+            public void onRoutePlanSuccess(List<NaviRouteInfo> routeList) {
+                NaviTiming.markRoutePlanned();
+                cb.onRoutes(routeList);
+            }
+
+            @Override
+            public void onRoutePlanFailed(int errorCode, String errorMsg) {
+                cb.onFailed(errorCode, errorMsg);
+            }
+        });
+    }
+
+    public static TencentLocation lastKnownLocation(Context ctx) {
+        TencentLocation last = TencentLocationManager.getInstance(ctx.getApplicationContext())
+            .getLastKnownLocation();
+        if (last == null || (last.getLatitude() == 0 && last.getLongitude() == 0)) return null;
+        return last;
+    }
+
+    /** 近距离等距近似，够判断"是不是同一个点" */
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double kx = Math.cos(Math.toRadians((lat1 + lat2) / 2)) * 111_320.0;
+        double dx = (lng2 - lng1) * kx;
+        double dy = (lat2 - lat1) * 110_574.0;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -3,45 +3,75 @@ package com.sp.dazi2.service;
 import android.app.Notification;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.LinkProperties;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
 import android.os.Binder;
+import android.os.Debug;
 import android.os.IBinder;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
 
 import com.sp.dazi2.App;
 import com.sp.dazi2.MainActivity;
+import com.sp.dazi2.bridge.BridgeEngine;
+import com.sp.dazi2.bridge.BridgeEngine.ConnectionState;
+import com.sp.dazi2.bridge.BridgeSnapshot;
+import com.sp.dazi2.metrics.EventLog;
+import com.sp.dazi2.metrics.Metrics;
+import com.sp.dazi2.metrics.MetricsServer;
 import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.navi.NaviSession;
+import com.sp.dazi2.navi.TripLog;
+import com.sp.dazi2.navi.TripStats;
+import com.sp.dazi2.protocol.NaviFrameFormat;
 
-import org.json.JSONObject;
-
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketTimeoutException;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 桥接前台服务 (2.0)
  *
- * 功能：
- * 1. 监听 UDP 7705 端口，接收 C3 设备广播（自动发现）
- * 2. 每 200ms 通过 UDP 7706 向 C3 发送导航 JSON 数据
- * 3. 管理连接状态
+ * UDP 发现/发送逻辑在 bridge-core 的 BridgeEngine 中，这里只负责 Android 外壳：
+ * 1. 前台服务和通知，保证后台持续发送
+ * 2. 功耗调度到最后一级时放慢发送间隔
+ * 3. TCP 7707 提供 Prometheus 文本格式指标（GET /metrics），供测试时抓取
+ * 4. 订阅 WiFi 网络变化和热点开关，通知引擎立即主动探测 C3
+ * 5. 持有导航会话（NaviSession）：算路、导航回调和定位灌点都跟随服务，
+ *    地图界面 NaviActivity 可选，关掉界面导航和 C3 数据流照常
+ * 6. 热重启：C3 地址、最近一帧、限速映射和导航终点存入快照（BridgeSnapshot），
+ *    进程被杀后 START_STICKY 重启时立即恢复发送，导航中则恢复导航会话
+ * 7. 每次导航结束把行程汇总（TripStats）追加到 trips.bin，GET /trips 查看最近几次
  *
- * 与 1.0 的区别：数据来源从 AmapNaviReceiver 改为 NaviActivity 的 SDK 回调，
+ * 与 1.0 的区别：数据来源从 AmapNaviReceiver 改为导航SDK回调，
  * 通过 setCurrentData() 注入。UDP 协议和 JSON 格式完全不变。
  */
 public class BridgeService extends Service {
     private static final String TAG = "BridgeService2";
     private static final int NOTIFICATION_ID = 2;
-    private static final int DISCOVERY_PORT = 7705;
-    private static final int DATA_PORT = 7706;
-    private static final long SEND_INTERVAL = 200;
+    // 热点开关广播（系统隐藏 API，常量未公开）
+    private static final String ACTION_WIFI_AP_STATE_CHANGED = "android.net.wifi.WIFI_AP_STATE_CHANGED";
+    private static final String EXTRA_WIFI_AP_STATE = "wifi_state";
+    private static final int WIFI_AP_STATE_ENABLED = 13;
+    // 快照中的帧超过此年龄不再恢复（车可能早已不在那条路上）
+    private static final long RESUME_FRAME_MAX_AGE_MS = 60_000;
+    // 快照最后一次保存超过此时长则不恢复导航
+    private static final long RESUME_NAVI_MAX_AGE_MS = 10 * 60_000;
 
-    public enum ConnectionState { SEARCHING, CONNECTED, DISCONNECTED }
+    public static final String ACTION_START_NAVI = "com.sp.dazi2.action.START_NAVI";
+    public static final String ACTION_STOP_NAVI = "com.sp.dazi2.action.STOP_NAVI";
+    public static final String EXTRA_END_LAT = "end_lat";
+    public static final String EXTRA_END_LNG = "end_lng";
 
     public interface StateCallback {
         void onStateChanged(ConnectionState state, String c3Ip);
@@ -49,147 +79,388 @@ public class BridgeService extends Service {
     }
 
     private final IBinder binder = new LocalBinder();
-    private StateCallback stateCallback;
-
-    private volatile boolean running = false;
-    private volatile String c3IpAddress = null;
-    private volatile ConnectionState connectionState = ConnectionState.SEARCHING;
-    private int packetCount = 0;
+    private volatile StateCallback stateCallback;
 
-    // 导航数据（由 NaviActivity 回调写入）
+    // 导航数据（由 NaviSession 回调写入）
     private static volatile NaviData sCurrentData = new NaviData();
+    private static volatile long sStaleFlagMs = 1500;
+    private static volatile long sStaleDropMs = 3000;
+    private static volatile int sRedundancyCopies = 0;
+    private static volatile long sRedundancySpacingMs = 30;
+    private static volatile String sReceivers = "";
 
-    private Thread discoveryThread;
-    private Timer sendTimer;
-    private DatagramSocket sendSocket;
+    private final BridgeEngine engine = new BridgeEngine(BridgeService::getCurrentData);
+    private PowerGovernor powerGovernor;
+    private MetricsServer metricsServer;
+    private ConnectivityManager connectivityManager;
+    // 各 WiFi 网络最近一次的链路属性，用于区分注册时的首次回调和真正的地址变化
+    private final Map<Network, LinkProperties> knownNetworks = new HashMap<>();
+    private boolean apReceiverRegistered = false;
+    private NaviSession naviSession;
+    private BridgeSnapshot snapshot;
+    private boolean snapshotRestored = false;
+    private TripLog tripLog;
+    private boolean destroyed = false;
 
     public class LocalBinder extends Binder {
         public BridgeService getService() { return BridgeService.this; }
     }
 
-    /** NaviActivity 调用此方法注入最新导航数据 */
+    /** NaviSession 调用此方法注入最新导航数据 */
     public static void setCurrentData(NaviData data) {
         if (data != null) sCurrentData = data;
     }
 
     public static NaviData getCurrentData() { return sCurrentData; }
 
+    /** 调整超时看门狗阈值，下次启动桥接时生效 */
+    public static void setStaleThresholds(long flagMs, long dropMs) {
+        sStaleFlagMs = flagMs;
+        sStaleDropMs = Math.max(flagMs, dropMs);
+    }
+
+    /** 冗余模式（copies = 0 关闭），下次启动桥接时生效，见 BridgeEngine.setRedundancy() */
+    public static void setRedundancy(int copies, long spacingMs) {
+        sRedundancyCopies = copies;
+        sRedundancySpacingMs = spacingMs;
+    }
+
+    /**
+     * 固定附加接收端，"host:port[:naviBin],..."，naviBin 缺省 2；下次启动桥接时生效。
+     * 接收端也可以自己向发现端口发 subscribe 心跳，见 FanOut
+     */
+    public static void setReceivers(String spec) {
+        sReceivers = spec == null ? "" : spec;
+    }
+
+    /** 启动服务并开始导航到终点（无需地图界面） */
+    public static void startNavigation(Context context, double endLat, double endLng) {
+        Intent intent = new Intent(context, BridgeService.class)
+            .setAction(ACTION_START_NAVI)
+            .putExtra(EXTRA_END_LAT, endLat)
+            .putExtra(EXTRA_END_LNG, endLng);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /** 结束导航，桥接服务继续运行 */
+    public static void stopNavigation(Context context) {
+        Intent intent = new Intent(context, BridgeService.class).setAction(ACTION_STOP_NAVI);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
     @Override
     public IBinder onBind(Intent intent) { return binder; }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         if (intent != null && intent.hasExtra("c3_ip")) {
-            String ip = intent.getStringExtra("c3_ip");
-            if (ip != null && !ip.isEmpty()) {
-                c3IpAddress = ip;
-                setConnectionState(ConnectionState.CONNECTED);
-            }
+            engine.setC3Ip(intent.getStringExtra("c3_ip"));
         }
-        startForeground(NOTIFICATION_ID, buildNotification("SP搭子2.0运行中"));
+        startForeground(NOTIFICATION_ID, buildNotification(statusText()));
         startBridge();
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_START_NAVI.equals(action)) {
+            startNaviSession(intent.getDoubleExtra(EXTRA_END_LAT, 0), intent.getDoubleExtra(EXTRA_END_LNG, 0));
+        } else if (ACTION_STOP_NAVI.equals(action)) {
+            if (naviSession != null) naviSession.stop();
+        }
         return START_STICKY;
     }
 
     @Override
     public void onDestroy() {
+        destroyed = true;
+        if (naviSession != null) naviSession.stop();
         stopBridge();
+        EventLog.flush();
         super.onDestroy();
     }
 
-    public void setStateCallback(StateCallback cb) { this.stateCallback = cb; }
-    public ConnectionState getConnectionState() { return connectionState; }
-    public String getC3IpAddress() { return c3IpAddress; }
-    public int getPacketCount() { return packetCount; }
+    /** 当前导航会话，尚未导航过时为 null；只在主线程使用 */
+    public NaviSession getNaviSession() { return naviSession; }
 
-    public void setC3Ip(String ip) {
-        if (ip != null && !ip.isEmpty()) {
-            c3IpAddress = ip;
-            setConnectionState(ConnectionState.CONNECTED);
+    private void startNaviSession(double endLat, double endLng) {
+        if (endLat == 0 || endLng == 0) return;
+        if (naviSession == null) {
+            naviSession = new NaviSession(this, () -> {
+                // 正常结束（含用户停止服务）后不再恢复导航；进程被杀不会走到这里
+                if (snapshot != null) snapshot.clearDestination();
+                saveTrip(naviSession.getLastTrip());
+                updateNotification(statusText());
+            });
         }
+        // 导航SDK在后台初始化，就绪后再开始；失败时只记日志，桥接照常
+        App.whenNaviSdkReady().whenComplete((v, err) -> ContextCompat.getMainExecutor(this).execute(() -> {
+            if (destroyed) return;
+            if (err != null) {
+                Log.e(TAG, "导航SDK未初始化，无法启动导航", err);
+                return;
+            }
+            naviSession.start(endLat, endLng);
+            if (snapshot != null) snapshot.saveDestination(endLat, endLng);
+            updateNotification(statusText());
+        }));
     }
 
+    public void setStateCallback(StateCallback cb) { this.stateCallback = cb; }
+    public ConnectionState getConnectionState() { return engine.getConnectionState(); }
+    public String getC3IpAddress() { return engine.getC3IpAddress(); }
+    public int getPacketCount() { return engine.getPacketCount(); }
+    public boolean isBinaryProtocol() { return engine.isBinaryProtocol(); }
+    public int getStallCount() { return engine.getStallCount(); }
+    public long getLastReconnectMs() { return engine.getLastReconnectMs(); }
+
+    public void setC3Ip(String ip) { engine.setC3Ip(ip); }
+
     private void startBridge() {
-        if (running) return;
-        running = true;
+        if (engine.isRunning()) return;
+        openTripLog();
+        startMetricsServer();
+        long initialDelayMs = restoreSnapshot() ? 0 : 1000;
 
-        discoveryThread = new Thread(this::discoveryLoop, "C3-Discovery");
-        discoveryThread.setDaemon(true);
-        discoveryThread.start();
+        engine.setStaleThresholds(sStaleFlagMs, sStaleDropMs);
+        engine.setRedundancy(sRedundancyCopies, sRedundancySpacingMs);
+        addReceivers(sReceivers);
+        engine.setListener(engineListener);
+        powerGovernor = PowerGovernor.get(this);
+        powerGovernor.addListener(powerListener);
+        engine.setSnapshot(snapshot);
+        engine.start(initialDelayMs, powerGovernor.getSendIntervalMs(BridgeEngine.DEFAULT_SEND_INTERVAL));
+        registerNetworkWatch();
+    }
 
-        sendTimer = new Timer("DataSender", true);
-        sendTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override public void run() { sendNaviData(); }
-        }, 1000, SEND_INTERVAL);
+    private void addReceivers(String spec) {
+        for (String item : spec.split(",")) {
+            String[] p = item.trim().split(":");
+            if (p.length < 2) continue;
+            try {
+                engine.addReceiver(p[0], Integer.parseInt(p[1]),
+                    p.length > 2 ? Integer.parseInt(p[2]) : NaviFrameFormat.VERSION_DELTA);
+            } catch (Exception e) {
+                Log.e(TAG, "附加接收端无效: " + item, e);
+            }
+        }
     }
 
     private void stopBridge() {
-        running = false;
-        if (sendTimer != null) { sendTimer.cancel(); sendTimer = null; }
-        if (sendSocket != null && !sendSocket.isClosed()) sendSocket.close();
-        if (discoveryThread != null) discoveryThread.interrupt();
+        unregisterNetworkWatch();
+        engine.stop();
+        engine.setSnapshot(null);
+        if (metricsServer != null) { metricsServer.stop(); metricsServer = null; }
+        if (powerGovernor != null) powerGovernor.removeListener(powerListener);
     }
 
-    private void discoveryLoop() {
-        DatagramSocket socket = null;
+    /**
+     * 服务实例首次启动桥接时读快照：恢复限速映射、C3 地址（Intent 未指定时）、
+     * 不太旧的最近一帧和未结束的导航。恢复出 C3 地址时立即开始发送，返回 true。
+     *
+     * 恢复的帧按真实年龄回填 sourceTimeMs，发送时照常被看门狗标记 STALE、清零时效字段，
+     * C3 先拿到限速和道路名，等导航会话接上后再更新。
+     */
+    private boolean restoreSnapshot() {
+        if (snapshotRestored) return false;
+        snapshotRestored = true;
         try {
-            socket = new DatagramSocket(DISCOVERY_PORT);
-            socket.setSoTimeout(5000);
-            socket.setReuseAddress(true);
-            byte[] buf = new byte[1024];
-            while (running) {
-                try {
-                    DatagramPacket pkt = new DatagramPacket(buf, buf.length);
-                    socket.receive(pkt);
-                    String senderIp = pkt.getAddress().getHostAddress();
-                    if (c3IpAddress == null || !c3IpAddress.equals(senderIp)) {
-                        c3IpAddress = senderIp;
-                        setConnectionState(ConnectionState.CONNECTED);
+            snapshot = new BridgeSnapshot(new File(getFilesDir(), "bridge.snap"));
+        } catch (IOException e) {
+            Log.e(TAG, "快照文件打开失败，冷启动", e);
+            return false;
+        }
+        BridgeSnapshot.State st = snapshot.load();
+        if (st == null) return false;
+
+        for (int i = 0; i + 1 < st.mappings.length; i += 2) {
+            NaviData.setSpeedMapping(st.mappings[i], st.mappings[i + 1]);
+        }
+        boolean linkRestored = false;
+        if (engine.getC3IpAddress() == null && st.c3Ip != null) {
+            engine.restoreLink(st.c3Ip, st.c3BinVersion);
+            linkRestored = true;
+        }
+        long nowWall = System.currentTimeMillis();
+        long frameAge = st.frameAgeNowMs(nowWall);
+        if (st.frame != null && frameAge < RESUME_FRAME_MAX_AGE_MS && sCurrentData.sourceTimeMs == 0) {
+            st.frame.sourceTimeMs = Math.max(1, System.nanoTime() / 1_000_000 - frameAge);
+            setCurrentData(st.frame);
+        }
+        if (st.destinationActive && nowWall - st.savedWallMs < RESUME_NAVI_MAX_AGE_MS
+                && (naviSession == null || !naviSession.isActive())) {
+            Log.i(TAG, "恢复未结束的导航");
+            startNaviSession(st.destLat, st.destLng);
+        }
+        Log.i(TAG, "快照恢复：C3 " + st.c3Ip + "，帧年龄 " + frameAge + "ms"
+            + (st.destinationActive ? "，导航中" : ""));
+        return linkRestored;
+    }
+
+    private final BridgeEngine.Listener engineListener = new BridgeEngine.Listener() {
+        @Override
+        public void onStateChanged(ConnectionState state, String c3Ip) {
+            StateCallback cb = stateCallback;
+            if (cb != null) cb.onStateChanged(state, c3Ip);
+        }
+
+        @Override
+        public void onDataSent(int packetCount) {
+            StateCallback cb = stateCallback;
+            if (cb != null) cb.onDataSent(packetCount);
+        }
+    };
+
+    private void registerNetworkWatch() {
+        connectivityManager = getSystemService(ConnectivityManager.class);
+        if (connectivityManager != null) {
+            synchronized (knownNetworks) {
+                for (Network n : connectivityManager.getAllNetworks()) {
+                    NetworkCapabilities caps = connectivityManager.getNetworkCapabilities(n);
+                    if (caps != null && caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+                        knownNetworks.put(n, connectivityManager.getLinkProperties(n));
                     }
-                } catch (SocketTimeoutException e) {
-                    if (c3IpAddress == null) setConnectionState(ConnectionState.SEARCHING);
                 }
             }
-        } catch (Exception e) {
-            Log.e(TAG, "发现线程异常", e);
-        } finally {
-            if (socket != null && !socket.isClosed()) socket.close();
+            NetworkRequest request = new NetworkRequest.Builder()
+                .addTransportType(NetworkCapabilities.TRANSPORT_WIFI)
+                .build();
+            connectivityManager.registerNetworkCallback(request, networkCallback);
+        }
+        registerReceiver(apStateReceiver, new IntentFilter(ACTION_WIFI_AP_STATE_CHANGED));
+        apReceiverRegistered = true;
+    }
+
+    private void unregisterNetworkWatch() {
+        if (connectivityManager != null) {
+            try {
+                connectivityManager.unregisterNetworkCallback(networkCallback);
+            } catch (IllegalArgumentException e) {
+                // 未注册
+            }
+            connectivityManager = null;
+        }
+        synchronized (knownNetworks) { knownNetworks.clear(); }
+        if (apReceiverRegistered) {
+            unregisterReceiver(apStateReceiver);
+            apReceiverRegistered = false;
+        }
+    }
+
+    /**
+     * WiFi 网络回调
+     *
+     * 注册时系统会对已有网络补发 onAvailable / onLinkPropertiesChanged，
+     * 只有新网络、网络断开或地址确实变化（DHCP 续租换 IP）时才通知引擎。
+     */
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onAvailable(Network network) {
+            synchronized (knownNetworks) {
+                if (knownNetworks.containsKey(network)) return;
+                knownNetworks.put(network, null);
+            }
+            engine.onNetworkChanged("WiFi 连上");
+        }
+
+        @Override
+        public void onLost(Network network) {
+            synchronized (knownNetworks) { knownNetworks.remove(network); }
+            engine.onNetworkChanged("WiFi 断开");
+        }
+
+        @Override
+        public void onLinkPropertiesChanged(Network network, LinkProperties lp) {
+            LinkProperties prev;
+            synchronized (knownNetworks) { prev = knownNetworks.put(network, lp); }
+            if (prev != null && !prev.getLinkAddresses().equals(lp.getLinkAddresses())) {
+                engine.onNetworkChanged("WiFi 地址变化 " + lp.getLinkAddresses());
+            }
+        }
+    };
+
+    /** 手机开热点给 C3 用时，热点重新打开同样需要重新找 C3 */
+    private final BroadcastReceiver apStateReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (isInitialStickyBroadcast()) return;
+            if (intent.getIntExtra(EXTRA_WIFI_AP_STATE, -1) == WIFI_AP_STATE_ENABLED) {
+                engine.onNetworkChanged("热点打开");
+            }
+        }
+    };
+
+    private void startMetricsServer() {
+        Metrics.gauge("dazi_gc_count", "ART garbage collections since process start",
+            () -> runtimeStat("art.gc.gc-count"));
+        Metrics.gauge("dazi_gc_time_ms", "ART garbage collection time since process start (ms)",
+            () -> runtimeStat("art.gc.gc-time"));
+        Metrics.gauge("dazi_gc_blocking_count", "ART blocking garbage collections since process start",
+            () -> runtimeStat("art.gc.blocking-gc-count"));
+        metricsServer = new MetricsServer(MetricsServer.DEFAULT_PORT);
+        metricsServer.addPage("/trips", () -> tripLog != null ? tripLog.dumpText(10) : "no trip log\n");
+        try {
+            metricsServer.start();
+        } catch (IOException e) {
+            Log.e(TAG, "指标端口启动失败", e);
+            metricsServer = null;
+        }
+    }
+
+    private void openTripLog() {
+        if (tripLog != null) return;
+        try {
+            tripLog = new TripLog(new File(getFilesDir(), "trips.bin"));
+        } catch (IOException e) {
+            Log.e(TAG, "行程文件打开失败，本次不保存行程", e);
         }
     }
 
-    private void sendNaviData() {
-        if (c3IpAddress == null) return;
+    /** 导航结束时在主线程调用；汇总几 KB，直接追加 */
+    private void saveTrip(TripStats.Summary trip) {
+        if (trip == null || tripLog == null) return;
+        Log.i(TAG, trip.toText());
         try {
-            JSONObject json = sCurrentData.toJson();
-            byte[] bytes = json.toString().getBytes("UTF-8");
-            if (sendSocket == null || sendSocket.isClosed()) sendSocket = new DatagramSocket();
-            InetAddress addr = InetAddress.getByName(c3IpAddress);
-            DatagramPacket pkt = new DatagramPacket(bytes, bytes.length, addr, DATA_PORT);
-            sendSocket.send(pkt);
-            packetCount++;
-            if (stateCallback != null) stateCallback.onDataSent(packetCount);
-        } catch (Exception e) {
-            Log.e(TAG, "发送数据失败", e);
-            setConnectionState(ConnectionState.DISCONNECTED);
+            tripLog.append(trip);
+        } catch (IOException e) {
+            Log.e(TAG, "行程保存失败", e);
         }
     }
 
-    private void setConnectionState(ConnectionState state) {
-        if (connectionState != state) {
-            connectionState = state;
-            if (stateCallback != null) stateCallback.onStateChanged(state, c3IpAddress);
+    private static double runtimeStat(String name) {
+        String v = Debug.getRuntimeStat(name);
+        if (v == null) return 0;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 
+    /** 功耗降到最后一级时才降低 C3 数据流频率 */
+    private final PowerGovernor.Listener powerListener = level ->
+        engine.setSendInterval(powerGovernor.getSendIntervalMs(BridgeEngine.DEFAULT_SEND_INTERVAL));
+
+    private String statusText() {
+        return naviSession != null && naviSession.isActive() ? "导航中" : "SP搭子2.0运行中";
+    }
+
+    private void updateNotification(String text) {
+        if (destroyed) return;
+        android.app.NotificationManager nm = getSystemService(android.app.NotificationManager.class);
+        if (nm != null) nm.notify(NOTIFICATION_ID, buildNotification(text));
+    }
+
     private Notification buildNotification(String text) {
         Intent ni = new Intent(this, MainActivity.class);
         PendingIntent pi = PendingIntent.getActivity(this, 0, ni, PendingIntent.FLAG_IMMUTABLE);
-        return new NotificationCompat.Builder(this, App.CHANNEL_ID)
+        NotificationCompat.Builder b = new NotificationCompat.Builder(this, App.CHANNEL_ID)
             .setContentTitle("SP搭子2.0")
             .setContentText(text)
             .setSmallIcon(android.R.drawable.ic_menu_compass)
             .setContentIntent(pi)
-            .setOngoing(true)
-            .build();
+            .setOngoing(true);
+        if (naviSession != null && naviSession.isActive()) {
+            Intent stop = new Intent(this, BridgeService.class).setAction(ACTION_STOP_NAVI);
+            PendingIntent sp = PendingIntent.getService(this, 1, stop, PendingIntent.FLAG_IMMUTABLE);
+            b.addAction(android.R.drawable.ic_menu_close_clear_cancel, "结束导航", sp);
+        }
+        return b.build();
     }
 }
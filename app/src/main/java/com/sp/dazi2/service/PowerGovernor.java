@@ -0,0 +1,186 @@
+package com.sp.dazi2.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 温控/电量功耗调度
+ *
+ * 综合电量、充电状态和 PowerManager 温控状态得出降级等级，
+ * 各子系统按等级自行降频。降级顺序（等级越高包含越多）：
+ *   1. 视频帧率
+ *   2. HUD 刷新
+ *   3. 定位灌点频率
+ *   4. C3 导航数据流（最后才动）
+ *
+ * 进程内单例，回调在主线程。每次降级/恢复都计入统计。
+ */
+public class PowerGovernor {
+    private static final String TAG = "PowerGovernor";
+
+    public static final int LEVEL_NORMAL = 0;
+    public static final int LEVEL_VIDEO = 1;
+    public static final int LEVEL_HUD = 2;
+    public static final int LEVEL_LOCATION = 3;
+    public static final int LEVEL_STREAM = 4;
+    private static final int LEVEL_COUNT = 5;
+
+    public interface Listener {
+        void onPowerLevelChanged(int level);
+    }
+
+    private static PowerGovernor sInstance;
+
+    public static synchronized PowerGovernor get(Context ctx) {
+        if (sInstance == null) {
+            sInstance = new PowerGovernor(ctx.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    private volatile int mLevel = LEVEL_NORMAL;
+    private int mBatteryPct = 100;
+    private boolean mCharging = true;
+    private int mThermalStatus = 0;
+
+    // 统计
+    private final int[] mStepDowns = new int[LEVEL_COUNT];
+    private final long[] mTimeInLevelMs = new long[LEVEL_COUNT];
+    private long mLevelSinceMs = SystemClock.elapsedRealtime();
+
+    private PowerGovernor(Context appContext) {
+        Intent sticky = appContext.registerReceiver(mBatteryReceiver,
+            new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) readBattery(sticky);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager pm = appContext.getSystemService(PowerManager.class);
+            if (pm != null) {
+                mThermalStatus = pm.getCurrentThermalStatus();
+                pm.addThermalStatusListener(appContext.getMainExecutor(), status -> {
+                    mThermalStatus = status;
+                    reevaluate();
+                });
+            }
+        }
+        reevaluate();
+    }
+
+    public void addListener(Listener l) { mListeners.addIfAbsent(l); }
+    public void removeListener(Listener l) { mListeners.remove(l); }
+
+    public int getLevel() { return mLevel; }
+
+    // ═══ 各子系统的目标参数 ═══
+
+    /** 视频帧率，0 表示不限 */
+    public int getVideoFps() {
+        int level = mLevel;
+        if (level >= LEVEL_HUD) return 10;
+        if (level >= LEVEL_VIDEO) return 15;
+        return 0;
+    }
+
+    /** HUD 最小刷新间隔 */
+    public long getHudIntervalMs() {
+        return mLevel >= LEVEL_HUD ? 500 : 0;
+    }
+
+    /** 导航状态栏刷新间隔 */
+    public long getStatusIntervalMs() {
+        return mLevel >= LEVEL_HUD ? 3000 : 1000;
+    }
+
+    /** 定位灌点间隔 */
+    public long getLocationIntervalMs() {
+        return mLevel >= LEVEL_LOCATION ? 2000 : 1000;
+    }
+
+    /** C3 导航数据发送间隔 */
+    public long getSendIntervalMs(long normalMs) {
+        return mLevel >= LEVEL_STREAM ? normalMs * 2 : normalMs;
+    }
+
+    /** 统计文本：当前等级、原因、各等级降级次数和停留时间 */
+    public String getStatsText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("功耗L").append(mLevel)
+            .append(" 电量").append(mBatteryPct).append('%').append(mCharging ? "充电" : "")
+            .append(" 温控").append(mThermalStatus);
+        long now = SystemClock.elapsedRealtime();
+        for (int i = 1; i < LEVEL_COUNT; i++) {
+            long ms = mTimeInLevelMs[i] + (mLevel == i ? now - mLevelSinceMs : 0);
+            if (mStepDowns[i] == 0 && ms == 0) continue;
+            sb.append(" | L").append(i).append('×').append(mStepDowns[i])
+                .append(' ').append(ms / 1000).append('s');
+        }
+        return sb.toString();
+    }
+
+    public int getStepDownCount(int level) { return mStepDowns[level]; }
+
+    private final BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            readBattery(intent);
+            reevaluate();
+        }
+    };
+
+    private void readBattery(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+        if (level >= 0 && scale > 0) mBatteryPct = level * 100 / scale;
+        int plugged = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0);
+        mCharging = plugged != 0;
+    }
+
+    private int computeLevel() {
+        int thermal;
+        switch (mThermalStatus) {
+            case 0: thermal = LEVEL_NORMAL; break;          // NONE
+            case 1: thermal = LEVEL_VIDEO; break;           // LIGHT
+            case 2: thermal = LEVEL_HUD; break;             // MODERATE
+            case 3: thermal = LEVEL_LOCATION; break;        // SEVERE
+            default: thermal = LEVEL_STREAM; break;         // CRITICAL 及以上
+        }
+        int battery = LEVEL_NORMAL;
+        if (!mCharging) {
+            if (mBatteryPct <= 5) battery = LEVEL_LOCATION;
+            else if (mBatteryPct <= 15) battery = LEVEL_HUD;
+            else if (mBatteryPct <= 30) battery = LEVEL_VIDEO;
+        }
+        return Math.max(thermal, battery);
+    }
+
+    private void reevaluate() {
+        int level = computeLevel();
+        int old = mLevel;
+        if (level == old) return;
+
+        long now = SystemClock.elapsedRealtime();
+        mTimeInLevelMs[old] += now - mLevelSinceMs;
+        mLevelSinceMs = now;
+        for (int i = old + 1; i <= level; i++) mStepDowns[i]++;
+        mLevel = level;
+
+        Log.w(TAG, (level > old ? "降级 " : "恢复 ") + "L" + old + "→L" + level + " " + getStatsText());
+        mHandler.post(() -> {
+            for (Listener l : mListeners) l.onPowerLevelChanged(level);
+        });
+    }
+}
@@ -0,0 +1,712 @@
+package com.sp.dazi2.bridge;
+
+import com.sp.dazi2.metrics.BridgeEvents;
+import com.sp.dazi2.metrics.BridgeMetrics;
+import com.sp.dazi2.metrics.EventLog;
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.navi.NaviTiming;
+import com.sp.dazi2.protocol.NaviFrameEncoder;
+import com.sp.dazi2.protocol.NaviFrameFormat;
+
+import org.json.JSONObject;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.function.Supplier;
+
+/**
+ * UDP 桥接引擎（与 Android 无关）
+ *
+ * 1. 监听发现端口（默认 UDP 7705），接收 C3 设备广播，自动发现 IP 和协议能力
+ * 2. 按发送间隔（默认 200ms）从数据源取导航数据，发往 C3 数据端口（默认 UDP 7706）
+ * 3. 发现广播声明支持二进制帧（naviBin >= 1）时改发紧凑二进制帧，否则保持 JSON；
+ *    naviBin >= 2 时关键帧之间只发变化字段的增量帧，naviBin >= 3 时帧内另带数据标志和数据年龄
+ * 4. 每帧携带数据年龄（JSON 与 v3 二进制帧）；数据源停止更新时先置 STALE 标志，再清零摄像头/转弯距离
+ * 5. 网络变化时（onNetworkChanged）主动探测：C3 广播声明 naviProbe 时向其数据端口
+ *    广播/逐址发送 {"type":"probe"}，C3 立即回发现广播；记录从变化到重新连上的耗时
+ * 6. 可选冗余模式（setRedundancy）：限速/摄像头变化的帧在下一帧之前按短间隔
+ *    原样重发，且之后几帧增量帧继续携带这些字段；接收端按 seq 去重
+ * 7. 发现、停更、发送失败等写入事件环（EventLog）；发送失败只在连续失败开始时打一次日志
+ * 8. 设置快照（setSnapshot）后每秒保存 C3 地址和出站帧；restoreLink() 从快照恢复连接，
+ *    不等发现广播即可发送
+ * 9. 附加接收端（FanOut）：addReceiver() 固定登记，或接收端向发现端口发 subscribe 心跳；
+ *    每帧只编码一次，原样发给 C3 和各接收端（订阅组播的合并为一个组播包），
+ *    帧版本取 C3 与各接收端声明的最小值；没有 C3 时只发给接收端
+ *
+ * BridgeService 是它在 Android 上的外壳；端口可配置，便于在 JVM 上对本地替身做压测。
+ */
+public class BridgeEngine {
+    private static final String TAG = "BridgeEngine";
+    public static final int DEFAULT_DISCOVERY_PORT = 7705;
+    public static final int DEFAULT_DATA_PORT = 7706;
+    public static final long DEFAULT_SEND_INTERVAL = 200;
+    private static final int KEYFRAME_INTERVAL = 25;   // 增量模式下每 5 秒一个关键帧
+    private static final long[] PROBE_DELAYS_MS = {0, 250, 1000, 2500};   // 网络刚切换时地址可能还没配好
+    private static final int SWEEP_MIN_PREFIX = 24;    // 只对 /24 及更小的子网逐址探测
+    private static final long CRITICAL_FIELDS = (1L << NaviData.F_ROAD_LIMIT)
+        | (1L << NaviData.F_SDI_TYPE) | (1L << NaviData.F_SDI_SPEED)
+        | (1L << NaviData.F_SDI_BLOCK_TYPE) | (1L << NaviData.F_SDI_BLOCK_SPEED);
+    private static final byte[] PROBE_MSG = "{\"type\":\"probe\"}".getBytes(StandardCharsets.UTF_8);
+    private static final long RECEIVER_EXPIRE_CHECK_NS = 1_000_000_000L;
+
+    public enum ConnectionState { SEARCHING, CONNECTED, DISCONNECTED }
+
+    public interface Listener {
+        void onStateChanged(ConnectionState state, String c3Ip);
+        void onDataSent(int packetCount);
+    }
+
+    private final int discoveryPort;
+    private final int dataPort;
+    private final Supplier<NaviData> source;
+    private volatile Listener listener;
+
+    private volatile boolean running = false;
+    private volatile String c3IpAddress = null;
+    private volatile ConnectionState connectionState = ConnectionState.SEARCHING;
+    private volatile int packetCount = 0;
+
+    // 线路协议：C3 发现广播中声明的二进制帧版本，0 = 仅支持 JSON
+    private volatile int c3BinVersion = 0;
+    private int streamBinVersion = 0;       // 实际出站帧版本，发送线程维护
+    private volatile boolean encoderResetPending = false;
+    private volatile boolean keyframeRequested = true;
+    private final NaviFrameEncoder frameEncoder = new NaviFrameEncoder();
+    private int frameSeq = 0;
+    private int framesSinceKeyframe = 0;
+    private NaviData lastSentSource = null;
+
+    // 出站快照：每帧从数据源复制变化字段，再叠加年龄/超时处理
+    private final NaviData outFrame = new NaviData();
+    private static final long TIME_SENSITIVE_FIELDS = (1L << NaviData.F_SDI_DIST)
+        | (1L << NaviData.F_SDI_BLOCK_DIST) | (1L << NaviData.F_TBT_DIST);
+
+    // 超时看门狗阈值（ms）：超过 flag 置 STALE，超过 drop 清零时效字段
+    private volatile long staleFlagMs = 1500;
+    private volatile long staleDropMs = 3000;
+    private boolean stale = false;
+    private boolean staleDropped = false;
+    private long outPublishMs = 0;           // 本帧数据源最后一次写入的时刻
+    private long measuredPublishMs = 0;      // 已计入 PUBLISH_TO_SEND_MS 的那次写入
+    private long staleSinceMs;
+    private volatile int stallCount = 0;
+
+    // 冗余模式：关键变化帧重发次数和间隔，0 = 关闭；重发内容复制到 repeatBuf
+    private volatile int redundancyCopies = 0;
+    private volatile long redundancySpacingMs = 30;
+    private final byte[] repeatBuf = new byte[NaviFrameFormat.MAX_FRAME_SIZE];
+    private int repeatLen = 0;
+    private int repeatRemaining = 0;
+    private InetSocketAddress repeatAddr;
+    private TimerTask repeatTask;           // 当前帧的重发，新帧到来时取消
+    private long criticalCarryMask = 0;
+    private int criticalCarryFrames = 0;
+    private boolean lastFrameCritical = false;
+
+    // 主动探测：C3 是否声明支持，网络变化时刻（0 = 已重新连上），最近一次重连耗时
+    private volatile boolean c3ProbeSupported = false;
+    private volatile long networkChangeNs = 0;
+    private volatile long lastReconnectMs = -1;
+    private int probeGeneration = 0;
+
+    private Thread discoveryThread;
+    private volatile DatagramSocket discoverySocket;
+    private Timer sendTimer;
+    private TimerTask sendTask;
+    private volatile long sendInterval = DEFAULT_SEND_INTERVAL;
+    private DatagramSocket sendSocket;
+    private long lastSendTickNs = 0;
+    private int consecutiveSendFailures = 0;
+    private volatile BridgeSnapshot snapshot;
+    private long lastSnapshotNs = 0;
+
+    // 附加接收端；C3 目的地址缓存（发送线程），用于跳过与 C3 同址的接收端
+    private final FanOut fanOut = new FanOut();
+    private String c3SendIp;
+    private InetSocketAddress c3SendAddr;
+    private long lastExpireNs = 0;
+
+    public BridgeEngine(Supplier<NaviData> source) {
+        this(DEFAULT_DISCOVERY_PORT, DEFAULT_DATA_PORT, source);
+    }
+
+    public BridgeEngine(int discoveryPort, int dataPort, Supplier<NaviData> source) {
+        this.discoveryPort = discoveryPort;
+        this.dataPort = dataPort;
+        this.source = source;
+        fanOut.setMulticastGroup(new InetSocketAddress(FanOut.DEFAULT_MULTICAST_GROUP, dataPort));
+    }
+
+    public void setListener(Listener l) { this.listener = l; }
+    public ConnectionState getConnectionState() { return connectionState; }
+    public String getC3IpAddress() { return c3IpAddress; }
+    public int getPacketCount() { return packetCount; }
+    public boolean isBinaryProtocol() { return currentBinVersion() >= NaviFrameFormat.VERSION; }
+    public int getStallCount() { return stallCount; }
+    public long getSendInterval() { return sendInterval; }
+    public boolean isRunning() { return running; }
+
+    /** 最近一次网络变化到重新收到 C3 广播的耗时，尚无记录为 -1 */
+    public long getLastReconnectMs() { return lastReconnectMs; }
+
+    /** 调整超时看门狗阈值，dropMs 不小于 flagMs */
+    public void setStaleThresholds(long flagMs, long dropMs) {
+        staleFlagMs = flagMs;
+        staleDropMs = Math.max(flagMs, dropMs);
+    }
+
+    /**
+     * 冗余模式：限速/摄像头变化时本帧再重发 copies 次（间隔 spacingMs，
+     * 只在下一帧发出前有效），之后 copies 帧增量帧继续携带变化字段。
+     * JSON 帧在冗余模式下带 nSeq 供接收端去重。copies = 0 关闭。
+     */
+    public void setRedundancy(int copies, long spacingMs) {
+        redundancyCopies = Math.max(0, copies);
+        redundancySpacingMs = Math.max(1, spacingMs);
+    }
+
+    public int getRedundancyCopies() { return redundancyCopies; }
+
+    /** 热重启快照，发送线程每 BridgeSnapshot.SAVE_INTERVAL_MS 保存一次；null 关闭 */
+    public void setSnapshot(BridgeSnapshot s) { this.snapshot = s; }
+
+    /**
+     * 从快照恢复 C3 地址和帧版本，start() 之前调用
+     *
+     * 之后的发现广播照常覆盖；C3 换了地址时发送失败，等广播即可。
+     */
+    public void restoreLink(String ip, int binVersion) {
+        if (ip == null || ip.isEmpty()) return;
+        c3BinVersion = binVersion >= NaviFrameFormat.VERSION
+            ? Math.min(binVersion, NaviFrameFormat.VERSION_MAX) : 0;
+        encoderResetPending = true;
+        c3IpAddress = ip;
+        setConnectionState(ConnectionState.CONNECTED);
+    }
+
+    public FanOut getFanOut() { return fanOut; }
+
+    /**
+     * 固定登记一个附加接收端（不过期），binVersion 为其支持的二进制帧最高版本，0 = 仅 JSON
+     */
+    public void addReceiver(String host, int port, int binVersion) throws UnknownHostException {
+        fanOut.add(new InetSocketAddress(InetAddress.getByName(host), port), clampBinVersion(binVersion));
+    }
+
+    /**
+     * 组播组地址（发往数据端口），也可填子网广播地址（如 192.168.43.255）给不支持组播的热点；
+     * null 关闭。默认 FanOut.DEFAULT_MULTICAST_GROUP
+     */
+    public void setMulticastGroup(String group) throws UnknownHostException {
+        fanOut.setMulticastGroup(group == null ? null
+            : new InetSocketAddress(InetAddress.getByName(group), dataPort));
+    }
+
+    public void setC3Ip(String ip) {
+        if (ip != null && !ip.isEmpty()) {
+            if (!ip.equals(c3IpAddress)) encoderResetPending = true;
+            c3IpAddress = ip;
+            setConnectionState(ConnectionState.CONNECTED);
+        }
+    }
+
+    public synchronized void start(long initialDelayMs, long intervalMs) {
+        if (running) return;
+        running = true;
+
+        discoveryThread = new Thread(this::discoveryLoop, "C3-Discovery");
+        discoveryThread.setDaemon(true);
+        discoveryThread.start();
+
+        sendTimer = new Timer("DataSender", true);
+        scheduleSender(initialDelayMs, intervalMs);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (sendTimer != null) { sendTimer.cancel(); sendTimer = null; }
+        if (sendSocket != null && !sendSocket.isClosed()) sendSocket.close();
+        fanOut.close();
+        DatagramSocket ds = discoverySocket;
+        if (ds != null) ds.close();
+        if (discoveryThread != null) discoveryThread.interrupt();
+    }
+
+    /**
+     * 网络发生变化（连上/断开热点、DHCP 换地址等），由平台层回调
+     *
+     * 开始计时并转为 SEARCHING；C3 支持探测时立即发探测包，之后按 PROBE_DELAYS_MS
+     * 补发，直到收到广播。不支持时只能等下一次被动广播，耗时同样记录。
+     * 连续变化时从第一次算起。
+     */
+    public void onNetworkChanged(String reason) {
+        if (!running) return;
+        BridgeMetrics.NETWORK_CHANGES.inc();
+        EventLog.log(BridgeEvents.NETWORK_CHANGED, c3ProbeSupported ? 1 : 0);
+        if (networkChangeNs == 0) networkChangeNs = System.nanoTime();
+        BridgeLog.i(TAG, "网络变化：" + reason + (c3ProbeSupported ? "，主动探测 C3" : "，等待 C3 广播"));
+        setConnectionState(ConnectionState.SEARCHING);
+        if (!c3ProbeSupported) return;
+
+        final int generation;
+        synchronized (this) { generation = ++probeGeneration; }
+        Thread t = new Thread(() -> probeLoop(generation), "C3-Probe");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void probeLoop(int generation) {
+        long startNs = System.nanoTime();
+        for (long delayMs : PROBE_DELAYS_MS) {
+            long waitMs = delayMs - (System.nanoTime() - startNs) / 1_000_000;
+            if (waitMs > 0) {
+                try {
+                    Thread.sleep(waitMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            synchronized (this) {
+                if (!running || generation != probeGeneration) return;
+            }
+            if (networkChangeNs == 0) return;
+            sendProbes();
+        }
+    }
+
+    /**
+     * 向当前 C3 地址、全局广播、各 IPv4 接口的子网广播发探测包，
+     * 子网不大于 /24 时再逐址发送（部分热点不转发广播）
+     */
+    private void sendProbes() {
+        DatagramSocket socket = discoverySocket;
+        if (socket == null) return;
+        Set<InetAddress> targets = new LinkedHashSet<>();
+        try {
+            String current = c3IpAddress;
+            if (current != null) targets.add(InetAddress.getByName(current));
+            targets.add(InetAddress.getByName("255.255.255.255"));
+            for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!ni.isUp() || ni.isLoopback()) continue;
+                for (InterfaceAddress ia : ni.getInterfaceAddresses()) {
+                    if (!(ia.getAddress() instanceof Inet4Address)) continue;
+                    if (ia.getBroadcast() != null) targets.add(ia.getBroadcast());
+                    if (ia.getNetworkPrefixLength() >= SWEEP_MIN_PREFIX) {
+                        addSubnetHosts(targets, ia);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            BridgeLog.w(TAG, "枚举网络接口失败: " + e.getMessage());
+        }
+
+        int sent = 0;
+        for (InetAddress addr : targets) {
+            try {
+                socket.send(new DatagramPacket(PROBE_MSG, PROBE_MSG.length, addr, dataPort));
+                sent++;
+            } catch (Exception e) {
+                // 个别地址不可达（接口正在切换）不影响其余地址
+            }
+        }
+        BridgeMetrics.DISCOVERY_PROBES.add(sent);
+        EventLog.log(BridgeEvents.PROBES_SENT, sent, targets.size());
+    }
+
+    private static void addSubnetHosts(Set<InetAddress> out, InterfaceAddress ia) throws Exception {
+        byte[] self = ia.getAddress().getAddress();
+        int ip = ((self[0] & 0xFF) << 24) | ((self[1] & 0xFF) << 16) | ((self[2] & 0xFF) << 8) | (self[3] & 0xFF);
+        int hostBits = 32 - ia.getNetworkPrefixLength();
+        int network = ip & (-1 << hostBits);
+        int hosts = (1 << hostBits) - 1;
+        for (int h = 1; h < hosts; h++) {
+            int a = network | h;
+            if (a == ip) continue;
+            out.add(InetAddress.getByAddress(new byte[] {
+                (byte) (a >>> 24), (byte) (a >>> 16), (byte) (a >>> 8), (byte) a}));
+        }
+    }
+
+    /** 调整发送间隔，立即生效 */
+    public synchronized void setSendInterval(long interval) {
+        if (sendTimer == null || interval == sendInterval) return;
+        BridgeLog.w(TAG, "发送间隔调整为 " + interval + "ms");
+        EventLog.log(BridgeEvents.SEND_INTERVAL, (int) interval);
+        scheduleSender(interval, interval);
+    }
+
+    private void scheduleSender(long delay, long interval) {
+        if (sendTask != null) sendTask.cancel();
+        sendInterval = interval;
+        lastSendTickNs = 0;
+        sendTask = new TimerTask() {
+            @Override public void run() { sendNaviData(); }
+        };
+        sendTimer.scheduleAtFixedRate(sendTask, delay, interval);
+    }
+
+    private void discoveryLoop() {
+        DatagramSocket socket = null;
+        try {
+            socket = new DatagramSocket(null);
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(discoveryPort));
+            socket.setSoTimeout(5000);
+            socket.setBroadcast(true);
+            discoverySocket = socket;
+            byte[] buf = new byte[1024];
+            while (running) {
+                try {
+                    DatagramPacket pkt = new DatagramPacket(buf, buf.length);
+                    socket.receive(pkt);
+                    String senderIp = pkt.getAddress().getHostAddress();
+                    JSONObject msg = parseJson(pkt.getData(), pkt.getLength());
+                    String type = msg != null ? msg.optString("type") : "";
+                    if (fanOut.size() > 0) fanOut.heard(pkt.getAddress(), System.currentTimeMillis());
+                    if ("subscribe".equals(type) || "unsubscribe".equals(type)) {
+                        onSubscription(msg, type, pkt.getAddress());
+                        continue;
+                    }
+                    if ("keyframe".equals(type)) {
+                        // 接收端发现增量帧断档，请求关键帧
+                        BridgeMetrics.DISCOVERY_KEYFRAME_REQUEST.inc();
+                        EventLog.log(BridgeEvents.KEYFRAME_REQUEST);
+                        keyframeRequested = true;
+                        continue;
+                    }
+                    BridgeMetrics.DISCOVERY_BEACON.inc();
+                    onBeaconAfterNetworkChange(senderIp);
+                    c3ProbeSupported = msg != null && msg.optInt("naviProbe", 0) >= 1;
+                    int binVersion = binVersionOf(msg);
+                    if (c3IpAddress == null || !c3IpAddress.equals(senderIp)
+                            || c3BinVersion != binVersion) {
+                        c3BinVersion = binVersion;
+                        encoderResetPending = true;
+                    }
+                    if (c3IpAddress == null || !c3IpAddress.equals(senderIp)) {
+                        BridgeMetrics.DISCOVERY_NEW_C3.inc();
+                        EventLog.log(BridgeEvents.C3_DISCOVERED, BridgeEvents.ipv4(senderIp), binVersion);
+                        c3IpAddress = senderIp;
+                    }
+                    setConnectionState(ConnectionState.CONNECTED);
+                } catch (SocketTimeoutException e) {
+                    BridgeMetrics.DISCOVERY_TIMEOUT.inc();
+                    if (c3IpAddress == null) setConnectionState(ConnectionState.SEARCHING);
+                }
+            }
+        } catch (Exception e) {
+            if (running) BridgeLog.e(TAG, "发现线程异常", e);
+        } finally {
+            discoverySocket = null;
+            if (socket != null && !socket.isClosed()) socket.close();
+        }
+    }
+
+    /** 附加接收端订阅/心跳/退订，port 缺省为数据端口 */
+    private void onSubscription(JSONObject msg, String type, InetAddress from) {
+        InetSocketAddress addr = new InetSocketAddress(from, msg.optInt("port", dataPort));
+        if ("unsubscribe".equals(type)) {
+            fanOut.remove(addr);
+        } else if (fanOut.subscribe(addr, binVersionOf(msg), msg.optInt("multicast", 0) >= 1,
+                System.currentTimeMillis())) {
+            keyframeRequested = true;    // 新接收端从关键帧开始
+        }
+    }
+
+    private void onBeaconAfterNetworkChange(String senderIp) {
+        long changedAt = networkChangeNs;
+        if (changedAt == 0) return;
+        networkChangeNs = 0;
+        long ms = (System.nanoTime() - changedAt) / 1_000_000;
+        lastReconnectMs = ms;
+        BridgeMetrics.RECONNECT_MS.observe(ms);
+        EventLog.log(BridgeEvents.RECONNECTED, (int) ms);
+        BridgeLog.i(TAG, "网络变化后 " + ms + "ms 重新连上 C3 " + senderIp);
+    }
+
+    private static JSONObject parseJson(byte[] data, int len) {
+        if (len <= 0 || data[0] != '{') return null;
+        try {
+            return new JSONObject(new String(data, 0, len, "UTF-8"));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 发现广播中的协议能力
+     *
+     * 广播为 JSON 时读取 naviBin 字段（支持的二进制帧最高版本），
+     * 旧版 C3 的广播没有该字段或不是 JSON，一律按 0（仅 JSON）处理。
+     */
+    private static int binVersionOf(JSONObject beacon) {
+        if (beacon == null) return 0;
+        return clampBinVersion(beacon.optInt("naviBin", 0));
+    }
+
+    private static int clampBinVersion(int version) {
+        if (version < NaviFrameFormat.VERSION) return 0;
+        return Math.min(version, NaviFrameFormat.VERSION_MAX);
+    }
+
+    /** C3 与各附加接收端都能解的帧版本 */
+    private int currentBinVersion() {
+        int v = c3IpAddress != null ? c3BinVersion : Integer.MAX_VALUE;
+        v = Math.min(v, fanOut.minBinVersion());
+        return v == Integer.MAX_VALUE ? 0 : v;
+    }
+
+    /** C3 数据端口地址，IP 不变时复用 */
+    private InetSocketAddress c3Address(String ip) throws UnknownHostException {
+        if (!ip.equals(c3SendIp)) {
+            c3SendAddr = new InetSocketAddress(InetAddress.getByName(ip), dataPort);
+            c3SendIp = ip;
+        }
+        return c3SendAddr;
+    }
+
+    private void sendNaviData() {
+        long tickNs = System.nanoTime();
+        if (lastSendTickNs != 0) {
+            long actualMs = (tickNs - lastSendTickNs) / 1_000_000;
+            BridgeMetrics.SEND_JITTER_MS.observe(Math.abs(actualMs - sendInterval));
+        }
+        lastSendTickNs = tickNs;
+        if (fanOut.size() > 0 && tickNs - lastExpireNs >= RECEIVER_EXPIRE_CHECK_NS) {
+            lastExpireNs = tickNs;
+            fanOut.expire(System.currentTimeMillis());
+        }
+        String c3Ip = c3IpAddress;
+        if (c3Ip == null && fanOut.size() == 0) return;
+        cancelRepeats();    // 上一帧的重发到此为止，接收端会丢弃比新帧旧的 seq
+        int binVersion = currentBinVersion();
+        if (binVersion != streamBinVersion) {
+            // 接收端加入/离开改变了公共版本，编码器按新版本从关键帧重来
+            streamBinVersion = binVersion;
+            encoderResetPending = true;
+        }
+        try {
+            byte[] bytes;
+            int length;
+            boolean critical;
+            prepareOutFrame(source.get());
+            if (streamBinVersion >= NaviFrameFormat.VERSION) {
+                length = encodeBinary(outFrame);
+                critical = lastFrameCritical;
+                bytes = frameEncoder.buffer();
+            } else {
+                critical = (outFrame.takeDirtyFields() & CRITICAL_FIELDS) != 0;
+                JSONObject json = outFrame.toJson();
+                if (redundancyCopies > 0) json.put("nSeq", frameSeq++);
+                bytes = json.toString().getBytes("UTF-8");
+                length = bytes.length;
+            }
+            if (sendSocket == null || sendSocket.isClosed()) {
+                sendSocket = new DatagramSocket();
+                sendSocket.setBroadcast(true);     // 组播组也可以配成子网广播地址
+            }
+            InetSocketAddress c3 = c3Ip != null ? c3Address(c3Ip) : null;
+            // 接收端各自捕获发送失败，先发，C3 发送失败不影响它们
+            if (fanOut.size() > 0) fanOut.send(sendSocket, bytes, length, c3);
+            boolean repeat = critical && redundancyCopies > 0;
+            if (c3 == null) {
+                if (repeat) scheduleRepeats(bytes, length, null);
+                return;
+            }
+            sendSocket.send(new DatagramPacket(bytes, length, c3));
+            if (repeat) scheduleRepeats(bytes, length, c3);
+            BridgeSnapshot snap = snapshot;
+            if (snap != null && tickNs - lastSnapshotNs >= BridgeSnapshot.SAVE_INTERVAL_MS * 1_000_000L) {
+                lastSnapshotNs = tickNs;
+                snap.saveLink(c3Ip, c3BinVersion, outFrame);
+            }
+            packetCount++;
+            if (consecutiveSendFailures > 0) {
+                EventLog.log(BridgeEvents.SEND_RECOVERED, consecutiveSendFailures);
+                BridgeLog.i(TAG, "发送恢复，此前连续失败 " + consecutiveSendFailures + " 次");
+                consecutiveSendFailures = 0;
+            }
+            BridgeMetrics.PACKETS_SENT.inc();
+            BridgeMetrics.BYTES_SENT.add(length);
+            // 每次写入只在第一次把它发出去时计一次，没有新数据的帧不计
+            if (outPublishMs != 0 && outPublishMs != measuredPublishMs) {
+                measuredPublishMs = outPublishMs;
+                BridgeMetrics.PUBLISH_TO_SEND_MS.observe(System.nanoTime() / 1_000_000 - outPublishMs);
+            }
+            if (NaviTiming.onPacketSent() >= 0) BridgeLog.i(TAG, NaviTiming.getLastSummary());
+            Listener l = listener;
+            if (l != null) l.onDataSent(packetCount);
+        } catch (Exception e) {
+            BridgeMetrics.PACKETS_FAILED.inc();
+            EventLog.log(BridgeEvents.SEND_FAILED, ++consecutiveSendFailures);
+            // 断网时每个发送周期都会失败，只在连续失败开始时打日志
+            if (consecutiveSendFailures == 1) BridgeLog.e(TAG, "发送数据失败", e);
+            setConnectionState(ConnectionState.DISCONNECTED);
+        }
+    }
+
+    /**
+     * 在发送线程上按间隔重发刚发出的关键变化帧；addr 为 null 时只重发给附加接收端
+     *
+     * 同一时间只有一个重发任务：上一帧还没发完的重发先取消，
+     * 否则旧任务会在新帧的间隔到点之前把新帧提前发出去。
+     */
+    private void scheduleRepeats(byte[] bytes, int length, InetSocketAddress addr) {
+        cancelRepeats();
+        System.arraycopy(bytes, 0, repeatBuf, 0, length);
+        repeatLen = length;
+        repeatAddr = addr;
+        repeatRemaining = redundancyCopies;
+        Timer timer = sendTimer;
+        if (timer == null) return;
+        long spacing = redundancySpacingMs;
+        repeatTask = new TimerTask() {
+            @Override public void run() { sendRepeat(); }
+        };
+        timer.schedule(repeatTask, spacing, spacing);
+    }
+
+    private void cancelRepeats() {
+        if (repeatTask != null) {
+            repeatTask.cancel();
+            repeatTask = null;
+        }
+        repeatRemaining = 0;
+    }
+
+    private void sendRepeat() {
+        if (repeatRemaining <= 0) {
+            cancelRepeats();
+            return;
+        }
+        if (--repeatRemaining == 0) cancelRepeats();
+        if (fanOut.size() > 0) fanOut.send(sendSocket, repeatBuf, repeatLen, repeatAddr);
+        if (repeatAddr == null) return;
+        try {
+            sendSocket.send(new DatagramPacket(repeatBuf, repeatLen, repeatAddr));
+            BridgeMetrics.REDUNDANT_SENT.inc();
+            BridgeMetrics.BYTES_SENT.add(repeatLen);
+        } catch (Exception e) {
+            BridgeMetrics.PACKETS_FAILED.inc();
+        }
+    }
+
+    /**
+     * 从数据源取本帧出站数据并做超时处理
+     *
+     * 数据源对象更换（如导航结束换成空 NaviData）时整体复制并要求关键帧，
+     * 否则只复制 SDK 回调改过的字段。数据源从未写入（sourceTimeMs == 0）时不计年龄。
+     */
+    private void prepareOutFrame(NaviData source) {
+        if (source != lastSentSource) {
+            source.takeDirtyFields();
+            outFrame.copyFields(source, NaviData.ALL_FIELDS);
+            lastSentSource = source;
+            keyframeRequested = true;
+            stale = false;
+            staleDropped = false;
+        } else {
+            outFrame.copyFields(source, source.takeDirtyFields());
+        }
+
+        long updatedAt = source.sourceTimeMs;
+        outPublishMs = updatedAt;
+        long age = updatedAt == 0 ? 0 : System.nanoTime() / 1_000_000 - updatedAt;
+        outFrame.setDataAgeMs((int) Math.min(age, 0xFFFF));
+
+        if (age > staleFlagMs) {
+            if (!stale) {
+                stale = true;
+                staleSinceMs = updatedAt;
+                stallCount++;
+                BridgeMetrics.STALLS.inc();
+                EventLog.log(BridgeEvents.DATA_STALL, (int) age, stallCount);
+                BridgeLog.w(TAG, "导航数据停更 " + age + "ms，第 " + stallCount + " 次");
+            }
+            if (age > staleDropMs && !staleDropped) {
+                staleDropped = true;
+                EventLog.log(BridgeEvents.DATA_STALL_DROP, (int) age);
+                BridgeLog.w(TAG, "导航数据停更超过 " + staleDropMs + "ms，清零摄像头/转弯距离");
+            }
+        } else if (stale) {
+            EventLog.log(BridgeEvents.DATA_RESUMED, (int) (updatedAt - staleSinceMs));
+            BridgeLog.i(TAG, "导航数据恢复，停更 " + (updatedAt - staleSinceMs) + "ms");
+            stale = false;
+            if (staleDropped) {
+                staleDropped = false;
+                outFrame.copyFields(source, TIME_SENSITIVE_FIELDS);
+            }
+        }
+
+        int flags = source.nDataFlags;
+        outFrame.setDataFlags(stale ? flags | NaviData.DATA_FLAG_STALE : flags);
+        if (staleDropped) {
+            outFrame.setSdiDist(0);
+            outFrame.setSdiBlockDist(0);
+            outFrame.setTBTDist(0);
+        }
+    }
+
+    /**
+     * 编码二进制帧
+     *
+     * 关键帧时机：不支持增量、切换 C3/版本、接收端请求（含数据源对象更换）、
+     * 或距上个关键帧满 KEYFRAME_INTERVAL 帧。其余时候只编码出站快照变化的字段。
+     */
+    private int encodeBinary(NaviData data) {
+        if (encoderResetPending) {
+            encoderResetPending = false;
+            frameEncoder.reset();
+            frameEncoder.setVersion(Math.max(streamBinVersion, NaviFrameFormat.VERSION));
+            keyframeRequested = true;
+        }
+        long dirty = data.takeDirtyFields();
+        long newCritical = dirty & CRITICAL_FIELDS;
+        lastFrameCritical = newCritical != 0;
+        if (redundancyCopies > 0) {
+            // 关键变化之后几帧继续带上这些字段，原帧和重发都丢了也能补上
+            if (criticalCarryFrames > 0) {
+                criticalCarryFrames--;
+                dirty |= criticalCarryMask;
+            } else {
+                criticalCarryMask = 0;
+            }
+            if (newCritical != 0) {
+                criticalCarryMask |= newCritical;
+                criticalCarryFrames = redundancyCopies;
+            }
+        }
+        boolean keyframe = !frameEncoder.supportsDelta()
+            || keyframeRequested
+            || ++framesSinceKeyframe >= KEYFRAME_INTERVAL;
+        if (keyframe) {
+            keyframeRequested = false;
+            framesSinceKeyframe = 0;
+            BridgeMetrics.KEYFRAMES_SENT.inc();
+            return frameEncoder.encodeKeyframe(data, frameSeq++);
+        }
+        return frameEncoder.encodeDelta(data, dirty, frameSeq++);
+    }
+
+    private void setConnectionState(ConnectionState state) {
+        if (connectionState != state) {
+            connectionState = state;
+            EventLog.log(BridgeEvents.CONNECTION_STATE, state.ordinal());
+            Listener l = listener;
+            if (l != null) l.onStateChanged(state, c3IpAddress);
+        }
+    }
+}
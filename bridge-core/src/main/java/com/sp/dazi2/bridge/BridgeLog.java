@@ -0,0 +1,35 @@
+package com.sp.dazi2.bridge;
+
+/**
+ * 核心模块日志出口
+ *
+ * 核心模块不依赖 android.util.Log；App 启动时用 setSink 接到 Logcat，
+ * JVM 上默认输出到 stderr。
+ */
+public final class BridgeLog {
+    private BridgeLog() {}
+
+    public interface Sink {
+        void log(int level, String tag, String msg, Throwable t);
+    }
+
+    // 级别取值与 android.util.Log 一致
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    private static volatile Sink sSink = (level, tag, msg, t) -> {
+        System.err.println(tag + ": " + msg);
+        if (t != null) t.printStackTrace();
+    };
+
+    public static void setSink(Sink sink) {
+        if (sink != null) sSink = sink;
+    }
+
+    public static void d(String tag, String msg) { sSink.log(DEBUG, tag, msg, null); }
+    public static void i(String tag, String msg) { sSink.log(INFO, tag, msg, null); }
+    public static void w(String tag, String msg) { sSink.log(WARN, tag, msg, null); }
+    public static void e(String tag, String msg, Throwable t) { sSink.log(ERROR, tag, msg, t); }
+}
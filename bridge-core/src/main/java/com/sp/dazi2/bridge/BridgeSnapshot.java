@@ -0,0 +1,232 @@
+package com.sp.dazi2.bridge;
+
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.protocol.NaviFrameDecoder;
+import com.sp.dazi2.protocol.NaviFrameEncoder;
+import com.sp.dazi2.protocol.NaviFrameFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 热重启快照：进程被杀后服务重启时立即恢复发送
+ *
+ * 内容：最近的 C3 地址和二进制帧版本、最近一帧出站数据（v1 关键帧，自带字典）、
+ * 限速映射、导航终点。写入内存映射文件的两个槽位轮流使用，
+ * 每槽 [seq | len | crc | payload]，payload 和 crc 写完后最后写 seq；
+ * 进程在写入中途被杀时另一个槽仍完整，读取时取 crc 校验通过且 seq 最大的槽。
+ *
+ * 出站帧由发送线程每 SAVE_INTERVAL_MS 保存一次（BridgeEngine.setSnapshot），
+ * 终点由导航会话启停时保存，全部方法加锁。
+ */
+public class BridgeSnapshot {
+    public static final long SAVE_INTERVAL_MS = 1000;
+    private static final int MAGIC = 0x50534442;   // "BDSP"
+    private static final int FILE_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 2048;
+    private static final int SLOT_HEADER = 16;     // seq i64, len i32, crc i32
+    private static final int MAX_PAYLOAD = SLOT_SIZE - SLOT_HEADER;
+    private static final int MAX_MAPPINGS = 32;
+    private static final int FILE_SIZE = HEADER_SIZE + 2 * SLOT_SIZE;
+
+    /** 读出的快照 */
+    public static final class State {
+        public long savedWallMs;
+        public String c3Ip;
+        public int c3BinVersion;
+        public int[] mappings = new int[0];   // 原始/目标限速成对
+        public boolean destinationActive;
+        public double destLat, destLng;
+        public long destSinceWallMs;
+        public NaviData frame;                // 无帧时为 null
+        public int frameAgeMs;                // 保存时该帧的数据年龄
+
+        /** 距今多久（墙钟，含保存时的数据年龄） */
+        public long frameAgeNowMs(long nowWallMs) {
+            return Math.max(0, nowWallMs - savedWallMs) + frameAgeMs;
+        }
+    }
+
+    private final MappedByteBuffer map;
+    private final byte[] payload = new byte[MAX_PAYLOAD];
+    private final ByteBuffer out = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private final NaviFrameEncoder encoder = new NaviFrameEncoder();
+    private long seq;
+
+    // 当前内容，任一部分更新后整体写入
+    private String c3Ip;
+    private byte[] c3IpBytes = new byte[0];
+    private int c3BinVersion;
+    private final int[] mappings = new int[MAX_MAPPINGS * 2];
+    private int mappingCount;
+    private int mappingVersion = -1;
+    private boolean destActive;
+    private double destLat, destLng;
+    private long destSinceWallMs;
+    private int frameLen;
+    private final byte[] frameBytes = new byte[NaviFrameFormat.MAX_FRAME_SIZE];
+    private int frameAgeMs;
+
+    public BridgeSnapshot(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != FILE_SIZE) raf.setLength(FILE_SIZE);
+            map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        if (map.getInt(0) != MAGIC || map.getInt(4) != FILE_VERSION) {
+            for (int i = 0; i < FILE_SIZE; i += 8) map.putLong(i, 0);
+            map.putInt(0, MAGIC);
+            map.putInt(4, FILE_VERSION);
+        }
+        seq = Math.max(map.getLong(slotOffset(0)), map.getLong(slotOffset(1)));
+        encoder.setVersion(NaviFrameFormat.VERSION_MAX);
+    }
+
+    /**
+     * 读出最近一次完整的快照，没有时返回 null
+     *
+     * 读出后内部状态同步为快照内容，之后的保存在此基础上更新。
+     */
+    public synchronized State load() {
+        int best = -1;
+        long bestSeq = 0;
+        for (int s = 0; s < 2; s++) {
+            int off = slotOffset(s);
+            long slotSeq = map.getLong(off);
+            int len = map.getInt(off + 8);
+            if (slotSeq <= bestSeq || len <= 0 || len > MAX_PAYLOAD) continue;
+            map.position(off + SLOT_HEADER);
+            map.get(payload, 0, len);
+            crc.reset();
+            crc.update(payload, 0, len);
+            if ((int) crc.getValue() != map.getInt(off + 12)) continue;
+            best = s;
+            bestSeq = slotSeq;
+        }
+        if (best < 0) return null;
+        int off = slotOffset(best);
+        int len = map.getInt(off + 8);
+        map.position(off + SLOT_HEADER);
+        map.get(payload, 0, len);
+
+        ByteBuffer in = ByteBuffer.wrap(payload, 0, len).order(ByteOrder.LITTLE_ENDIAN);
+        State st = new State();
+        st.savedWallMs = in.getLong();
+        int ipLen = in.get() & 0xFF;
+        c3IpBytes = new byte[ipLen];
+        in.get(c3IpBytes);
+        c3Ip = ipLen > 0 ? new String(c3IpBytes, StandardCharsets.US_ASCII) : null;
+        st.c3Ip = c3Ip;
+        st.c3BinVersion = c3BinVersion = in.get();
+        mappingCount = in.get() & 0xFF;
+        st.mappings = new int[mappingCount * 2];
+        for (int i = 0; i < mappingCount * 2; i++) st.mappings[i] = mappings[i] = in.getShort();
+        st.destinationActive = destActive = in.get() != 0;
+        st.destLat = destLat = in.getDouble();
+        st.destLng = destLng = in.getDouble();
+        st.destSinceWallMs = destSinceWallMs = in.getLong();
+        st.frameAgeMs = frameAgeMs = in.getInt();
+        frameLen = in.getShort() & 0xFFFF;
+        in.get(frameBytes, 0, frameLen);
+        if (frameLen > 0) {
+            NaviData d = new NaviFrameDecoder().decode(frameBytes, frameLen);
+            if (d != null) {
+                st.frame = new NaviData();
+                st.frame.copyFields(d, NaviData.ALL_FIELDS);
+            }
+        }
+        return st;
+    }
+
+    /** 发送线程调用：C3 连接和本帧出站数据 */
+    public synchronized void saveLink(String ip, int binVersion, NaviData frame) {
+        if (ip != null && !ip.equals(c3Ip)) {
+            c3Ip = ip;
+            c3IpBytes = ip.getBytes(StandardCharsets.US_ASCII);
+        }
+        c3BinVersion = binVersion;
+        if (frame != null) {
+            encoder.reset();   // 每次都带完整字典，单独一帧即可解出
+            frameLen = encoder.encodeKeyframe(frame, 0);
+            System.arraycopy(encoder.buffer(), 0, frameBytes, 0, frameLen);
+            frameAgeMs = frame.nDataAgeMs;
+        }
+        refreshMappings();
+        write();
+    }
+
+    /** 导航开始：保存终点 */
+    public synchronized void saveDestination(double lat, double lng) {
+        destActive = true;
+        destLat = lat;
+        destLng = lng;
+        destSinceWallMs = System.currentTimeMillis();
+        refreshMappings();
+        write();
+    }
+
+    /** 导航结束：重启后不再恢复导航 */
+    public synchronized void clearDestination() {
+        if (!destActive) return;
+        destActive = false;
+        write();
+    }
+
+    /** 限速映射只在版本变化时重新复制 */
+    private void refreshMappings() {
+        int v = NaviData.getSpeedMappingVersion();
+        if (v == mappingVersion) return;
+        mappingVersion = v;
+        mappingCount = 0;
+        for (Map.Entry<Integer, Integer> e : NaviData.getSpeedMappings().entrySet()) {
+            if (mappingCount >= MAX_MAPPINGS) break;
+            mappings[mappingCount * 2] = e.getKey();
+            mappings[mappingCount * 2 + 1] = e.getValue();
+            mappingCount++;
+        }
+    }
+
+    private void write() {
+        out.clear();
+        out.putLong(System.currentTimeMillis());
+        out.put((byte) c3IpBytes.length);
+        out.put(c3IpBytes);
+        out.put((byte) c3BinVersion);
+        out.put((byte) mappingCount);
+        for (int i = 0; i < mappingCount * 2; i++) out.putShort((short) mappings[i]);
+        out.put((byte) (destActive ? 1 : 0));
+        out.putDouble(destLat);
+        out.putDouble(destLng);
+        out.putLong(destSinceWallMs);
+        out.putInt(frameAgeMs);
+        out.putShort((short) frameLen);
+        out.put(frameBytes, 0, frameLen);
+        int len = out.position();
+
+        crc.reset();
+        crc.update(payload, 0, len);
+        long next = seq + 1;
+        int off = slotOffset((int) (next & 1));
+        map.putLong(off, 0);
+        map.position(off + SLOT_HEADER);
+        map.put(payload, 0, len);
+        map.putInt(off + 8, len);
+        map.putInt(off + 12, (int) crc.getValue());
+        map.putLong(off, next);
+        seq = next;
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
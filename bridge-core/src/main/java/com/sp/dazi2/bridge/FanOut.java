@@ -0,0 +1,292 @@
+package com.sp.dazi2.bridge;
+
+import com.sp.dazi2.metrics.BridgeEvents;
+import com.sp.dazi2.metrics.BridgeMetrics;
+import com.sp.dazi2.metrics.EventLog;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * C3 之外的附加接收端（行车记录仪叠加盒、笔记本记录器等）
+ *
+ * 每帧只编码一次，同一份字节逐个发给登记的接收端；订阅了组播的接收端合并为一个组播包。
+ * 接收端两种来源：
+ *   - addReceiver() 固定登记，不过期
+ *   - 向发现端口发 {"type":"subscribe","port":7706,"naviBin":2,"multicast":0}，
+ *     每 SUBSCRIBE_TTL_MS 内须重发一次作为心跳，否则移除；{"type":"unsubscribe"} 立即移除
+ * 出站帧格式取 C3 和所有接收端声明的 naviBin 的最小值，保证每个接收端都能解。
+ *
+ * 各接收端单独跟踪存活：连续 DOWN_AFTER_FAILURES 次发送失败记为 DOWN，
+ * 之后每 DOWN_RETRY_TICKS 帧才重试一次，成功即恢复；DOWN 的接收端不拖慢其余接收端。
+ *
+ * 组播包从订阅者所在网段的接口发出（IP_MULTICAST_IF），不走默认路由——
+ * 手机同时连着移动数据和热点时，默认路由通常是移动数据。
+ *
+ * 登记/订阅在发现线程，发送在发送线程；列表写时复制，计数只由发送线程写。
+ */
+public class FanOut {
+    public static final long SUBSCRIBE_TTL_MS = 15_000;
+    public static final String DEFAULT_MULTICAST_GROUP = "239.255.77.6";
+    static final int DOWN_AFTER_FAILURES = 10;
+    static final int DOWN_RETRY_TICKS = 10;
+
+    /** 一个接收端 */
+    public static final class Receiver {
+        public final InetSocketAddress address;
+        /** 经订阅消息加入（会过期）；false 为 addReceiver 固定登记 */
+        public final boolean subscribed;
+        /** 改由组播接收，不单独发送 */
+        public final boolean multicast;
+        public final int binVersion;
+        private final int ipv4;
+        // 组播订阅者所在网段的接口，查不到为 null
+        private final NetworkInterface groupInterface;
+        private volatile long lastHeardMs;
+        private volatile long packets;
+        private volatile long failures;
+        private int consecutiveFailures;
+        private int retryCountdown;
+
+        Receiver(InetSocketAddress address, boolean subscribed, boolean multicast, int binVersion, long nowMs) {
+            this.address = address;
+            this.subscribed = subscribed;
+            this.multicast = multicast;
+            this.binVersion = binVersion;
+            this.ipv4 = BridgeEvents.ipv4(address.getAddress().getHostAddress());
+            this.lastHeardMs = nowMs;
+            this.groupInterface = multicast ? interfaceFor(address.getAddress()) : null;
+        }
+
+        public boolean isUp() { return consecutiveFailures < DOWN_AFTER_FAILURES; }
+        /** 最近一次收到它的订阅/心跳/关键帧请求（墙钟 ms） */
+        public long getLastHeardMs() { return lastHeardMs; }
+        public long getPackets() { return packets; }
+        public long getFailures() { return failures; }
+
+        @Override
+        public String toString() {
+            return address.getAddress().getHostAddress() + ":" + address.getPort()
+                + (multicast ? " multicast" : "") + (subscribed ? "" : " fixed")
+                + (isUp() ? "" : " DOWN") + " bin=" + binVersion + " sent=" + packets;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Receiver> receivers = new CopyOnWriteArrayList<>();
+    private final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+    private volatile InetSocketAddress group;
+    // 组播发送专用，只在发送线程使用
+    private MulticastSocket groupSocket;
+    private NetworkInterface groupSocketInterface;
+
+    /** 固定登记一个接收端；同地址已存在时替换 */
+    public Receiver add(InetSocketAddress address, int binVersion) {
+        Receiver r = new Receiver(address, false, false, binVersion, System.currentTimeMillis());
+        put(r);
+        return r;
+    }
+
+    /** 移除接收端（固定或订阅） */
+    public boolean remove(InetSocketAddress address) {
+        for (Receiver r : receivers) {
+            if (r.address.equals(address)) {
+                receivers.remove(r);
+                BridgeMetrics.FANOUT_RECEIVERS.set(receivers.size());
+                EventLog.log(BridgeEvents.RECEIVER_REMOVED, r.ipv4, r.address.getPort(), 0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 订阅或心跳：已存在且参数相同时只刷新时间，否则（重新）加入
+     *
+     * @return 是否新加入或参数变化（出站格式可能随之改变）
+     */
+    public boolean subscribe(InetSocketAddress address, int binVersion, boolean multicast, long nowMs) {
+        for (Receiver r : receivers) {
+            if (r.address.equals(address) && r.binVersion == binVersion && r.multicast == multicast) {
+                r.lastHeardMs = nowMs;
+                return false;
+            }
+        }
+        put(new Receiver(address, true, multicast, binVersion, nowMs));
+        return true;
+    }
+
+    /** 来自某 IP 的任意消息都算存活 */
+    public void heard(InetAddress from, long nowMs) {
+        for (Receiver r : receivers) {
+            if (r.address.getAddress().equals(from)) r.lastHeardMs = nowMs;
+        }
+    }
+
+    /** 移除超过 SUBSCRIBE_TTL_MS 没有心跳的订阅接收端，返回移除数 */
+    public int expire(long nowMs) {
+        int removed = 0;
+        for (Receiver r : receivers) {
+            if (r.subscribed && nowMs - r.lastHeardMs > SUBSCRIBE_TTL_MS && receivers.remove(r)) {
+                EventLog.log(BridgeEvents.RECEIVER_REMOVED, r.ipv4, r.address.getPort(), 1);
+                BridgeLog.i("FanOut", "接收端心跳超时，移除: " + r);
+                removed++;
+            }
+        }
+        if (removed > 0) BridgeMetrics.FANOUT_RECEIVERS.set(receivers.size());
+        return removed;
+    }
+
+    /** 组播组或广播地址，null 关闭；有接收端订阅组播时才发 */
+    public void setMulticastGroup(InetSocketAddress group) { this.group = group; }
+    public InetSocketAddress getMulticastGroup() { return group; }
+
+    public int size() { return receivers.size(); }
+
+    public List<Receiver> getReceivers() { return new ArrayList<>(receivers); }
+
+    /** 所有接收端都能解的最高帧版本；无接收端时 Integer.MAX_VALUE */
+    public int minBinVersion() {
+        int v = Integer.MAX_VALUE;
+        for (Receiver r : receivers) v = Math.min(v, r.binVersion);
+        return v;
+    }
+
+    /**
+     * 把同一份字节发给所有接收端，发送线程调用，不分配
+     *
+     * @param skip 已单独发过的地址（C3），同地址的接收端跳过；可为 null
+     * @return 实际发出的包数
+     */
+    public int send(DatagramSocket socket, byte[] buf, int len, InetSocketAddress skip) {
+        int sent = 0;
+        boolean anyMulticast = false;
+        packet.setData(buf, 0, len);
+        for (Receiver r : receivers) {
+            if (r.multicast) {
+                anyMulticast = true;
+                continue;
+            }
+            if (r.address.equals(skip)) continue;
+            if (!r.isUp() && --r.retryCountdown > 0) continue;
+            packet.setSocketAddress(r.address);
+            if (sendOne(socket, r)) sent++;
+        }
+        InetSocketAddress g = group;
+        if (anyMulticast && g != null) {
+            packet.setSocketAddress(g);
+            try {
+                groupSocket(socket).send(packet);
+                BridgeMetrics.FANOUT_SENT.inc();
+                sent++;
+            } catch (Exception e) {
+                BridgeMetrics.FANOUT_FAILED.inc();
+            }
+        }
+        return sent;
+    }
+
+    /** 关闭组播发送 socket（引擎停止时调用） */
+    public void close() {
+        MulticastSocket s = groupSocket;
+        groupSocket = null;
+        groupSocketInterface = null;
+        if (s != null) s.close();
+    }
+
+    /**
+     * 组播包用的 socket：按第一个组播订阅者的接口设置出口，接口变了才重新设置；
+     * 查不到接口时退回调用方的 socket（走默认路由）
+     */
+    private DatagramSocket groupSocket(DatagramSocket fallback) throws Exception {
+        NetworkInterface nif = null;
+        for (Receiver r : receivers) {
+            if (r.multicast && r.groupInterface != null) {
+                nif = r.groupInterface;
+                break;
+            }
+        }
+        if (nif == null) return fallback;
+        if (groupSocket == null || groupSocket.isClosed()) {
+            groupSocket = new MulticastSocket();
+            groupSocket.setBroadcast(true);    // 组地址也可以配成子网广播地址
+            groupSocketInterface = null;
+        }
+        if (!nif.equals(groupSocketInterface)) {
+            groupSocket.setNetworkInterface(nif);
+            groupSocketInterface = nif;
+            BridgeLog.i("FanOut", "组播出口接口: " + nif.getName());
+        }
+        return groupSocket;
+    }
+
+    /** 与 peer 同网段的 IPv4 接口（支持组播且已启用），没有时 null */
+    public static NetworkInterface interfaceFor(InetAddress peer) {
+        if (!(peer instanceof Inet4Address)) return null;
+        byte[] p = peer.getAddress();
+        try {
+            for (NetworkInterface ni : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!ni.isUp() || !(ni.supportsMulticast() || ni.isLoopback())) continue;
+                for (InterfaceAddress ia : ni.getInterfaceAddresses()) {
+                    if (ia.getAddress() instanceof Inet4Address
+                        && samePrefix(p, ia.getAddress().getAddress(), ia.getNetworkPrefixLength())) {
+                        return ni;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            BridgeLog.w("FanOut", "枚举网络接口失败: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean samePrefix(byte[] a, byte[] b, int prefix) {
+        for (int i = 0; i < 4 && prefix > 0; i++, prefix -= 8) {
+            int mask = prefix >= 8 ? 0xFF : (0xFF << (8 - prefix)) & 0xFF;
+            if ((a[i] & mask) != (b[i] & mask)) return false;
+        }
+        return true;
+    }
+
+    private boolean sendOne(DatagramSocket socket, Receiver r) {
+        try {
+            socket.send(packet);
+            r.packets++;
+            if (!r.isUp()) {
+                EventLog.log(BridgeEvents.RECEIVER_UP, r.ipv4, r.consecutiveFailures);
+                BridgeLog.i("FanOut", "接收端恢复: " + r);
+            }
+            r.consecutiveFailures = 0;
+            BridgeMetrics.FANOUT_SENT.inc();
+            return true;
+        } catch (Exception e) {
+            r.failures++;
+            BridgeMetrics.FANOUT_FAILED.inc();
+            if (++r.consecutiveFailures == DOWN_AFTER_FAILURES) {
+                EventLog.log(BridgeEvents.RECEIVER_DOWN, r.ipv4, r.consecutiveFailures);
+                BridgeLog.w("FanOut", "接收端连续发送失败，降频重试: " + r);
+            }
+            r.retryCountdown = DOWN_RETRY_TICKS;
+            return false;
+        }
+    }
+
+    private void put(Receiver r) {
+        for (Receiver old : receivers) {
+            if (old.address.equals(r.address)) receivers.remove(old);
+        }
+        receivers.add(r);
+        BridgeMetrics.FANOUT_RECEIVERS.set(receivers.size());
+        EventLog.log(BridgeEvents.RECEIVER_ADDED, r.ipv4, r.address.getPort(), r.multicast ? 1 : 0);
+        BridgeLog.i("FanOut", "接收端加入: " + r);
+    }
+}
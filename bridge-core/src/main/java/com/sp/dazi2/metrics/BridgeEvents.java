@@ -0,0 +1,81 @@
+package com.sp.dazi2.metrics;
+
+/**
+ * 事件环的全部事件定义（见 EventLog）
+ *
+ * 与 BridgeMetrics 一样集中在此注册，ID 按定义顺序分配；文件里带名表，顺序变了也能解读。
+ * 参数只用数字：IPv4 地址按 int 存，枚举按序号存。
+ */
+public final class BridgeEvents {
+    private BridgeEvents() {}
+
+    // ═══ 发送 ═══
+    public static final int SEND_FAILED = EventLog.define("send_failed", "consecutive");
+    public static final int SEND_RECOVERED = EventLog.define("send_recovered", "failures");
+    public static final int SEND_INTERVAL = EventLog.define("send_interval", "ms");
+    public static final int DATA_STALL = EventLog.define("data_stall", "ageMs", "count");
+    public static final int DATA_STALL_DROP = EventLog.define("data_stall_drop", "ageMs");
+    public static final int DATA_RESUMED = EventLog.define("data_resumed", "stallMs");
+
+    // ═══ 发现 ═══
+    public static final int C3_DISCOVERED = EventLog.define("c3_discovered", "ipv4", "naviBin");
+    public static final int KEYFRAME_REQUEST = EventLog.define("keyframe_request");
+    public static final int CONNECTION_STATE = EventLog.define("connection_state", "state");
+    public static final int NETWORK_CHANGED = EventLog.define("network_changed", "probe");
+    public static final int PROBES_SENT = EventLog.define("probes_sent", "sent", "targets");
+    public static final int RECONNECTED = EventLog.define("c3_reconnected", "ms");
+    public static final int RECEIVER_ADDED = EventLog.define("receiver_added", "ipv4", "port", "multicast");
+    /** reason: 0 主动移除/退订，1 心跳超时 */
+    public static final int RECEIVER_REMOVED = EventLog.define("receiver_removed", "ipv4", "port", "reason");
+    public static final int RECEIVER_DOWN = EventLog.define("receiver_down", "ipv4", "consecutive");
+    public static final int RECEIVER_UP = EventLog.define("receiver_up", "ipv4", "failures");
+
+    // ═══ 导航 / 定位 ═══
+    public static final int NAVI_STARTED = EventLog.define("navi_started");
+    public static final int NAVI_STOPPED = EventLog.define("navi_stopped");
+    public static final int ROUTE_FAILED = EventLog.define("route_failed", "error");
+    public static final int ROUTE_SELECTED = EventLog.define("route_selected", "index", "routes", "ms");
+    public static final int OFF_ROUTE = EventLog.define("off_route");
+    public static final int REROUTED = EventLog.define("rerouted", "latencyMs");
+    public static final int REROUTE_FAILED = EventLog.define("reroute_failed", "error");
+    public static final int LOCATION_STATUS = EventLog.define("location_status", "provider", "status");
+
+    // ═══ 界面响应 ═══
+    /** screen/phase/subsystem/callback 编号见 Responsiveness */
+    public static final int FROZEN_FRAME = EventLog.define("frozen_frame", "screen", "ms", "phase");
+    public static final int LOOPER_STALL = EventLog.define("looper_stall", "subsystem", "ms", "callback");
+    public static final int UI_SUMMARY = EventLog.define("ui_summary", "screen", "frames", "jankFrames");
+    public static final int CALLBACK_THREAD = EventLog.define("callback_thread", "callback", "mainThread");
+
+    // ═══ 行程统计 ═══
+    /** type 见 TripStats.CAMERA_*，限速 0 为未知 */
+    public static final int CAMERA_PASSED = EventLog.define("camera_passed", "type", "speedKph", "limitKph");
+    public static final int TRIP_SUMMARY = EventLog.define("trip_summary", "distM", "overSec", "cameras");
+
+    /** 定位状态回调的 provider 编号 */
+    public static final int PROVIDER_OTHER = 0;
+    public static final int PROVIDER_GPS = 1;
+    public static final int PROVIDER_NETWORK = 2;
+    public static final int PROVIDER_CELL = 3;
+    public static final int PROVIDER_WIFI = 4;
+
+    /** IPv4 点分地址按 int 存，解析失败为 0 */
+    public static int ipv4(String ip) {
+        if (ip == null) return 0;
+        int v = 0, part = 0, dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char ch = ip.charAt(i);
+            if (ch == '.') {
+                v = (v << 8) | part;
+                part = 0;
+                dots++;
+            } else if (ch >= '0' && ch <= '9') {
+                part = part * 10 + (ch - '0');
+                if (part > 255) return 0;
+            } else {
+                return 0;
+            }
+        }
+        return dots == 3 ? (v << 8) | part : 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.sp.dazi2.metrics;
+
+/**
+ * 桥接与导航的全部指标定义
+ *
+ * 集中在此注册，保证导出时即使对应模块尚未运行也能看到完整列表。
+ */
+public final class BridgeMetrics {
+    private BridgeMetrics() {}
+
+    private static final double[] MS_BUCKETS = {5, 10, 25, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    // ═══ 发送 ═══
+    public static final Metrics.Counter PACKETS_SENT =
+        Metrics.counter("dazi_packets_sent_total", "UDP navigation packets sent to C3");
+    public static final Metrics.Counter PACKETS_FAILED =
+        Metrics.counter("dazi_packets_failed_total", "UDP navigation packet send failures");
+    public static final Metrics.Counter BYTES_SENT =
+        Metrics.counter("dazi_bytes_sent_total", "UDP navigation payload bytes sent");
+    public static final Metrics.Counter REDUNDANT_SENT =
+        Metrics.counter("dazi_redundant_packets_total", "Repeated copies of frames carrying limit/camera changes");
+    public static final Metrics.Counter KEYFRAMES_SENT =
+        Metrics.counter("dazi_keyframes_sent_total", "Binary keyframes sent");
+    public static final Metrics.Histogram PUBLISH_TO_SEND_MS =
+        Metrics.histogram("dazi_publish_to_send_ms",
+            "Time from a navigation data update to the first send carrying it (ms)", MS_BUCKETS);
+    public static final Metrics.Histogram SEND_JITTER_MS =
+        Metrics.histogram("dazi_send_jitter_ms", "Deviation of send tick from the scheduled interval (ms)",
+            1, 2, 5, 10, 20, 50, 100, 200);
+    public static final Metrics.Counter STALLS =
+        Metrics.counter("dazi_data_stalls_total", "Navigation data stalls past the stale threshold");
+    public static final Metrics.Gauge FANOUT_RECEIVERS =
+        Metrics.gauge("dazi_fanout_receivers", "Additional receivers registered besides C3");
+    public static final Metrics.Counter FANOUT_SENT =
+        Metrics.counter("dazi_fanout_packets_total{result=\"sent\"}", "Navigation packets fanned out to additional receivers");
+    public static final Metrics.Counter FANOUT_FAILED =
+        Metrics.counter("dazi_fanout_packets_total{result=\"failed\"}", "Navigation packets fanned out to additional receivers");
+
+    // ═══ 发现 ═══
+    public static final Metrics.Counter DISCOVERY_BEACON =
+        Metrics.counter("dazi_discovery_events_total{type=\"beacon\"}", "C3 discovery events");
+    public static final Metrics.Counter DISCOVERY_NEW_C3 =
+        Metrics.counter("dazi_discovery_events_total{type=\"new_c3\"}", "C3 discovery events");
+    public static final Metrics.Counter DISCOVERY_KEYFRAME_REQUEST =
+        Metrics.counter("dazi_discovery_events_total{type=\"keyframe_request\"}", "C3 discovery events");
+    public static final Metrics.Counter DISCOVERY_TIMEOUT =
+        Metrics.counter("dazi_discovery_events_total{type=\"timeout\"}", "C3 discovery events");
+    public static final Metrics.Counter DISCOVERY_PROBES =
+        Metrics.counter("dazi_discovery_probes_total", "Active discovery probes sent");
+    public static final Metrics.Counter NETWORK_CHANGES =
+        Metrics.counter("dazi_network_changes_total", "Network changes reported by the platform");
+    public static final Metrics.Histogram RECONNECT_MS =
+        Metrics.histogram("dazi_reconnect_ms", "Time from a network change to the next C3 beacon (ms)",
+            50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000);
+
+    // ═══ 导航 / 定位 ═══
+    public static final Metrics.Counter NAVI_CALLBACKS =
+        Metrics.counter("dazi_navi_callbacks_total", "Navigation SDK guidance callbacks");
+    public static final Metrics.Counter LOCATION_FIXES =
+        Metrics.counter("dazi_location_fixes_total", "Location fixes fed to the navigation SDK");
+    public static final Metrics.Counter FUSED_GNSS =
+        Metrics.counter("dazi_fused_locations_total{mode=\"gnss\"}", "Fused wheel-speed locations fed to the navigation SDK");
+    public static final Metrics.Counter FUSED_DEAD_RECKONING =
+        Metrics.counter("dazi_fused_locations_total{mode=\"dead_reckoning\"}", "Fused wheel-speed locations fed to the navigation SDK");
+    public static final Metrics.Gauge WHEEL_SCALE =
+        Metrics.gauge("dazi_wheel_speed_scale", "GNSS-calibrated wheel speed scale factor");
+    public static final Metrics.Gauge LOCATION_FIX_AGE_MS =
+        Metrics.gauge("dazi_location_fix_age_ms", "Age of the latest location fix when received (ms)");
+    public static final Metrics.Counter REROUTES =
+        Metrics.counter("dazi_reroutes_total{result=\"success\"}", "Off-route recalculations");
+    public static final Metrics.Counter REROUTES_FAILED =
+        Metrics.counter("dazi_reroutes_total{result=\"failed\"}", "Off-route recalculations");
+    public static final Metrics.Counter OFF_ROUTE =
+        Metrics.counter("dazi_off_route_total", "Off-route events");
+    public static final Metrics.Histogram ROUTE_SCORING_MS =
+        Metrics.histogram("dazi_route_scoring_ms", "Time spent scoring alternative routes before navigation start (ms)",
+            10, 25, 50, 100, 150, 200, 500);
+    public static final Metrics.Counter ROUTE_SCORING_TIMEOUTS =
+        Metrics.counter("dazi_route_scoring_timeouts_total", "Route scoring runs that hit the time budget");
+    public static final Metrics.Counter ROUTE_SCORING_INCOMPLETE =
+        Metrics.counter("dazi_route_scoring_incomplete_total",
+            "Route scoring runs that fell back to the SDK route because route attributes were unavailable");
+
+    // ═══ 界面响应 ═══
+    public static final Metrics.Counter UI_FRAMES =
+        Metrics.counter("dazi_ui_frames_total", "Frames rendered by the app windows (FrameMetrics)");
+    public static final Metrics.Counter UI_JANK_FRAMES =
+        Metrics.counter("dazi_ui_jank_frames_total", "Frames that missed the display refresh deadline");
+    public static final Metrics.Counter UI_FROZEN_FRAMES =
+        Metrics.counter("dazi_ui_frozen_frames_total", "Frames longer than 700 ms");
+    public static final Metrics.Histogram UI_FRAME_MS =
+        Metrics.histogram("dazi_ui_frame_ms", "Frame total duration (ms)", 8, 16, 33, 50, 100, 200, 700);
+    public static final Metrics.Histogram LOOPER_STALL_MS =
+        Metrics.histogram("dazi_main_looper_stall_ms", "Main-thread messages longer than the stall threshold (ms)",
+            100, 200, 500, 1000, 2000, 5000);
+
+    // ═══ 诊断 ═══
+    public static final Metrics.Gauge EVENTS_LOGGED =
+        Metrics.gauge("dazi_events_logged", "Events written to the diagnostic ring since start", EventLog::count);
+}
@@ -0,0 +1,308 @@
+package com.sp.dazi2.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 二进制事件环（现场诊断用的行车记录）
+ *
+ * 每条事件是定长记录：事件 ID、单调时间（System.nanoTime）和最多三个数字参数，
+ * 写入进程内无锁环形缓冲区，只占一次 getAndIncrement 和五次有序写，不分配对象、不拼字符串。
+ * 环满后覆盖最旧的记录，CAPACITY 条约为正常行车的最近几十分钟。
+ *
+ * attachFile() 之后由后台线程每 FLUSH_INTERVAL_MS 把新记录复制进内存映射文件，
+ * 进程被杀时已复制的部分留在页缓存里照常落盘；上次运行的文件改名为 .prev 保留。
+ * 文件自带事件名表，换版本后也能解读。dump() / dumpFile() 按时间顺序输出文本。
+ *
+ * 事件 ID 由 define() 分配，集中在 BridgeEvents 中定义。
+ */
+public final class EventLog {
+    private EventLog() {}
+
+    public static final int CAPACITY = 1 << 14;
+    public static final int RECORD_SIZE = 40;
+    public static final int MAX_EVENTS = 256;
+    private static final int MASK = CAPACITY - 1;
+    private static final int LONGS = RECORD_SIZE / 8;   // stamp, timeNs, id|a, b, c
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    // 文件布局：头 | 记录区 CAPACITY × RECORD_SIZE | 名表（长度 + UTF-8 文本）
+    private static final int MAGIC = 0x56455A44;   // "DZEV"
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int OFF_FLUSHED = 16;
+    private static final int OFF_ANCHOR_WALL = 24;
+    private static final int OFF_ANCHOR_NANOS = 32;
+    private static final int NAMES_OFFSET = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+    private static final int NAMES_SIZE = 16 * 1024;
+    private static final int FILE_SIZE = NAMES_OFFSET + NAMES_SIZE;
+
+    // 记录槽：stamp = 序号 + 1，写入中为 0；读者前后两次读到同一 stamp 才算完整
+    private static final AtomicLongArray sRing = new AtomicLongArray(CAPACITY * LONGS);
+    private static final AtomicLong sHead = new AtomicLong();
+
+    private static final String[] sNames = new String[MAX_EVENTS];
+    private static final String[][] sArgNames = new String[MAX_EVENTS][];
+    private static int sDefined = 0;
+    private static volatile boolean sNamesDirty = false;
+
+    // 单调时间与墙钟的对照，转换输出时间用
+    private static final long sAnchorWallMs = System.currentTimeMillis();
+    private static final long sAnchorNanos = System.nanoTime();
+
+    private static final Object sFileLock = new Object();
+    private static MappedByteBuffer sMap;
+    private static File sPrevFile;
+    private static long sFlushed = 0;
+    private static Thread sFlusher;
+
+    /** 分配事件 ID（从 1 开始），argNames 依次对应 a/b/c */
+    public static synchronized int define(String name, String... argNames) {
+        if (sDefined + 1 >= MAX_EVENTS) throw new IllegalStateException("too many events");
+        int id = ++sDefined;
+        sNames[id] = name;
+        sArgNames[id] = argNames;
+        sNamesDirty = true;
+        return id;
+    }
+
+    public static void log(int id) { log(id, 0, 0, 0); }
+    public static void log(int id, int a) { log(id, a, 0, 0); }
+    public static void log(int id, int a, long b) { log(id, a, b, 0); }
+
+    /** 记录一条事件，任何线程可调用 */
+    public static void log(int id, int a, long b, long c) {
+        long seq = sHead.getAndIncrement();
+        int base = (int) (seq & MASK) * LONGS;
+        sRing.lazySet(base, 0);
+        sRing.lazySet(base + 1, System.nanoTime());
+        sRing.lazySet(base + 2, ((long) id << 32) | (a & 0xFFFFFFFFL));
+        sRing.lazySet(base + 3, b);
+        sRing.lazySet(base + 4, c);
+        sRing.lazySet(base, seq + 1);
+    }
+
+    /** 启动以来记录的事件总数（含已被覆盖的） */
+    public static long count() { return sHead.get(); }
+
+    /**
+     * 把事件环接到内存映射文件并启动后台复制线程
+     *
+     * 已有文件先改名为 &lt;name&gt;.prev，可由 dumpPrevious() 读出。重复调用无效。
+     */
+    public static void attachFile(File file) throws IOException {
+        synchronized (sFileLock) {
+            if (sMap != null) return;
+            File prev = new File(file.getPath() + ".prev");
+            if (file.exists() && file.length() > 0) {
+                if (prev.exists() && !prev.delete()) throw new IOException("cannot delete " + prev);
+                if (!file.renameTo(prev)) throw new IOException("cannot rename " + file);
+            }
+            sPrevFile = prev.exists() ? prev : null;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(FILE_SIZE);
+                sMap = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            }
+            sMap.order(ByteOrder.LITTLE_ENDIAN);
+            sMap.putInt(0, MAGIC);
+            sMap.putInt(4, FILE_VERSION);
+            sMap.putInt(8, RECORD_SIZE);
+            sMap.putInt(12, CAPACITY);
+            sMap.putLong(OFF_FLUSHED, 0);
+            sMap.putLong(OFF_ANCHOR_WALL, sAnchorWallMs);
+            sMap.putLong(OFF_ANCHOR_NANOS, sAnchorNanos);
+            sNamesDirty = true;
+            flushLocked();
+
+            sFlusher = new Thread(EventLog::flushLoop, "EventLog-Flush");
+            sFlusher.setDaemon(true);
+            sFlusher.start();
+        }
+    }
+
+    private static void flushLoop() {
+        while (true) {
+            try {
+                Thread.sleep(FLUSH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            flush();
+        }
+    }
+
+    /** 立即把新记录复制进映射文件（未 attachFile 时无操作） */
+    public static void flush() {
+        synchronized (sFileLock) {
+            if (sMap != null) flushLocked();
+        }
+    }
+
+    private static void flushLocked() {
+        MappedByteBuffer map = sMap;
+        long head = sHead.get();
+        long seq = Math.max(sFlushed, head - CAPACITY);
+        for (; seq < head; seq++) {
+            int base = (int) (seq & MASK) * LONGS;
+            long stamp = sRing.get(base);
+            if (stamp < seq + 1) break;           // 还在写，下次再复制
+            long t = sRing.get(base + 1);
+            long idA = sRing.get(base + 2);
+            long b = sRing.get(base + 3);
+            long c = sRing.get(base + 4);
+            if (sRing.get(base) != stamp || stamp != seq + 1) continue;   // 已被覆盖
+            int pos = HEADER_SIZE + (int) (seq & MASK) * RECORD_SIZE;
+            map.putLong(pos, 0);
+            map.putLong(pos + 8, t);
+            map.putLong(pos + 16, idA);
+            map.putLong(pos + 24, b);
+            map.putLong(pos + 32, c);
+            map.putLong(pos, stamp);
+        }
+        sFlushed = seq;
+        map.putLong(OFF_FLUSHED, seq);
+        if (sNamesDirty) writeNames(map);
+    }
+
+    private static void writeNames(ByteBuffer map) {
+        byte[] text = nameTable().getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(text.length, NAMES_SIZE - 4);
+        map.position(NAMES_OFFSET + 4);
+        map.put(text, 0, len);
+        map.putInt(NAMES_OFFSET, len);
+        sNamesDirty = false;
+    }
+
+    /** 名表：每行 id=name:arg,arg */
+    private static synchronized String nameTable() {
+        StringBuilder sb = new StringBuilder();
+        for (int id = 1; id <= sDefined; id++) {
+            sb.append(id).append('=').append(sNames[id]).append(':')
+                .append(String.join(",", sArgNames[id])).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // ═══ 输出 ═══
+
+    /** 按时间顺序输出内存中最近的事件，max <= 0 为全部 */
+    public static void dump(Appendable out, int max) throws IOException {
+        long head = sHead.get();
+        long from = Math.max(0, head - CAPACITY);
+        if (max > 0) from = Math.max(from, head - max);
+        String[] names = new String[MAX_EVENTS];
+        String[][] args = new String[MAX_EVENTS][];
+        synchronized (EventLog.class) {
+            System.arraycopy(sNames, 0, names, 0, MAX_EVENTS);
+            System.arraycopy(sArgNames, 0, args, 0, MAX_EVENTS);
+        }
+        out.append("# events ").append(String.valueOf(head - from))
+            .append(" of ").append(String.valueOf(head)).append('\n');
+        for (long seq = from; seq < head; seq++) {
+            int base = (int) (seq & MASK) * LONGS;
+            long stamp = sRing.get(base);
+            long t = sRing.get(base + 1);
+            long idA = sRing.get(base + 2);
+            long b = sRing.get(base + 3);
+            long c = sRing.get(base + 4);
+            if (stamp != seq + 1 || sRing.get(base) != stamp) continue;
+            appendRecord(out, sAnchorWallMs, sAnchorNanos, t, idA, b, c, names, args);
+        }
+    }
+
+    /** 输出上次运行留下的事件文件；没有时返回 false */
+    public static boolean dumpPrevious(Appendable out) throws IOException {
+        File prev;
+        synchronized (sFileLock) { prev = sPrevFile; }
+        if (prev == null || !prev.exists()) return false;
+        dumpFile(prev, out);
+        return true;
+    }
+
+    /** 解读事件文件（本次或上次运行的），按序号排序输出 */
+    public static void dumpFile(File file, Appendable out) throws IOException {
+        ByteBuffer buf;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != FILE_VERSION) {
+            throw new IOException("not an event log: " + file);
+        }
+        int recordSize = buf.getInt(8);
+        int capacity = buf.getInt(12);
+        long flushed = buf.getLong(OFF_FLUSHED);
+        long anchorWall = buf.getLong(OFF_ANCHOR_WALL);
+        long anchorNanos = buf.getLong(OFF_ANCHOR_NANOS);
+        int namesOffset = HEADER_SIZE + capacity * recordSize;
+
+        String[] names = new String[MAX_EVENTS];
+        String[][] args = new String[MAX_EVENTS][];
+        int namesLen = buf.getInt(namesOffset);
+        byte[] text = new byte[namesLen];
+        buf.position(namesOffset + 4);
+        buf.get(text);
+        for (String line : new String(text, StandardCharsets.UTF_8).split("\n")) {
+            int eq = line.indexOf('='), colon = line.indexOf(':');
+            if (eq <= 0 || colon < eq) continue;
+            int id = Integer.parseInt(line.substring(0, eq));
+            if (id <= 0 || id >= MAX_EVENTS) continue;
+            names[id] = line.substring(eq + 1, colon);
+            String a = line.substring(colon + 1);
+            args[id] = a.isEmpty() ? new String[0] : a.split(",");
+        }
+
+        List<long[]> records = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            int pos = HEADER_SIZE + i * recordSize;
+            long stamp = buf.getLong(pos);
+            if (stamp == 0 || stamp > flushed) continue;
+            records.add(new long[] {stamp, buf.getLong(pos + 8), buf.getLong(pos + 16),
+                buf.getLong(pos + 24), buf.getLong(pos + 32)});
+        }
+        records.sort((x, y) -> Long.compare(x[0], y[0]));
+        out.append("# ").append(file.getName()).append(": events ").append(String.valueOf(records.size()))
+            .append(" of ").append(String.valueOf(flushed)).append('\n');
+        for (long[] r : records) {
+            appendRecord(out, anchorWall, anchorNanos, r[1], r[2], r[3], r[4], names, args);
+        }
+    }
+
+    private static void appendRecord(Appendable out, long anchorWall, long anchorNanos,
+                                     long t, long idA, long b, long c,
+                                     String[] names, String[][] args) throws IOException {
+        int id = (int) (idA >>> 32);
+        int a = (int) idA;
+        long wallMs = anchorWall + (t - anchorNanos) / 1_000_000;
+        out.append(new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US).format(new Date(wallMs)))
+            .append(' ');
+        String name = id > 0 && id < MAX_EVENTS ? names[id] : null;
+        out.append(name != null ? name : "event" + id);
+        String[] an = id > 0 && id < MAX_EVENTS && args[id] != null ? args[id] : new String[0];
+        long[] v = {a, b, c};
+        for (int i = 0; i < an.length && i < 3; i++) {
+            out.append(' ').append(an[i]).append('=');
+            if ("ipv4".equals(an[i])) {
+                int ip = (int) v[i];
+                out.append(String.valueOf(ip >>> 24)).append('.').append(String.valueOf((ip >>> 16) & 0xFF))
+                    .append('.').append(String.valueOf((ip >>> 8) & 0xFF)).append('.').append(String.valueOf(ip & 0xFF));
+            } else {
+                out.append(String.valueOf(v[i]));
+            }
+        }
+        out.append('\n');
+    }
+}
@@ -0,0 +1,198 @@
+package com.sp.dazi2.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 进程内指标注册表
+ *
+ * 计数器 / 仪表 / 直方图，更新路径无锁，只有注册和导出时加锁。
+ * 名称可带标签（如 dazi_discovery_events_total{type="beacon"}），
+ * 同名不同标签归入同一族，导出时共用一行 HELP/TYPE。
+ * 重复注册同一名称返回已有实例。导出格式为 Prometheus 文本格式 0.0.4。
+ */
+public final class Metrics {
+    private Metrics() {}
+
+    private static final Map<String, Family> sFamilies = new LinkedHashMap<>();
+    private static final Map<String, Metric> sByName = new LinkedHashMap<>();
+
+    public static Counter counter(String name, String help) {
+        return register(name, help, "counter", Counter.class, () -> new Counter(name));
+    }
+
+    public static Gauge gauge(String name, String help) {
+        return register(name, help, "gauge", Gauge.class, () -> new Gauge(name, null));
+    }
+
+    /** 导出时才取值的仪表（如 GC 次数） */
+    public static Gauge gauge(String name, String help, DoubleSupplier supplier) {
+        return register(name, help, "gauge", Gauge.class, () -> new Gauge(name, supplier));
+    }
+
+    /** bounds 为升序上界，+Inf 桶自动追加 */
+    public static Histogram histogram(String name, String help, double... bounds) {
+        return register(name, help, "histogram", Histogram.class, () -> new Histogram(name, bounds));
+    }
+
+    private interface Factory<T> { T create(); }
+
+    private static synchronized <T extends Metric> T register(String name, String help, String type,
+                                                              Class<T> cls, Factory<T> factory) {
+        Metric existing = sByName.get(name);
+        if (existing != null) return cls.cast(existing);
+        T m = factory.create();
+        String familyName = familyOf(name);
+        Family family = sFamilies.get(familyName);
+        if (family == null) {
+            family = new Family(familyName, help, type);
+            sFamilies.put(familyName, family);
+        }
+        family.members.add(m);
+        sByName.put(name, m);
+        return m;
+    }
+
+    /** 导出全部指标 */
+    public static synchronized String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family f : sFamilies.values()) {
+            sb.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            sb.append("# TYPE ").append(f.name).append(' ').append(f.type).append('\n');
+            for (Metric m : f.members) m.write(sb);
+        }
+        return sb.toString();
+    }
+
+    private static String familyOf(String name) {
+        int brace = name.indexOf('{');
+        return brace < 0 ? name : name.substring(0, brace);
+    }
+
+    /** 在名称上追加一个标签，name 本身可已带标签 */
+    private static String withLabel(String name, String label, String value) {
+        int brace = name.indexOf('{');
+        if (brace < 0) return name + '{' + label + "=\"" + value + "\"}";
+        return name.substring(0, name.length() - 1) + ',' + label + "=\"" + value + "\"}";
+    }
+
+    private static String withSuffix(String name, String suffix) {
+        int brace = name.indexOf('{');
+        if (brace < 0) return name + suffix;
+        return name.substring(0, brace) + suffix + name.substring(brace);
+    }
+
+    private static void appendValue(StringBuilder sb, double v) {
+        if (v == (long) v) sb.append((long) v);
+        else sb.append(v);
+    }
+
+    private static final class Family {
+        final String name, help, type;
+        final List<Metric> members = new ArrayList<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    public abstract static class Metric {
+        final String name;
+
+        Metric(String name) { this.name = name; }
+
+        abstract void write(StringBuilder sb);
+    }
+
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) { super(name); }
+
+        public void inc() { value.increment(); }
+        public void add(long n) { value.add(n); }
+        public long get() { return value.sum(); }
+
+        @Override
+        void write(StringBuilder sb) {
+            sb.append(name).append(' ').append(value.sum()).append('\n');
+        }
+    }
+
+    public static final class Gauge extends Metric {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0));
+        private final DoubleSupplier supplier;
+
+        Gauge(String name, DoubleSupplier supplier) {
+            super(name);
+            this.supplier = supplier;
+        }
+
+        public void set(double v) { bits.set(Double.doubleToRawLongBits(v)); }
+
+        public double get() {
+            return supplier != null ? supplier.getAsDouble() : Double.longBitsToDouble(bits.get());
+        }
+
+        @Override
+        void write(StringBuilder sb) {
+            sb.append(name).append(' ');
+            appendValue(sb, get());
+            sb.append('\n');
+        }
+    }
+
+    public static final class Histogram extends Metric {
+        private final double[] bounds;
+        private final AtomicLongArray buckets;    // 非累积，导出时累加
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        Histogram(String name, double[] bounds) {
+            super(name);
+            this.bounds = bounds.clone();
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        public void observe(double v) {
+            int i = 0;
+            while (i < bounds.length && v > bounds[i]) i++;
+            buckets.incrementAndGet(i);
+            sum.add(v);
+            count.increment();
+        }
+
+        public long getCount() { return count.sum(); }
+
+        @Override
+        void write(StringBuilder sb) {
+            String bucketName = withSuffix(name, "_bucket");
+            long cumulative = 0;
+            for (int i = 0; i <= bounds.length; i++) {
+                cumulative += buckets.get(i);
+                String le;
+                if (i < bounds.length) {
+                    StringBuilder b = new StringBuilder();
+                    appendValue(b, bounds[i]);
+                    le = b.toString();
+                } else {
+                    le = "+Inf";
+                }
+                sb.append(withLabel(bucketName, "le", le)).append(' ').append(cumulative).append('\n');
+            }
+            sb.append(withSuffix(name, "_sum")).append(' ');
+            appendValue(sb, sum.sum());
+            sb.append('\n');
+            sb.append(withSuffix(name, "_count")).append(' ').append(count.sum()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.sp.dazi2.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 极简 HTTP 指标端点
+ *
+ * GET /metrics 返回 Metrics.scrape()；GET /events 返回事件环最近的记录，
+ * GET /events/prev 返回上次运行留下的事件文件；addPage() 登记的路径返回其文本；其余路径 404。
+ * 单线程逐个处理连接，只为热点内的 C3 或笔记本偶尔抓取，不做 keep-alive。
+ */
+public class MetricsServer {
+    public static final int DEFAULT_PORT = 7707;
+
+    private final int port;
+    private final Map<String, Supplier<String>> pages = new ConcurrentHashMap<>();
+    private volatile ServerSocket serverSocket;
+    private Thread thread;
+
+    public MetricsServer(int port) { this.port = port; }
+
+    /** 登记一个纯文本页面，body 在指标线程调用 */
+    public void addPage(String path, Supplier<String> body) { pages.put(path, body); }
+
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) return;
+        ServerSocket ss = new ServerSocket(port);
+        ss.setReuseAddress(true);
+        serverSocket = ss;
+        thread = new Thread(this::acceptLoop, "Metrics-HTTP");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        ServerSocket ss = serverSocket;
+        serverSocket = null;
+        if (ss != null) {
+            try { ss.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void acceptLoop() {
+        ServerSocket ss = serverSocket;
+        while (ss != null && !ss.isClosed()) {
+            try (Socket s = ss.accept()) {
+                s.setSoTimeout(2000);
+                handle(s);
+            } catch (SocketException e) {
+                // stop() 关闭了监听
+            } catch (IOException ignored) {
+                // 单个连接出错不影响后续抓取
+            }
+        }
+    }
+
+    private void handle(Socket s) throws IOException {
+        String requestLine = readLine(s.getInputStream());
+        String[] parts = requestLine.split(" ");
+        OutputStream out = s.getOutputStream();
+        if (parts.length >= 2 && "GET".equals(parts[0])
+                && (parts[1].equals("/metrics") || parts[1].startsWith("/metrics?"))) {
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            writeResponse(out, "200 OK", "text/plain; version=0.0.4; charset=utf-8", body);
+        } else if (parts.length >= 2 && "GET".equals(parts[0]) && parts[1].equals("/events")) {
+            StringBuilder sb = new StringBuilder();
+            EventLog.dump(sb, 0);
+            writeResponse(out, "200 OK", "text/plain; charset=utf-8", sb.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (parts.length >= 2 && "GET".equals(parts[0]) && parts[1].equals("/events/prev")) {
+            StringBuilder sb = new StringBuilder();
+            if (!EventLog.dumpPrevious(sb)) sb.append("no previous event log\n");
+            writeResponse(out, "200 OK", "text/plain; charset=utf-8", sb.toString().getBytes(StandardCharsets.UTF_8));
+        } else if (parts.length >= 2 && "GET".equals(parts[0]) && pages.containsKey(parts[1])) {
+            String body = pages.get(parts[1]).get();
+            writeResponse(out, "200 OK", "text/plain; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+        } else {
+            writeResponse(out, "404 Not Found", "text/plain", "not found\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** 只读请求行，请求头直接丢弃 */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n' && sb.length() < 1024) {
+            if (c != '\r') sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    private static void writeResponse(OutputStream out, String status, String type, byte[] body)
+            throws IOException {
+        String head = "HTTP/1.1 " + status + "\r\n"
+            + "Content-Type: " + type + "\r\n"
+            + "Content-Length: " + body.length + "\r\n"
+            + "Connection: close\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+}
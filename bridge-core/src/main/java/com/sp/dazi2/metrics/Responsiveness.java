@@ -0,0 +1,245 @@
+package com.sp.dazi2.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 界面响应统计：掉帧、主线程卡顿、回调所在线程
+ *
+ * 输入由平台层（app 的 UiMonitor）喂入，这里只做定长累加：
+ *   - onFrame()：每帧总耗时和各阶段耗时（FrameMetrics）。超过刷新周期记卡顿帧，
+ *     按耗时最长的阶段归类；超过 FROZEN_MS 记冻结帧并写事件
+ *   - onMessageStart() / onMessage()：主线程 Looper 每条消息的耗时。超过 STALL_MS 记一次卡顿，
+ *     按消息的 Handler / 回调类名归到子系统；消息期间有 callback() 登记的回调跑在主线程时一并记下
+ *   - callback()：各业务回调在主线程 / 后台线程上的次数，首次出现在某类线程上时写事件
+ * 界面离开时 logSummary() 写一条 UI_SUMMARY；getSummaryText() 给主界面统计栏。
+ *
+ * 只有卡顿/冻结时才做字符串匹配和写事件，正常帧、正常消息只是几次计数。
+ */
+public final class Responsiveness {
+    private Responsiveness() {}
+
+    public static final int SCREEN_MAIN = 0;
+    public static final int SCREEN_NAVI = 1;
+    private static final int SCREEN_COUNT = 2;
+    private static final String[] SCREEN_LABELS = {"主界面", "地图"};
+
+    /** 帧阶段，onFrame() 的 phaseNs 按此顺序 */
+    public static final int PHASE_INPUT = 0;
+    public static final int PHASE_ANIMATION = 1;
+    public static final int PHASE_LAYOUT = 2;
+    public static final int PHASE_DRAW = 3;
+    public static final int PHASE_SYNC = 4;
+    public static final int PHASE_GPU = 5;        // 命令提交 + 交换缓冲
+    public static final int PHASE_OTHER = 6;      // 未归类的延迟（如主线程在帧前被占用）
+    public static final int PHASE_COUNT = 7;
+    private static final String[] PHASE_LABELS = {"输入", "动画", "布局", "绘制", "同步", "GPU", "等待"};
+
+    /** 主线程卡顿归属 */
+    public static final int SUB_APP = 0;
+    public static final int SUB_NAVI_SDK = 1;
+    public static final int SUB_MAP = 2;
+    public static final int SUB_WEBVIEW = 3;
+    public static final int SUB_RENDER = 4;
+    public static final int SUB_OTHER = 5;
+    private static final int SUB_COUNT = 6;
+    private static final String[] SUB_LABELS = {"本应用", "导航SDK", "地图", "WebView", "渲染", "其他"};
+
+    public static final long FROZEN_MS = 700;
+    public static final long STALL_MS = 100;
+    public static final int MAX_CALLBACKS = 32;
+
+    // 帧：FrameMetrics 回调线程写，界面线程读
+    private static final Object sFrameLock = new Object();
+    private static final long[] sFrames = new long[SCREEN_COUNT];
+    private static final long[] sJank = new long[SCREEN_COUNT];
+    private static final long[] sFrozen = new long[SCREEN_COUNT];
+    private static final long[] sWorstMs = new long[SCREEN_COUNT];
+    private static final long[][] sJankByPhase = new long[SCREEN_COUNT][PHASE_COUNT];
+
+    // 主线程消息：只在主线程读写
+    private static long sMessages;
+    private static long sStalls;
+    private static final long[] sStallsBySub = new long[SUB_COUNT];
+    private static long sLongestStallMs;
+    private static int sLongestStallSub = -1;
+    private static int sLongestStallCallback = -1;
+    private static int sCurrentCallback = -1;
+
+    // 回调：任意线程
+    private static volatile Thread sMainThread;
+    private static final String[] sCallbackNames = new String[MAX_CALLBACKS];
+    private static int sCallbackCount = 0;
+    private static final AtomicLongArray sCallbackRuns = new AtomicLongArray(MAX_CALLBACKS * 2);   // [id*2] 后台, [id*2+1] 主
+    private static final AtomicLongArray sCallbackStalls = new AtomicLongArray(MAX_CALLBACKS);
+    private static final AtomicReferenceArray<String> sCallbackThread = new AtomicReferenceArray<>(MAX_CALLBACKS);
+
+    public static void setMainThread(Thread t) { sMainThread = t; }
+
+    /** 登记一个回调，返回其编号；超过 MAX_CALLBACKS 抛 IllegalStateException */
+    public static synchronized int defineCallback(String name) {
+        if (sCallbackCount >= MAX_CALLBACKS) throw new IllegalStateException("too many callbacks");
+        sCallbackNames[sCallbackCount] = name;
+        return sCallbackCount++;
+    }
+
+    /** 回调入口调用，记录所在线程 */
+    public static void callback(int id) {
+        Thread t = Thread.currentThread();
+        boolean main = t == sMainThread;
+        if (sCallbackRuns.getAndIncrement(id * 2 + (main ? 1 : 0)) == 0) {
+            EventLog.log(BridgeEvents.CALLBACK_THREAD, id, main ? 1 : 0);
+        }
+        if (main) {
+            sCurrentCallback = id;
+        } else {
+            String name = t.getName();
+            if (sCallbackThread.get(id) != name) sCallbackThread.set(id, name);
+        }
+    }
+
+    /**
+     * 一帧的耗时
+     *
+     * @param budgetNs 刷新周期
+     * @param phaseNs  各阶段耗时，长度 PHASE_COUNT
+     */
+    public static void onFrame(int screen, long totalNs, long budgetNs, long[] phaseNs) {
+        BridgeMetrics.UI_FRAMES.inc();
+        BridgeMetrics.UI_FRAME_MS.observe(totalNs / 1e6);
+        if (totalNs <= budgetNs) {
+            synchronized (sFrameLock) { sFrames[screen]++; }
+            return;
+        }
+        int phase = 0;
+        for (int i = 1; i < PHASE_COUNT; i++) {
+            if (phaseNs[i] > phaseNs[phase]) phase = i;
+        }
+        long ms = totalNs / 1_000_000;
+        boolean frozen = ms >= FROZEN_MS;
+        synchronized (sFrameLock) {
+            sFrames[screen]++;
+            sJank[screen]++;
+            sJankByPhase[screen][phase]++;
+            if (frozen) sFrozen[screen]++;
+            if (ms > sWorstMs[screen]) sWorstMs[screen] = ms;
+        }
+        BridgeMetrics.UI_JANK_FRAMES.inc();
+        if (frozen) {
+            BridgeMetrics.UI_FROZEN_FRAMES.inc();
+            EventLog.log(BridgeEvents.FROZEN_FRAME, screen, ms, phase);
+        }
+    }
+
+    /** 主线程开始处理一条消息 */
+    public static void onMessageStart() {
+        sCurrentCallback = -1;
+    }
+
+    /**
+     * 主线程处理完一条消息
+     *
+     * @param dispatch Looper 打印的 ">>>>> Dispatching to ..." 行，含 Handler 和回调类名
+     */
+    public static void onMessage(long durationNs, String dispatch) {
+        sMessages++;
+        long ms = durationNs / 1_000_000;
+        if (ms < STALL_MS) return;
+        int sub = subsystemOf(dispatch);
+        int cb = sCurrentCallback;
+        sStalls++;
+        sStallsBySub[sub]++;
+        if (cb >= 0) sCallbackStalls.incrementAndGet(cb);
+        if (ms > sLongestStallMs) {
+            sLongestStallMs = ms;
+            sLongestStallSub = sub;
+            sLongestStallCallback = cb;
+        }
+        BridgeMetrics.LOOPER_STALL_MS.observe(ms);
+        EventLog.log(BridgeEvents.LOOPER_STALL, sub, ms, cb);
+    }
+
+    /** 按 Handler / 回调类名归类；Choreographer 是每帧的测量布局绘制 */
+    static int subsystemOf(String dispatch) {
+        if (dispatch == null) return SUB_OTHER;
+        if (dispatch.contains("Choreographer")) return SUB_RENDER;
+        if (dispatch.contains("com.sp.dazi2")) return SUB_APP;
+        if (dispatch.contains("com.tencent.tencentmap") || dispatch.contains("com.tencent.map")) return SUB_MAP;
+        if (dispatch.contains("com.tencent")) return SUB_NAVI_SDK;
+        if (dispatch.contains("chromium") || dispatch.contains("webkit")) return SUB_WEBVIEW;
+        return SUB_OTHER;
+    }
+
+    /** 写一条界面汇总事件（界面离开时调用） */
+    public static void logSummary(int screen) {
+        long frames, jank;
+        synchronized (sFrameLock) {
+            frames = sFrames[screen];
+            jank = sJank[screen];
+        }
+        EventLog.log(BridgeEvents.UI_SUMMARY, screen, frames, jank);
+    }
+
+    public static long getFrames(int screen) {
+        synchronized (sFrameLock) { return sFrames[screen]; }
+    }
+
+    public static long getJankFrames(int screen) {
+        synchronized (sFrameLock) { return sJank[screen]; }
+    }
+
+    /** 主线程调用 */
+    public static long getStallCount() { return sStalls; }
+
+    /**
+     * 统计栏文本，主线程调用：
+     * 各界面帧数、卡顿率（主要阶段）、冻结帧、最长帧；主线程卡顿次数和最长一次的归属；
+     * 各回调所在线程
+     */
+    public static String getSummaryText() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (sFrameLock) {
+            for (int s = 0; s < SCREEN_COUNT; s++) {
+                if (sFrames[s] == 0) continue;
+                if (sb.length() > 0) sb.append(" | ");
+                sb.append(SCREEN_LABELS[s]).append(" 帧").append(sFrames[s])
+                    .append(" 卡顿").append(String.format("%.1f%%", sJank[s] * 100.0 / sFrames[s]));
+                if (sJank[s] > 0) {
+                    int p = 0;
+                    for (int i = 1; i < PHASE_COUNT; i++) {
+                        if (sJankByPhase[s][i] > sJankByPhase[s][p]) p = i;
+                    }
+                    sb.append('(').append(PHASE_LABELS[p]).append(')')
+                        .append(" 最长").append(sWorstMs[s]).append("ms");
+                }
+                if (sFrozen[s] > 0) sb.append(" 冻结").append(sFrozen[s]);
+            }
+        }
+        if (sb.length() > 0) sb.append('\n');
+        sb.append("主线程 消息").append(sMessages).append(" 卡顿").append(sStalls).append("次");
+        if (sStalls > 0) {
+            sb.append(" 最长").append(sLongestStallMs).append("ms(").append(SUB_LABELS[sLongestStallSub]);
+            if (sLongestStallCallback >= 0) sb.append('/').append(sCallbackNames[sLongestStallCallback]);
+            sb.append(')');
+            for (int i = 0; i < SUB_COUNT; i++) {
+                if (sStallsBySub[i] > 0) sb.append(' ').append(SUB_LABELS[i]).append('×').append(sStallsBySub[i]);
+            }
+        }
+        int n;
+        synchronized (Responsiveness.class) { n = sCallbackCount; }
+        boolean first = true;
+        for (int id = 0; id < n; id++) {
+            long bg = sCallbackRuns.get(id * 2), main = sCallbackRuns.get(id * 2 + 1);
+            if (bg == 0 && main == 0) continue;
+            sb.append(first ? "\n回调线程 " : " | ");
+            first = false;
+            sb.append(sCallbackNames[id]).append(':');
+            if (main > 0) sb.append("主").append(main);
+            if (main > 0 && bg > 0) sb.append('+');
+            if (bg > 0) sb.append(sCallbackThread.get(id)).append(bg);
+            long stalls = sCallbackStalls.get(id);
+            if (stalls > 0) sb.append(" 卡顿").append(stalls);
+        }
+        return sb.toString();
+    }
+}
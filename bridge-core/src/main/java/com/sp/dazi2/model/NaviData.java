@@ -0,0 +1,287 @@
+package com.sp.dazi2.model;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 导航数据模型 — 与 navi_bridge.py 的 JSON 格式完全对应
+ *
+ * 2.0 版本：数据来源从高德广播改为腾讯导航SDK回调，
+ * 但 JSON 字段名保持与 1.0 完全一致，C3 端无需任何修改。
+ */
+public class NaviData {
+    // 道路限速 km/h
+    public int nRoadLimitSpeed = 0;
+
+    // 测速摄像头
+    public int nSdiType = -1;          // 测速类型
+    public int nSdiSpeedLimit = 0;     // 测速限速 km/h
+    public double nSdiDist = 0;        // 到测速点距离 m
+    public int nSdiBlockType = -1;     // 区间测速类型
+    public int nSdiBlockSpeed = 0;     // 区间测速限速 km/h
+    public double nSdiBlockDist = 0;   // 区间测速距离 m
+
+    // GPS
+    public double vpPosPointLat = 0;   // 纬度
+    public double vpPosPointLon = 0;   // 经度
+    public float nPosAngle = 0;        // 航向角
+
+    // 道路信息
+    public String szPosRoadName = "";  // 道路名称
+    public int roadcate = 0;           // 道路类型
+
+    // 转弯 (TBT)
+    public double nTBTDist = 0;        // 到转弯点距离 m
+    public int nTBTTurnType = 0;       // 转弯类型 (映射为高德ICON值)
+
+    // 目的地
+    public int nGoPosDist = 0;         // 到目的地距离 m
+    public int nGoPosTime = 0;         // 到目的地时间 s
+
+    // 交通灯
+    public int nTrafficLight = 0;      // 0=无, 1=红, 2=绿, 3=黄
+    public int nTrafficLightDist = 0;  // 到红绿灯距离 m
+    public int nTrafficLightSec = 0;   // 倒计时秒数
+
+    // 服务区/收费站
+    public String sapaName = "";
+    public int sapaDist = -1;
+    public int sapaType = -1;
+    public String nextSapaName = "";
+    public int nextSapaDist = -1;
+    public int nextSapaType = -1;
+
+    // ETA 到达时间
+    public String etaText = "";
+
+    // 路况拥堵
+    public int tmcSlowDist = 0;
+    public int tmcJamDist = 0;
+    public int tmcBlockDist = 0;
+
+    // 连续转弯预告
+    public int nextNextTurnIcon = 0;
+    public String nextNextRoadName = "";
+
+    // 数据状态位（1.0 协议之外的扩展字段，navi_bridge.py 不认识时忽略）
+    public static final int DATA_FLAG_HELD = 0x01;    // 重新规划中，限速/摄像头为偏航前保持值
+    public static final int DATA_FLAG_STALE = 0x02;   // SDK 数据超时未更新
+    public int nDataFlags = 0;
+    public int nDataAgeMs = 0;         // 发送时距 SDK 最后一次写入的毫秒数
+
+    // SDK 最后一次写入的单调时钟 ms（不上线路），0 = 从未写入
+    public volatile long sourceTimeMs = 0;
+
+    /** SDK 回调写完一帧后调用 */
+    public void markSourceUpdated() {
+        sourceTimeMs = System.nanoTime() / 1_000_000;
+    }
+
+    // ═══ 字段变更跟踪 ═══
+    // 每个 JSON 字段一位，SDK 回调经 setter 写入时置位，
+    // 发送线程用 takeDirtyFields() 取走，增量帧只编码变化的字段。
+
+    public static final int F_ROAD_LIMIT = 0;
+    public static final int F_SDI_TYPE = 1;
+    public static final int F_SDI_SPEED = 2;
+    public static final int F_SDI_DIST = 3;
+    public static final int F_SDI_BLOCK_TYPE = 4;
+    public static final int F_SDI_BLOCK_SPEED = 5;
+    public static final int F_SDI_BLOCK_DIST = 6;
+    public static final int F_LAT = 7;
+    public static final int F_LON = 8;
+    public static final int F_ANGLE = 9;
+    public static final int F_ROAD_NAME = 10;
+    public static final int F_ROADCATE = 11;
+    public static final int F_TBT_DIST = 12;
+    public static final int F_TBT_TURN = 13;
+    public static final int F_GO_DIST = 14;
+    public static final int F_GO_TIME = 15;
+    public static final int F_TRAFFIC_LIGHT = 16;
+    public static final int F_TRAFFIC_LIGHT_SEC = 17;
+    public static final int F_SAPA_NAME = 18;
+    public static final int F_SAPA_DIST = 19;
+    public static final int F_SAPA_TYPE = 20;
+    public static final int F_NEXT_SAPA_NAME = 21;
+    public static final int F_NEXT_SAPA_DIST = 22;
+    public static final int F_NEXT_SAPA_TYPE = 23;
+    public static final int F_ETA_TEXT = 24;
+    public static final int F_TMC_SLOW = 25;
+    public static final int F_TMC_JAM = 26;
+    public static final int F_TMC_BLOCK = 27;
+    public static final int F_NEXT_NEXT_TURN = 28;
+    public static final int F_NEXT_NEXT_ROAD = 29;
+    public static final int F_DATA_FLAGS = 30;
+    public static final int F_DATA_AGE = 31;
+    public static final int FIELD_COUNT = 32;
+    public static final long ALL_FIELDS = (1L << FIELD_COUNT) - 1;
+
+    // 新对象视为全部字段已变化
+    private final java.util.concurrent.atomic.AtomicLong mDirty =
+        new java.util.concurrent.atomic.AtomicLong(ALL_FIELDS);
+
+    private void markDirty(int field) {
+        long bit = 1L << field;
+        long m;
+        do {
+            m = mDirty.get();
+            if ((m & bit) != 0) return;
+        } while (!mDirty.compareAndSet(m, m | bit));
+    }
+
+    /** 取走并清空变更位（发送线程调用） */
+    public long takeDirtyFields() {
+        return mDirty.getAndSet(0);
+    }
+
+    public void setRoadLimitSpeed(int v) { if (nRoadLimitSpeed != v) { nRoadLimitSpeed = v; markDirty(F_ROAD_LIMIT); } }
+    public void setSdiType(int v) { if (nSdiType != v) { nSdiType = v; markDirty(F_SDI_TYPE); } }
+    public void setSdiSpeedLimit(int v) { if (nSdiSpeedLimit != v) { nSdiSpeedLimit = v; markDirty(F_SDI_SPEED); } }
+    public void setSdiDist(double v) { if (nSdiDist != v) { nSdiDist = v; markDirty(F_SDI_DIST); } }
+    public void setSdiBlockType(int v) { if (nSdiBlockType != v) { nSdiBlockType = v; markDirty(F_SDI_BLOCK_TYPE); } }
+    public void setSdiBlockSpeed(int v) { if (nSdiBlockSpeed != v) { nSdiBlockSpeed = v; markDirty(F_SDI_BLOCK_SPEED); } }
+    public void setSdiBlockDist(double v) { if (nSdiBlockDist != v) { nSdiBlockDist = v; markDirty(F_SDI_BLOCK_DIST); } }
+    public void setPosPointLat(double v) { if (vpPosPointLat != v) { vpPosPointLat = v; markDirty(F_LAT); } }
+    public void setPosPointLon(double v) { if (vpPosPointLon != v) { vpPosPointLon = v; markDirty(F_LON); } }
+    public void setPosAngle(float v) { if (nPosAngle != v) { nPosAngle = v; markDirty(F_ANGLE); } }
+    public void setPosRoadName(String v) { if (v == null) v = ""; if (!v.equals(szPosRoadName)) { szPosRoadName = v; markDirty(F_ROAD_NAME); } }
+    public void setRoadcate(int v) { if (roadcate != v) { roadcate = v; markDirty(F_ROADCATE); } }
+    public void setTBTDist(double v) { if (nTBTDist != v) { nTBTDist = v; markDirty(F_TBT_DIST); } }
+    public void setTBTTurnType(int v) { if (nTBTTurnType != v) { nTBTTurnType = v; markDirty(F_TBT_TURN); } }
+    public void setGoPosDist(int v) { if (nGoPosDist != v) { nGoPosDist = v; markDirty(F_GO_DIST); } }
+    public void setGoPosTime(int v) { if (nGoPosTime != v) { nGoPosTime = v; markDirty(F_GO_TIME); } }
+    public void setTrafficLight(int v) { if (nTrafficLight != v) { nTrafficLight = v; markDirty(F_TRAFFIC_LIGHT); } }
+    public void setTrafficLightSec(int v) { if (nTrafficLightSec != v) { nTrafficLightSec = v; markDirty(F_TRAFFIC_LIGHT_SEC); } }
+    public void setSapaName(String v) { if (v == null) v = ""; if (!v.equals(sapaName)) { sapaName = v; markDirty(F_SAPA_NAME); } }
+    public void setSapaDist(int v) { if (sapaDist != v) { sapaDist = v; markDirty(F_SAPA_DIST); } }
+    public void setSapaType(int v) { if (sapaType != v) { sapaType = v; markDirty(F_SAPA_TYPE); } }
+    public void setNextSapaName(String v) { if (v == null) v = ""; if (!v.equals(nextSapaName)) { nextSapaName = v; markDirty(F_NEXT_SAPA_NAME); } }
+    public void setNextSapaDist(int v) { if (nextSapaDist != v) { nextSapaDist = v; markDirty(F_NEXT_SAPA_DIST); } }
+    public void setNextSapaType(int v) { if (nextSapaType != v) { nextSapaType = v; markDirty(F_NEXT_SAPA_TYPE); } }
+    public void setEtaText(String v) { if (v == null) v = ""; if (!v.equals(etaText)) { etaText = v; markDirty(F_ETA_TEXT); } }
+    public void setTmcSlowDist(int v) { if (tmcSlowDist != v) { tmcSlowDist = v; markDirty(F_TMC_SLOW); } }
+    public void setTmcJamDist(int v) { if (tmcJamDist != v) { tmcJamDist = v; markDirty(F_TMC_JAM); } }
+    public void setTmcBlockDist(int v) { if (tmcBlockDist != v) { tmcBlockDist = v; markDirty(F_TMC_BLOCK); } }
+    public void setNextNextTurnIcon(int v) { if (nextNextTurnIcon != v) { nextNextTurnIcon = v; markDirty(F_NEXT_NEXT_TURN); } }
+    public void setNextNextRoadName(String v) { if (v == null) v = ""; if (!v.equals(nextNextRoadName)) { nextNextRoadName = v; markDirty(F_NEXT_NEXT_ROAD); } }
+    public void setDataFlags(int v) { if (nDataFlags != v) { nDataFlags = v; markDirty(F_DATA_FLAGS); } }
+    public void setDataAgeMs(int v) { if (nDataAgeMs != v) { nDataAgeMs = v; markDirty(F_DATA_AGE); } }
+
+    /**
+     * 把 src 中 mask 指定的字段经 setter 复制过来（本对象的变更位随之更新）
+     *
+     * 发送线程用它从 SDK 写入的对象取一份一致的出站快照。
+     */
+    public void copyFields(NaviData src, long mask) {
+        for (int f = 0; f < FIELD_COUNT; f++) {
+            if ((mask & (1L << f)) == 0) continue;
+            switch (f) {
+                case F_ROAD_LIMIT: setRoadLimitSpeed(src.nRoadLimitSpeed); break;
+                case F_SDI_TYPE: setSdiType(src.nSdiType); break;
+                case F_SDI_SPEED: setSdiSpeedLimit(src.nSdiSpeedLimit); break;
+                case F_SDI_DIST: setSdiDist(src.nSdiDist); break;
+                case F_SDI_BLOCK_TYPE: setSdiBlockType(src.nSdiBlockType); break;
+                case F_SDI_BLOCK_SPEED: setSdiBlockSpeed(src.nSdiBlockSpeed); break;
+                case F_SDI_BLOCK_DIST: setSdiBlockDist(src.nSdiBlockDist); break;
+                case F_LAT: setPosPointLat(src.vpPosPointLat); break;
+                case F_LON: setPosPointLon(src.vpPosPointLon); break;
+                case F_ANGLE: setPosAngle(src.nPosAngle); break;
+                case F_ROAD_NAME: setPosRoadName(src.szPosRoadName); break;
+                case F_ROADCATE: setRoadcate(src.roadcate); break;
+                case F_TBT_DIST: setTBTDist(src.nTBTDist); break;
+                case F_TBT_TURN: setTBTTurnType(src.nTBTTurnType); break;
+                case F_GO_DIST: setGoPosDist(src.nGoPosDist); break;
+                case F_GO_TIME: setGoPosTime(src.nGoPosTime); break;
+                case F_TRAFFIC_LIGHT: setTrafficLight(src.nTrafficLight); break;
+                case F_TRAFFIC_LIGHT_SEC: setTrafficLightSec(src.nTrafficLightSec); break;
+                case F_SAPA_NAME: setSapaName(src.sapaName); break;
+                case F_SAPA_DIST: setSapaDist(src.sapaDist); break;
+                case F_SAPA_TYPE: setSapaType(src.sapaType); break;
+                case F_NEXT_SAPA_NAME: setNextSapaName(src.nextSapaName); break;
+                case F_NEXT_SAPA_DIST: setNextSapaDist(src.nextSapaDist); break;
+                case F_NEXT_SAPA_TYPE: setNextSapaType(src.nextSapaType); break;
+                case F_ETA_TEXT: setEtaText(src.etaText); break;
+                case F_TMC_SLOW: setTmcSlowDist(src.tmcSlowDist); break;
+                case F_TMC_JAM: setTmcJamDist(src.tmcJamDist); break;
+                case F_TMC_BLOCK: setTmcBlockDist(src.tmcBlockDist); break;
+                case F_NEXT_NEXT_TURN: setNextNextTurnIcon(src.nextNextTurnIcon); break;
+                case F_NEXT_NEXT_ROAD: setNextNextRoadName(src.nextNextRoadName); break;
+                case F_DATA_FLAGS: setDataFlags(src.nDataFlags); break;
+                case F_DATA_AGE: setDataAgeMs(src.nDataAgeMs); break;
+            }
+        }
+    }
+
+    // 自定义限速映射
+    private static final java.util.Map<Integer, Integer> sSpeedMap =
+        new java.util.concurrent.ConcurrentHashMap<>();
+    private static int sOriginalSpeed = 0;
+    private static volatile int sSpeedMapVersion = 0;
+
+    public static void setSpeedMapping(int originalKph, int targetKph) {
+        if (targetKph > 0 && targetKph != originalKph) {
+            sSpeedMap.put(originalKph, targetKph);
+        } else {
+            sSpeedMap.remove(originalKph);
+        }
+        sSpeedMapVersion++;
+    }
+
+    /** 映射每次修改加一，供快照判断是否需要重新复制 */
+    public static int getSpeedMappingVersion() { return sSpeedMapVersion; }
+
+    public static java.util.Map<Integer, Integer> getSpeedMappings() {
+        return new java.util.HashMap<>(sSpeedMap);
+    }
+
+    public static int getOriginalSpeed() { return sOriginalSpeed; }
+
+    /** 应用限速映射（120→110 等） */
+    public int applySpeedMapping(int speedKph) {
+        sOriginalSpeed = speedKph;
+        if (speedKph <= 0 || sSpeedMap.isEmpty()) return speedKph;
+        Integer mapped = sSpeedMap.get(speedKph);
+        return mapped != null ? mapped : speedKph;
+    }
+
+    public JSONObject toJson() {
+        JSONObject j = new JSONObject();
+        try {
+            j.put("nRoadLimitSpeed", nRoadLimitSpeed);
+            j.put("nSdiType", nSdiType);
+            j.put("nSdiSpeedLimit", nSdiSpeedLimit);
+            j.put("nSdiDist", nSdiDist);
+            j.put("nSdiBlockType", nSdiBlockType);
+            j.put("nSdiBlockSpeed", nSdiBlockSpeed);
+            j.put("nSdiBlockDist", nSdiBlockDist);
+            j.put("vpPosPointLat", vpPosPointLat);
+            j.put("vpPosPointLon", vpPosPointLon);
+            j.put("nPosAngle", nPosAngle);
+            j.put("szPosRoadName", szPosRoadName);
+            j.put("roadcate", roadcate);
+            j.put("nTBTDist", nTBTDist);
+            j.put("nTBTTurnType", nTBTTurnType);
+            j.put("nGoPosDist", nGoPosDist);
+            j.put("nGoPosTime", nGoPosTime);
+            j.put("nTrafficLight", nTrafficLight);
+            j.put("nTrafficLightSec", nTrafficLightSec);
+            j.put("sapaName", sapaName);
+            j.put("sapaDist", sapaDist);
+            j.put("sapaType", sapaType);
+            j.put("nextSapaName", nextSapaName);
+            j.put("nextSapaDist", nextSapaDist);
+            j.put("nextSapaType", nextSapaType);
+            j.put("etaText", etaText);
+            j.put("tmcSlowDist", tmcSlowDist);
+            j.put("tmcJamDist", tmcJamDist);
+            j.put("tmcBlockDist", tmcBlockDist);
+            j.put("nextNextTurnIcon", nextNextTurnIcon);
+            j.put("nextNextRoadName", nextNextRoadName);
+            j.put("nDataFlags", nDataFlags);
+            j.put("nDataAgeMs", nDataAgeMs);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return j;
+    }
+}
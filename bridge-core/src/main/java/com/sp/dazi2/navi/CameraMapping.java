@@ -0,0 +1,57 @@
+package com.sp.dazi2.navi;
+
+import com.sp.dazi2.model.NaviData;
+
+/**
+ * 摄像头类型映射：腾讯SDK → 高德 SDI 字段
+ *
+ * 腾讯SDK摄像头类型（官方文档）：
+ *   0=无, 1=测速, 2=违章拍照, 3=区间测速
+ *
+ * 映射到高德类型（navi_bridge.py 识别的）：
+ *   测速/违章拍照 → nSdiType=0（测速摄像头）
+ *   区间测速 → nSdiBlockType=5（区间测速起点），nSdiType=-1
+ */
+public final class CameraMapping {
+    private CameraMapping() {}
+
+    public static final int TENCENT_NONE = 0;
+    public static final int TENCENT_SECTION = 3;
+
+    public static final int AMAP_NONE = -1;
+    public static final int AMAP_SPEED_CAMERA = 0;
+    public static final int AMAP_SECTION_START = 5;
+
+    /**
+     * 写入 SDI 字段
+     *
+     * @param cameraSpeed 摄像头限速 km/h
+     * @param cameraDist  到摄像头距离 m
+     */
+    public static void apply(NaviData d, int tencentType, int cameraSpeed, double cameraDist) {
+        if (tencentType <= TENCENT_NONE) {
+            d.setSdiType(AMAP_NONE);
+            d.setSdiSpeedLimit(0);
+            d.setSdiDist(0);
+            d.setSdiBlockType(AMAP_NONE);
+            d.setSdiBlockSpeed(0);
+            d.setSdiBlockDist(0);
+            return;
+        }
+        if (tencentType == TENCENT_SECTION) {
+            d.setSdiBlockType(AMAP_SECTION_START);
+            d.setSdiBlockSpeed(cameraSpeed);
+            d.setSdiBlockDist(cameraDist);
+            d.setSdiType(AMAP_NONE);
+            d.setSdiSpeedLimit(0);
+            d.setSdiDist(0);
+        } else {
+            d.setSdiType(AMAP_SPEED_CAMERA);
+            d.setSdiSpeedLimit(cameraSpeed);
+            d.setSdiDist(cameraDist);
+            d.setSdiBlockType(AMAP_NONE);
+            d.setSdiBlockSpeed(0);
+            d.setSdiBlockDist(0);
+        }
+    }
+}
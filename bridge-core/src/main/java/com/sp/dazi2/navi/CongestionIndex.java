@@ -0,0 +1,112 @@
+package com.sp.dazi2.navi;
+
+import java.util.Arrays;
+
+/**
+ * 沿线拥堵汇总
+ *
+ * 以路线折线的每一段为单位记录路况等级，每个等级一棵树状数组（Fenwick），
+ * 存该等级覆盖的段长（分米）。查询"前方 N 米内缓行/拥堵/阻断各多长"时，
+ * 先二分定位起止里程所在段，再做两次前缀和相减，O(log n)。
+ * 路况刷新先把新等级写入暂存数组，提交时只对等级变化的段做增删，不重建。
+ * 路况数据按 SDK 折线点下标给出范围，经 RouteGeometry.pointOfSource 换算。
+ *
+ * 不同于 RouteGeometry，本对象随路况刷新原地修改，只在导航回调线程读写。
+ */
+public class CongestionIndex {
+    public static final int LEVEL_NONE = 0;     // 畅通/未知
+    public static final int LEVEL_SLOW = 1;
+    public static final int LEVEL_JAM = 2;
+    public static final int LEVEL_BLOCK = 3;
+    private static final int LEVEL_COUNT = 4;
+
+    private final RouteGeometry geometry;
+    private final int segs;
+    private final byte[] level;             // 每段当前等级
+    private final byte[] staged;            // 刷新暂存
+    private final int[] segLenDm;           // 每段长度（分米）
+    private final int[][] tree;             // [等级][1..segs] Fenwick，LEVEL_NONE 不建树
+    private int updateCount = 0;
+
+    public CongestionIndex(RouteGeometry geometry) {
+        this.geometry = geometry;
+        this.segs = geometry.store.getSegmentCount();
+        this.level = new byte[segs];
+        this.staged = new byte[segs];
+        this.segLenDm = new int[segs];
+        for (int i = 0; i < segs; i++) {
+            segLenDm[i] = (int) Math.round(geometry.store.segmentLength(i) * 10);
+        }
+        this.tree = new int[LEVEL_COUNT][];
+        for (int l = LEVEL_SLOW; l < LEVEL_COUNT; l++) tree[l] = new int[segs + 1];
+    }
+
+    /** 开始一次路况刷新：未被 stage 覆盖的段视为畅通 */
+    public void beginRefresh() {
+        Arrays.fill(staged, (byte) LEVEL_NONE);
+    }
+
+    /** 暂存 SDK 折线点下标 [fromSourcePoint, toSourcePoint) 之间各段的等级 */
+    public void stage(int fromSourcePoint, int toSourcePoint, int newLevel) {
+        if (newLevel < 0 || newLevel >= LEVEL_COUNT) newLevel = LEVEL_NONE;
+        int from = geometry.pointOfSource(fromSourcePoint);
+        int to = Math.min(segs, geometry.pointOfSource(toSourcePoint));
+        for (int i = Math.max(0, from); i < to; i++) staged[i] = (byte) newLevel;
+    }
+
+    /**
+     * 提交刷新，只更新等级变化的段
+     *
+     * @return 实际改变的段数
+     */
+    public int commitRefresh() {
+        int changed = 0;
+        for (int i = 0; i < segs; i++) {
+            int old = level[i];
+            int now = staged[i];
+            if (old == now) continue;
+            if (old != LEVEL_NONE) add(tree[old], i, -segLenDm[i]);
+            if (now != LEVEL_NONE) add(tree[now], i, segLenDm[i]);
+            level[i] = (byte) now;
+            changed++;
+        }
+        if (changed > 0) updateCount++;
+        return changed;
+    }
+
+    public int getUpdateCount() { return updateCount; }
+
+    /**
+     * 沿线 [s, s + ahead] 内某等级的长度，米
+     */
+    public int distanceAhead(int lvl, double s, double ahead) {
+        if (lvl <= LEVEL_NONE || lvl >= LEVEL_COUNT) return 0;
+        double end = Math.min(s + ahead, geometry.getTotalLength());
+        if (end <= s) return 0;
+        return (int) Math.round((prefixAt(tree[lvl], lvl, end) - prefixAt(tree[lvl], lvl, s)) / 10.0);
+    }
+
+    /** 里程 0..s 内该等级长度（分米），s 所在段按比例计入 */
+    private double prefixAt(int[] t, int lvl, double s) {
+        int seg = geometry.store.segmentAt(s);
+        double sum = prefix(t, seg);
+        if (level[seg] == lvl) {
+            double segStart = geometry.store.cumDist(seg);
+            double segLen = geometry.store.segmentLength(seg);
+            double frac = segLen > 0 ? Math.min(1, Math.max(0, (s - segStart) / segLen)) : 0;
+            sum += frac * segLenDm[seg];
+        }
+        return sum;
+    }
+
+    /** 段 [0, count) 之和 */
+    private static int prefix(int[] t, int count) {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i) sum += t[i];
+        return sum;
+    }
+
+    private static void add(int[] t, int index, int delta) {
+        for (int i = index + 1; i < t.length; i += i & -i) t[i] += delta;
+    }
+}
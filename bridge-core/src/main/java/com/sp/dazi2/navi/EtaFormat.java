@@ -0,0 +1,24 @@
+package com.sp.dazi2.navi;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 到达时间文本，如 "预计14:35到达 (1时20分)"
+ */
+public final class EtaFormat {
+    private EtaFormat() {}
+
+    /** remainSec <= 0 时返回 null */
+    public static String format(int remainSec, long nowMs) {
+        if (remainSec <= 0) return null;
+        int hours = remainSec / 3600;
+        int mins = (remainSec % 3600) / 60;
+        long arrivalMs = nowMs + remainSec * 1000L;
+        String arrivalTime = new SimpleDateFormat("HH:mm").format(new Date(arrivalMs));
+        if (hours > 0) {
+            return "预计" + arrivalTime + "到达 (" + hours + "时" + mins + "分)";
+        }
+        return "预计" + arrivalTime + "到达 (" + mins + "分钟)";
+    }
+}
@@ -0,0 +1,103 @@
+package com.sp.dazi2.navi;
+
+/**
+ * GCJ-02 ↔ WGS-84 坐标转换
+ *
+ * 腾讯定位/导航 SDK 输出 GCJ-02，C3 和 openpilot 用 WGS-84，直接发送会偏几百米。
+ * GCJ-02 只有正向公式，反向用不动点迭代：w ← w − (gcj(w) − g)，
+ * 偏移量的雅可比接近单位阵，每轮误差缩小约三个数量级，通常 2~3 轮收敛到 1e-9 度（约 0.1mm）。
+ *
+ * 全部静态方法，结果写入调用方提供的数组，不分配内存；
+ * 共用的三角项只算一次，常数预先折算。境外坐标原样返回。
+ */
+public final class GeoDatum {
+    private GeoDatum() {}
+
+    // Krasovsky 1940 椭球
+    private static final double A = 6378245.0;
+    private static final double EE = 0.00669342162296594323;
+
+    private static final double PI = Math.PI;
+    private static final double DEG_TO_RAD = PI / 180.0;
+    private static final double LAT_SCALE = 180.0 / (A * (1 - EE) * PI);   // 米 → 度（纬向，未乘曲率项）
+    private static final double LON_SCALE = 180.0 / (A * PI);
+    private static final double TWO_THIRDS = 2.0 / 3.0;
+
+    private static final double INVERSE_EPS_DEG = 1e-9;
+    private static final int INVERSE_MAX_ITER = 8;
+
+    /** 是否在 GCJ-02 加偏范围之外（粗略矩形，与各家实现一致） */
+    public static boolean outOfChina(double lat, double lon) {
+        return lon < 72.004 || lon > 137.8347 || lat < 0.8293 || lat > 55.8271;
+    }
+
+    /** WGS-84 → GCJ-02，out = {lat, lon} */
+    public static void wgsToGcj(double lat, double lon, double[] out) {
+        if (outOfChina(lat, lon)) {
+            out[0] = lat;
+            out[1] = lon;
+            return;
+        }
+        offset(lat, lon, out, 0);
+        out[0] += lat;
+        out[1] += lon;
+    }
+
+    /** GCJ-02 → WGS-84，out = {lat, lon} */
+    public static void gcjToWgs(double lat, double lon, double[] out) {
+        inverse(lat, lon, out, 0);
+    }
+
+    /**
+     * 批量 GCJ-02 → WGS-84：src/dst 为交错的 lat, lon 序列，各从 srcOff/dstOff 起 count 个点
+     *
+     * src 和 dst 可以是同一个数组（原地转换）。
+     */
+    public static void gcjToWgs(double[] src, int srcOff, double[] dst, int dstOff, int count) {
+        for (int i = 0; i < count; i++) {
+            inverse(src[srcOff + 2 * i], src[srcOff + 2 * i + 1], dst, dstOff + 2 * i);
+        }
+    }
+
+    private static void inverse(double lat, double lon, double[] out, int off) {
+        if (outOfChina(lat, lon)) {
+            out[off] = lat;
+            out[off + 1] = lon;
+            return;
+        }
+        double wLat = lat, wLon = lon;
+        for (int iter = 0; iter < INVERSE_MAX_ITER; iter++) {
+            offset(wLat, wLon, out, off);
+            double eLat = wLat + out[off] - lat;
+            double eLon = wLon + out[off + 1] - lon;
+            wLat -= eLat;
+            wLon -= eLon;
+            if (Math.abs(eLat) < INVERSE_EPS_DEG && Math.abs(eLon) < INVERSE_EPS_DEG) break;
+        }
+        out[off] = wLat;
+        out[off + 1] = wLon;
+    }
+
+    /** WGS-84 点 (lat, lon) 的加偏量（度），写入 out[off], out[off + 1] */
+    private static void offset(double lat, double lon, double[] out, int off) {
+        double x = lon - 105.0;
+        double y = lat - 35.0;
+        double sqrtAbsX = Math.sqrt(Math.abs(x));
+        // 两式共用的 x 高频项
+        double common = (20.0 * Math.sin(6.0 * x * PI) + 20.0 * Math.sin(2.0 * x * PI)) * TWO_THIRDS;
+
+        double dLat = -100.0 + 2.0 * x + 3.0 * y + 0.2 * y * y + 0.1 * x * y + 0.2 * sqrtAbsX + common
+            + (20.0 * Math.sin(y * PI) + 40.0 * Math.sin(y / 3.0 * PI)) * TWO_THIRDS
+            + (160.0 * Math.sin(y / 12.0 * PI) + 320.0 * Math.sin(y * PI / 30.0)) * TWO_THIRDS;
+        double dLon = 300.0 + x + 2.0 * y + 0.1 * x * x + 0.1 * x * y + 0.1 * sqrtAbsX + common
+            + (20.0 * Math.sin(x * PI) + 40.0 * Math.sin(x / 3.0 * PI)) * TWO_THIRDS
+            + (150.0 * Math.sin(x / 12.0 * PI) + 300.0 * Math.sin(x / 30.0 * PI)) * TWO_THIRDS;
+
+        double radLat = lat * DEG_TO_RAD;
+        double s = Math.sin(radLat);
+        double magic = 1 - EE * s * s;
+        double sqrtMagic = Math.sqrt(magic);
+        out[off] = dLat * magic * sqrtMagic * LAT_SCALE;
+        out[off + 1] = dLon * sqrtMagic / Math.cos(radLat) * LON_SCALE;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sp.dazi2.navi;
+
+/**
+ * 点击导航 → 首个导航数据包 的耗时测量
+ *
+ * 各阶段由不同线程打点（UI、POI 线程、SDK 回调、发送线程），
+ * 字段均为 volatile，一次测量只在 markTap() 后统计一次。
+ *
+ * 阶段：tap → poi（POI 结果）→ route（算路完成）→ navi（startNavi）
+ *       → guidance（首个吸附定位写入）→ packet（首个导航包发出）
+ */
+public final class NaviTiming {
+    private NaviTiming() { }
+
+    private static volatile long sTapNs = 0;
+    private static volatile long sPoiNs = 0;
+    private static volatile long sRouteNs = 0;
+    private static volatile long sNaviNs = 0;
+    private static volatile long sGuidanceNs = 0;
+    private static volatile long sLastTapToPacketMs = -1;
+    private static volatile String sLastSummary = "";
+
+    /** 用户点击开始导航 */
+    public static void markTap() {
+        sTapNs = System.nanoTime();
+        sPoiNs = sRouteNs = sNaviNs = sGuidanceNs = 0;
+    }
+
+    public static void markPoiResolved() { if (sTapNs != 0 && sPoiNs == 0) sPoiNs = System.nanoTime(); }
+    public static void markRoutePlanned() { if (sTapNs != 0 && sRouteNs == 0) sRouteNs = System.nanoTime(); }
+    public static void markNaviStarted() { if (sTapNs != 0 && sNaviNs == 0) sNaviNs = System.nanoTime(); }
+    public static void markGuidance() { if (sTapNs != 0 && sGuidanceNs == 0) sGuidanceNs = System.nanoTime(); }
+
+    /**
+     * 发送线程每发出一个包调用
+     *
+     * @return 本次测量完成时返回 tap→首包 毫秒数，否则 -1
+     */
+    public static long onPacketSent() {
+        long tap = sTapNs;
+        if (tap == 0 || sGuidanceNs == 0) return -1;
+        long now = System.nanoTime();
+        sTapNs = 0;
+        long total = ms(tap, now);
+        sLastTapToPacketMs = total;
+        sLastSummary = "tap→packet " + total + "ms (poi " + ms(tap, sPoiNs)
+            + " route " + ms(tap, sRouteNs) + " navi " + ms(tap, sNaviNs)
+            + " guidance " + ms(tap, sGuidanceNs) + ")";
+        return total;
+    }
+
+    public static long getLastTapToPacketMs() { return sLastTapToPacketMs; }
+    public static String getLastSummary() { return sLastSummary; }
+
+    private static long ms(long from, long to) {
+        return to == 0 ? -1 : (to - from) / 1_000_000;
+    }
+}
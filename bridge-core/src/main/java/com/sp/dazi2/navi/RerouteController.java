@@ -0,0 +1,106 @@
+package com.sp.dazi2.navi;
+
+import com.sp.dazi2.model.NaviData;
+
+/**
+ * 偏航重新规划状态机
+ *
+ *   NORMAL ──onOffRoute──→ RECALCULATING ──onRerouteSuccess──→ NORMAL
+ *                               │
+ *                               └─ 超过 MAX_HOLD_MS 仍未成功 → 放弃保持，回到 NORMAL
+ *
+ * 重新规划期间 SDK 的限速/摄像头数据可能缺失或半更新，
+ * 这里保存偏航前最后确认的值，每帧覆盖回去，并置 DATA_FLAG_HELD。
+ * 只在导航回调线程使用。
+ */
+public class RerouteController {
+    public enum State { NORMAL, RECALCULATING }
+
+    private static final long MAX_HOLD_MS = 30_000;
+
+    private State state = State.NORMAL;
+    private long offRouteAtNs;
+
+    // 偏航前确认的限速/摄像头
+    private int heldRoadLimit;
+    private int heldSdiType, heldSdiSpeed;
+    private double heldSdiDist;
+    private int heldBlockType, heldBlockSpeed;
+    private double heldBlockDist;
+
+    // 统计
+    private int rerouteCount = 0;
+    private int rerouteFailCount = 0;
+    private long lastLatencyMs = -1;
+    private long maxLatencyMs = 0;
+
+    public State getState() { return state; }
+    public int getRerouteCount() { return rerouteCount; }
+    public int getRerouteFailCount() { return rerouteFailCount; }
+    public long getLastLatencyMs() { return lastLatencyMs; }
+    public long getMaxLatencyMs() { return maxLatencyMs; }
+
+    /** 偏航：记住当前确认值，进入保持 */
+    public void onOffRoute(NaviData d) {
+        if (state == State.RECALCULATING) return;
+        state = State.RECALCULATING;
+        offRouteAtNs = System.nanoTime();
+        heldRoadLimit = d.nRoadLimitSpeed;
+        heldSdiType = d.nSdiType;
+        heldSdiSpeed = d.nSdiSpeedLimit;
+        heldSdiDist = d.nSdiDist;
+        heldBlockType = d.nSdiBlockType;
+        heldBlockSpeed = d.nSdiBlockSpeed;
+        heldBlockDist = d.nSdiBlockDist;
+        d.setDataFlags(d.nDataFlags | NaviData.DATA_FLAG_HELD);
+    }
+
+    /**
+     * 每帧写完 SDK 数据后调用：重新规划期间把限速/摄像头覆盖为保持值
+     */
+    public void applyHold(NaviData d) {
+        if (state != State.RECALCULATING) return;
+        if ((System.nanoTime() - offRouteAtNs) / 1_000_000 > MAX_HOLD_MS) {
+            // 迟迟没有新路线，不再冒充确认值
+            release(d);
+            return;
+        }
+        d.setRoadLimitSpeed(heldRoadLimit);
+        d.setSdiType(heldSdiType);
+        d.setSdiSpeedLimit(heldSdiSpeed);
+        d.setSdiDist(heldSdiDist);
+        d.setSdiBlockType(heldBlockType);
+        d.setSdiBlockSpeed(heldBlockSpeed);
+        d.setSdiBlockDist(heldBlockDist);
+    }
+
+    /**
+     * 新路线已启动
+     *
+     * @return 偏航到新路线启动的耗时 ms；不在重新规划中返回 -1
+     */
+    public long onRerouteSuccess(NaviData d) {
+        if (state != State.RECALCULATING) return -1;
+        long latency = (System.nanoTime() - offRouteAtNs) / 1_000_000;
+        rerouteCount++;
+        lastLatencyMs = latency;
+        if (latency > maxLatencyMs) maxLatencyMs = latency;
+        release(d);
+        return latency;
+    }
+
+    /** 单次重新规划失败：SDK 会继续重试，保持状态不变 */
+    public void onRerouteFailed() {
+        rerouteFailCount++;
+    }
+
+    /** 导航结束 */
+    public void reset(NaviData d) {
+        if (state == State.RECALCULATING) release(d);
+    }
+
+    private void release(NaviData d) {
+        state = State.NORMAL;
+        d.setDataFlags(d.nDataFlags & ~NaviData.DATA_FLAG_HELD);
+    }
+}
@@ -0,0 +1,238 @@
+package com.sp.dazi2.navi;
+
+import java.util.Arrays;
+
+/**
+ * 路线几何预计算：曲率/建议速度剖面 + 机动点
+ *
+ * 每次算路/重新规划在回调线程对折线算一次，之后每帧按沿线里程 O(1) 查表：
+ *   - 剖面按 PROFILE_STEP_M 分箱，存建议速度（已考虑前方弯道的减速距离）
+ *   - 机动点（短距离内航向变化超过阈值）按里程排序，附高德 ICON 转弯类型；
+ *     每个分箱预存其后第一个机动点的下标
+ *
+ * 折线本身存放在 RouteStore（定点差分编码）。
+ * 航向按正北顺时针计，右转为正。实例构建后只读，可跨线程共享。
+ */
+public final class RouteGeometry {
+    public static final int PROFILE_STEP_M = 10;
+
+    // 高德 ICON 转弯类型
+    public static final int ICON_NONE = 0;
+    public static final int ICON_LEFT = 2;
+    public static final int ICON_RIGHT = 3;
+    public static final int ICON_LEFT_FRONT = 4;
+    public static final int ICON_RIGHT_FRONT = 5;
+    public static final int ICON_LEFT_BACK = 6;
+    public static final int ICON_RIGHT_BACK = 7;
+    public static final int ICON_LEFT_TURN_AROUND = 8;
+    public static final int ICON_ARRIVED_DESTINATION = 15;
+
+    static final double EARTH_RADIUS_M = 6371008.8;
+    private static final double CURVATURE_HALF_WINDOW_M = 20;
+    private static final double TURN_WINDOW_M = 40;
+    private static final double TURN_MIN_DEG = 30;
+    private static final double LAT_ACCEL = 2.0;       // m/s²，弯道舒适横向加速度
+    private static final double DECEL = 1.5;           // m/s²，入弯前减速度
+    private static final int MAX_ADVICE_KPH = 150;     // 超过即视为不限
+
+    // 折线
+    final RouteStore store;
+    private final double totalLength;
+
+    // 剖面
+    private final byte[] adviceKph;         // 无符号，MAX_ADVICE_KPH 表示不限
+    private final int[] nextManeuver;       // 分箱之后第一个机动点下标，无则 maneuverCount
+
+    // 机动点
+    private final double[] maneuverDist;
+    private final int[] maneuverIcon;
+    private final int maneuverCount;
+
+    private RouteGeometry(RouteStore store) {
+        int n = store.getPointCount();
+        this.store = store;
+        totalLength = store.getTotalLength();
+
+        double[] mDist = new double[n + 1];
+        int[] mIcon = new int[n + 1];
+        int count = detectManeuvers(mDist, mIcon);
+        // 终点
+        mDist[count] = totalLength;
+        mIcon[count] = ICON_ARRIVED_DESTINATION;
+        count++;
+        maneuverDist = Arrays.copyOf(mDist, count);
+        maneuverIcon = Arrays.copyOf(mIcon, count);
+        maneuverCount = count;
+
+        int bins = (int) (totalLength / PROFILE_STEP_M) + 1;
+        adviceKph = new byte[bins];
+        nextManeuver = new int[bins];
+        buildProfile(bins);
+    }
+
+    /**
+     * 由折线构建；点数不足 2 时返回 null
+     *
+     * 重复点（相邻距离 < 0.5 m）在 RouteStore 构建时剔除，避免零长度段的航向无意义。
+     */
+    public static RouteGeometry build(double[] lat, double[] lon) {
+        int n = Math.min(lat.length, lon.length);
+        RouteStore.Builder b = new RouteStore.Builder(n);
+        for (int i = 0; i < n; i++) b.add(lat[i], lon[i]);
+        return build(b.build());
+    }
+
+    /** 由已构建的折线存储构建；store 为 null 时返回 null */
+    public static RouteGeometry build(RouteStore store) {
+        return store != null ? new RouteGeometry(store) : null;
+    }
+
+    public double getTotalLength() { return totalLength; }
+    public int getPointCount() { return store.getPointCount(); }
+    public int getManeuverCount() { return maneuverCount; }
+    public RouteStore getStore() { return store; }
+
+    /** SDK 原始折线点下标换算为本对象的点下标，越界时取首/末点 */
+    public int pointOfSource(int sourceIndex) {
+        return store.pointOfSource(sourceIndex);
+    }
+
+    /** 沿线里程 s 处的建议速度 km/h，0 表示不限 */
+    public int adviceSpeedKph(double s) {
+        int v = adviceKph[bin(s)] & 0xFF;
+        return v >= MAX_ADVICE_KPH ? 0 : v;
+    }
+
+    /** s 之后第一个机动点下标；沿线已过所有机动点时返回 -1 */
+    public int nextManeuverIndex(double s) {
+        int idx = nextManeuver[bin(s)];
+        // 分箱内可能已越过该机动点
+        while (idx < maneuverCount && maneuverDist[idx] < s) idx++;
+        return idx < maneuverCount ? idx : -1;
+    }
+
+    /** 建议速度低于 kph 的总里程 m（按剖面分箱计），路线评分用 */
+    public double lengthBelowAdvice(int kph) {
+        int n = 0;
+        for (byte v : adviceKph) {
+            if ((v & 0xFF) < kph) n++;
+        }
+        return (double) n * PROFILE_STEP_M;
+    }
+
+    public double maneuverDistance(int idx) { return maneuverDist[idx]; }
+    public int maneuverIcon(int idx) { return maneuverIcon[idx]; }
+
+    /**
+     * 里程 s 处的坐标和航向，写入 out = {lat, lon, heading}；s 越界时夹到首/末点
+     */
+    public void positionAt(double s, double[] out) {
+        if (s < 0) s = 0;
+        if (s > totalLength) s = totalLength;
+        int i = store.segmentAt(s);
+        double len = store.segmentLength(i);
+        double t = len > 0 ? (s - store.cumDist(i)) / len : 0;
+        double lat0 = store.lat(i), lon0 = store.lon(i);
+        out[0] = lat0 + t * (store.lat(i + 1) - lat0);
+        out[1] = lon0 + t * (store.lon(i + 1) - lon0);
+        out[2] = store.segmentHeading(i);
+    }
+
+    private int bin(double s) {
+        int b = (int) (s / PROFILE_STEP_M);
+        if (b < 0) return 0;
+        return Math.min(b, adviceKph.length - 1);
+    }
+
+    /**
+     * 滑动窗口内累计航向变化超过 TURN_MIN_DEG 即记为一个机动点，
+     * 位置取窗口内单点转角最大处，之后跳过整个窗口避免重复计数
+     */
+    private int detectManeuvers(double[] outDist, int[] outIcon) {
+        int segs = store.getSegmentCount();
+        int count = 0;
+        int i = 1;
+        while (i < segs) {
+            double sum = 0;
+            double maxAbs = 0;
+            int maxAt = i;
+            int j = i;
+            while (j < segs && store.cumDist(j) - store.cumDist(i) <= TURN_WINDOW_M) {
+                double d = wrap(store.segmentHeading(j) - store.segmentHeading(j - 1));
+                sum += d;
+                if (Math.abs(d) > maxAbs) { maxAbs = Math.abs(d); maxAt = j; }
+                j++;
+            }
+            if (Math.abs(sum) >= TURN_MIN_DEG) {
+                outDist[count] = store.cumDist(maxAt);
+                outIcon[count] = iconFor(sum);
+                count++;
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    static int iconFor(double turnDeg) {
+        double a = Math.abs(turnDeg);
+        boolean right = turnDeg > 0;
+        if (a < TURN_MIN_DEG) return ICON_NONE;
+        if (a < 60) return right ? ICON_RIGHT_FRONT : ICON_LEFT_FRONT;
+        if (a < 135) return right ? ICON_RIGHT : ICON_LEFT;
+        if (a < 165) return right ? ICON_RIGHT_BACK : ICON_LEFT_BACK;
+        return ICON_LEFT_TURN_AROUND;
+    }
+
+    /**
+     * 曲率 = 前后半窗口航向差 / 窗口长度；v = sqrt(LAT_ACCEL / k)，
+     * 再由后向前按 DECEL 限制，使入弯前的分箱提前给出减速建议
+     */
+    private void buildProfile(int bins) {
+        double[] v = new double[bins];
+        double vMax = MAX_ADVICE_KPH / 3.6;
+        for (int b = 0; b < bins; b++) {
+            double s = (double) b * PROFILE_STEP_M;
+            double h0 = headingAt(s - CURVATURE_HALF_WINDOW_M);
+            double h1 = headingAt(s + CURVATURE_HALF_WINDOW_M);
+            double k = Math.toRadians(Math.abs(wrap(h1 - h0))) / (2 * CURVATURE_HALF_WINDOW_M);
+            v[b] = k > 1e-6 ? Math.min(vMax, Math.sqrt(LAT_ACCEL / k)) : vMax;
+        }
+        for (int b = bins - 2; b >= 0; b--) {
+            v[b] = Math.min(v[b], Math.sqrt(v[b + 1] * v[b + 1] + 2 * DECEL * PROFILE_STEP_M));
+        }
+        int m = 0;
+        for (int b = 0; b < bins; b++) {
+            adviceKph[b] = (byte) Math.min(MAX_ADVICE_KPH, (int) Math.round(v[b] * 3.6));
+            double s = (double) b * PROFILE_STEP_M;
+            while (m < maneuverCount && maneuverDist[m] < s) m++;
+            nextManeuver[b] = m;
+        }
+    }
+
+    /** 里程 s 所在段的航向，s 越界时取首/末段 */
+    private double headingAt(double s) {
+        return store.segmentHeading(store.segmentAt(s));
+    }
+
+    static double wrap(double deg) {
+        deg %= 360;
+        if (deg > 180) deg -= 360;
+        if (deg < -180) deg += 360;
+        return deg;
+    }
+
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M;
+    }
+
+    static double heading(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        double h = Math.toDegrees(Math.atan2(x, y));
+        return h < 0 ? h + 360 : h;
+    }
+}
@@ -0,0 +1,119 @@
+package com.sp.dazi2.navi;
+
+/**
+ * 剩余距离/时间估计
+ *
+ * 输入为 RouteTracker 给出的沿线里程 s。剩余距离 = 总长 − s。
+ * 剩余时间按分箱（RouteGeometry.PROFILE_STEP_M）的预期车速累加：
+ *   - 每箱车速取 CRUISE_KPH 与弯道建议速度的较小者，换路线时一次性建前缀和，之后每帧 O(1) 查表
+ *   - 有 SDK 路线 ETA 时整体缩放到与之一致，弥补不知道道路等级的误差
+ *   - 实际行驶节奏：每走 PACE_SAMPLE_M 比较实际用时和预期用时，EMA 得到节奏系数乘到剩余时间上
+ *   - 前方已知缓行/拥堵/阻断里程（CongestionIndex）按各自车速追加时间，O(log n)
+ *
+ * 路线更换（RouteGeometry 实例变化）时前缀和重建，节奏系数保留（同一位司机、同一段路况）；
+ * reset() 全部清零。只在导航回调线程使用。
+ */
+public class RouteProgress {
+    static final double CRUISE_KPH = 80;
+    static final double PACE_SAMPLE_M = 200;
+    private static final double PACE_ALPHA = 0.15;
+    private static final double PACE_MIN = 0.5, PACE_MAX = 3.0;
+    // 拥堵路段车速 m/s，下标为 CongestionIndex 等级
+    private static final double[] CONGESTED_MPS = {0, 25 / 3.6, 10 / 3.6, 5 / 3.6};
+
+    private RouteGeometry geometry;
+    private float[] cumTime;        // 各箱起点的预期累计用时 s（未缩放）
+    private double binTimeScale = 1;
+    private double totalLength;
+
+    private double pace = 1;
+    private double sampleS = -1;
+    private long sampleAtMs;
+    private int remainDist, remainTime;
+
+    /**
+     * 更新并返回剩余时间
+     *
+     * @param sdkEtaSec 路线 ETA，未知时 0
+     * @param c         沿线拥堵，可为 null
+     * @return 剩余时间 s；路线为空或 s < 0 时返回 -1
+     */
+    public int update(RouteGeometry g, int sdkEtaSec, CongestionIndex c, double s, long nowMs) {
+        if (g == null || s < 0) return -1;
+        if (g != geometry) {
+            rebuild(g, sdkEtaSec);
+            sampleS = -1;
+        }
+        samplePace(s, nowMs);
+
+        double remainM = Math.max(0, totalLength - s);
+        double t = (timeAt(totalLength) - timeAt(s)) * binTimeScale * pace;
+        if (c != null && remainM > 0 && t > 0) {
+            double avgMps = remainM / t;
+            for (int lvl = CongestionIndex.LEVEL_SLOW; lvl <= CongestionIndex.LEVEL_BLOCK; lvl++) {
+                if (CONGESTED_MPS[lvl] >= avgMps) continue;
+                int len = c.distanceAhead(lvl, s, remainM);
+                t += len * (1 / CONGESTED_MPS[lvl] - 1 / avgMps);
+            }
+        }
+        remainDist = (int) Math.round(remainM);
+        remainTime = (int) Math.round(t);
+        return remainTime;
+    }
+
+    public int getRemainingDistance() { return remainDist; }
+    public int getRemainingTime() { return remainTime; }
+    public double getPace() { return pace; }
+
+    public void reset() {
+        geometry = null;
+        cumTime = null;
+        pace = 1;
+        sampleS = -1;
+        remainDist = 0;
+        remainTime = 0;
+    }
+
+    private void rebuild(RouteGeometry g, int sdkEtaSec) {
+        geometry = g;
+        totalLength = g.getTotalLength();
+        int bins = (int) (totalLength / RouteGeometry.PROFILE_STEP_M) + 1;
+        cumTime = new float[bins + 1];
+        double acc = 0;
+        for (int b = 0; b < bins; b++) {
+            cumTime[b] = (float) acc;
+            double binLen = Math.min(RouteGeometry.PROFILE_STEP_M, totalLength - (double) b * RouteGeometry.PROFILE_STEP_M);
+            int advice = g.adviceSpeedKph((double) b * RouteGeometry.PROFILE_STEP_M);
+            double kph = advice > 0 ? Math.min(advice, CRUISE_KPH) : CRUISE_KPH;
+            acc += Math.max(0, binLen) / (Math.max(5, kph) / 3.6);
+        }
+        cumTime[bins] = (float) acc;
+        binTimeScale = sdkEtaSec > 0 && acc > 0 ? sdkEtaSec / acc : 1;
+    }
+
+    /** 里程 s 处的预期累计用时（未缩放），箱内线性插值 */
+    private double timeAt(double s) {
+        double x = Math.max(0, Math.min(s, totalLength)) / RouteGeometry.PROFILE_STEP_M;
+        int b = Math.min((int) x, cumTime.length - 2);
+        double frac = Math.min(1, x - b);
+        return cumTime[b] + frac * (cumTime[b + 1] - cumTime[b]);
+    }
+
+    /** 每走 PACE_SAMPLE_M 采一次实际/预期用时比；里程倒退（重新投影）时重新起点 */
+    private void samplePace(double s, long nowMs) {
+        if (sampleS < 0 || s < sampleS) {
+            sampleS = s;
+            sampleAtMs = nowMs;
+            return;
+        }
+        if (s - sampleS < PACE_SAMPLE_M) return;
+        double expected = (timeAt(s) - timeAt(sampleS)) * binTimeScale;
+        double actual = (nowMs - sampleAtMs) / 1000.0;
+        if (expected > 0 && actual > 0) {
+            double ratio = Math.max(PACE_MIN, Math.min(PACE_MAX, actual / expected));
+            pace += PACE_ALPHA * (ratio - pace);
+        }
+        sampleS = s;
+        sampleAtMs = nowMs;
+    }
+}
@@ -0,0 +1,165 @@
+package com.sp.dazi2.navi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多路线评分：从算路返回的备选路线中挑对 SLC（限速控制）最友好的一条
+ *
+ * 每条路线提取一组特征（Candidate）：ETA、长度、测速/区间测速数、沿线限速变化次数、
+ * 弯道里程（RouteGeometry 建议速度低于 CURVE_KPH 的里程）。
+ * 除 ETA 外都按每 10km 归一，乘策略权重求和，越小越好；ETA 按相对最快路线的增量计。
+ * ETA 比最快路线慢 MAX_ETA_RATIO 以上的不参与比较，避免为了少一个摄像头绕远路。
+ *
+ * select() 在线程池上并行提取特征，限时返回：超时、全部失败，或有路线取不到 SDK 路线属性
+ * （ETA/长度/摄像头，见 Candidate.attributes）时取第 0 条（SDK 推荐路线），不拿 0 值去比较。
+ * 导航启动最多被推迟 budgetMs。
+ */
+public final class RouteScorer {
+    private RouteScorer() {}
+
+    public static final int CURVE_KPH = 60;
+    public static final double MAX_ETA_RATIO = 1.15;
+
+    /** 评分策略 */
+    public enum Policy {
+        /** 只看 ETA，等同 SDK 推荐 */
+        FASTEST(1.0, 0, 0, 0, 0),
+        /** ETA 为主，兼顾摄像头、限速变化和弯道 */
+        BALANCED(1.0, 0.1, 0.2, 0.1, 0.3),
+        /** 尽量少测速 */
+        FEWEST_CAMERAS(0.5, 0.3, 0.5, 0.05, 0.2),
+        /** 限速少变、弯道少，SLC 跟车最平顺 */
+        SMOOTHEST(0.5, 0.05, 0.1, 0.3, 1.0);
+
+        final double wEta, wCamera, wSection, wLimitChange, wCurve;
+
+        Policy(double wEta, double wCamera, double wSection, double wLimitChange, double wCurve) {
+            this.wEta = wEta;
+            this.wCamera = wCamera;
+            this.wSection = wSection;
+            this.wLimitChange = wLimitChange;
+            this.wCurve = wCurve;
+        }
+
+        /** 按名称解析，未知时 BALANCED */
+        public static Policy parse(String name) {
+            if (name != null) {
+                for (Policy p : values()) {
+                    if (p.name().equalsIgnoreCase(name)) return p;
+                }
+            }
+            return BALANCED;
+        }
+    }
+
+    /** 一条路线的评分特征 */
+    public static final class Candidate {
+        public int etaSec;
+        public double lengthM;
+        public int cameraCount;          // 测速/违章拍照
+        public int sectionCount;         // 区间测速
+        public int limitChanges;         // 沿线限速变化次数
+        public double curvedLengthM;     // 建议速度低于 CURVE_KPH 的里程
+        /** 提取时顺带构建的几何，选中后可直接复用；可为 null */
+        public RouteGeometry geometry;
+        /** ETA、长度和摄像头列表都已从 SDK 取到；false 时上面这几项是 0，不能参与评分 */
+        public boolean attributes;
+    }
+
+    /** 选择结果 */
+    public static final class Selection {
+        public final int index;
+        /** 各路线特征，失败/未完成的为 null */
+        public final Candidate[] candidates;
+        public final boolean timedOut;
+        /** 有路线缺 SDK 路线属性，退回第 0 条 */
+        public final boolean incomplete;
+        public final long elapsedMs;
+
+        Selection(int index, Candidate[] candidates, boolean timedOut, boolean incomplete, long elapsedMs) {
+            this.index = index;
+            this.candidates = candidates;
+            this.timedOut = timedOut;
+            this.incomplete = incomplete;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public Candidate selected() { return candidates[index]; }
+    }
+
+    /** 分数（越小越好）；minEtaSec 为参与比较的路线中的最短 ETA */
+    public static double score(Candidate c, int minEtaSec, Policy p) {
+        double per10km = c.lengthM > 0 ? 10_000.0 / c.lengthM : 0;
+        double eta = minEtaSec > 0 ? (double) c.etaSec / minEtaSec - 1 : 0;
+        return p.wEta * eta * 10                       // 每慢 10% 计 1 分
+            + p.wCamera * c.cameraCount * per10km
+            + p.wSection * c.sectionCount * per10km
+            + p.wLimitChange * c.limitChanges * per10km
+            + p.wCurve * (c.lengthM > 0 ? c.curvedLengthM / c.lengthM : 0) * 10;
+    }
+
+    /** 从已提取的特征中选最优下标；null 项跳过，全为 null 时返回 0。同分取下标小的 */
+    public static int best(Candidate[] cs, Policy p) {
+        int minEta = Integer.MAX_VALUE;
+        for (Candidate c : cs) {
+            if (c != null && c.etaSec > 0) minEta = Math.min(minEta, c.etaSec);
+        }
+        if (minEta == Integer.MAX_VALUE) minEta = 0;
+        int best = -1;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < cs.length; i++) {
+            Candidate c = cs[i];
+            if (c == null) continue;
+            if (minEta > 0 && c.etaSec > minEta * MAX_ETA_RATIO) continue;
+            double s = score(c, minEta, p);
+            if (s < bestScore) {
+                bestScore = s;
+                best = i;
+            }
+        }
+        return best < 0 ? 0 : best;
+    }
+
+    /**
+     * 并行提取特征并选择
+     *
+     * 单条提取失败只排除该条；到 budgetMs 仍有未完成的，取消剩余任务并返回第 0 条，
+     * 以免在部分结果上比较出不稳定的选择。提取成功但缺 SDK 路线属性的同样返回第 0 条。
+     * 只有一条路线时不提交任务。
+     */
+    public static Selection select(ExecutorService pool, List<? extends Callable<Candidate>> extractors,
+                                   Policy policy, long budgetMs) throws InterruptedException {
+        long t0 = System.nanoTime();
+        int n = extractors.size();
+        Candidate[] cs = new Candidate[n];
+        if (n <= 1 || policy == Policy.FASTEST) {
+            return new Selection(0, cs, false, false, 0);
+        }
+        List<Callable<Candidate>> tasks = new ArrayList<>(extractors);
+        List<Future<Candidate>> futures = pool.invokeAll(tasks, budgetMs, TimeUnit.MILLISECONDS);
+        boolean timedOut = false;
+        for (int i = 0; i < n; i++) {
+            Future<Candidate> f = futures.get(i);
+            try {
+                cs[i] = f.get();
+            } catch (CancellationException e) {
+                timedOut = true;
+            } catch (ExecutionException e) {
+                cs[i] = null;
+            }
+        }
+        boolean incomplete = false;
+        for (Candidate c : cs) {
+            if (c != null && !c.attributes) incomplete = true;
+        }
+        long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+        return new Selection(timedOut || incomplete ? 0 : best(cs, policy), cs, timedOut, incomplete, elapsedMs);
+    }
+}
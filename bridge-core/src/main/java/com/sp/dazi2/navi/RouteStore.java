@@ -0,0 +1,220 @@
+package com.sp.dazi2.navi;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑路线折线存储
+ *
+ * 千公里高速路线的折线有几万到十几万点，按 double 数组或 SDK 对象列表存放在低端机上占堆明显，
+ * 沿线分析也要逐个拆箱。这里按定点数存：
+ *   - 坐标 = 度 × 1e6（约 0.1m），每点相对前一点的差值打包成一个 int（高 16 位纬度、低 16 位经度）；
+ *     每 BLOCK 个点存一次绝对坐标，随机访问最多累加 BLOCK-1 个差值，顺序访问用 decode() 批量解出
+ *   - 差值超出 short 范围（约 3km）的长段按直线插点，几何不变
+ *   - 累计里程 int 厘米（上限约 2 万公里），按里程二分即得所在段
+ *   - 段属性：航向 short（0.1 度）
+ * 连同原始点下标映射每点约 14 字节，原先 double 数组存法为 36 字节。
+ *
+ * 由 Builder 逐点构建（可直接从 SDK 点列表喂入，不必先复制成 double 数组），
+ * 每次算路/重新规划建一次，之后只读，可跨线程共享。
+ */
+public final class RouteStore {
+    static final int BLOCK_SHIFT = 6;
+    static final int BLOCK = 1 << BLOCK_SHIFT;
+    static final double SCALE = 1e6;
+    private static final double MIN_SPACING_M = 0.5;   // 更近的相邻点视为重复
+    private static final int MAX_DELTA = Short.MAX_VALUE - 1;
+
+    private final int count;
+    private final int[] delta;          // [i] = (dLat << 16) | (dLon & 0xFFFF)，块首点为 0
+    private final int[] baseLat, baseLon;
+    private final int[] cumCm;          // 各点累计里程 cm
+    private final short[] headingDeci;  // 各段航向 0.1 度
+    private final int[] sourceToPoint;  // 构建时喂入的原始点下标 → 点下标
+
+    private RouteStore(Builder b) {
+        count = b.count;
+        delta = Arrays.copyOf(b.delta, count);
+        int blocks = (count + BLOCK - 1) >> BLOCK_SHIFT;
+        baseLat = Arrays.copyOf(b.baseLat, blocks);
+        baseLon = Arrays.copyOf(b.baseLon, blocks);
+        cumCm = Arrays.copyOf(b.cumCm, count);
+        headingDeci = Arrays.copyOf(b.headingDeci, Math.max(0, count - 1));
+        sourceToPoint = Arrays.copyOf(b.sourceToPoint, b.sourceCount);
+    }
+
+    public int getPointCount() { return count; }
+    public int getSegmentCount() { return count - 1; }
+    public double getTotalLength() { return cumCm[count - 1] / 100.0; }
+
+    /** 占用字节数（数组负载，不含对象头） */
+    public long sizeBytes() {
+        return 4L * (delta.length + baseLat.length + baseLon.length + cumCm.length + sourceToPoint.length)
+            + 2L * headingDeci.length;
+    }
+
+    public double lat(int i) { return latE6(i) / SCALE; }
+    public double lon(int i) { return lonE6(i) / SCALE; }
+
+    /** 点 i 的累计里程 m */
+    public double cumDist(int i) { return cumCm[i] / 100.0; }
+
+    /** 段 i（点 i → i+1）的长度 m */
+    public double segmentLength(int i) { return (cumCm[i + 1] - cumCm[i]) / 100.0; }
+
+    /** 段 i 的航向 deg [0,360) */
+    public double segmentHeading(int i) { return headingDeci[i] / 10.0; }
+
+    /** 原始点下标换算为点下标，越界时取首/末点 */
+    public int pointOfSource(int sourceIndex) {
+        if (sourceIndex <= 0) return 0;
+        if (sourceIndex >= sourceToPoint.length) return count - 1;
+        return sourceToPoint[sourceIndex];
+    }
+
+    /** 里程 s 所在段下标（二分），越界时取首/末段 */
+    public int segmentAt(double s) {
+        long cm = Math.round(s * 100);
+        int lo = 0, hi = count - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (cumCm[mid] <= cm) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * 里程区间 [s0, s1] 覆盖的段，写入 out = {首段, 末段}；s1 < s0 时按 s0 单段
+     */
+    public void segmentRange(double s0, double s1, int[] out) {
+        out[0] = segmentAt(s0);
+        out[1] = s1 > s0 ? segmentAt(s1) : out[0];
+    }
+
+    /**
+     * 顺序解出点 [from, from + n) 的坐标（度）到 lat/lon 的 [0, n)，不分配
+     *
+     * 从 from 所在块的绝对坐标起累加，之后逐点一次加法。
+     */
+    public void decode(int from, int n, double[] lat, double[] lon) {
+        int b = from >> BLOCK_SHIFT;
+        int la = baseLat[b], lo = baseLon[b];
+        for (int i = (b << BLOCK_SHIFT) + 1; i <= from; i++) {
+            la += delta[i] >> 16;
+            lo += (short) delta[i];
+        }
+        int end = Math.min(count, from + n);
+        for (int i = from, k = 0; i < end; i++, k++) {
+            if (i > from) {
+                if ((i & (BLOCK - 1)) == 0) {
+                    la = baseLat[i >> BLOCK_SHIFT];
+                    lo = baseLon[i >> BLOCK_SHIFT];
+                } else {
+                    la += delta[i] >> 16;
+                    lo += (short) delta[i];
+                }
+            }
+            lat[k] = la / SCALE;
+            lon[k] = lo / SCALE;
+        }
+    }
+
+    private int latE6(int i) {
+        int b = i >> BLOCK_SHIFT;
+        int v = baseLat[b];
+        for (int k = (b << BLOCK_SHIFT) + 1; k <= i; k++) v += delta[k] >> 16;
+        return v;
+    }
+
+    private int lonE6(int i) {
+        int b = i >> BLOCK_SHIFT;
+        int v = baseLon[b];
+        for (int k = (b << BLOCK_SHIFT) + 1; k <= i; k++) v += (short) delta[k];
+        return v;
+    }
+
+    /** 逐点构建；点数不足 2 时 build() 返回 null */
+    public static final class Builder {
+        private int count;
+        private int sourceCount;
+        private int[] delta;
+        private int[] baseLat, baseLon;
+        private int[] cumCm;
+        private short[] headingDeci;
+        private int[] sourceToPoint;
+        private int lastLat, lastLon;
+        private double cumM;
+
+        public Builder(int expectedPoints) {
+            int cap = Math.max(16, expectedPoints);
+            delta = new int[cap];
+            cumCm = new int[cap];
+            headingDeci = new short[cap];
+            sourceToPoint = new int[cap];
+            baseLat = new int[(cap >> BLOCK_SHIFT) + 1];
+            baseLon = new int[(cap >> BLOCK_SHIFT) + 1];
+        }
+
+        /** 追加一个原始点（度） */
+        public Builder add(double lat, double lon) {
+            int la = (int) Math.round(lat * SCALE);
+            int lo = (int) Math.round(lon * SCALE);
+            if (count > 0 && RouteGeometry.distance(lastLat / SCALE, lastLon / SCALE, la / SCALE, lo / SCALE)
+                    < MIN_SPACING_M) {
+                mapSource(count - 1);
+                return this;
+            }
+            if (count > 0) {
+                // 超出 short 的长段等分插点（留 1 的余量给插值取整）
+                int steps = (Math.max(Math.abs(la - lastLat), Math.abs(lo - lastLon)) + MAX_DELTA - 1) / MAX_DELTA;
+                int fromLat = lastLat, fromLon = lastLon;
+                for (int k = 1; k < steps; k++) {
+                    append(fromLat + (int) ((long) (la - fromLat) * k / steps),
+                        fromLon + (int) ((long) (lo - fromLon) * k / steps));
+                }
+            }
+            append(la, lo);
+            mapSource(count - 1);
+            return this;
+        }
+
+        public RouteStore build() {
+            return count >= 2 ? new RouteStore(this) : null;
+        }
+
+        private void mapSource(int point) {
+            if (sourceCount == sourceToPoint.length) {
+                sourceToPoint = Arrays.copyOf(sourceToPoint, sourceCount * 2);
+            }
+            sourceToPoint[sourceCount++] = point;
+        }
+
+        private void append(int la, int lo) {
+            if (count == delta.length) {
+                int cap = count * 2;
+                delta = Arrays.copyOf(delta, cap);
+                cumCm = Arrays.copyOf(cumCm, cap);
+                headingDeci = Arrays.copyOf(headingDeci, cap);
+                baseLat = Arrays.copyOf(baseLat, (cap >> BLOCK_SHIFT) + 1);
+                baseLon = Arrays.copyOf(baseLon, (cap >> BLOCK_SHIFT) + 1);
+            }
+            int i = count;
+            if ((i & (BLOCK - 1)) == 0) {
+                baseLat[i >> BLOCK_SHIFT] = la;
+                baseLon[i >> BLOCK_SHIFT] = lo;
+                delta[i] = 0;
+            } else {
+                delta[i] = ((la - lastLat) << 16) | ((lo - lastLon) & 0xFFFF);
+            }
+            if (i > 0) {
+                double pLat = lastLat / SCALE, pLon = lastLon / SCALE, qLat = la / SCALE, qLon = lo / SCALE;
+                cumM += RouteGeometry.distance(pLat, pLon, qLat, qLon);
+                int h = (int) Math.round(RouteGeometry.heading(pLat, pLon, qLat, qLon) * 10);
+                headingDeci[i - 1] = (short) (h >= 3600 ? h - 3600 : h);
+            }
+            cumCm[i] = (int) Math.round(cumM * 100);
+            lastLat = la;
+            lastLon = lo;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.sp.dazi2.navi;
+
+/**
+ * 沿线位置跟踪
+ *
+ * 把吸附坐标投影到当前路线折线上，得到沿线里程。
+ * 游标只在上次所在段附近的小窗口内搜索，正常行驶每次摊还 O(1)；
+ * 窗口内最近距离超过 MAX_SNAP_M（如 GPS 跳变）时才整条扫描一次；
+ * 整条扫描后仍离线（偏航中）时，之后每 LOST_RESCAN_UPDATES 次才再整条扫描，其余只搜窗口。
+ * 折线坐标按块从 RouteStore 解到本对象的缓冲里再算，不分配。
+ * 路线更换（RouteGeometry 实例变化）时游标自动归零。只在导航回调线程使用。
+ */
+public class RouteTracker {
+    private static final int WINDOW_BACK = 2;
+    private static final int WINDOW_AHEAD = 20;
+    private static final double MAX_SNAP_M = 50;
+    private static final int CHUNK = 64;            // 每次解码的段数
+    private static final int LOST_RESCAN_UPDATES = 10;
+
+    private final double[] ptLat = new double[CHUNK + 1];
+    private final double[] ptLon = new double[CHUNK + 1];
+
+    private RouteGeometry geometry;
+    private int cursor = 0;
+    private double progress = 0;
+    private double offset = 0;
+    private int fullScans = 0;
+    private int lostUpdates = 0;      // >0：上次整条扫描仍离线，距下次整条扫描还剩几次
+
+    /**
+     * @return 沿线里程 m；路线为空时返回 -1
+     */
+    public double update(RouteGeometry g, double lat, double lon) {
+        if (g == null) {
+            geometry = null;
+            return -1;
+        }
+        if (g != geometry) {
+            geometry = g;
+            cursor = 0;
+            fullScan(lat, lon);
+            return progress;
+        }
+        int from = Math.max(0, cursor - WINDOW_BACK);
+        int to = Math.min(g.store.getSegmentCount() - 1, cursor + WINDOW_AHEAD);
+        project(from, to, lat, lon);
+        if (offset <= MAX_SNAP_M) {
+            lostUpdates = 0;
+        } else if (lostUpdates > 0) {
+            lostUpdates--;
+        } else {
+            fullScan(lat, lon);
+        }
+        return progress;
+    }
+
+    public double getProgress() { return progress; }
+    /** 到折线的垂直距离 m */
+    public double getOffset() { return offset; }
+    /** 离路线超过 MAX_SNAP_M（偏航或 GPS 跳变），此时里程不可信 */
+    public boolean isLost() { return offset > MAX_SNAP_M; }
+    public int getFullScanCount() { return fullScans; }
+
+    public void reset() {
+        geometry = null;
+        cursor = 0;
+        progress = 0;
+        offset = 0;
+        lostUpdates = 0;
+    }
+
+    private void fullScan(double lat, double lon) {
+        project(0, geometry.store.getSegmentCount() - 1, lat, lon);
+        fullScans++;
+        lostUpdates = offset > MAX_SNAP_M ? LOST_RESCAN_UPDATES : 0;
+    }
+
+    /** 在段 [from, to] 内找最近投影，更新 cursor/progress/offset */
+    private void project(int from, int to, double lat, double lon) {
+        RouteStore st = geometry.store;
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double best = Double.MAX_VALUE;
+        int bestSeg = from;
+        double bestT = 0;
+        for (int c = from; c <= to; c += CHUNK) {
+            int segs = Math.min(CHUNK, to - c + 1);
+            st.decode(c, segs + 1, ptLat, ptLon);
+            for (int k = 0; k < segs; k++) {
+                // 以 k 点为原点的局部平面（度，经度按纬度余弦缩放）
+                double ax = (ptLon[k + 1] - ptLon[k]) * cosLat;
+                double ay = ptLat[k + 1] - ptLat[k];
+                double px = (lon - ptLon[k]) * cosLat;
+                double py = lat - ptLat[k];
+                double len2 = ax * ax + ay * ay;
+                double t = len2 > 0 ? (px * ax + py * ay) / len2 : 0;
+                if (t < 0) t = 0; else if (t > 1) t = 1;
+                double dx = px - t * ax, dy = py - t * ay;
+                double d2 = dx * dx + dy * dy;
+                if (d2 < best) {
+                    best = d2;
+                    bestSeg = c + k;
+                    bestT = t;
+                }
+            }
+        }
+        cursor = bestSeg;
+        progress = st.cumDist(bestSeg) + bestT * st.segmentLength(bestSeg);
+        offset = Math.toRadians(Math.sqrt(best)) * RouteGeometry.EARTH_RADIUS_M;
+    }
+}
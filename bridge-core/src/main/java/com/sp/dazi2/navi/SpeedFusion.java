@@ -0,0 +1,157 @@
+package com.sp.dazi2.navi;
+
+/**
+ * 轮速 + GNSS 融合定位
+ *
+ * C3 的 vEgo（轮速，约 20Hz）积分出行驶距离，从最近一次可信的 GNSS 定位外推：
+ * 有路线且定位在线上时沿路线折线前进，否则沿定位航向直线前进。
+ * 隧道/高楼间没有定位时继续推算，最多 MAX_DR_SEC 秒或 MAX_DR_M 米。
+ * 速度优先用轮速（乘以按 GNSS 速度慢慢校准的轮胎系数），轮速过期时退回 GNSS 速度。
+ *
+ * 轮速来自 WebSocket 线程，定位来自定位回调，estimate() 在融合线程调用，
+ * 全部方法加锁；只读写基本类型字段，每次采样都不分配对象。
+ */
+public final class SpeedFusion {
+    private static final long WHEEL_FRESH_NS = 500_000_000L;
+    private static final long WHEEL_GAP_NS = 1_000_000_000L;   // 间隔超过则不积分这一段
+    private static final long FIX_FRESH_NS = 1_500_000_000L;
+    private static final double MAX_DR_SEC = 120;
+    private static final double MAX_DR_M = 5000;
+    private static final double MAX_FIX_ACCURACY_M = 50;        // 更差的定位（隧道里的网络定位）不用来重置位置
+    private static final double MIN_BEARING_SPEED = 2.0;        // m/s，低于此 GNSS 航向不可信
+    private static final double MAX_ROUTE_OFFSET_M = 30;        // 定位离路线超过此值时不沿路线推算
+    private static final double SCALE_MIN_SPEED = 5.0;
+    private static final double SCALE_MAX_ACCURACY_M = 15;
+    private static final double SCALE_ALPHA = 0.02;
+    private static final double EARTH_RADIUS_M = RouteGeometry.EARTH_RADIUS_M;
+
+    private static final SpeedFusion SHARED = new SpeedFusion();
+
+    /** 进程内共享实例：MainActivity 喂轮速，NaviSession 喂定位并取融合结果 */
+    public static SpeedFusion shared() { return SHARED; }
+
+    // 轮速
+    private double wheelMps;
+    private long wheelNs;
+    private double wheelDistM;          // 累计积分里程（未乘校准系数）
+    private double wheelScale = 1.0;
+
+    // 最近一次可信定位
+    private boolean hasFix;
+    private double fixLat, fixLon, fixSpeed, fixBearing;
+    private long fixNs;
+    private double fixWheelDistM;
+    private double fixRouteS = -1;
+    private RouteGeometry fixRoute;
+    private final RouteTracker tracker = new RouteTracker();
+    private final double[] routePos = new double[3];
+
+    private long lastAnyFixNs;
+
+    public synchronized void onWheelSpeed(double vEgoMps, long nowNs) {
+        if (vEgoMps < 0) vEgoMps = 0;
+        long dt = nowNs - wheelNs;
+        if (wheelNs != 0 && dt > 0 && dt < WHEEL_GAP_NS) {
+            wheelDistM += 0.5 * (wheelMps + vEgoMps) * dt / 1e9;
+        }
+        wheelMps = vEgoMps;
+        wheelNs = nowNs;
+    }
+
+    /**
+     * GNSS 定位
+     *
+     * @param route 当前路线，可为 null
+     */
+    public synchronized void onGnssFix(double lat, double lon, double speedMps, double bearingDeg,
+                                       double accuracyM, RouteGeometry route, long nowNs) {
+        lastAnyFixNs = nowNs;
+        if (accuracyM > MAX_FIX_ACCURACY_M && hasFix) return;
+
+        boolean wheelFresh = isWheelFresh(nowNs);
+        if (wheelFresh && speedMps > SCALE_MIN_SPEED && wheelMps > SCALE_MIN_SPEED
+                && accuracyM <= SCALE_MAX_ACCURACY_M) {
+            double ratio = Math.max(0.9, Math.min(1.1, speedMps / wheelMps));
+            wheelScale += SCALE_ALPHA * (ratio - wheelScale);
+        }
+
+        if (speedMps >= MIN_BEARING_SPEED || !hasFix) fixBearing = bearingDeg;
+        fixLat = lat;
+        fixLon = lon;
+        fixSpeed = speedMps;
+        fixNs = nowNs;
+        fixWheelDistM = wheelDistanceAt(nowNs);
+        hasFix = true;
+
+        fixRoute = route;
+        fixRouteS = -1;
+        if (route != null) {
+            double s = tracker.update(route, lat, lon);
+            if (s >= 0 && tracker.getOffset() <= MAX_ROUTE_OFFSET_M) fixRouteS = s;
+        } else {
+            tracker.reset();
+        }
+    }
+
+    /** 轮速是否新鲜：新鲜时由融合线程灌点，否则定位回调直接灌点 */
+    public synchronized boolean isWheelFresh(long nowNs) {
+        return wheelNs != 0 && nowNs - wheelNs < WHEEL_FRESH_NS;
+    }
+
+    /** 最近一次定位（含被忽略的低精度定位）已超过 FIX_FRESH_NS，正在纯推算 */
+    public synchronized boolean isDeadReckoning(long nowNs) {
+        return hasFix && nowNs - lastAnyFixNs > FIX_FRESH_NS;
+    }
+
+    public synchronized double getWheelScale() { return wheelScale; }
+
+    /**
+     * 当前融合位置，写入 out = {lat, lon, speedMps, bearingDeg}
+     *
+     * @return 尚无定位或推算超限时返回 false
+     */
+    public synchronized boolean estimate(long nowNs, double[] out) {
+        if (!hasFix) return false;
+        double sinceFixSec = (nowNs - fixNs) / 1e9;
+        boolean wheelFresh = isWheelFresh(nowNs);
+        double dist = wheelFresh
+            ? (wheelDistanceAt(nowNs) - fixWheelDistM) * wheelScale
+            : fixSpeed * sinceFixSec;
+        if (sinceFixSec > MAX_DR_SEC || dist > MAX_DR_M) return false;
+        if (dist < 0) dist = 0;
+
+        double speed = wheelFresh ? wheelMps * wheelScale : fixSpeed;
+        if (fixRoute != null && fixRouteS >= 0) {
+            fixRoute.positionAt(fixRouteS + dist, routePos);
+            out[0] = routePos[0];
+            out[1] = routePos[1];
+            out[3] = routePos[2];
+        } else {
+            double b = Math.toRadians(fixBearing);
+            out[0] = fixLat + Math.toDegrees(dist * Math.cos(b) / EARTH_RADIUS_M);
+            out[1] = fixLon + Math.toDegrees(dist * Math.sin(b)
+                / (EARTH_RADIUS_M * Math.cos(Math.toRadians(fixLat))));
+            out[3] = fixBearing;
+        }
+        out[2] = speed;
+        return true;
+    }
+
+    public synchronized void reset() {
+        hasFix = false;
+        fixRoute = null;
+        fixRouteS = -1;
+        tracker.reset();
+        wheelNs = 0;
+        wheelMps = 0;
+        wheelDistM = 0;
+        lastAnyFixNs = 0;
+    }
+
+    /** 积分里程外推到 nowNs */
+    private double wheelDistanceAt(long nowNs) {
+        long dt = nowNs - wheelNs;
+        if (wheelNs == 0 || dt <= 0 || dt >= WHEEL_GAP_NS) return wheelDistM;
+        return wheelDistM + wheelMps * dt / 1e9;
+    }
+}
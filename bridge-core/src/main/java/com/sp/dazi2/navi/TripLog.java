@@ -0,0 +1,123 @@
+package com.sp.dazi2.navi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 最近若干次行程汇总的落盘文件
+ *
+ * 每条记录 [len i32 | crc i32 | TripStats.Summary.encode()]，小端，只追加。
+ * 打开时从头校验一遍，尾部半条记录（写入中途进程被杀）直接截掉，之后的追加仍可读。
+ * 记录数到 2 × MAX_TRIPS 时整体重写为最近 MAX_TRIPS 条，文件最多约几百 KB。
+ *
+ * 行程结束时在主线程追加一条（几 KB），/trips 在指标线程读取，全部方法加锁。
+ */
+public class TripLog {
+    public static final int MAX_TRIPS = 50;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = 64 * 1024;
+
+    private final File file;
+    private final CRC32 crc = new CRC32();
+    private int count;
+
+    public TripLog(File file) throws IOException {
+        this.file = file;
+        count = scan(null);
+    }
+
+    /** 追加一条行程 */
+    public synchronized void append(TripStats.Summary s) throws IOException {
+        if (count + 1 >= 2 * MAX_TRIPS) compact();
+        byte[] payload = s.encode();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(payload.length).putInt((int) crc.getValue());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(head.array());
+            raf.write(payload);
+        }
+        count++;
+    }
+
+    /** 最近的行程，按时间先后，最多 MAX_TRIPS 条 */
+    public synchronized List<TripStats.Summary> load() throws IOException {
+        List<TripStats.Summary> out = new ArrayList<>();
+        scan(out);
+        return out.size() > MAX_TRIPS ? new ArrayList<>(out.subList(out.size() - MAX_TRIPS, out.size())) : out;
+    }
+
+    /** 最近 max 条行程的文本，最新的在前 */
+    public String dumpText(int max) {
+        List<TripStats.Summary> trips;
+        try {
+            trips = load();
+        } catch (IOException e) {
+            return "trip log unreadable: " + e.getMessage() + "\n";
+        }
+        if (trips.isEmpty()) return "no trips\n";
+        StringBuilder sb = new StringBuilder();
+        for (int i = trips.size() - 1; i >= 0 && trips.size() - i <= max; i--) {
+            sb.append(trips.get(i).toText());
+        }
+        return sb.toString();
+    }
+
+    public synchronized int size() { return Math.min(count, MAX_TRIPS); }
+
+    /** 重写为最近 MAX_TRIPS 条 */
+    private void compact() throws IOException {
+        List<TripStats.Summary> keep = load();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+        }
+        count = 0;
+        for (TripStats.Summary s : keep) append(s);
+    }
+
+    /**
+     * 从头校验，坏记录及其后的内容截掉
+     *
+     * @param out 非 null 时收集解出的记录
+     * @return 有效记录数
+     */
+    private int scan(List<TripStats.Summary> out) throws IOException {
+        if (!file.exists()) return 0;
+        int n = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long len = raf.length();
+            long pos = 0;
+            byte[] head = new byte[RECORD_HEADER];
+            byte[] payload = new byte[0];
+            while (pos + RECORD_HEADER <= len) {
+                raf.seek(pos);
+                raf.readFully(head);
+                ByteBuffer h = ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN);
+                int size = h.getInt();
+                int sum = h.getInt();
+                if (size <= 0 || size > MAX_RECORD || pos + RECORD_HEADER + size > len) break;
+                if (payload.length < size) payload = new byte[size];
+                raf.readFully(payload, 0, size);
+                crc.reset();
+                crc.update(payload, 0, size);
+                if ((int) crc.getValue() != sum) break;
+                if (out != null) {
+                    TripStats.Summary s = TripStats.Summary.decode(payload, 0, size);
+                    if (s != null) out.add(s);
+                }
+                n++;
+                pos += RECORD_HEADER + size;
+            }
+            if (pos < len) raf.setLength(pos);
+        }
+        return n;
+    }
+}
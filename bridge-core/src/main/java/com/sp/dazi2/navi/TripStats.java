@@ -0,0 +1,544 @@
+package com.sp.dazi2.navi;
+
+import com.sp.dazi2.metrics.BridgeEvents;
+import com.sp.dazi2.metrics.EventLog;
+import com.sp.dazi2.model.NaviData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 行程统计：一次导航里的超速、摄像头、各道路等级里程和限速映射，边开边累加
+ *
+ * 输入：
+ *   - onFrame()：每次发布的导航帧（NaviSession.pushNaviData），取当前道路、发给 C3 的（映射后）限速、
+ *     SDK 原始限速、道路等级、摄像头和位置
+ *   - onSpeed()：车速。轮速（carstate vEgo，约 20Hz）优先，轮速过期时用 SDK 吸附车速
+ * 相邻两次车速之间按梯形积分里程，时长和里程记到当前道路和等级；车速高于映射后限速记超速。
+ *
+ * 全部是定长基本类型累加器，从不回读原始日志：
+ *   - 道路：MAX_ROADS 个槽位，满了换出超速时长最短的一个，并入"其他道路"，合计不丢
+ *   - 摄像头：经过次数、超速次数单独计；每次经过的车速存 MAX_CAMERAS 条，满了换出超出限速最少的一条
+ *   - 道路等级：定长数组
+ * finish() 只把当前数组拷成 Summary，行程结束当下即可拿到汇总；Summary.encode() 约 1-3KB，由 TripLog 落盘。
+ *
+ * 摄像头距离目前由转弯距离近似（见 NaviSession.handleCameraData），经过判定同样是近似的。
+ * 轮速来自 WebSocket 线程，帧来自导航回调，全部方法加锁；采样路径不分配对象。
+ */
+public final class TripStats {
+    public static final int MAX_ROADS = 16;
+    public static final int MAX_CAMERAS = 64;
+    public static final int MAX_CATEGORIES = 16;
+
+    public static final int CAMERA_SPEED = 0;      // 测速/违章拍照（nSdiType）
+    public static final int CAMERA_SECTION = 1;    // 区间测速（nSdiBlockType）
+    private static final String[] CAMERA_LABELS = {"测速", "区间"};
+
+    private static final long WHEEL_FRESH_NS = 500_000_000L;
+    private static final long MAX_GAP_NS = 3_000_000_000L;     // 采样间隔超过则不积分这一段
+    private static final double PASS_AT_M = 10;                 // 距离降到此值以内即算经过
+    private static final double PASS_NEAR_M = 150;              // 摄像头消失/换下一个时，上一帧在此距离内才算经过
+    private static final double NEXT_JUMP_M = 50;               // 距离突增超过此值视为换了下一个摄像头
+    private static final int FORMAT_VERSION = 1;
+
+    private static final TripStats SHARED = new TripStats();
+
+    /** 进程内共享实例：MainActivity 喂轮速，NaviSession 喂帧并开始/结束行程 */
+    public static TripStats shared() { return SHARED; }
+
+    private boolean active;
+    private long startWallMs;
+
+    // 最近一帧
+    private int limitKph, rawLimitKph, category;
+    private boolean mapped;
+    private String roadName;
+    private int roadSlot = -1;
+    private int camType = -1, camLimit;
+    private double camDist;
+    private boolean camArmed;
+    private double lat, lon;
+
+    // 车速
+    private double lastMps;
+    private long lastSpeedNs, wheelNs;
+    private boolean over;
+
+    // 合计
+    private double timeS, distM, wheelTimeS, maxKph;
+    private double overTimeS, overDistM;
+    private int overEpisodes;
+    private int limitChanges, mappedChanges;
+    private double mappedTimeS, mappedDistM;
+    private final double[] categoryDistM = new double[MAX_CATEGORIES];
+
+    // 道路槽位
+    private final String[] roadNames = new String[MAX_ROADS];
+    private final double[] roadDistM = new double[MAX_ROADS];
+    private final double[] roadTimeS = new double[MAX_ROADS];
+    private final double[] roadOverDistM = new double[MAX_ROADS];
+    private final double[] roadOverTimeS = new double[MAX_ROADS];
+    private final float[] roadMaxOverKph = new float[MAX_ROADS];
+    private final int[] roadLimit = new int[MAX_ROADS];
+    private int roadCount;
+    private int roadsEvicted;
+    private double otherDistM, otherTimeS, otherOverDistM, otherOverTimeS;
+
+    // 摄像头经过
+    private final byte[] passType = new byte[MAX_CAMERAS];
+    private final short[] passLimit = new short[MAX_CAMERAS];
+    private final float[] passKph = new float[MAX_CAMERAS];
+    private final float[] passLat = new float[MAX_CAMERAS];
+    private final float[] passLon = new float[MAX_CAMERAS];
+    private final int[] passAtS = new int[MAX_CAMERAS];
+    private int passCount;
+    private int camerasPassed, camerasOver;
+
+    /** 导航开始：清空上一次行程 */
+    public synchronized void start(long nowWallMs) {
+        active = true;
+        startWallMs = nowWallMs;
+        limitKph = rawLimitKph = category = 0;
+        mapped = false;
+        roadName = null;
+        roadSlot = -1;
+        camType = -1;
+        camLimit = 0;
+        camDist = 0;
+        camArmed = false;
+        lat = lon = 0;
+        lastMps = 0;
+        lastSpeedNs = wheelNs = 0;
+        over = false;
+        timeS = distM = wheelTimeS = maxKph = 0;
+        overTimeS = overDistM = 0;
+        overEpisodes = limitChanges = mappedChanges = 0;
+        mappedTimeS = mappedDistM = 0;
+        Arrays.fill(categoryDistM, 0);
+        Arrays.fill(roadNames, null);
+        roadCount = roadsEvicted = 0;
+        otherDistM = otherTimeS = otherOverDistM = otherOverTimeS = 0;
+        passCount = camerasPassed = camerasOver = 0;
+    }
+
+    public synchronized boolean isActive() { return active; }
+
+    /**
+     * 一帧已发布的导航数据
+     *
+     * @param rawLimitKph SDK 原始限速（映射前），无限速时 0
+     */
+    public synchronized void onFrame(NaviData d, int rawLimitKph) {
+        if (!active) return;
+        lat = d.vpPosPointLat;
+        lon = d.vpPosPointLon;
+
+        int limit = d.nRoadLimitSpeed;
+        if (limit != limitKph || rawLimitKph != this.rawLimitKph) {
+            boolean nowMapped = limit > 0 && rawLimitKph > 0 && limit != rawLimitKph;
+            if (limit != limitKph) limitChanges++;
+            if (nowMapped) mappedChanges++;
+            limitKph = limit;
+            this.rawLimitKph = rawLimitKph;
+            mapped = nowMapped;
+        }
+
+        int cat = d.roadcate;
+        category = cat < 0 ? 0 : Math.min(cat, MAX_CATEGORIES - 1);
+
+        String name = d.szPosRoadName;
+        if (name != null && !name.isEmpty() && !name.equals(roadName)) {
+            roadName = name;
+            roadSlot = slotOf(name);
+        }
+        if (roadSlot >= 0) roadLimit[roadSlot] = limit;
+
+        onCamera(d);
+    }
+
+    /**
+     * 车速采样
+     *
+     * @param wheel true 为轮速；false 为 SDK 车速，轮速新鲜时忽略
+     */
+    public synchronized void onSpeed(double mps, boolean wheel, long nowNs) {
+        if (!active) return;
+        if (mps < 0) mps = 0;
+        if (wheel) {
+            wheelNs = nowNs;
+        } else if (wheelNs != 0 && nowNs - wheelNs < WHEEL_FRESH_NS) {
+            return;
+        }
+        long dt = nowNs - lastSpeedNs;
+        if (lastSpeedNs != 0 && dt > 0 && dt < MAX_GAP_NS) {
+            accumulate(dt / 1e9, 0.5 * (lastMps + mps) * dt / 1e9, mps * 3.6, wheel);
+        }
+        lastMps = mps;
+        lastSpeedNs = nowNs;
+    }
+
+    private void accumulate(double sec, double dist, double kph, boolean wheel) {
+        timeS += sec;
+        distM += dist;
+        if (wheel) wheelTimeS += sec;
+        if (kph > maxKph) maxKph = kph;
+        categoryDistM[category] += dist;
+        if (mapped) {
+            mappedTimeS += sec;
+            mappedDistM += dist;
+        }
+        int r = roadSlot;
+        if (r >= 0) {
+            roadTimeS[r] += sec;
+            roadDistM[r] += dist;
+        }
+        boolean nowOver = limitKph > 0 && kph > limitKph;
+        if (nowOver) {
+            if (!over) overEpisodes++;
+            overTimeS += sec;
+            overDistM += dist;
+            if (r >= 0) {
+                roadOverTimeS[r] += sec;
+                roadOverDistM[r] += dist;
+                float excess = (float) (kph - limitKph);
+                if (excess > roadMaxOverKph[r]) roadMaxOverKph[r] = excess;
+            }
+        }
+        over = nowOver;
+    }
+
+    /** 道路名 → 槽位；满了换出超速时长最短（其次里程最短）的一个，并入其他道路 */
+    private int slotOf(String name) {
+        for (int i = 0; i < roadCount; i++) {
+            if (name.equals(roadNames[i])) return i;
+        }
+        int v;
+        if (roadCount < MAX_ROADS) {
+            v = roadCount++;
+        } else {
+            v = 0;
+            for (int i = 1; i < MAX_ROADS; i++) {
+                if (roadOverTimeS[i] < roadOverTimeS[v]
+                        || (roadOverTimeS[i] == roadOverTimeS[v] && roadDistM[i] < roadDistM[v])) v = i;
+            }
+            roadsEvicted++;
+            otherDistM += roadDistM[v];
+            otherTimeS += roadTimeS[v];
+            otherOverDistM += roadOverDistM[v];
+            otherOverTimeS += roadOverTimeS[v];
+        }
+        roadNames[v] = name;
+        roadDistM[v] = roadTimeS[v] = roadOverDistM[v] = roadOverTimeS[v] = 0;
+        roadMaxOverKph[v] = 0;
+        roadLimit[v] = 0;
+        return v;
+    }
+
+    /**
+     * 摄像头经过判定：距离降到 PASS_AT_M 以内；或上一帧已在 PASS_NEAR_M 以内，
+     * 这一帧摄像头消失、换了类型或距离突增（下一个）。每个摄像头只记一次。
+     */
+    private void onCamera(NaviData d) {
+        int type = -1, limit = 0;
+        double dist = 0;
+        if (d.nSdiType >= 0) {
+            type = CAMERA_SPEED;
+            limit = d.nSdiSpeedLimit;
+            dist = d.nSdiDist;
+        } else if (d.nSdiBlockType >= 0) {
+            type = CAMERA_SECTION;
+            limit = d.nSdiBlockSpeed;
+            dist = d.nSdiBlockDist;
+        }
+        boolean next = type != camType || dist > camDist + NEXT_JUMP_M;
+        if (camArmed && camType >= 0 && next && camDist <= PASS_NEAR_M) {
+            recordPass(camType, camLimit);
+            camArmed = false;
+        }
+        if (type >= 0 && next) camArmed = true;
+        if (camArmed && type >= 0 && dist <= PASS_AT_M) {
+            recordPass(type, limit);
+            camArmed = false;
+        }
+        camType = type;
+        camLimit = limit;
+        camDist = dist;
+    }
+
+    private void recordPass(int type, int limit) {
+        double kph = lastMps * 3.6;
+        camerasPassed++;
+        boolean isOver = limit > 0 && kph > limit;
+        if (isOver) camerasOver++;
+        EventLog.log(BridgeEvents.CAMERA_PASSED, type, Math.round(kph), limit);
+        int i = passCount;
+        if (i == MAX_CAMERAS) {
+            // 满了：换出超出限速最少的一条，新的一条更少时不存
+            i = 0;
+            for (int j = 1; j < MAX_CAMERAS; j++) {
+                if (excess(j) < excess(i)) i = j;
+            }
+            if (kph - limit >= excess(i)) return;
+        } else {
+            passCount++;
+        }
+        passType[i] = (byte) type;
+        passLimit[i] = (short) limit;
+        passKph[i] = (float) kph;
+        passLat[i] = (float) lat;
+        passLon[i] = (float) lon;
+        passAtS[i] = (int) timeS;
+    }
+
+    private float excess(int i) { return passKph[i] - passLimit[i]; }
+
+    /** 导航结束：返回本次行程汇总，之后不再累加；未开始时返回 null */
+    public synchronized Summary finish(long nowWallMs) {
+        if (!active) return null;
+        Summary s = snapshot(nowWallMs);
+        active = false;
+        EventLog.log(BridgeEvents.TRIP_SUMMARY, (int) distM, Math.round(overTimeS), camerasPassed);
+        return s;
+    }
+
+    /** 进行中的行程汇总（不结束行程） */
+    public synchronized Summary snapshot(long nowWallMs) {
+        Summary s = new Summary();
+        s.startWallMs = startWallMs;
+        s.endWallMs = nowWallMs;
+        s.timeS = (float) timeS;
+        s.distM = (float) distM;
+        s.wheelTimeS = (float) wheelTimeS;
+        s.maxKph = (float) maxKph;
+        s.overTimeS = (float) overTimeS;
+        s.overDistM = (float) overDistM;
+        s.overEpisodes = overEpisodes;
+        s.limitChanges = limitChanges;
+        s.mappedChanges = mappedChanges;
+        s.mappedTimeS = (float) mappedTimeS;
+        s.mappedDistM = (float) mappedDistM;
+        s.camerasPassed = camerasPassed;
+        s.camerasOver = camerasOver;
+        s.categoryDistM = new float[MAX_CATEGORIES];
+        for (int i = 0; i < MAX_CATEGORIES; i++) s.categoryDistM[i] = (float) categoryDistM[i];
+        s.roads = new Road[roadCount];
+        for (int i = 0; i < roadCount; i++) {
+            s.roads[i] = new Road(roadNames[i], (float) roadDistM[i], (float) roadTimeS[i],
+                (float) roadOverDistM[i], (float) roadOverTimeS[i], roadMaxOverKph[i], roadLimit[i]);
+        }
+        Arrays.sort(s.roads, (a, b) -> a.overTimeS != b.overTimeS
+            ? Float.compare(b.overTimeS, a.overTimeS) : Float.compare(b.distM, a.distM));
+        s.roadsEvicted = roadsEvicted;
+        s.otherRoads = new Road("其他道路", (float) otherDistM, (float) otherTimeS,
+            (float) otherOverDistM, (float) otherOverTimeS, 0, 0);
+        s.passes = new CameraPass[passCount];
+        for (int i = 0; i < passCount; i++) {
+            s.passes[i] = new CameraPass(passType[i], passLimit[i], passKph[i], passLat[i], passLon[i], passAtS[i]);
+        }
+        Arrays.sort(s.passes, (a, b) -> Integer.compare(a.atS, b.atS));
+        return s;
+    }
+
+    /** 统计栏一行：进行中的行程，未导航时为空串 */
+    public synchronized String getStatusText() {
+        if (!active) return "";
+        StringBuilder sb = new StringBuilder();
+        sb.append("行程 ").append(String.format(Locale.US, "%.1fkm", distM / 1000))
+            .append(" 超速 ").append(Math.round(overTimeS)).append("s/")
+            .append(String.format(Locale.US, "%.1fkm", overDistM / 1000))
+            .append(" 摄像头 ").append(camerasPassed);
+        if (camerasOver > 0) sb.append("(超速").append(camerasOver).append(')');
+        if (mappedChanges > 0) sb.append(" 映射改写 ").append(mappedChanges).append("次");
+        return sb.toString();
+    }
+
+    /** 一条道路的累计；超速按发给 C3 的限速算 */
+    public static final class Road {
+        public final String name;
+        public final float distM, timeS, overDistM, overTimeS;
+        /** 最大超出限速 km/h */
+        public final float maxOverKph;
+        /** 最近一次的限速 */
+        public final int limitKph;
+
+        Road(String name, float distM, float timeS, float overDistM, float overTimeS, float maxOverKph, int limitKph) {
+            this.name = name;
+            this.distM = distM;
+            this.timeS = timeS;
+            this.overDistM = overDistM;
+            this.overTimeS = overTimeS;
+            this.maxOverKph = maxOverKph;
+            this.limitKph = limitKph;
+        }
+    }
+
+    /** 一次经过摄像头 */
+    public static final class CameraPass {
+        public final int type;        // CAMERA_*
+        public final int limitKph;
+        public final float speedKph;
+        public final float lat, lon;  // WGS-84
+        /** 行程开始后第几秒（按积分时长） */
+        public final int atS;
+
+        CameraPass(int type, int limitKph, float speedKph, float lat, float lon, int atS) {
+            this.type = type;
+            this.limitKph = limitKph;
+            this.speedKph = speedKph;
+            this.lat = lat;
+            this.lon = lon;
+            this.atS = atS;
+        }
+    }
+
+    /** 行程汇总，finish()/snapshot() 生成后只读 */
+    public static final class Summary {
+        public long startWallMs, endWallMs;
+        public float timeS, distM, wheelTimeS, maxKph;
+        public float overTimeS, overDistM;
+        public int overEpisodes;
+        /** 发给 C3 的限速变化次数；其中映射改写了 SDK 原值的次数 */
+        public int limitChanges, mappedChanges;
+        public float mappedTimeS, mappedDistM;
+        public int camerasPassed, camerasOver;
+        /** 下标为 roadcate */
+        public float[] categoryDistM;
+        /** 按超速时长降序 */
+        public Road[] roads;
+        public int roadsEvicted;
+        /** 换出槽位的道路合计 */
+        public Road otherRoads;
+        /** 按经过时间升序，最多 MAX_CAMERAS 条 */
+        public CameraPass[] passes;
+
+        /** 紧凑二进制，小端 */
+        public byte[] encode() {
+            byte[][] names = new byte[roads.length][];
+            int size = 80 + 8 * MAX_CATEGORIES + 22 * passes.length;
+            for (int i = 0; i < roads.length; i++) {
+                names[i] = roads[i].name.getBytes(StandardCharsets.UTF_8);
+                size += 24 + names[i].length;
+            }
+            ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            out.put((byte) FORMAT_VERSION);
+            out.putLong(startWallMs).putLong(endWallMs);
+            out.putFloat(timeS).putFloat(distM).putFloat(wheelTimeS).putFloat(maxKph);
+            out.putFloat(overTimeS).putFloat(overDistM).putInt(overEpisodes);
+            out.putInt(limitChanges).putInt(mappedChanges).putFloat(mappedTimeS).putFloat(mappedDistM);
+            out.putInt(camerasPassed).putInt(camerasOver);
+            int cats = 0;
+            for (float v : categoryDistM) if (v > 0) cats++;
+            out.put((byte) cats);
+            for (int i = 0; i < categoryDistM.length; i++) {
+                if (categoryDistM[i] > 0) out.put((byte) i).putFloat(categoryDistM[i]);
+            }
+            out.put((byte) roads.length);
+            for (int i = 0; i < roads.length; i++) {
+                Road r = roads[i];
+                out.putShort((short) names[i].length).put(names[i]);
+                out.putFloat(r.distM).putFloat(r.timeS).putFloat(r.overDistM).putFloat(r.overTimeS)
+                    .putFloat(r.maxOverKph).putShort((short) r.limitKph);
+            }
+            out.putShort((short) roadsEvicted);
+            out.putFloat(otherRoads.distM).putFloat(otherRoads.timeS)
+                .putFloat(otherRoads.overDistM).putFloat(otherRoads.overTimeS);
+            out.put((byte) passes.length);
+            for (CameraPass p : passes) {
+                out.put((byte) p.type).putShort((short) p.limitKph).putFloat(p.speedKph)
+                    .putFloat(p.lat).putFloat(p.lon).putInt(p.atS);
+            }
+            return Arrays.copyOf(out.array(), out.position());
+        }
+
+        /** encode() 的逆过程；版本不符或数据截断时返回 null */
+        public static Summary decode(byte[] buf, int off, int len) {
+            ByteBuffer in = ByteBuffer.wrap(buf, off, len).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                if (in.get() != FORMAT_VERSION) return null;
+                Summary s = new Summary();
+                s.startWallMs = in.getLong();
+                s.endWallMs = in.getLong();
+                s.timeS = in.getFloat();
+                s.distM = in.getFloat();
+                s.wheelTimeS = in.getFloat();
+                s.maxKph = in.getFloat();
+                s.overTimeS = in.getFloat();
+                s.overDistM = in.getFloat();
+                s.overEpisodes = in.getInt();
+                s.limitChanges = in.getInt();
+                s.mappedChanges = in.getInt();
+                s.mappedTimeS = in.getFloat();
+                s.mappedDistM = in.getFloat();
+                s.camerasPassed = in.getInt();
+                s.camerasOver = in.getInt();
+                s.categoryDistM = new float[MAX_CATEGORIES];
+                int cats = in.get() & 0xFF;
+                for (int i = 0; i < cats; i++) {
+                    int c = in.get() & 0xFF;
+                    float v = in.getFloat();
+                    if (c < MAX_CATEGORIES) s.categoryDistM[c] = v;
+                }
+                s.roads = new Road[in.get() & 0xFF];
+                for (int i = 0; i < s.roads.length; i++) {
+                    byte[] name = new byte[in.getShort() & 0xFFFF];
+                    in.get(name);
+                    s.roads[i] = new Road(new String(name, StandardCharsets.UTF_8), in.getFloat(), in.getFloat(),
+                        in.getFloat(), in.getFloat(), in.getFloat(), in.getShort());
+                }
+                s.roadsEvicted = in.getShort() & 0xFFFF;
+                s.otherRoads = new Road("其他道路", in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat(), 0, 0);
+                s.passes = new CameraPass[in.get() & 0xFF];
+                for (int i = 0; i < s.passes.length; i++) {
+                    s.passes[i] = new CameraPass(in.get(), in.getShort(), in.getFloat(),
+                        in.getFloat(), in.getFloat(), in.getInt());
+                }
+                return s;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        /** 多行文本，给 /trips 和日志 */
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+            sb.append("行程 ").append(fmt.format(new Date(startWallMs))).append(" ~ ")
+                .append(fmt.format(new Date(endWallMs)).substring(11))
+                .append(String.format(Locale.US, "  %.1fkm %dmin 最高%.0fkm/h", distM / 1000, Math.round(timeS / 60), maxKph));
+            if (timeS > 0) sb.append(String.format(Locale.US, " 轮速%.0f%%", wheelTimeS * 100 / timeS));
+            sb.append(String.format(Locale.US, "\n  超速 %ds / %.2fkm，%d 段", Math.round(overTimeS), overDistM / 1000, overEpisodes));
+            sb.append(String.format(Locale.US, "\n  限速变化 %d 次，映射改写 %d 次，映射生效 %ds / %.2fkm",
+                limitChanges, mappedChanges, Math.round(mappedTimeS), mappedDistM / 1000));
+            sb.append("\n  道路等级");
+            for (int i = 0; i < categoryDistM.length; i++) {
+                if (categoryDistM[i] > 0) sb.append(String.format(Locale.US, " %d:%.1fkm", i, categoryDistM[i] / 1000));
+            }
+            for (Road r : roads) appendRoad(sb, r);
+            if (roadsEvicted > 0) {
+                sb.append("\n  (另 ").append(roadsEvicted).append(" 段道路已合并)");
+                appendRoad(sb, otherRoads);
+            }
+            sb.append("\n  摄像头 ").append(camerasPassed).append(" 个，超速经过 ").append(camerasOver).append(" 个");
+            for (CameraPass p : passes) {
+                sb.append(String.format(Locale.US, "\n    +%ds %s 限%d 实%.0f%s (%.5f,%.5f)", p.atS,
+                    CAMERA_LABELS[p.type == CAMERA_SECTION ? 1 : 0], p.limitKph, p.speedKph,
+                    p.limitKph > 0 && p.speedKph > p.limitKph ? " 超速" : "", p.lat, p.lon));
+            }
+            return sb.append('\n').toString();
+        }
+
+        private static void appendRoad(StringBuilder sb, Road r) {
+            sb.append(String.format(Locale.US, "\n    %s %.1fkm %dmin", r.name, r.distM / 1000, Math.round(r.timeS / 60)));
+            if (r.limitKph > 0) sb.append(" 限").append(r.limitKph);
+            if (r.overTimeS > 0) {
+                sb.append(String.format(Locale.US, " 超速%ds/%.2fkm", Math.round(r.overTimeS), r.overDistM / 1000));
+                if (r.maxOverKph > 0) sb.append(String.format(Locale.US, " 最多超%.0f", r.maxOverKph));
+            }
+        }
+    }
+}
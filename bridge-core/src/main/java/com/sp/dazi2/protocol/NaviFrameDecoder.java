@@ -0,0 +1,186 @@
+package com.sp.dazi2.protocol;
+
+import com.sp.dazi2.model.NaviData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static com.sp.dazi2.protocol.NaviFrameFormat.*;
+
+/**
+ * 二进制导航帧参考解码器
+ *
+ * 与 NaviFrameEncoder 配对，作为 C3 端（navi_bridge.py）实现的参照，
+ * 也用于本地回环校验。字典 ID 未知时对应字符串先置空，
+ * 等后续帧的字典段补全。
+ *
+ * 解码结果累积在同一个 NaviData 中：关键帧整体覆盖，增量帧只改携带的字段。
+ * 增量帧出现 seq 断档或 keySeq 对不上时 needsKeyframe() 置位，
+ * 接收端应据此向手机请求关键帧。
+ *
+ * 冗余模式下同一帧会以相同 seq 重发多次：seq 不新于最近一帧
+ * （落后不超过 REPLAY_WINDOW）的增量帧视为重复或迟到，直接丢弃；
+ * 落后更多时按发送端重启处理，照常解码。关键帧只丢弃当前关键帧的重发，
+ * 其他 seq 的关键帧一律解码并以它为新的窗口起点——发送端重启后 seq 从 0 重来，
+ * 不这样的话重新同步用的关键帧也会落在窗口里被丢掉。
+ */
+public class NaviFrameDecoder {
+    private static final int REPLAY_WINDOW = 64;
+
+    private final String[] dict = new String[DICT_CAPACITY];
+    private final NaviData state = new NaviData();
+    private int lastSeq = -1;
+    private int lastKeySeq = -1;
+    private boolean hasKeyframe = false;
+    private boolean needsKeyframe = true;
+    private long duplicateCount = 0;
+
+    public int getLastSeq() { return lastSeq; }
+    public long getDuplicateCount() { return duplicateCount; }
+    public boolean needsKeyframe() { return needsKeyframe; }
+
+    /** 判断数据报是否为二进制导航帧（JSON 帧以 '{' 开头） */
+    public static boolean isBinaryFrame(byte[] data, int len) {
+        return len >= HEADER_SIZE
+            && ((data[0] & 0xFF) | (data[1] & 0xFF) << 8) == MAGIC;
+    }
+
+    /**
+     * 解码一帧
+     *
+     * @return 当前累积状态（同一对象，调用方不要长期持有）；
+     *         magic/版本不符、长度不足、重复帧或尚未收到关键帧时返回 null
+     */
+    public NaviData decode(byte[] data, int len) {
+        if (!isBinaryFrame(data, len)) return null;
+        ByteBuffer buf = ByteBuffer.wrap(data, 0, len).order(ByteOrder.LITTLE_ENDIAN);
+        int version = buf.get(2) & 0xFF;
+        if (!isSupportedVersion(version)) return null;
+        int flags = buf.get(3) & 0xFF;
+        int seq = buf.getInt(4);
+        boolean delta = (flags & FLAG_DELTA) != 0;
+        if (hasKeyframe) {
+            int behind = lastSeq - seq;
+            boolean duplicate = delta
+                ? behind >= 0 && behind < REPLAY_WINDOW
+                : seq == lastKeySeq;
+            if (duplicate) {
+                duplicateCount++;
+                return null;
+            }
+        }
+
+        return delta
+            ? decodeDelta(buf, len, version, flags, seq)
+            : decodeKeyframe(buf, len, version, flags, seq);
+    }
+
+    private NaviData decodeKeyframe(ByteBuffer buf, int len, int version, int flags, int seq) {
+        int bodyEnd = bodyEnd(version);
+        if (len < bodyEnd) return null;
+        // 先读字典段，本帧引用的新名称就在其中
+        if ((flags & FLAG_DICT) != 0 && readDictEntries(buf, bodyEnd, len) < 0) return null;
+        long fields = fieldMask(version);
+        for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+            if ((fields & (1L << f)) != 0) readField(buf, FIELD_OFFSET[f], f);
+        }
+        if (version < VERSION_AGE) {
+            // 旧版本不带这两项，按无标志、时效未知处理
+            state.nDataFlags = 0;
+            state.nDataAgeMs = 0;
+        }
+        hasKeyframe = true;
+        needsKeyframe = false;
+        lastKeySeq = seq;
+        lastSeq = seq;
+        return state;
+    }
+
+    private NaviData decodeDelta(ByteBuffer buf, int len, int version, int flags, int seq) {
+        if (len < DELTA_FIELDS_START) return null;
+        int keySeq = buf.getInt(OFF_DELTA_KEY_SEQ);
+        long mask = buf.getInt(OFF_DELTA_MASK) & 0xFFFFFFFFL;
+        if ((mask & ~fieldMask(version)) != 0) return null;
+
+        int pos = DELTA_FIELDS_START;
+        for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+            if ((mask & (1L << f)) != 0) pos += FIELD_WIDTH[f];
+        }
+        if (pos > len) return null;
+        if ((flags & FLAG_DICT) != 0 && readDictEntries(buf, pos, len) < 0) return null;
+
+        if (!hasKeyframe || keySeq != lastKeySeq || seq != lastSeq + 1) {
+            needsKeyframe = true;
+        }
+        pos = DELTA_FIELDS_START;
+        for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+            if ((mask & (1L << f)) == 0) continue;
+            readField(buf, pos, f);
+            pos += FIELD_WIDTH[f];
+        }
+        lastSeq = seq;
+        return hasKeyframe ? state : null;
+    }
+
+    private void readField(ByteBuffer buf, int pos, int field) {
+        NaviData d = state;
+        switch (field) {
+            case NaviData.F_ROAD_LIMIT: d.nRoadLimitSpeed = buf.get(pos) & 0xFF; break;
+            case NaviData.F_SDI_TYPE: d.nSdiType = buf.get(pos); break;
+            case NaviData.F_SDI_SPEED: d.nSdiSpeedLimit = buf.get(pos) & 0xFF; break;
+            case NaviData.F_SDI_DIST: d.nSdiDist = buf.getInt(pos) / DIST_SCALE; break;
+            case NaviData.F_SDI_BLOCK_TYPE: d.nSdiBlockType = buf.get(pos); break;
+            case NaviData.F_SDI_BLOCK_SPEED: d.nSdiBlockSpeed = buf.get(pos) & 0xFF; break;
+            case NaviData.F_SDI_BLOCK_DIST: d.nSdiBlockDist = buf.getInt(pos) / DIST_SCALE; break;
+            case NaviData.F_LAT: d.vpPosPointLat = buf.getInt(pos) / COORD_SCALE; break;
+            case NaviData.F_LON: d.vpPosPointLon = buf.getInt(pos) / COORD_SCALE; break;
+            case NaviData.F_ANGLE: d.nPosAngle = (float) ((buf.getShort(pos) & 0xFFFF) / ANGLE_SCALE); break;
+            case NaviData.F_ROAD_NAME: d.szPosRoadName = lookup(buf.getShort(pos)); break;
+            case NaviData.F_ROADCATE: d.roadcate = buf.get(pos); break;
+            case NaviData.F_TBT_DIST: d.nTBTDist = buf.getInt(pos) / DIST_SCALE; break;
+            case NaviData.F_TBT_TURN: d.nTBTTurnType = buf.getShort(pos); break;
+            case NaviData.F_GO_DIST: d.nGoPosDist = buf.getInt(pos); break;
+            case NaviData.F_GO_TIME: d.nGoPosTime = buf.getInt(pos); break;
+            case NaviData.F_TRAFFIC_LIGHT: d.nTrafficLight = buf.get(pos); break;
+            case NaviData.F_TRAFFIC_LIGHT_SEC: d.nTrafficLightSec = buf.getShort(pos); break;
+            case NaviData.F_SAPA_NAME: d.sapaName = lookup(buf.getShort(pos)); break;
+            case NaviData.F_SAPA_DIST: d.sapaDist = buf.getInt(pos); break;
+            case NaviData.F_SAPA_TYPE: d.sapaType = buf.get(pos); break;
+            case NaviData.F_NEXT_SAPA_NAME: d.nextSapaName = lookup(buf.getShort(pos)); break;
+            case NaviData.F_NEXT_SAPA_DIST: d.nextSapaDist = buf.getInt(pos); break;
+            case NaviData.F_NEXT_SAPA_TYPE: d.nextSapaType = buf.get(pos); break;
+            case NaviData.F_ETA_TEXT: d.etaText = lookup(buf.getShort(pos)); break;
+            case NaviData.F_TMC_SLOW: d.tmcSlowDist = buf.getInt(pos); break;
+            case NaviData.F_TMC_JAM: d.tmcJamDist = buf.getInt(pos); break;
+            case NaviData.F_TMC_BLOCK: d.tmcBlockDist = buf.getInt(pos); break;
+            case NaviData.F_NEXT_NEXT_TURN: d.nextNextTurnIcon = buf.getShort(pos); break;
+            case NaviData.F_NEXT_NEXT_ROAD: d.nextNextRoadName = lookup(buf.getShort(pos)); break;
+            case NaviData.F_DATA_FLAGS: d.nDataFlags = buf.get(pos) & 0xFF; break;
+            case NaviData.F_DATA_AGE: d.nDataAgeMs = buf.getShort(pos) & 0xFFFF; break;
+        }
+    }
+
+    /** 读字典段，返回段尾位置；格式错误返回 -1 */
+    private int readDictEntries(ByteBuffer buf, int pos, int len) {
+        if (pos >= len) return -1;
+        int count = buf.get(pos++) & 0xFF;
+        for (int i = 0; i < count; i++) {
+            if (pos + 3 > len) return -1;
+            int id = buf.getShort(pos) & 0xFFFF;
+            int strLen = buf.get(pos + 2) & 0xFF;
+            pos += 3;
+            if (pos + strLen > len || id >= DICT_CAPACITY) return -1;
+            dict[id] = new String(buf.array(), pos, strLen, StandardCharsets.UTF_8);
+            pos += strLen;
+        }
+        return pos;
+    }
+
+    private String lookup(short rawId) {
+        int id = rawId & 0xFFFF;
+        if (id == DICT_EMPTY_ID || id >= DICT_CAPACITY) return "";
+        String s = dict[id];
+        return s != null ? s : "";
+    }
+}
@@ -0,0 +1,212 @@
+package com.sp.dazi2.protocol;
+
+import com.sp.dazi2.model.NaviData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.sp.dazi2.protocol.NaviFrameFormat.*;
+
+/**
+ * 二进制导航帧编码器
+ *
+ * 每个 C3 连接一个实例，只在发送线程使用（非线程安全）。
+ * 帧缓冲区复用，encodeXxx() 返回本帧长度，数据在 buffer() 中。
+ *
+ * 字符串走字典：新文本分配 ID 后本帧附带字典项，
+ * 之后每 DICT_REFRESH_FRAMES 帧重发一次当前在用的字典项，
+ * 这样中途接入或丢包的接收端最多几秒后就能补全名称。
+ */
+public class NaviFrameEncoder {
+    private static final int DICT_REFRESH_FRAMES = 25;   // 5Hz 下约 5 秒
+
+    private final byte[] frame = new byte[MAX_FRAME_SIZE];
+    private final ByteBuffer buf = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final Map<String, Integer> dictIds = new HashMap<>();
+    private final String[] dictById = new String[DICT_CAPACITY];
+    private int nextDictId = 1;
+
+    // 本帧待下发的字典项
+    private final int[] pendingIds = new int[STRING_FIELDS];
+    private int pendingCount = 0;
+    private int framesSinceRefresh = 0;
+
+    private int version = VERSION;
+    private int lastKeySeq = 0;
+
+    public byte[] buffer() { return frame; }
+
+    /** 设置帧版本：VERSION 仅关键帧，VERSION_DELTA 允许增量帧，VERSION_AGE 另带数据标志/时效 */
+    public void setVersion(int version) { this.version = version; }
+    public int getVersion() { return version; }
+    public boolean supportsDelta() { return version >= VERSION_DELTA; }
+
+    /** 丢弃字典（切换 C3 时调用），之后的帧会重新下发全部名称 */
+    public void reset() {
+        dictIds.clear();
+        java.util.Arrays.fill(dictById, null);
+        nextDictId = 1;
+        framesSinceRefresh = 0;
+    }
+
+    /** 编码关键帧（全部字段），返回帧长度 */
+    public int encodeKeyframe(NaviData d, int seq) {
+        beginFrame();
+        long fields = fieldMask(version);
+        for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+            if ((fields & (1L << f)) != 0) writeField(FIELD_OFFSET[f], f, d);
+        }
+        if (version < VERSION_AGE) buf.put(OFF_DATA_FLAGS, (byte) 0);   // 旧版本的保留字节
+        lastKeySeq = seq;
+        writeHeader(seq, 0);
+        buf.position(bodyEnd(version));
+        if (pendingCount > 0) writeDictEntries();
+        return buf.position();
+    }
+
+    /**
+     * 编码增量帧，只写 fieldMask 中本版本有的字段，返回帧长度
+     *
+     * 需先以 VERSION_DELTA 及以上发过至少一个关键帧。
+     */
+    public int encodeDelta(NaviData d, long fieldMask, int seq) {
+        fieldMask &= fieldMask(version);
+        beginFrame();
+        int pos = DELTA_FIELDS_START;
+        for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+            if ((fieldMask & (1L << f)) == 0) continue;
+            writeField(pos, f, d);
+            pos += FIELD_WIDTH[f];
+        }
+        if (framesSinceRefresh == 0) refreshStrings(d);
+        writeHeader(seq, FLAG_DELTA);
+        buf.putInt(OFF_DELTA_KEY_SEQ, lastKeySeq);
+        buf.putInt(OFF_DELTA_MASK, (int) fieldMask);
+        buf.position(pos);
+        if (pendingCount > 0) writeDictEntries();
+        return buf.position();
+    }
+
+    private void beginFrame() {
+        pendingCount = 0;
+        if (++framesSinceRefresh >= DICT_REFRESH_FRAMES) framesSinceRefresh = 0;
+        buf.clear();
+    }
+
+    private void writeHeader(int seq, int flags) {
+        if (pendingCount > 0) flags |= FLAG_DICT;
+        buf.putShort(0, (short) MAGIC);
+        buf.put(2, (byte) version);
+        buf.put(3, (byte) flags);
+        buf.putInt(4, seq);
+    }
+
+    /** 增量帧里未变化的字符串也要定期重发字典项 */
+    private void refreshStrings(NaviData d) {
+        dictId(d.szPosRoadName);
+        dictId(d.sapaName);
+        dictId(d.nextSapaName);
+        dictId(d.etaText);
+        dictId(d.nextNextRoadName);
+    }
+
+    private void writeField(int pos, int field, NaviData d) {
+        switch (field) {
+            case NaviData.F_ROAD_LIMIT: buf.put(pos, u8(d.nRoadLimitSpeed)); break;
+            case NaviData.F_SDI_TYPE: buf.put(pos, (byte) d.nSdiType); break;
+            case NaviData.F_SDI_SPEED: buf.put(pos, u8(d.nSdiSpeedLimit)); break;
+            case NaviData.F_SDI_DIST: buf.putInt(pos, dist(d.nSdiDist)); break;
+            case NaviData.F_SDI_BLOCK_TYPE: buf.put(pos, (byte) d.nSdiBlockType); break;
+            case NaviData.F_SDI_BLOCK_SPEED: buf.put(pos, u8(d.nSdiBlockSpeed)); break;
+            case NaviData.F_SDI_BLOCK_DIST: buf.putInt(pos, dist(d.nSdiBlockDist)); break;
+            case NaviData.F_LAT: buf.putInt(pos, (int) Math.round(d.vpPosPointLat * COORD_SCALE)); break;
+            case NaviData.F_LON: buf.putInt(pos, (int) Math.round(d.vpPosPointLon * COORD_SCALE)); break;
+            case NaviData.F_ANGLE: buf.putShort(pos, (short) angle(d.nPosAngle)); break;
+            case NaviData.F_ROAD_NAME: buf.putShort(pos, (short) dictId(d.szPosRoadName)); break;
+            case NaviData.F_ROADCATE: buf.put(pos, (byte) d.roadcate); break;
+            case NaviData.F_TBT_DIST: buf.putInt(pos, dist(d.nTBTDist)); break;
+            case NaviData.F_TBT_TURN: buf.putShort(pos, (short) d.nTBTTurnType); break;
+            case NaviData.F_GO_DIST: buf.putInt(pos, d.nGoPosDist); break;
+            case NaviData.F_GO_TIME: buf.putInt(pos, d.nGoPosTime); break;
+            case NaviData.F_TRAFFIC_LIGHT: buf.put(pos, (byte) d.nTrafficLight); break;
+            case NaviData.F_TRAFFIC_LIGHT_SEC: buf.putShort(pos, (short) d.nTrafficLightSec); break;
+            case NaviData.F_SAPA_NAME: buf.putShort(pos, (short) dictId(d.sapaName)); break;
+            case NaviData.F_SAPA_DIST: buf.putInt(pos, d.sapaDist); break;
+            case NaviData.F_SAPA_TYPE: buf.put(pos, (byte) d.sapaType); break;
+            case NaviData.F_NEXT_SAPA_NAME: buf.putShort(pos, (short) dictId(d.nextSapaName)); break;
+            case NaviData.F_NEXT_SAPA_DIST: buf.putInt(pos, d.nextSapaDist); break;
+            case NaviData.F_NEXT_SAPA_TYPE: buf.put(pos, (byte) d.nextSapaType); break;
+            case NaviData.F_ETA_TEXT: buf.putShort(pos, (short) dictId(d.etaText)); break;
+            case NaviData.F_TMC_SLOW: buf.putInt(pos, d.tmcSlowDist); break;
+            case NaviData.F_TMC_JAM: buf.putInt(pos, d.tmcJamDist); break;
+            case NaviData.F_TMC_BLOCK: buf.putInt(pos, d.tmcBlockDist); break;
+            case NaviData.F_NEXT_NEXT_TURN: buf.putShort(pos, (short) d.nextNextTurnIcon); break;
+            case NaviData.F_NEXT_NEXT_ROAD: buf.putShort(pos, (short) dictId(d.nextNextRoadName)); break;
+            case NaviData.F_DATA_FLAGS: buf.put(pos, (byte) d.nDataFlags); break;
+            case NaviData.F_DATA_AGE: buf.putShort(pos, (short) Math.min(0xFFFF, Math.max(0, d.nDataAgeMs))); break;
+        }
+    }
+
+    private void writeDictEntries() {
+        buf.put((byte) pendingCount);
+        for (int i = 0; i < pendingCount; i++) {
+            int id = pendingIds[i];
+            byte[] utf8 = dictById[id].getBytes(StandardCharsets.UTF_8);
+            int len = utf8Prefix(utf8, MAX_STRING_BYTES);
+            buf.putShort((short) id);
+            buf.put((byte) len);
+            buf.put(utf8, 0, len);
+        }
+    }
+
+    /** 查/分配字典 ID；新分配或到了刷新周期时登记到本帧字典段 */
+    private int dictId(String s) {
+        if (s == null || s.isEmpty()) return DICT_EMPTY_ID;
+        Integer id = dictIds.get(s);
+        if (id == null) {
+            id = nextDictId;
+            nextDictId = nextDictId + 1 >= DICT_CAPACITY ? 1 : nextDictId + 1;
+            String evicted = dictById[id];
+            if (evicted != null) dictIds.remove(evicted);
+            dictById[id] = s;
+            dictIds.put(s, id);
+            addPending(id);
+        } else if (framesSinceRefresh == 0) {
+            addPending(id);
+        }
+        return id;
+    }
+
+    private void addPending(int id) {
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingIds[i] == id) return;
+        }
+        pendingIds[pendingCount++] = id;
+    }
+
+    private static byte u8(int v) {
+        return (byte) Math.max(0, Math.min(255, v));
+    }
+
+    private static int dist(double meters) {
+        return (int) Math.round(meters * DIST_SCALE);
+    }
+
+    /** 航向归一化到 [0, 3600) 的 0.1° 单位 */
+    private static int angle(float deg) {
+        int a = Math.round(deg * (float) ANGLE_SCALE) % 3600;
+        return a < 0 ? a + 3600 : a;
+    }
+
+    /** 截断到不超过 max 字节，且不切断 UTF-8 多字节字符 */
+    private static int utf8Prefix(byte[] utf8, int max) {
+        if (utf8.length <= max) return utf8.length;
+        int len = max;
+        while (len > 0 && (utf8[len] & 0xC0) == 0x80) len--;
+        return len;
+    }
+}
@@ -0,0 +1,157 @@
+package com.sp.dazi2.protocol;
+
+import com.sp.dazi2.model.NaviData;
+
+/**
+ * 二进制导航帧格式定义（v1 / v2 / v3）
+ *
+ * 固定布局、小端序。仅当 C3 在 7705 发现广播中声明支持时才启用，
+ * 否则继续发送 1.0 兼容的 JSON。
+ *
+ * 关键帧（v1 唯一帧型，v2/v3 中 flags 不含 FLAG_DELTA）：
+ *   [头部 8B] magic(u16) version(u8) flags(u8) seq(u32)
+ *   [定长主体] 见下方偏移表，长度随版本：bodyEnd(version)
+ *   [字典段，可选] count(u8) + count × { id(u16) len(u8) utf8[len] }
+ *
+ * 增量帧（v2/v3，flags 含 FLAG_DELTA）：
+ *   [头部 8B] 同上
+ *   keySeq(u32) 所依据的关键帧序号，fieldMask(u32) 本帧携带的字段
+ *   按 NaviData.F_* 位序依次写出各字段，宽度与关键帧中相同
+ *   [字典段，可选] 同上
+ *
+ * 增量帧相对上一帧，接收端发现 seq 不连续或 keySeq 与自己
+ * 最近收到的关键帧不符时，应向手机 7705 端口发送
+ * {"type":"keyframe"} 请求关键帧。
+ *
+ * 数值约定：
+ *   坐标 = 度 × 1e7 (i32)，航向 = 度 × 10 (u16)，
+ *   double 距离 = 米 × 10 (i32)，其余整数字段原值。
+ *   字符串字段（道路名、服务区名、ETA 文本等）只传字典 ID (u16)，
+ *   ID 对应的文本在首次出现和定期刷新时通过字典段下发。
+ *
+ * 版本兼容：
+ *   已发布版本的布局不再改动。v1/v2 主体到 BODY_END_V2，字节 51 保留为 0；
+ *   v3 在字节 51 放数据标志、主体末尾追加数据时效（BODY_END），增量帧可带这两个字段。
+ *   新字段只能在新版本号下追加；编码端按协商版本（C3 与各接收端 naviBin 的最小值）
+ *   省略该版本没有的字段，解码端按帧头版本号确定主体长度和可用字段。
+ */
+public final class NaviFrameFormat {
+    private NaviFrameFormat() { }
+
+    public static final int MAGIC = 0x5053;          // "SP" 小端
+    public static final int VERSION = 1;             // 仅关键帧
+    public static final int VERSION_DELTA = 2;       // 关键帧 + 增量帧
+    public static final int VERSION_AGE = 3;         // v2 + 数据标志 / 数据时效
+    public static final int VERSION_MAX = VERSION_AGE;
+
+    // flags
+    public static final int FLAG_DICT = 0x01;        // 带字典段
+    public static final int FLAG_DELTA = 0x02;       // 增量帧
+
+    // 头部
+    public static final int HEADER_SIZE = 8;
+
+    // 主体偏移（相对帧起始）
+    public static final int OFF_LAT = 8;                  // i32
+    public static final int OFF_LON = 12;                 // i32
+    public static final int OFF_ANGLE = 16;               // u16
+    public static final int OFF_ROAD_LIMIT = 18;          // u8
+    public static final int OFF_SDI_TYPE = 19;            // i8
+    public static final int OFF_SDI_SPEED = 20;           // u8
+    public static final int OFF_SDI_BLOCK_TYPE = 21;      // i8
+    public static final int OFF_SDI_BLOCK_SPEED = 22;     // u8
+    public static final int OFF_ROADCATE = 23;            // i8
+    public static final int OFF_SDI_DIST = 24;            // i32 dm
+    public static final int OFF_SDI_BLOCK_DIST = 28;      // i32 dm
+    public static final int OFF_TBT_DIST = 32;            // i32 dm
+    public static final int OFF_TBT_TURN = 36;            // i16
+    public static final int OFF_NEXT_NEXT_TURN = 38;      // i16
+    public static final int OFF_GO_DIST = 40;             // i32
+    public static final int OFF_GO_TIME = 44;             // i32
+    public static final int OFF_TRAFFIC_LIGHT = 48;       // i8
+    public static final int OFF_SAPA_TYPE = 49;           // i8
+    public static final int OFF_NEXT_SAPA_TYPE = 50;      // i8
+    public static final int OFF_DATA_FLAGS = 51;          // u8 NaviData.DATA_FLAG_*（v3 起，此前保留）
+    public static final int OFF_TRAFFIC_LIGHT_SEC = 52;   // i16
+    public static final int OFF_ROAD_NAME_ID = 54;        // u16
+    public static final int OFF_SAPA_DIST = 56;           // i32
+    public static final int OFF_NEXT_SAPA_DIST = 60;      // i32
+    public static final int OFF_TMC_SLOW = 64;            // i32
+    public static final int OFF_TMC_JAM = 68;             // i32
+    public static final int OFF_TMC_BLOCK = 72;           // i32
+    public static final int OFF_SAPA_NAME_ID = 76;        // u16
+    public static final int OFF_NEXT_SAPA_NAME_ID = 78;   // u16
+    public static final int OFF_ETA_TEXT_ID = 80;         // u16
+    public static final int OFF_NEXT_NEXT_ROAD_ID = 82;   // u16
+    public static final int BODY_END_V2 = 84;             // v1/v2 主体到此为止
+    public static final int OFF_DATA_AGE = 84;            // u16 ms，超过 65535 饱和（v3 起）
+
+    public static final int BODY_END = 86;
+    public static final int BODY_SIZE = BODY_END - HEADER_SIZE;
+
+    // v3 新增的字段
+    private static final long AGE_FIELDS = 1L << NaviData.F_DATA_FLAGS | 1L << NaviData.F_DATA_AGE;
+
+    // 增量帧
+    public static final int OFF_DELTA_KEY_SEQ = 8;        // u32
+    public static final int OFF_DELTA_MASK = 12;          // u32
+    public static final int DELTA_FIELDS_START = 16;
+
+    /** NaviData.F_* → 关键帧中的偏移 */
+    public static final int[] FIELD_OFFSET = {
+        OFF_ROAD_LIMIT, OFF_SDI_TYPE, OFF_SDI_SPEED, OFF_SDI_DIST,
+        OFF_SDI_BLOCK_TYPE, OFF_SDI_BLOCK_SPEED, OFF_SDI_BLOCK_DIST,
+        OFF_LAT, OFF_LON, OFF_ANGLE, OFF_ROAD_NAME_ID, OFF_ROADCATE,
+        OFF_TBT_DIST, OFF_TBT_TURN, OFF_GO_DIST, OFF_GO_TIME,
+        OFF_TRAFFIC_LIGHT, OFF_TRAFFIC_LIGHT_SEC,
+        OFF_SAPA_NAME_ID, OFF_SAPA_DIST, OFF_SAPA_TYPE,
+        OFF_NEXT_SAPA_NAME_ID, OFF_NEXT_SAPA_DIST, OFF_NEXT_SAPA_TYPE,
+        OFF_ETA_TEXT_ID, OFF_TMC_SLOW, OFF_TMC_JAM, OFF_TMC_BLOCK,
+        OFF_NEXT_NEXT_TURN, OFF_NEXT_NEXT_ROAD_ID,
+        OFF_DATA_FLAGS, OFF_DATA_AGE,
+    };
+
+    /** NaviData.F_* → 字段宽度（字节） */
+    public static final int[] FIELD_WIDTH = {
+        1, 1, 1, 4,
+        1, 1, 4,
+        4, 4, 2, 2, 1,
+        4, 2, 4, 4,
+        1, 2,
+        2, 4, 1,
+        2, 4, 1,
+        2, 4, 4, 4,
+        2, 2,
+        1, 2,
+    };
+
+    // 字典
+    public static final int DICT_CAPACITY = 4096;    // ID 循环复用
+    public static final int DICT_EMPTY_ID = 0;       // 空字符串固定为 0
+    public static final int MAX_STRING_BYTES = 255;
+
+    public static final int STRING_FIELDS = 5;
+
+    // 最大帧长（增量帧头 + 全部字段 + 每个字符串字段各一条字典项）
+    public static final int MAX_FRAME_SIZE =
+        DELTA_FIELDS_START + BODY_SIZE + 1 + STRING_FIELDS * (3 + MAX_STRING_BYTES);
+
+    /** 本端能编解码的版本 */
+    public static boolean isSupportedVersion(int version) {
+        return version >= VERSION && version <= VERSION_MAX;
+    }
+
+    /** 该版本关键帧主体的结束偏移（字典段起点） */
+    public static int bodyEnd(int version) {
+        return version >= VERSION_AGE ? BODY_END : BODY_END_V2;
+    }
+
+    /** 该版本帧里可以出现的字段 */
+    public static long fieldMask(int version) {
+        return version >= VERSION_AGE ? NaviData.ALL_FIELDS : NaviData.ALL_FIELDS & ~AGE_FIELDS;
+    }
+
+    public static final double COORD_SCALE = 1e7;
+    public static final double ANGLE_SCALE = 10.0;
+    public static final double DIST_SCALE = 10.0;
+}
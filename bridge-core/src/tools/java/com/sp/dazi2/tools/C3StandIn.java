@@ -0,0 +1,205 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.protocol.NaviFrameDecoder;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 本地 C3 替身（代替 C3 + navi_bridge.py）
+ *
+ * 绑定在指定本地地址（127.0.0.1 / 127.0.0.2 …，用来模拟换 IP），
+ * 定时向桥接的发现端口发广播，接收数据端口上的 JSON / 二进制帧，
+ * 用参考解码器解码，断档时按协议回发 {"type":"keyframe"}。
+ * 广播声明 naviProbe，收到 {"type":"probe"} 时立即回发一次广播。
+ * 统计窗口内的到达间隔，供压测判断漂移和速率稳定性。
+ */
+public class C3StandIn {
+    private final String ip;
+    private final int dataPort;
+    private final int bridgeDiscoveryPort;
+    private final int binVersion;
+    private final long beaconIntervalMs;
+
+    private volatile boolean running;
+    private DatagramSocket dataSocket;
+    private DatagramSocket beaconSocket;
+    private Thread rxThread, beaconThread;
+    private NaviFrameDecoder decoder = new NaviFrameDecoder();
+
+    // 全程统计
+    private volatile long received;
+    private volatile long decodeErrors;
+    private volatile long keyframeRequests;
+    private volatile long probesAnswered;
+    private volatile long lastFrameNs;
+    private volatile long firstValidFrameNs;
+    private volatile double lastLat;
+
+    // 窗口统计（take 时清零）
+    private long winCount;
+    private double winIntervalSum, winIntervalSqSum, winMaxGapMs;
+
+    public C3StandIn(String ip, int dataPort, int bridgeDiscoveryPort, int binVersion, long beaconIntervalMs) {
+        this.ip = ip;
+        this.dataPort = dataPort;
+        this.bridgeDiscoveryPort = bridgeDiscoveryPort;
+        this.binVersion = binVersion;
+        this.beaconIntervalMs = beaconIntervalMs;
+    }
+
+    public String getIp() { return ip; }
+    public long getReceived() { return received; }
+    public long getDecodeErrors() { return decodeErrors; }
+    public long getKeyframeRequests() { return keyframeRequests; }
+    public long getProbesAnswered() { return probesAnswered; }
+    public double getLastLat() { return lastLat; }
+
+    /** start() 之后第一帧可用数据的到达时刻（nanoTime），尚未收到为 0 */
+    public long getFirstValidFrameNs() { return firstValidFrameNs; }
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+        InetAddress addr = InetAddress.getByName(ip);
+        dataSocket = new DatagramSocket(null);
+        dataSocket.setReuseAddress(true);
+        dataSocket.bind(new InetSocketAddress(addr, dataPort));
+        dataSocket.setSoTimeout(500);
+        beaconSocket = new DatagramSocket(new InetSocketAddress(addr, 0));
+        decoder = new NaviFrameDecoder();
+        firstValidFrameNs = 0;
+        lastFrameNs = 0;
+        running = true;
+
+        rxThread = new Thread(this::rxLoop, "C3StandIn-rx-" + ip);
+        rxThread.setDaemon(true);
+        rxThread.start();
+        beaconThread = new Thread(this::beaconLoop, "C3StandIn-beacon-" + ip);
+        beaconThread.setDaemon(true);
+        beaconThread.start();
+    }
+
+    /** 模拟 C3 断电/重启：关闭端口，状态全部丢失 */
+    public synchronized void stop() {
+        running = false;
+        if (dataSocket != null) dataSocket.close();
+        if (beaconSocket != null) beaconSocket.close();
+        joinQuietly(rxThread);
+        joinQuietly(beaconThread);
+    }
+
+    /** 取窗口统计并清零：{包数, 平均间隔ms, 间隔标准差ms, 最大间隔ms} */
+    public synchronized double[] takeWindow() {
+        double mean = winCount > 1 ? winIntervalSum / (winCount - 1) : 0;
+        double var = winCount > 2 ? winIntervalSqSum / (winCount - 1) - mean * mean : 0;
+        double[] r = {winCount, mean, Math.sqrt(Math.max(0, var)), winMaxGapMs};
+        winCount = 0;
+        winIntervalSum = winIntervalSqSum = winMaxGapMs = 0;
+        return r;
+    }
+
+    private void rxLoop() {
+        byte[] buf = new byte[4096];
+        DatagramPacket pkt = new DatagramPacket(buf, buf.length);
+        while (running) {
+            try {
+                pkt.setLength(buf.length);
+                dataSocket.receive(pkt);
+                long now = System.nanoTime();
+                onFrame(buf, pkt.getLength(), now);
+            } catch (SocketTimeoutException e) {
+                // 继续等
+            } catch (SocketException e) {
+                return;     // stop()
+            } catch (IOException e) {
+                decodeErrors++;
+            }
+        }
+    }
+
+    private void onFrame(byte[] data, int len, long now) {
+        boolean valid;
+        if (NaviFrameDecoder.isBinaryFrame(data, len)) {
+            long dupsBefore = decoder.getDuplicateCount();
+            NaviData d = decoder.decode(data, len);
+            if (decoder.getDuplicateCount() != dupsBefore) return;    // 冗余重发
+            valid = d != null;
+            if (d != null) lastLat = d.vpPosPointLat;
+            if (decoder.needsKeyframe()) requestKeyframe();
+        } else if (isProbe(data, len)) {
+            probesAnswered++;
+            send(beacon());
+            return;
+        } else {
+            valid = len > 0 && data[0] == '{';
+        }
+        if (!valid) {
+            decodeErrors++;
+            return;
+        }
+        received++;
+        if (firstValidFrameNs == 0) firstValidFrameNs = now;
+        synchronized (this) {
+            if (lastFrameNs != 0) {
+                double gapMs = (now - lastFrameNs) / 1e6;
+                winIntervalSum += gapMs;
+                winIntervalSqSum += gapMs * gapMs;
+                if (gapMs > winMaxGapMs) winMaxGapMs = gapMs;
+            }
+            winCount++;
+        }
+        lastFrameNs = now;
+    }
+
+    private static boolean isProbe(byte[] data, int len) {
+        return len > 0 && data[0] == '{'
+            && new String(data, 0, len, StandardCharsets.UTF_8).contains("\"probe\"");
+    }
+
+    private String beacon() {
+        return "{\"type\":\"c3\",\"naviBin\":" + binVersion + ",\"naviProbe\":1}";
+    }
+
+    private void requestKeyframe() {
+        keyframeRequests++;
+        send("{\"type\":\"keyframe\"}");
+    }
+
+    private void beaconLoop() {
+        String beacon = beacon();
+        while (running) {
+            send(beacon);
+            try {
+                Thread.sleep(beaconIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void send(String msg) {
+        try {
+            byte[] b = msg.getBytes(StandardCharsets.UTF_8);
+            beaconSocket.send(new DatagramPacket(b, b.length,
+                InetAddress.getLoopbackAddress(), bridgeDiscoveryPort));
+        } catch (IOException ignored) {
+            // 端口已关闭
+        }
+    }
+
+    private static void joinQuietly(Thread t) {
+        if (t == null) return;
+        try {
+            t.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
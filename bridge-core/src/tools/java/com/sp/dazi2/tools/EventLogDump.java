@@ -0,0 +1,24 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.metrics.EventLog;
+
+import java.io.File;
+
+/**
+ * 解读从手机取回的事件文件（files/events.bin 或 events.bin.prev）
+ *
+ * 用法：./gradlew :bridge-core:eventDump -Pfile=/path/to/events.bin
+ * 或 adb shell run-as com.sp.dazi2 cat files/events.bin > events.bin 后同上。
+ */
+public class EventLogDump {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args[0].trim().isEmpty()) {
+            System.err.println("usage: EventLogDump <events.bin>");
+            System.exit(2);
+        }
+        StringBuilder sb = new StringBuilder();
+        EventLog.dumpFile(new File(args[0].trim()), sb);
+        System.out.print(sb);
+    }
+}
@@ -0,0 +1,285 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.bridge.BridgeEngine;
+import com.sp.dazi2.bridge.BridgeLog;
+import com.sp.dazi2.bridge.FanOut;
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.protocol.NaviFrameDecoder;
+import com.sp.dazi2.protocol.NaviFrameEncoder;
+import com.sp.dazi2.protocol.NaviFrameFormat;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多接收端发送开销
+ *
+ * 1. 单帧编码一次、FanOut 逐个发送 vs 每个接收端各编码一次再发送，
+ *    N 个本地回环接收端，统计每帧耗时、每接收端增量耗时和到达率
+ * 2. 组播：一个组播包的发送耗时，以及回环上加入组的接收端能否收到（环境不支持时跳过）
+ * 3. 端到端：BridgeEngine 无 C3，一个固定接收端（naviBin=2）+ 一个订阅接收端（naviBin=1），
+ *    订阅期间出站帧降为 v1、两端都能解码；退订后订阅端不再收到、帧恢复 v2。不满足时退出码 1。
+ *
+ * 用法：./gradlew :bridge-core:fanoutBench -Pfanout="receivers=0,1,2,4,8,16 frames=20000"
+ */
+public class FanOutBench {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        String[] counts = opt.getOrDefault("receivers", "0,1,2,4,8,16").split(",");
+        int frames = Integer.parseInt(opt.getOrDefault("frames", "20000"));
+        int discoveryPort = Integer.parseInt(opt.getOrDefault("discoveryPort", "37705"));
+        int dataPort = Integer.parseInt(opt.getOrDefault("dataPort", "37706"));
+        String group = opt.getOrDefault("group", FanOut.DEFAULT_MULTICAST_GROUP);
+        BridgeLog.setSink((level, tag, msg, t) -> { });
+
+        SyntheticFeed feed = new SyntheticFeed(5, 30);
+        NaviData data = feed.getData();
+        InetAddress lo = InetAddress.getByName("127.0.0.1");
+
+        // 两种路径先各跑一轮预热，避免先跑的一方吃 JIT 成本
+        run(4, frames, data, lo, true);
+        run(4, frames, data, lo, false);
+        System.out.printf("fan-out: %d frames per run, loopback receivers%n", frames);
+        System.out.println("  N   once ns/frame  ns/receiver  delivered%   per-receiver ns/frame  ns/receiver  delivered%");
+        double baseOnce = 0, basePer = 0;
+        for (String c : counts) {
+            int n = Integer.parseInt(c.trim());
+            Result once = run(n, frames, data, lo, true);
+            Result per = run(n, frames, data, lo, false);
+            if (n == 0) {
+                baseOnce = once.nsPerFrame;
+                basePer = per.nsPerFrame;
+            }
+            System.out.printf("%3d  %14.0f  %11s  %10s   %20.0f  %11s  %10s%n", n,
+                once.nsPerFrame, n > 0 ? String.format("%.0f", (once.nsPerFrame - baseOnce) / n) : "-",
+                n > 0 ? String.format("%.1f", once.deliveredPct) : "-",
+                per.nsPerFrame, n > 0 ? String.format("%.0f", (per.nsPerFrame - basePer) / n) : "-",
+                n > 0 ? String.format("%.1f", per.deliveredPct) : "-");
+        }
+
+        multicast(frames, data, group, dataPort);
+
+        boolean ok = endToEnd(discoveryPort, dataPort, lo);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    static final class Result {
+        double nsPerFrame, deliveredPct;
+    }
+
+    /** once = true：编码一次 + FanOut；false：每个接收端各编码一次、各分配一个包 */
+    private static Result run(int n, int frames, NaviData data, InetAddress lo, boolean once) throws Exception {
+        DatagramSocket[] rx = new DatagramSocket[n];
+        AtomicLong received = new AtomicLong();
+        Thread[] drains = new Thread[n];
+        FanOut fanOut = new FanOut();
+        InetSocketAddress[] addrs = new InetSocketAddress[n];
+        for (int i = 0; i < n; i++) {
+            rx[i] = new DatagramSocket(new InetSocketAddress(lo, 0));
+            rx[i].setReceiveBufferSize(1 << 20);
+            addrs[i] = new InetSocketAddress(lo, rx[i].getLocalPort());
+            fanOut.add(addrs[i], NaviFrameFormat.VERSION_DELTA);
+            drains[i] = drain(rx[i], received);
+        }
+        DatagramSocket tx = new DatagramSocket();
+        NaviFrameEncoder enc = new NaviFrameEncoder();
+        enc.setVersion(NaviFrameFormat.VERSION_DELTA);
+        int seq = 0;
+        int warmup = Math.min(2000, frames);
+        long t0 = 0;
+        for (int f = -warmup; f < frames; f++) {
+            if (f == 0) {
+                Thread.sleep(100);
+                received.set(0);
+                t0 = System.nanoTime();
+            }
+            if (once) {
+                int len = enc.encodeKeyframe(data, seq++);
+                fanOut.send(tx, enc.buffer(), len, null);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    int len = enc.encodeKeyframe(data, seq);
+                    tx.send(new DatagramPacket(enc.buffer(), len, addrs[i]));
+                }
+                seq++;
+            }
+        }
+        long elapsed = System.nanoTime() - t0;
+        Thread.sleep(200);
+        Result r = new Result();
+        r.nsPerFrame = (double) elapsed / frames;
+        r.deliveredPct = n > 0 ? received.get() * 100.0 / ((long) n * frames) : 0;
+        tx.close();
+        for (int i = 0; i < n; i++) rx[i].close();
+        for (Thread t : drains) t.join(500);
+        return r;
+    }
+
+    private static Thread drain(DatagramSocket s, AtomicLong counter) {
+        Thread t = new Thread(() -> {
+            byte[] buf = new byte[NaviFrameFormat.MAX_FRAME_SIZE];
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            while (!s.isClosed()) {
+                try {
+                    p.setLength(buf.length);
+                    s.receive(p);
+                    counter.incrementAndGet();
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }, "FanOutBench-rx");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    private static void multicast(int frames, NaviData data, String group, int port) {
+        try (MulticastSocket member = new MulticastSocket(port);
+             DatagramSocket tx = new DatagramSocket()) {
+            InetAddress g = InetAddress.getByName(group);
+            InetAddress self = InetAddress.getByName("127.0.0.1");
+            // 与 FanOut 选同一个接口：订阅者（本机回环）所在网段
+            NetworkInterface nif = FanOut.interfaceFor(self);
+            if (nif == null) throw new IllegalStateException("no interface for " + self);
+            member.joinGroup(new InetSocketAddress(g, 0), nif);
+            member.setSoTimeout(1000);
+            FanOut fanOut = new FanOut();
+            fanOut.setMulticastGroup(new InetSocketAddress(g, port));
+            fanOut.subscribe(new InetSocketAddress(self, port),
+                NaviFrameFormat.VERSION_DELTA, true, System.currentTimeMillis());
+            NaviFrameEncoder enc = new NaviFrameEncoder();
+            enc.setVersion(NaviFrameFormat.VERSION_DELTA);
+            long t0 = System.nanoTime();
+            int sent = 0;
+            for (int f = 0; f < frames; f++) {
+                int len = enc.encodeKeyframe(data, f);
+                sent += fanOut.send(tx, enc.buffer(), len, null);
+            }
+            long elapsed = System.nanoTime() - t0;
+            boolean heard;
+            try {
+                byte[] buf = new byte[NaviFrameFormat.MAX_FRAME_SIZE];
+                member.receive(new DatagramPacket(buf, buf.length));
+                heard = true;
+            } catch (SocketTimeoutException e) {
+                heard = false;
+            }
+            fanOut.close();
+            System.out.printf("multicast %s:%d: %.0f ns/frame, %d/%d packets sent, member %s%n",
+                group, port, (double) elapsed / frames, sent, frames, heard ? "received" : "received nothing");
+        } catch (Exception e) {
+            System.out.println("multicast: unavailable here (" + e.getMessage() + ")");
+        }
+    }
+
+    /** 端到端：固定 + 订阅接收端，帧版本取最小值，退订生效 */
+    private static boolean endToEnd(int discoveryPort, int dataPort, InetAddress lo) throws Exception {
+        SyntheticFeed feed = new SyntheticFeed(5, 30);
+        BridgeEngine engine = new BridgeEngine(discoveryPort, dataPort, feed::getData);
+        engine.setStaleThresholds(60_000, 60_000);
+        Probe fixed = new Probe(lo);
+        Probe sub = new Probe(lo);
+        engine.addReceiver("127.0.0.1", fixed.port(), NaviFrameFormat.VERSION_DELTA);
+        feed.start();
+        engine.start(0, 20);
+        try {
+            Thread.sleep(300);
+            int fixedBefore = fixed.version;
+
+            sub.control(discoveryPort, "{\"type\":\"subscribe\",\"port\":" + sub.port() + ",\"naviBin\":1}");
+            Thread.sleep(300);
+            fixed.resetCounts();
+            sub.resetCounts();
+            Thread.sleep(500);
+            int fixedDuring = fixed.version, subDuring = sub.version;
+            long subFrames = sub.frames;
+            boolean decoded = fixed.decodeFailures == 0 && sub.decodeFailures == 0 && fixed.frames > 0;
+
+            sub.control(discoveryPort, "{\"type\":\"unsubscribe\",\"port\":" + sub.port() + "}");
+            Thread.sleep(300);
+            sub.resetCounts();
+            fixed.resetCounts();
+            Thread.sleep(500);
+            long subAfter = sub.frames;
+            int fixedAfter = fixed.version;
+
+            System.out.printf("end-to-end: fixed v%d -> v%d while v1 subscriber present (%d frames) -> v%d after unsubscribe, "
+                    + "subscriber frames after unsubscribe %d, decode failures %d%n",
+                fixedBefore, fixedDuring, subFrames, fixedAfter, subAfter, fixed.decodeFailures + sub.decodeFailures);
+            return fixedBefore == NaviFrameFormat.VERSION_DELTA
+                && fixedDuring == NaviFrameFormat.VERSION && subDuring == NaviFrameFormat.VERSION
+                && subFrames > 0 && decoded
+                && subAfter == 0 && fixedAfter == NaviFrameFormat.VERSION_DELTA;
+        } finally {
+            engine.stop();
+            feed.stop();
+            fixed.close();
+            sub.close();
+        }
+    }
+
+    /** 本地接收端：解码、记录最近一帧的版本，断档时请求关键帧 */
+    private static final class Probe {
+        private final DatagramSocket socket;
+        private final NaviFrameDecoder decoder = new NaviFrameDecoder();
+        volatile int version;
+        volatile long frames;
+        volatile long decodeFailures;
+
+        Probe(InetAddress lo) throws Exception {
+            socket = new DatagramSocket(new InetSocketAddress(lo, 0));
+            Thread t = new Thread(this::loop, "FanOutBench-probe");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        int port() { return socket.getLocalPort(); }
+
+        void resetCounts() {
+            frames = 0;
+            decodeFailures = 0;
+        }
+
+        void control(int discoveryPort, String json) throws Exception {
+            byte[] b = json.getBytes(StandardCharsets.UTF_8);
+            socket.send(new DatagramPacket(b, b.length, InetAddress.getByName("127.0.0.1"), discoveryPort));
+        }
+
+        void close() { socket.close(); }
+
+        private void loop() {
+            byte[] buf = new byte[NaviFrameFormat.MAX_FRAME_SIZE];
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            while (!socket.isClosed()) {
+                try {
+                    p.setLength(buf.length);
+                    socket.receive(p);
+                } catch (Exception e) {
+                    return;
+                }
+                if (!NaviFrameDecoder.isBinaryFrame(buf, p.getLength())) continue;
+                version = buf[2] & 0xFF;
+                frames++;
+                if (decoder.decode(buf, p.getLength()) == null && !decoder.needsKeyframe()) decodeFailures++;
+            }
+        }
+    }
+}
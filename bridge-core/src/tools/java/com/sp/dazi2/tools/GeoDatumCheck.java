@@ -0,0 +1,123 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.navi.GeoDatum;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GeoDatum 精度校验和耗时测量
+ *
+ * 精度：参考点正向结果对照公开实现的输出；再在国内范围按网格取点，
+ * 求逆后正向回代，统计回代误差（米），和单步近似求逆对比。
+ * 耗时：预热后分别测单点和批量求逆的每点纳秒数（JVM 上的参考值，手机上约慢 3~5 倍）。
+ * 不满足精度时退出码 1。
+ *
+ * 用法：./gradlew :bridge-core:geoCheck -Pgeo="step=0.25 rounds=5"
+ */
+public class GeoDatumCheck {
+    private static final double M_PER_DEG = 111_195.0;
+    private static final double MAX_ERROR_M = 0.001;
+    private static final int BATCH = 1024;
+
+    // WGS-84 lat, lon → GCJ-02 lat, lon
+    private static final double[][] REFERENCE = {
+        {31.1774276, 121.5272106, 31.17530398364597, 121.531541859215},
+    };
+
+    private static volatile double sink;
+
+    public static void main(String[] args) {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        double step = Double.parseDouble(opt.getOrDefault("step", "0.25"));
+        int rounds = Integer.parseInt(opt.getOrDefault("rounds", "5"));
+
+        boolean ok = true;
+        double[] out = new double[2];
+        for (double[] r : REFERENCE) {
+            GeoDatum.wgsToGcj(r[0], r[1], out);
+            double errM = errorM(out[0], out[1], r[2], r[3]);
+            System.out.printf("reference %.7f,%.7f -> %.9f,%.9f  err %.2e m%n", r[0], r[1], out[0], out[1], errM);
+            ok &= errM < MAX_ERROR_M;
+        }
+
+        // 网格回代
+        double[] fwd = new double[2];
+        double maxIter = 0, maxOne = 0, sumIter = 0;
+        int n = 0;
+        for (double lat = 18.0; lat <= 53.5; lat += step) {
+            for (double lon = 73.5; lon <= 135.0; lon += step) {
+                GeoDatum.gcjToWgs(lat, lon, out);
+                GeoDatum.wgsToGcj(out[0], out[1], fwd);
+                double e = errorM(fwd[0], fwd[1], lat, lon);
+                maxIter = Math.max(maxIter, e);
+                sumIter += e;
+
+                // 单步近似：g − (gcj(g) − g)
+                GeoDatum.wgsToGcj(lat, lon, fwd);
+                double oLat = 2 * lat - fwd[0], oLon = 2 * lon - fwd[1];
+                GeoDatum.wgsToGcj(oLat, oLon, fwd);
+                maxOne = Math.max(maxOne, errorM(fwd[0], fwd[1], lat, lon));
+                n++;
+            }
+        }
+        System.out.printf("grid %d points: iterative max %.2e m, mean %.2e m; one-step max %.3f m%n",
+            n, maxIter, sumIter / n, maxOne);
+        ok &= maxIter < MAX_ERROR_M;
+
+        // 耗时
+        double[] pts = new double[BATCH * 2];
+        double[] dst = new double[BATCH * 2];
+        for (int i = 0; i < BATCH; i++) {
+            pts[2 * i] = 22.0 + 30.0 * i / BATCH;
+            pts[2 * i + 1] = 100.0 + 20.0 * ((i * 7) % BATCH) / BATCH;
+        }
+        for (int r = 0; r < rounds; r++) {
+            long single = timeSingle(pts, out);
+            long batch = timeBatch(pts, dst);
+            System.out.printf("round %d: single %.1f ns/pt, batch %.1f ns/pt%s%n", r + 1,
+                single / (double) (BATCH * 200), batch / (double) (BATCH * 200), r == 0 ? " (warmup)" : "");
+        }
+
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static long timeSingle(double[] pts, double[] out) {
+        double acc = 0;
+        long t0 = System.nanoTime();
+        for (int k = 0; k < 200; k++) {
+            for (int i = 0; i < BATCH; i++) {
+                GeoDatum.gcjToWgs(pts[2 * i], pts[2 * i + 1], out);
+                acc += out[0];
+            }
+        }
+        long t = System.nanoTime() - t0;
+        sink = acc;
+        return t;
+    }
+
+    private static long timeBatch(double[] pts, double[] dst) {
+        double acc = 0;
+        long t0 = System.nanoTime();
+        for (int k = 0; k < 200; k++) {
+            GeoDatum.gcjToWgs(pts, 0, dst, 0, BATCH);
+            acc += dst[k];
+        }
+        long t = System.nanoTime() - t0;
+        sink = acc;
+        return t;
+    }
+
+    private static double errorM(double lat1, double lon1, double lat2, double lon2) {
+        double dy = (lat1 - lat2) * M_PER_DEG;
+        double dx = (lon1 - lon2) * M_PER_DEG * Math.cos(Math.toRadians(lat2));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,195 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.bridge.BridgeEngine;
+import com.sp.dazi2.bridge.BridgeLog;
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.protocol.NaviFrameDecoder;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 丢包链路模拟：冗余模式开/关下，限速变化的有效送达率和送达延迟
+ *
+ * BridgeEngine 发往本地接收端，接收端按时间片的 Gilbert-Elliott 模型突发丢包
+ * （10ms 一片，坏状态全丢，平均突发 burstMs），剩余帧用参考解码器解码，
+ * 断档时按协议请求关键帧。驱动线程随机间隔改道路限速，
+ * 记录每次变化从写入数据源到接收端解码出新值的时间；
+ * 下一次变化前都没送达的记为丢失。
+ *
+ * 用法：./gradlew :bridge-core:lossySim -Psim="seconds=40 losses=0,5,10,20,30 burstMs=150 copies=2"
+ */
+public class LossyLinkSim {
+    private static final int LIMIT_MIN = 30;
+    private static final int LIMIT_STEP = 10;
+    private static final int LIMIT_VALUES = 10;    // 30..120
+    private static final long SLOT_NS = 10_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        long intervalMs = Long.parseLong(opt.getOrDefault("intervalMs", "200"));
+        int seconds = Integer.parseInt(opt.getOrDefault("seconds", "40"));
+        double burstMs = Double.parseDouble(opt.getOrDefault("burstMs", "150"));
+        int copies = Integer.parseInt(opt.getOrDefault("copies", "2"));
+        long spacingMs = Long.parseLong(opt.getOrDefault("spacingMs", String.valueOf(intervalMs / (copies + 1))));
+        int discoveryPort = Integer.parseInt(opt.getOrDefault("discoveryPort", "27705"));
+        int dataPort = Integer.parseInt(opt.getOrDefault("dataPort", "27706"));
+        String[] losses = opt.getOrDefault("losses", "0,5,10,20,30").split(",");
+
+        BridgeLog.setSink((level, tag, msg, t) -> { });
+        System.out.printf("lossy link: send %d ms, mean burst %.0f ms, redundancy %d copies / %d ms, %d s per run%n",
+            intervalMs, burstMs, copies, spacingMs, seconds);
+        System.out.println(" loss%  mode  changes  delivered%   p50ms   p95ms   maxms  pkts/frame");
+        for (String l : losses) {
+            double loss = Double.parseDouble(l.trim()) / 100.0;
+            for (int mode = 0; mode < 2; mode++) {
+                Result r = run(loss, burstMs, intervalMs, mode == 0 ? 0 : copies, spacingMs,
+                    seconds, discoveryPort, dataPort, 42);
+                System.out.printf("%5.0f  %4s  %7d  %9.1f  %6.0f  %6.0f  %6.0f  %10.2f%n",
+                    loss * 100, mode == 0 ? "off" : "on", r.changes,
+                    r.changes > 0 ? r.delivered * 100.0 / r.changes : 0,
+                    r.percentile(50), r.percentile(95), r.percentile(100), r.packetsPerFrame);
+            }
+        }
+    }
+
+    static final class Result {
+        int changes, delivered;
+        long[] latencyMs = new long[0];
+        double packetsPerFrame;
+
+        double percentile(int p) {
+            if (delivered == 0) return Double.NaN;
+            long[] v = Arrays.copyOf(latencyMs, delivered);
+            Arrays.sort(v);
+            return v[Math.max(0, (int) Math.ceil(p / 100.0 * delivered) - 1)];
+        }
+    }
+
+    private static Result run(double loss, double burstMs, long intervalMs, int copies, long spacingMs,
+                              int seconds, int discoveryPort, int dataPort, long seed) throws Exception {
+        InetAddress lo = InetAddress.getByName("127.0.0.1");
+        NaviData src = new NaviData();
+        BridgeEngine engine = new BridgeEngine(discoveryPort, dataPort, () -> src);
+        engine.setRedundancy(copies, spacingMs);
+        engine.setStaleThresholds(60_000, 60_000);
+
+        long[] changeNs = new long[LIMIT_VALUES];
+        int[] pending = {-1};            // 当前尚未送达的限速下标
+        Result r = new Result();
+        r.latencyMs = new long[seconds * 10];
+
+        DatagramSocket rx = new DatagramSocket(null);
+        rx.setReuseAddress(true);
+        rx.bind(new InetSocketAddress(lo, dataPort));
+        rx.setSoTimeout(100);
+        DatagramSocket ctl = new DatagramSocket(new InetSocketAddress(lo, 0));
+        byte[] beacon = "{\"type\":\"c3\",\"naviBin\":3}".getBytes(StandardCharsets.UTF_8);
+        byte[] keyframeReq = "{\"type\":\"keyframe\"}".getBytes(StandardCharsets.UTF_8);
+
+        engine.start(0, intervalMs);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // 接收端：突发丢包 + 解码
+        long[] raw = {0};
+        Thread receiver = new Thread(() -> {
+            Random rnd = new Random(seed);
+            double pBadToGood = Math.min(1, SLOT_NS / 1e6 / Math.max(1, burstMs));
+            double pGoodToBad = loss >= 1 ? 1 : loss * pBadToGood / (1 - loss);
+            boolean bad = false;
+            long slotNs = System.nanoTime();
+            NaviFrameDecoder decoder = new NaviFrameDecoder();
+            byte[] buf = new byte[4096];
+            DatagramPacket pkt = new DatagramPacket(buf, buf.length);
+            int lastLimit = -1;
+            while (running.get()) {
+                try {
+                    pkt.setLength(buf.length);
+                    rx.receive(pkt);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                } catch (Exception e) {
+                    return;
+                }
+                raw[0]++;
+                for (long now = System.nanoTime(); slotNs < now; slotNs += SLOT_NS) {
+                    bad = bad ? rnd.nextDouble() >= pBadToGood : rnd.nextDouble() < pGoodToBad;
+                }
+                if (bad) continue;
+                NaviData d = decoder.decode(buf, pkt.getLength());
+                if (decoder.needsKeyframe()) {
+                    try {
+                        ctl.send(new DatagramPacket(keyframeReq, keyframeReq.length, lo, discoveryPort));
+                    } catch (Exception ignored) {
+                        // 继续
+                    }
+                }
+                if (d == null || d.nRoadLimitSpeed == lastLimit) continue;
+                lastLimit = d.nRoadLimitSpeed;
+                long now = System.nanoTime();
+                synchronized (r) {
+                    int idx = (lastLimit - LIMIT_MIN) / LIMIT_STEP;
+                    if (idx == pending[0] && r.delivered < r.latencyMs.length) {
+                        r.latencyMs[r.delivered++] = (now - changeNs[idx]) / 1_000_000;
+                        pending[0] = -1;
+                    }
+                }
+            }
+        }, "LossyLink-rx");
+        receiver.start();
+
+        // 驱动：每 50ms 一次回调，限速每 300~900ms 变一次
+        Random rnd = new Random(seed + 1);
+        long endNs = System.nanoTime() + seconds * 1_000_000_000L;
+        long nextChangeNs = System.nanoTime() + 500_000_000L;
+        long nextBeaconNs = 0;
+        int limitIdx = 0;
+        double lat = 30.0;
+        while (System.nanoTime() < endNs) {
+            long now = System.nanoTime();
+            if (now >= nextBeaconNs) {
+                ctl.send(new DatagramPacket(beacon, beacon.length, lo, discoveryPort));
+                nextBeaconNs = now + 500_000_000L;
+            }
+            if (now >= nextChangeNs && engine.getPacketCount() > 0) {
+                limitIdx = (limitIdx + 1 + rnd.nextInt(LIMIT_VALUES - 1)) % LIMIT_VALUES;
+                synchronized (r) {
+                    r.changes++;
+                    changeNs[limitIdx] = System.nanoTime();
+                    pending[0] = limitIdx;
+                }
+                src.setRoadLimitSpeed(LIMIT_MIN + limitIdx * LIMIT_STEP);
+                nextChangeNs = now + (300 + rnd.nextInt(600)) * 1_000_000L;
+            }
+            lat += 1e-5;
+            src.setPosPointLat(lat);
+            src.markSourceUpdated();
+            Thread.sleep(50);
+        }
+
+        long frames = engine.getPacketCount();
+        engine.stop();
+        Thread.sleep(200);
+        running.set(false);
+        receiver.join();
+        rx.close();
+        ctl.close();
+        r.packetsPerFrame = frames > 0 ? raw[0] / (double) frames : 0;
+        return r;
+    }
+}
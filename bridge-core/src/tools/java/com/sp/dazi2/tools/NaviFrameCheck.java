@@ -0,0 +1,370 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.protocol.NaviFrameDecoder;
+import com.sp.dazi2.protocol.NaviFrameEncoder;
+import com.sp.dazi2.protocol.NaviFrameFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 二进制帧编解码核对
+ *
+ * 1. 关键帧：各版本全部字段回环一致；主体长度与 bodyEnd(version) 相符，v1/v2 保留字节为 0
+ * 2. 增量帧：部分字段掩码的帧长和回环结果；v2 编码时去掉 v3 才有的字段
+ * 3. 字典：ID 用满 DICT_CAPACITY 后循环复用，被挤掉的名称再出现时重新下发；
+ *    中途接入的解码器在一个刷新周期内补全名称
+ * 4. 字符串超过 MAX_STRING_BYTES 时按整字符截断（3 字节汉字、4 字节 emoji）
+ * 5. seq 断档、keySeq 不符时 needsKeyframe 置位，收到关键帧后清除；
+ *    重发的关键帧/增量帧按重复丢弃，发送端重启（seq 从 0 重来）后的关键帧照收
+ * 6. 随机字段变化的长序列（关键帧 + 增量帧）：解码后 toJson() 与 JSON 路径逐字一致
+ * 不满足时退出码 1。
+ *
+ * 用法：./gradlew :bridge-core:frameCheck -Pframe="frames=20000 seed=1"
+ */
+public class NaviFrameCheck {
+    private static final int KEYFRAME_EVERY = 25;
+    private static final String[] NAMES = {
+        "", "世纪大道", "G60沪昆高速", "内环高架路", "S20外环高速", "张江路", "东方明珠服务区",
+        "枫泾服务区", "约 12:35 到达", "约 13:05 到达", "Century Ave", "龙阳路立交",
+    };
+
+    public static void main(String[] args) {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        int frames = Integer.parseInt(opt.getOrDefault("frames", "20000"));
+        long seed = Long.parseLong(opt.getOrDefault("seed", "1"));
+
+        boolean ok = keyframes();
+        ok &= partialDelta();
+        ok &= dictionary();
+        ok &= utf8Truncation();
+        ok &= resync();
+        ok &= jsonEquivalence(frames, seed);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean keyframes() {
+        System.out.println("keyframe round trip:");
+        boolean ok = true;
+        int[] versions = {NaviFrameFormat.VERSION, NaviFrameFormat.VERSION_DELTA, NaviFrameFormat.VERSION_AGE};
+        for (int v : versions) {
+            NaviData d = full();
+            NaviFrameEncoder enc = new NaviFrameEncoder();
+            enc.setVersion(v);
+            NaviData got = new NaviFrameDecoder().decode(enc.buffer(), enc.encodeKeyframe(d, 1));
+            NaviData want = expectedAt(v, d);
+            ok &= same("v" + v + " all fields", json(got), json(want));
+
+            // 无字符串时帧长就是主体长度
+            NaviData bare = new NaviData();
+            bare.setDataFlags(NaviData.DATA_FLAG_HELD | NaviData.DATA_FLAG_STALE);
+            bare.setDataAgeMs(1234);
+            enc.reset();
+            int len = enc.encodeKeyframe(bare, 2);
+            ok &= same("v" + v + " body length", len, NaviFrameFormat.bodyEnd(v));
+            if (v < NaviFrameFormat.VERSION_AGE) {
+                ok &= same("v" + v + " reserved byte", (int) enc.buffer()[NaviFrameFormat.OFF_DATA_FLAGS], 0);
+            }
+        }
+        return ok;
+    }
+
+    private static boolean partialDelta() {
+        System.out.println("partial delta:");
+        boolean ok = true;
+        int[] versions = {NaviFrameFormat.VERSION_DELTA, NaviFrameFormat.VERSION_AGE};
+        for (int v : versions) {
+            NaviData d = full();
+            NaviFrameEncoder enc = new NaviFrameEncoder();
+            enc.setVersion(v);
+            NaviFrameDecoder dec = new NaviFrameDecoder();
+            dec.decode(enc.buffer(), enc.encodeKeyframe(d, 1));
+            d.takeDirtyFields();
+
+            String road = "中环路";
+            d.setPosPointLat(31.2400001);
+            d.setPosRoadName(road);
+            d.setDataAgeMs(420);
+            long mask = d.takeDirtyFields();
+            int len = enc.encodeDelta(d, mask, 2);
+            int fields = 4 + 2 + (v >= NaviFrameFormat.VERSION_AGE ? 2 : 0);
+            int dictBytes = 1 + 3 + road.getBytes(StandardCharsets.UTF_8).length;
+            ok &= same("v" + v + " delta length", len, NaviFrameFormat.DELTA_FIELDS_START + fields + dictBytes);
+            ok &= same("v" + v + " delta mask on wire",
+                ByteBuffer.wrap(enc.buffer()).order(ByteOrder.LITTLE_ENDIAN).getInt(NaviFrameFormat.OFF_DELTA_MASK),
+                (int) (mask & NaviFrameFormat.fieldMask(v)));
+            NaviData got = dec.decode(enc.buffer(), len);
+            ok &= same("v" + v + " delta round trip", json(got), json(expectedAt(v, d)));
+            ok &= same("v" + v + " no resync needed", dec.needsKeyframe() ? 1 : 0, 0);
+        }
+        return ok;
+    }
+
+    private static boolean dictionary() {
+        System.out.println("dictionary:");
+        NaviFrameEncoder enc = new NaviFrameEncoder();
+        enc.setVersion(NaviFrameFormat.VERSION_AGE);
+        NaviFrameDecoder dec = new NaviFrameDecoder();
+        NaviData d = new NaviData();
+        int cap = NaviFrameFormat.DICT_CAPACITY;
+        int total = cap + 100;
+        int wrong = 0, badIds = 0;
+        int seq = 0;
+        for (int i = 0; i < total; i++) {
+            d.setPosRoadName("路" + i);
+            int len = enc.encodeKeyframe(d, ++seq);
+            // ID 从 1 开始分配，0 留给空串，用满后回到 1
+            if (roadNameId(enc) != i % (cap - 1) + 1) badIds++;
+            NaviData got = dec.decode(enc.buffer(), len);
+            if (got == null || !got.szPosRoadName.equals(d.szPosRoadName)) wrong++;
+        }
+        boolean ok = same("names decoded wrong", wrong, 0);
+        ok &= same("ids not cycling 1.." + (cap - 1), badIds, 0);
+
+        // "路0" 的 ID 早被复用，再出现时按新名称分配并下发
+        d.setPosRoadName("路0");
+        int len = enc.encodeKeyframe(d, ++seq);
+        NaviData got = dec.decode(enc.buffer(), len);
+        ok &= same("evicted name re-sent", got != null ? got.szPosRoadName : "(null)", "路0");
+        ok &= same("evicted name new id", roadNameId(enc), total % (cap - 1) + 1);
+
+        // 中途接入：关键帧里名称不是新的，不带字典项，等定期刷新
+        NaviFrameDecoder late = new NaviFrameDecoder();
+        d.setSapaName("枫泾服务区");
+        enc.encodeKeyframe(d, ++seq);
+        int waited = -1;
+        for (int i = 0; i <= KEYFRAME_EVERY * 2 && waited < 0; i++) {
+            d.setDataAgeMs(i);
+            len = i == 0 ? enc.encodeKeyframe(d, ++seq) : enc.encodeDelta(d, d.takeDirtyFields(), ++seq);
+            got = late.decode(enc.buffer(), len);
+            if (got != null && got.szPosRoadName.equals("路0") && got.sapaName.equals("枫泾服务区")) waited = i;
+        }
+        ok &= same("late joiner names within " + KEYFRAME_EVERY + " frames",
+            waited >= 0 && waited <= KEYFRAME_EVERY ? 1 : 0, 1);
+        System.out.printf("  late joiner got names after %d frames%n", waited);
+        return ok;
+    }
+
+    private static boolean utf8Truncation() {
+        System.out.println("utf-8 truncation:");
+        int max = NaviFrameFormat.MAX_STRING_BYTES;
+        boolean ok = true;
+        ok &= truncates("3-byte boundary", "a" + "测".repeat(100), "a" + "测".repeat((max - 1) / 3));
+        ok &= truncates("exactly max bytes", "测".repeat(max / 3), "测".repeat(max / 3));
+        ok &= truncates("4-byte boundary", "😀".repeat(64), "😀".repeat(max / 4));
+        ok &= truncates("ascii", "x".repeat(300), "x".repeat(max));
+        return ok;
+    }
+
+    private static boolean truncates(String what, String in, String want) {
+        NaviFrameEncoder enc = new NaviFrameEncoder();
+        enc.setVersion(NaviFrameFormat.VERSION_AGE);
+        NaviData d = new NaviData();
+        d.setEtaText(in);
+        NaviData got = new NaviFrameDecoder().decode(enc.buffer(), enc.encodeKeyframe(d, 1));
+        String s = got != null ? got.etaText : "(null)";
+        return same(what + " (" + s.getBytes(StandardCharsets.UTF_8).length + " B)", s, want);
+    }
+
+    private static boolean resync() {
+        System.out.println("resync:");
+        NaviData d = full();
+        NaviFrameEncoder enc = new NaviFrameEncoder();
+        enc.setVersion(NaviFrameFormat.VERSION_AGE);
+        NaviFrameDecoder dec = new NaviFrameDecoder();
+        boolean ok = same("needs keyframe before any", dec.needsKeyframe() ? 1 : 0, 1);
+        dec.decode(enc.buffer(), enc.encodeKeyframe(d, 1));
+        ok &= same("keyframe clears", dec.needsKeyframe() ? 1 : 0, 0);
+        d.setDataAgeMs(10);
+        dec.decode(enc.buffer(), enc.encodeDelta(d, d.takeDirtyFields(), 2));
+        ok &= same("consecutive delta", dec.needsKeyframe() ? 1 : 0, 0);
+        d.setDataAgeMs(20);
+        enc.encodeDelta(d, d.takeDirtyFields(), 3);           // 丢失
+        d.setDataAgeMs(30);
+        dec.decode(enc.buffer(), enc.encodeDelta(d, d.takeDirtyFields(), 4));
+        ok &= same("seq gap sets", dec.needsKeyframe() ? 1 : 0, 1);
+        dec.decode(enc.buffer(), enc.encodeKeyframe(d, 5));
+        ok &= same("keyframe after gap clears", dec.needsKeyframe() ? 1 : 0, 0);
+
+        // seq 连续但所依据的关键帧（20）没收到
+        enc.encodeKeyframe(d, 20);                               // 丢失
+        d.setDataAgeMs(40);
+        dec.decode(enc.buffer(), enc.encodeDelta(d, d.takeDirtyFields(), 6));
+        ok &= same("keySeq mismatch sets", dec.needsKeyframe() ? 1 : 0, 1);
+        dec.decode(enc.buffer(), enc.encodeKeyframe(d, 7));
+        ok &= same("keyframe after mismatch clears", dec.needsKeyframe() ? 1 : 0, 0);
+
+        // 冗余重发：同 seq 的关键帧、增量帧都按重复丢弃
+        long dups = dec.getDuplicateCount();
+        int len = enc.encodeKeyframe(d, 8);
+        dec.decode(enc.buffer(), len);
+        ok &= same("repeated keyframe dropped", dec.decode(enc.buffer(), len) == null ? 1 : 0, 1);
+        d.setDataAgeMs(50);
+        len = enc.encodeDelta(d, d.takeDirtyFields(), 9);
+        dec.decode(enc.buffer(), len);
+        ok &= same("repeated delta dropped", dec.decode(enc.buffer(), len) == null ? 1 : 0, 1);
+        ok &= same("duplicates counted", (int) (dec.getDuplicateCount() - dups), 2);
+
+        // 发送端重启：seq 从 0 重来，落在重放窗口内，关键帧照收，之后的增量帧接得上
+        NaviFrameEncoder restarted = new NaviFrameEncoder();
+        restarted.setVersion(NaviFrameFormat.VERSION_AGE);
+        d.setDataAgeMs(60);
+        NaviData got = dec.decode(restarted.buffer(), restarted.encodeKeyframe(d, 0));
+        ok &= same("keyframe after sender restart", got != null && !dec.needsKeyframe() ? 1 : 0, 1);
+        d.setDataAgeMs(70);
+        got = dec.decode(restarted.buffer(), restarted.encodeDelta(d, d.takeDirtyFields(), 1));
+        ok &= same("delta after sender restart", got != null && got.nDataAgeMs == 70 ? 1 : 0, 1);
+        return ok;
+    }
+
+    /** 随机改字段的长序列，每帧解码结果与发送端对象的 JSON 逐字比较 */
+    private static boolean jsonEquivalence(int frames, long seed) {
+        System.out.println("json / binary equivalence:");
+        Random rnd = new Random(seed);
+        NaviData d = full();
+        NaviFrameEncoder enc = new NaviFrameEncoder();
+        enc.setVersion(NaviFrameFormat.VERSION_AGE);
+        NaviFrameDecoder dec = new NaviFrameDecoder();
+        int mismatches = 0;
+        long jsonBytes = 0, binBytes = 0;
+        String first = null;
+        for (int i = 0; i < frames; i++) {
+            for (int f = 0; f < NaviData.FIELD_COUNT; f++) {
+                if (rnd.nextInt(5) == 0) mutate(d, f, rnd);
+            }
+            long mask = d.takeDirtyFields();
+            int len = i % KEYFRAME_EVERY == 0 ? enc.encodeKeyframe(d, i) : enc.encodeDelta(d, mask, i);
+            String want = json(d);
+            String got = json(dec.decode(enc.buffer(), len));
+            jsonBytes += want.getBytes(StandardCharsets.UTF_8).length;
+            binBytes += len;
+            if (!want.equals(got)) {
+                if (first == null) first = "frame " + i + "\n    json   " + want + "\n    binary " + got;
+                mismatches++;
+            }
+        }
+        boolean ok = same(frames + " frames mismatched", mismatches, 0);
+        if (first != null) System.out.println("  first mismatch at " + first);
+        System.out.printf("  json %.0f B/frame, binary %.1f B/frame%n",
+            (double) jsonBytes / frames, (double) binBytes / frames);
+        return ok;
+    }
+
+    /** 全部字段取非默认值，数值落在线上格式的精度格点上 */
+    private static NaviData full() {
+        NaviData d = new NaviData();
+        d.setRoadLimitSpeed(120);
+        d.setSdiType(5);
+        d.setSdiSpeedLimit(100);
+        d.setSdiDist(356.7);
+        d.setSdiBlockType(-1);
+        d.setSdiBlockSpeed(80);
+        d.setSdiBlockDist(4321.5);
+        d.setPosPointLat(31.2345678);
+        d.setPosPointLon(121.4567891);
+        d.setPosAngle(273.4f);
+        d.setPosRoadName("G60沪昆高速");
+        d.setRoadcate(1);
+        d.setTBTDist(812.3);
+        d.setTBTTurnType(-12);
+        d.setGoPosDist(45678);
+        d.setGoPosTime(2345);
+        d.setTrafficLight(2);
+        d.setTrafficLightSec(37);
+        d.setSapaName("枫泾服务区");
+        d.setSapaDist(5600);
+        d.setSapaType(0);
+        d.setNextSapaName("新浜收费站");
+        d.setNextSapaDist(18900);
+        d.setNextSapaType(1);
+        d.setEtaText("约 12:35 到达");
+        d.setTmcSlowDist(300);
+        d.setTmcJamDist(1200);
+        d.setTmcBlockDist(50);
+        d.setNextNextTurnIcon(3);
+        d.setNextNextRoadName("S32申嘉湖高速");
+        d.setDataFlags(NaviData.DATA_FLAG_HELD);
+        d.setDataAgeMs(180);
+        return d;
+    }
+
+    /** 按该版本解码后应得的值：v3 之前没有数据标志/时效 */
+    private static NaviData expectedAt(int version, NaviData d) {
+        NaviData want = new NaviData();
+        want.copyFields(d, NaviFrameFormat.fieldMask(version));
+        return want;
+    }
+
+    private static void mutate(NaviData d, int f, Random r) {
+        switch (f) {
+            case NaviData.F_ROAD_LIMIT: d.setRoadLimitSpeed(r.nextInt(256)); break;
+            case NaviData.F_SDI_TYPE: d.setSdiType(r.nextInt(256) - 128); break;
+            case NaviData.F_SDI_SPEED: d.setSdiSpeedLimit(r.nextInt(256)); break;
+            case NaviData.F_SDI_DIST: d.setSdiDist(r.nextInt(50_000) / NaviFrameFormat.DIST_SCALE); break;
+            case NaviData.F_SDI_BLOCK_TYPE: d.setSdiBlockType(r.nextInt(256) - 128); break;
+            case NaviData.F_SDI_BLOCK_SPEED: d.setSdiBlockSpeed(r.nextInt(256)); break;
+            case NaviData.F_SDI_BLOCK_DIST: d.setSdiBlockDist(r.nextInt(200_000) / NaviFrameFormat.DIST_SCALE); break;
+            case NaviData.F_LAT: d.setPosPointLat((180_000_000 + r.nextInt(360_000_000)) / NaviFrameFormat.COORD_SCALE); break;
+            case NaviData.F_LON: d.setPosPointLon((730_000_000 + r.nextInt(620_000_000)) / NaviFrameFormat.COORD_SCALE); break;
+            case NaviData.F_ANGLE: d.setPosAngle((float) (r.nextInt(3600) / NaviFrameFormat.ANGLE_SCALE)); break;
+            case NaviData.F_ROAD_NAME: d.setPosRoadName(name(r)); break;
+            case NaviData.F_ROADCATE: d.setRoadcate(r.nextInt(10)); break;
+            case NaviData.F_TBT_DIST: d.setTBTDist(r.nextInt(30_000) / NaviFrameFormat.DIST_SCALE); break;
+            case NaviData.F_TBT_TURN: d.setTBTTurnType(r.nextInt(65_536) - 32_768); break;
+            case NaviData.F_GO_DIST: d.setGoPosDist(r.nextInt(2_000_000)); break;
+            case NaviData.F_GO_TIME: d.setGoPosTime(r.nextInt(100_000)); break;
+            case NaviData.F_TRAFFIC_LIGHT: d.setTrafficLight(r.nextInt(4)); break;
+            case NaviData.F_TRAFFIC_LIGHT_SEC: d.setTrafficLightSec(r.nextInt(200)); break;
+            case NaviData.F_SAPA_NAME: d.setSapaName(name(r)); break;
+            case NaviData.F_SAPA_DIST: d.setSapaDist(r.nextInt(100_000) - 1); break;
+            case NaviData.F_SAPA_TYPE: d.setSapaType(r.nextInt(4) - 1); break;
+            case NaviData.F_NEXT_SAPA_NAME: d.setNextSapaName(name(r)); break;
+            case NaviData.F_NEXT_SAPA_DIST: d.setNextSapaDist(r.nextInt(100_000) - 1); break;
+            case NaviData.F_NEXT_SAPA_TYPE: d.setNextSapaType(r.nextInt(4) - 1); break;
+            case NaviData.F_ETA_TEXT: d.setEtaText(name(r)); break;
+            case NaviData.F_TMC_SLOW: d.setTmcSlowDist(r.nextInt(3000)); break;
+            case NaviData.F_TMC_JAM: d.setTmcJamDist(r.nextInt(3000)); break;
+            case NaviData.F_TMC_BLOCK: d.setTmcBlockDist(r.nextInt(3000)); break;
+            case NaviData.F_NEXT_NEXT_TURN: d.setNextNextTurnIcon(r.nextInt(65_536) - 32_768); break;
+            case NaviData.F_NEXT_NEXT_ROAD: d.setNextNextRoadName(name(r)); break;
+            case NaviData.F_DATA_FLAGS: d.setDataFlags(r.nextInt(4)); break;
+            case NaviData.F_DATA_AGE: d.setDataAgeMs(r.nextInt(65_536)); break;
+        }
+    }
+
+    private static String name(Random r) {
+        return NAMES[r.nextInt(NAMES.length)];
+    }
+
+    private static int roadNameId(NaviFrameEncoder enc) {
+        return ByteBuffer.wrap(enc.buffer()).order(ByteOrder.LITTLE_ENDIAN)
+            .getShort(NaviFrameFormat.OFF_ROAD_NAME_ID) & 0xFFFF;
+    }
+
+    private static String json(NaviData d) {
+        return d == null ? "(null)" : d.toJson().toString();
+    }
+
+    private static boolean same(String what, Object got, Object want) {
+        boolean ok = got.equals(want);
+        String g = String.valueOf(got), w = String.valueOf(want);
+        if (g.length() > 24 || w.length() > 24) {
+            System.out.printf("  %-40s %s%n", what, ok ? "ok" : "MISMATCH\n    got  " + g + "\n    want " + w);
+        } else {
+            System.out.printf("  %-40s %12s  expected %12s  %s%n", what, g, w, ok ? "ok" : "MISMATCH");
+        }
+        return ok;
+    }
+}
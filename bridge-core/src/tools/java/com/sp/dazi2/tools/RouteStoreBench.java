@@ -0,0 +1,127 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.navi.RouteGeometry;
+import com.sp.dazi2.navi.RouteStore;
+import com.sp.dazi2.navi.RouteTracker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * RouteStore 内存、精度和查询耗时
+ *
+ * 生成一条合成长途路线：弯道处点距 10~30m，直道偶有几公里长段（触发插点），
+ * 与原始 double 折线对比坐标误差和里程误差；再沿线按里程取点、加横向噪声，
+ * 用 RouteTracker 投影回里程，统计误差和每次投影耗时，以及整条扫描一次的耗时。
+ * 误差超限时退出码 1。
+ *
+ * 用法：./gradlew :bridge-core:routeBench -Proute="km=1000 seed=1"
+ */
+public class RouteStoreBench {
+    private static final double M_PER_DEG = 111_195.0;
+
+    public static void main(String[] args) {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        double km = Double.parseDouble(opt.getOrDefault("km", "1000"));
+        long seed = Long.parseLong(opt.getOrDefault("seed", "1"));
+
+        // 合成折线
+        Random rnd = new Random(seed);
+        int cap = (int) (km * 100) + 16;
+        double[] lat = new double[cap], lon = new double[cap];
+        double la = 30.0, lo = 110.0, heading = 45, len = 0;
+        int n = 0;
+        lat[n] = la;
+        lon[n++] = lo;
+        while (len < km * 1000 && n < cap) {
+            double step;
+            if (rnd.nextInt(200) == 0) {
+                step = 2000 + rnd.nextInt(4000);       // 长直道
+            } else {
+                step = 10 + rnd.nextInt(20);
+                heading += rnd.nextGaussian() * 3;
+                if (rnd.nextInt(300) == 0) heading += (rnd.nextBoolean() ? 90 : -90);
+            }
+            double h = Math.toRadians(heading);
+            la += step * Math.cos(h) / M_PER_DEG;
+            lo += step * Math.sin(h) / (M_PER_DEG * Math.cos(Math.toRadians(la)));
+            lat[n] = la;
+            lon[n++] = lo;
+            len += step;
+        }
+
+        long t0 = System.nanoTime();
+        RouteStore.Builder b = new RouteStore.Builder(n);
+        for (int i = 0; i < n; i++) b.add(lat[i], lon[i]);
+        RouteStore store = b.build();
+        long buildStoreNs = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        RouteGeometry g = RouteGeometry.build(store);
+        long buildGeomNs = System.nanoTime() - t0;
+
+        long doubleBytes = 36L * n;   // lat/lon/cumDist/heading double + 原始点映射 int
+        System.out.printf("route: %d source points, %d stored, %.1f km, %d maneuvers%n",
+            n, store.getPointCount(), store.getTotalLength() / 1000, g.getManeuverCount());
+        System.out.printf("memory: store %d KB vs double arrays %d KB (%.1f B/pt vs 36)%n",
+            store.sizeBytes() / 1024, doubleBytes / 1024, (double) store.sizeBytes() / n);
+        System.out.printf("build: store %.1f ms, geometry %.1f ms%n", buildStoreNs / 1e6, buildGeomNs / 1e6);
+
+        // 坐标和里程误差
+        double maxCoordM = 0, refLen = 0, maxLenM = 0;
+        for (int i = 0; i < n; i++) {
+            int p = store.pointOfSource(i);
+            double dy = (store.lat(p) - lat[i]) * M_PER_DEG;
+            double dx = (store.lon(p) - lon[i]) * M_PER_DEG * Math.cos(Math.toRadians(lat[i]));
+            maxCoordM = Math.max(maxCoordM, Math.hypot(dx, dy));
+            if (i > 0) {
+                double ey = (lat[i] - lat[i - 1]) * M_PER_DEG;
+                double ex = (lon[i] - lon[i - 1]) * M_PER_DEG * Math.cos(Math.toRadians((lat[i] + lat[i - 1]) / 2));
+                refLen += Math.hypot(ex, ey);
+            }
+            maxLenM = Math.max(maxLenM, Math.abs(store.cumDist(p) - refLen));
+        }
+        System.out.printf("accuracy: coord max %.3f m, cumulative distance max drift %.2f m%n", maxCoordM, maxLenM);
+
+        // 沿线投影
+        RouteTracker tracker = new RouteTracker();
+        double[] pos = new double[3];
+        double maxProjErr = 0;
+        int updates = 0;
+        long projNs = 0;
+        for (double s = 0; s < store.getTotalLength(); s += 5) {
+            g.positionAt(s, pos);
+            double noise = (rnd.nextDouble() - 0.5) * 6 / M_PER_DEG;
+            double h = Math.toRadians(pos[2] + 90);
+            double qLat = pos[0] + noise * Math.cos(h);
+            double qLon = pos[1] + noise * Math.sin(h) / Math.cos(Math.toRadians(pos[0]));
+            long p0 = System.nanoTime();
+            double got = tracker.update(g, qLat, qLon);
+            projNs += System.nanoTime() - p0;
+            updates++;
+            maxProjErr = Math.max(maxProjErr, Math.abs(got - s));
+        }
+        System.out.printf("tracking: %d updates, %.0f ns/update, max progress error %.2f m, full scans %d%n",
+            updates, (double) projNs / updates, maxProjErr, tracker.getFullScanCount());
+
+        // 整条扫描（换路线后的首次投影）
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            RouteTracker fresh = new RouteTracker();
+            long p0 = System.nanoTime();
+            fresh.update(g, lat[n / 2], lon[n / 2]);
+            best = Math.min(best, System.nanoTime() - p0);
+        }
+        System.out.printf("full scan: %.2f ms over %d segments%n", best / 1e6, store.getSegmentCount());
+
+        boolean ok = maxCoordM < 0.2 && maxLenM < 10 && maxProjErr < 10;
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+}
@@ -0,0 +1,237 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.bridge.BridgeEngine;
+import com.sp.dazi2.bridge.BridgeLog;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 长时间压测：BridgeEngine + 合成数据源 + 本地 C3 替身
+ *
+ * 按 speedup 倍压缩时间（发送间隔、回调频率、广播间隔、超时阈值同比缩放），
+ * 定期模拟 C3 重启和换 IP，每个窗口采样一次，结束时按阈值判定：
+ *   - 堆增长：各窗口 GC 后已用堆，末段相对初段的增量
+ *   - 分配率：发送线程每包分配字节（HotSpot ThreadMXBean）
+ *   - 发送间隔漂移：替身测得的平均到达间隔相对设定值
+ *   - 速率稳定性：无事件窗口的包数变异系数
+ *   - 恢复时间：C3 重启/换 IP 后到收到第一帧可用数据
+ * 任一项超限退出码为 1。
+ *
+ * 用法：./gradlew :bridge-core:soak -Psoak="hours=4 speedup=10 bin=3"
+ * 换 IP 用 127.0.0.2，需要 Linux 的 127/8 回环。
+ */
+public class SoakRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = parseArgs(args);
+        double hours = num(opt, "hours", 4);
+        int speedup = (int) num(opt, "speedup", 10);
+        int bin = (int) num(opt, "bin", 3);
+        int discoveryPort = (int) num(opt, "discoveryPort", 17705);
+        int dataPort = (int) num(opt, "dataPort", 17706);
+        double windowSimSec = num(opt, "windowSec", 600);
+        double restartEveryMin = num(opt, "restartEveryMin", 30);
+        double ipChangeEveryMin = num(opt, "ipChangeEveryMin", 60);
+        double maxHeapGrowthMb = num(opt, "maxHeapGrowthMb", 16);
+        double maxAllocPerPacket = num(opt, "maxAllocPerPacket", bin > 0 ? 4096 : 32768);
+        double maxDriftPct = num(opt, "maxDriftPct", 5);
+        double maxRateCvPct = num(opt, "maxRateCvPct", 10);
+        double maxRecoveryMs = num(opt, "maxRecoveryMs", 3000);
+
+        long sendIntervalMs = Math.max(5, BridgeEngine.DEFAULT_SEND_INTERVAL / speedup);
+        long beaconMs = Math.max(20, 1000 / speedup);
+        long windowWallMs = (long) (windowSimSec * 1000 / speedup);
+        int windows = (int) Math.max(1, Math.round(hours * 3600 / windowSimSec));
+
+        BridgeLog.setSink((level, tag, msg, t) -> {
+            if (level >= BridgeLog.WARN) System.err.println(tag + ": " + msg);
+        });
+
+        SyntheticFeed feed = new SyntheticFeed(5.0 * speedup, 30.0 * speedup);
+        BridgeEngine engine = new BridgeEngine(discoveryPort, dataPort, feed::getData);
+        engine.setStaleThresholds(1500 / speedup, 3000 / speedup);
+        C3StandIn[] c3 = {
+            new C3StandIn("127.0.0.1", dataPort, discoveryPort, bin, beaconMs),
+            new C3StandIn("127.0.0.2", dataPort, discoveryPort, bin, beaconMs),
+        };
+        int active = 0;
+
+        System.out.printf("soak: %.1f h simulated, speedup %d, %d windows x %d ms, send %d ms, naviBin %d%n",
+            hours, speedup, windows, windowWallMs, sendIntervalMs, bin);
+
+        feed.start();
+        c3[active].start();
+        engine.start(0, sendIntervalMs);
+
+        MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+        List<Double> heapMb = new ArrayList<>();
+        List<Double> cleanRates = new ArrayList<>();
+        List<Double> cleanMeanIntervals = new ArrayList<>();
+        List<Long> recoveries = new ArrayList<>();
+        long allocStart = -1, packetsAtAllocStart = 0;
+        double maxGapMs = 0;
+        long simMs = 0, nextRestartSim = minutes(restartEveryMin), nextIpChangeSim = minutes(ipChangeEveryMin);
+
+        for (int w = 0; w < windows; w++) {
+            Thread.sleep(windowWallMs);
+            simMs += (long) (windowSimSec * 1000);
+            double[] win = c3[active].takeWindow();
+            boolean event = false;
+
+            if (simMs >= nextIpChangeSim) {
+                nextIpChangeSim += minutes(ipChangeEveryMin);
+                int next = 1 - active;
+                c3[active].stop();
+                long t0 = System.nanoTime();
+                c3[next].start();
+                active = next;
+                engine.onNetworkChanged("soak ip change");
+                recoveries.add(waitFirstFrame(c3[active], t0));
+                System.out.printf("  engine reconnect: %d ms%n", engine.getLastReconnectMs());
+                event = true;
+            } else if (simMs >= nextRestartSim) {
+                nextRestartSim += minutes(restartEveryMin);
+                c3[active].stop();
+                Thread.sleep(2 * beaconMs);          // 断电
+                long t0 = System.nanoTime();
+                c3[active].start();
+                recoveries.add(waitFirstFrame(c3[active], t0));
+                event = true;
+            }
+
+            System.gc();
+            double used = mem.getHeapMemoryUsage().getUsed() / 1048576.0;
+            heapMb.add(used);
+            if (w == 0) {
+                // 第一个窗口为预热，分配率从这里开始计
+                allocStart = senderAllocatedBytes();
+                packetsAtAllocStart = engine.getPacketCount();
+            } else if (!event) {
+                cleanRates.add(win[0] * 1000.0 / windowWallMs);
+                cleanMeanIntervals.add(win[1]);
+                maxGapMs = Math.max(maxGapMs, win[3]);
+            }
+            System.out.printf("  window %3d  pkts %6.0f  mean %6.2f ms  sd %5.2f  max %6.1f  heap %6.1f MB%s%n",
+                w, win[0], win[1], win[2], win[3], used, event ? "  [event]" : "");
+        }
+
+        long allocEnd = senderAllocatedBytes();
+        long packets = engine.getPacketCount() - packetsAtAllocStart;
+        engine.stop();
+        feed.stop();
+        c3[active].stop();
+
+        // ═══ 判定 ═══
+        List<String> failures = new ArrayList<>();
+        int n = heapMb.size();
+        int third = Math.max(1, n / 3);
+        double heapGrowth = avg(heapMb.subList(n - third, n)) - avg(heapMb.subList(0, third));
+        check(failures, "heap growth MB", heapGrowth, maxHeapGrowthMb);
+
+        if (allocStart >= 0 && allocEnd >= 0 && packets > 0) {
+            check(failures, "alloc bytes/packet", (allocEnd - allocStart) / (double) packets, maxAllocPerPacket);
+        } else {
+            System.out.println("  alloc bytes/packet: n/a (no HotSpot thread allocation counters)");
+        }
+
+        if (cleanRates.isEmpty()) {
+            System.out.println("  send interval drift / packet rate CV: n/a (no window without events)");
+        } else {
+            double meanInterval = avg(cleanMeanIntervals);
+            check(failures, "send interval drift %",
+                meanInterval > 0 ? Math.abs(meanInterval - sendIntervalMs) * 100 / sendIntervalMs : 100, maxDriftPct);
+
+            double rateMean = avg(cleanRates);
+            double rateCv = rateMean > 0 ? stddev(cleanRates, rateMean) * 100 / rateMean : 100;
+            check(failures, "packet rate CV %", rateCv, maxRateCvPct);
+        }
+
+        long maxRecovery = 0;
+        for (long r : recoveries) maxRecovery = Math.max(maxRecovery, r);
+        check(failures, "max recovery ms (" + recoveries.size() + " events)", maxRecovery, maxRecoveryMs);
+
+        System.out.printf("  packets sent %d, stalls %d, keyframe requests %d, probes answered %d, decode errors %d, max gap %.1f ms%n",
+            engine.getPacketCount(), engine.getStallCount(),
+            c3[0].getKeyframeRequests() + c3[1].getKeyframeRequests(),
+            c3[0].getProbesAnswered() + c3[1].getProbesAnswered(),
+            c3[0].getDecodeErrors() + c3[1].getDecodeErrors(), maxGapMs);
+
+        if (failures.isEmpty()) {
+            System.out.println("soak: PASS");
+        } else {
+            System.out.println("soak: FAIL " + failures);
+            System.exit(1);
+        }
+    }
+
+    /** 等替身收到第一帧可用数据，超时返回 Long.MAX_VALUE */
+    private static long waitFirstFrame(C3StandIn c3, long t0) throws InterruptedException {
+        long deadline = t0 + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            long first = c3.getFirstValidFrameNs();
+            if (first != 0) {
+                long ms = (first - t0) / 1_000_000;
+                System.out.printf("  recovery on %s: %d ms%n", c3.getIp(), ms);
+                return ms;
+            }
+            Thread.sleep(1);
+        }
+        System.out.printf("  recovery on %s: timed out%n", c3.getIp());
+        return Long.MAX_VALUE;
+    }
+
+    /** 发送线程累计分配字节；不支持时返回 -1 */
+    private static long senderAllocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) return -1;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if ("DataSender".equals(t.getName())) {
+                return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(t.getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void check(List<String> failures, String name, double value, double limit) {
+        boolean ok = value <= limit;
+        System.out.printf("  %-40s %10.2f  (limit %.2f)  %s%n", name, value, limit, ok ? "ok" : "FAIL");
+        if (!ok) failures.add(name);
+    }
+
+    private static long minutes(double m) { return (long) (m * 60_000); }
+
+    private static double avg(List<Double> v) {
+        if (v.isEmpty()) return 0;
+        double s = 0;
+        for (double x : v) s += x;
+        return s / v.size();
+    }
+
+    private static double stddev(List<Double> v, double mean) {
+        if (v.size() < 2) return 0;
+        double s = 0;
+        for (double x : v) s += (x - mean) * (x - mean);
+        return Math.sqrt(s / (v.size() - 1));
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> m = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) m.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        return m;
+    }
+
+    private static double num(Map<String, String> opt, String key, double def) {
+        String v = opt.get(key);
+        return v != null ? Double.parseDouble(v) : def;
+    }
+}
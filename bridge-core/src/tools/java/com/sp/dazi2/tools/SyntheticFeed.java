@@ -0,0 +1,94 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.model.NaviData;
+
+/**
+ * 合成导航数据源（代替 NaviSession 的 SDK 回调）
+ *
+ * 按固定频率沿直线推进位置，周期性切换限速、摄像头、道路名和服务区，
+ * 道路名从较大的集合轮换，让二进制帧的字符串字典持续换新。
+ * 所有写入都经 setter，和真实回调一样维护变更位。
+ */
+public class SyntheticFeed {
+    private static final int ROAD_NAMES = 600;
+
+    private final NaviData data = new NaviData();
+    private final long periodMs;
+    private final double speedMps;
+    private volatile boolean running;
+    private Thread thread;
+    private long tick;
+
+    /**
+     * @param hz       回调频率
+     * @param speedMps 模拟车速，时间压缩时按倍数放大
+     */
+    public SyntheticFeed(double hz, double speedMps) {
+        this.periodMs = Math.max(1, Math.round(1000 / hz));
+        this.speedMps = speedMps;
+    }
+
+    public NaviData getData() { return data; }
+    public long getTicks() { return tick; }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::loop, "SyntheticFeed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    private void loop() {
+        long next = System.nanoTime();
+        while (running) {
+            step();
+            next += periodMs * 1_000_000L;
+            long sleepNs = next - System.nanoTime();
+            if (sleepNs > 0) {
+                try {
+                    Thread.sleep(sleepNs / 1_000_000, (int) (sleepNs % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void step() {
+        long t = tick++;
+        double meters = t * speedMps * periodMs / 1000.0;
+        NaviData d = data;
+        d.setPosPointLat(30.0 + (meters % 500_000) / 111_195.0);
+        d.setPosPointLon(120.0);
+        d.setPosAngle((float) ((t / 50) % 360));
+
+        long segment = (long) (meters / 2000);          // 每 2 km 换一次路段属性
+        d.setPosRoadName("合成路" + (segment % ROAD_NAMES));
+        d.setRoadcate((int) (segment % 8));
+        d.setRoadLimitSpeed(segment % 3 == 0 ? 120 : segment % 3 == 1 ? 100 : 80);
+
+        double inSegment = 2000 - meters % 2000;
+        d.setTBTDist(inSegment);
+        d.setTBTTurnType(segment % 2 == 0 ? 2 : 3);
+        if (segment % 4 == 1) {
+            d.setSdiType(0);
+            d.setSdiSpeedLimit(100);
+            d.setSdiDist(inSegment);
+        } else {
+            d.setSdiType(-1);
+            d.setSdiSpeedLimit(0);
+            d.setSdiDist(0);
+        }
+        d.setGoPosDist((int) Math.max(0, 500_000 - meters % 500_000));
+        d.setGoPosTime((int) (d.nGoPosDist / Math.max(1, speedMps)));
+        d.setSapaName(segment % 10 < 5 ? "服务区" + (segment / 10) : "");
+        d.setSapaDist(segment % 10 < 5 ? (int) inSegment : -1);
+        d.markSourceUpdated();
+    }
+}
@@ -0,0 +1,235 @@
+package com.sp.dazi2.tools;
+
+import com.sp.dazi2.model.NaviData;
+import com.sp.dazi2.navi.CameraMapping;
+import com.sp.dazi2.navi.TripLog;
+import com.sp.dazi2.navi.TripStats;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行程统计核对
+ *
+ * 1. 合成行程：roads 段道路各 1km，限速 60 / 120（映射为 110）交替，每段中点一个测速摄像头（限速为 SDK 原值）；
+ *    轮速 20Hz、导航帧 5Hz，每 7 段有一段只有 SDK 车速（1Hz）。
+ *    按车速和限速解析算出应有的里程、超速时长、摄像头超速次数、映射改写次数和各道路等级里程，与统计结果比对
+ * 2. Summary 编码/解码一致，编码大小
+ * 3. TripLog：追加超过上限后只留最近 MAX_TRIPS 条；尾部写入半条记录后重新打开仍可读、可继续追加
+ * 4. 每次车速采样和每帧的耗时
+ * 不满足时退出码 1。
+ *
+ * 用法：./gradlew :bridge-core:tripCheck -Ptrip="roads=40 samples=2000000"
+ */
+public class TripStatsCheck {
+    private static final double SEG_M = 1000;
+    private static final double CAMERA_AT_M = 500;
+    private static final double CAMERA_VISIBLE_M = 300;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opt = new HashMap<>();
+        for (String a : args) {
+            for (String kv : a.trim().split("\\s+")) {
+                int eq = kv.indexOf('=');
+                if (eq > 0) opt.put(kv.substring(0, eq), kv.substring(eq + 1));
+            }
+        }
+        int roads = Integer.parseInt(opt.getOrDefault("roads", "40"));
+        int samples = Integer.parseInt(opt.getOrDefault("samples", "2000000"));
+
+        boolean ok = drive(roads);
+        ok &= tripLog();
+        cost(samples);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean drive(int roads) {
+        NaviData.setSpeedMapping(120, 110);
+        TripStats trip = new TripStats();
+        NaviData d = new NaviData();
+        trip.start(System.currentTimeMillis());
+
+        double expDist = 0, expWheelS = 0, expOverS = 0, expOverM = 0, expMappedM = 0;
+        int expCamOver = 0, expMapped = 0, expEpisodes = 0;
+        double[] expCat = new double[TripStats.MAX_CATEGORIES];
+        boolean prevOver = false;
+        long ns = 1_000_000_000L;
+        for (int r = 0; r < roads; r++) {
+            boolean fast = r % 2 == 1;
+            int raw = fast ? 120 : 60;
+            int sent = fast ? 110 : 60;
+            double kph = fast ? 115 : (r % 4 == 2 ? 70 : 55);
+            boolean wheel = r % 7 != 6;
+            boolean over = kph > sent;
+            double mps = kph / 3.6;
+            double segS = SEG_M / mps;
+            expDist += SEG_M;
+            expCat[r % 4] += SEG_M;
+            if (wheel) expWheelS += segS;
+            if (over) {
+                expOverS += segS;
+                expOverM += SEG_M;
+                if (!prevOver) expEpisodes++;
+            }
+            prevOver = over;
+            // 摄像头限速取 SDK 原值（不映射），按原值判断
+            if (kph > raw) expCamOver++;
+            if (fast) {
+                expMapped++;
+                expMappedM += SEG_M;
+            }
+
+            // 采样：轮速 20Hz 或 SDK 车速 1Hz，帧 5Hz，时间按本段车速推进
+            long stepNs = wheel ? 50_000_000L : 1_000_000_000L;
+            long frameEveryNs = 200_000_000L;
+            long segNs = (long) (segS * 1e9);
+            long nextFrame = 0;
+            for (long t = 0; t < segNs; t += stepNs) {
+                while (nextFrame <= t) {
+                    double fpos = mps * nextFrame / 1e9;
+                    frame(d, r, raw, fpos);
+                    trip.onFrame(d, raw);
+                    nextFrame += frameEveryNs;
+                }
+                trip.onSpeed(mps, wheel, ns + t);
+            }
+            // 段末补一个采样，下一段从同一时刻开始
+            trip.onSpeed(mps, wheel, ns + segNs);
+            ns += segNs;
+        }
+        TripStats.Summary s = trip.finish(System.currentTimeMillis());
+
+        // 各段首尾采样不对齐，里程/时长允许 1% 误差
+        boolean ok = true;
+        ok &= near("distance m", s.distM, expDist, 0.01);
+        ok &= near("over-limit s", s.overTimeS, expOverS, 0.01);
+        ok &= near("over-limit m", s.overDistM, expOverM, 0.01);
+        ok &= near("wheel s", s.wheelTimeS, expWheelS, 0.01);
+        ok &= near("mapped m", s.mappedDistM, expMappedM, 0.01);
+        ok &= same("over episodes", s.overEpisodes, expEpisodes);
+        ok &= same("cameras passed", s.camerasPassed, roads);
+        ok &= same("cameras over", s.camerasOver, expCamOver);
+        ok &= same("camera passes kept", s.passes.length, Math.min(roads, TripStats.MAX_CAMERAS));
+        ok &= same("mapped changes", s.mappedChanges, expMapped);
+        ok &= same("limit changes", s.limitChanges, roads);
+        for (int c = 0; c < 4; c++) ok &= near("category " + c + " m", s.categoryDistM[c], expCat[c], 0.01);
+        double roadSum = s.otherRoads.distM, roadOver = s.otherRoads.overTimeS;
+        for (TripStats.Road r : s.roads) {
+            roadSum += r.distM;
+            roadOver += r.overTimeS;
+        }
+        ok &= same("road slots", s.roads.length, Math.min(roads, TripStats.MAX_ROADS));
+        ok &= same("roads merged", s.roadsEvicted, Math.max(0, roads - TripStats.MAX_ROADS));
+        ok &= near("roads + other m", roadSum, s.distM, 0.001);
+        ok &= near("roads + other over s", roadOver, s.overTimeS, 0.001);
+        boolean sorted = true;
+        for (int i = 1; i < s.roads.length; i++) sorted &= s.roads[i - 1].overTimeS >= s.roads[i].overTimeS;
+        ok &= same("roads sorted by over-limit time", sorted ? 1 : 0, 1);
+
+        byte[] enc = s.encode();
+        TripStats.Summary back = TripStats.Summary.decode(enc, 0, enc.length);
+        boolean round = back != null && back.distM == s.distM && back.overTimeS == s.overTimeS
+            && back.roads.length == s.roads.length && back.passes.length == s.passes.length
+            && back.roads[0].name.equals(s.roads[0].name) && back.passes[back.passes.length - 1].speedKph
+            == s.passes[s.passes.length - 1].speedKph && back.categoryDistM[3] == s.categoryDistM[3]
+            && back.toText().equals(s.toText());
+        ok &= same("encode/decode", round ? 1 : 0, 1);
+        System.out.printf("summary: %d bytes encoded, %d roads, %d camera passes%n",
+            enc.length, s.roads.length, s.passes.length);
+        System.out.print(s.toText().lines().limit(8).reduce("", (a, b) -> a + b + "\n"));
+        NaviData.setSpeedMapping(120, 0);
+        return ok;
+    }
+
+    /** 第 r 段道路 pos 米处的一帧 */
+    private static void frame(NaviData d, int r, int raw, double pos) {
+        d.setPosRoadName("路" + r);
+        d.setRoadcate(r % 4);
+        d.setRoadLimitSpeed(d.applySpeedMapping(raw));
+        d.setPosPointLat(31 + (r * SEG_M + pos) / 111_000);
+        d.setPosPointLon(121);
+        double toCamera = CAMERA_AT_M - pos;
+        if (toCamera > 0 && toCamera <= CAMERA_VISIBLE_M) {
+            CameraMapping.apply(d, 1, raw, toCamera);
+        } else {
+            CameraMapping.apply(d, CameraMapping.TENCENT_NONE, 0, 0);
+        }
+    }
+
+    private static boolean tripLog() throws Exception {
+        File f = File.createTempFile("trips", ".bin");
+        f.deleteOnExit();
+        TripStats trip = new TripStats();
+        NaviData d = new NaviData();
+        TripLog log = new TripLog(f);
+        int total = TripLog.MAX_TRIPS * 2 + 7;
+        for (int i = 0; i < total; i++) {
+            trip.start(i * 1000L);
+            frame(d, i, 60, 0);
+            trip.onFrame(d, 60);
+            trip.onSpeed(10, true, 1_000_000_000L);
+            trip.onSpeed(10, true, 2_000_000_000L);
+            log.append(trip.finish(i * 1000L + 500));
+        }
+        List<TripStats.Summary> kept = log.load();
+        boolean ok = same("trips kept", kept.size(), TripLog.MAX_TRIPS);
+        ok &= same("newest trip last", (int) (kept.get(kept.size() - 1).startWallMs / 1000), total - 1);
+        long sizeBefore = f.length();
+
+        // 模拟写到一半被杀：尾部半条记录
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[] {100, 0, 0, 0, 1, 2, 3, 4, 5});
+        }
+        TripLog reopened = new TripLog(f);
+        ok &= same("torn tail truncated", f.length() == sizeBefore ? 1 : 0, 1);
+        ok &= same("trips after reopen", reopened.load().size(), TripLog.MAX_TRIPS);
+        trip.start(total * 1000L);
+        reopened.append(trip.finish(total * 1000L + 500));
+        List<TripStats.Summary> after = reopened.load();
+        ok &= same("append after reopen", (int) (after.get(after.size() - 1).startWallMs / 1000), total);
+        System.out.printf("trip log: %d trips written, %d kept, %d bytes%n", total + 1, after.size(), f.length());
+        return ok;
+    }
+
+    private static void cost(int samples) {
+        TripStats trip = new TripStats();
+        NaviData d = new NaviData();
+        trip.start(0);
+        for (int round = 0; round < 2; round++) {
+            long ns = 1;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                trip.onSpeed(20 + (i & 7), true, ns += 50_000_000L);
+            }
+            long speedNs = System.nanoTime() - t0;
+            int frames = samples / 4;
+            t0 = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                frame(d, (i >> 10) % 24, (i & 1024) != 0 ? 120 : 60, (i & 1023) * 0.5);
+                trip.onFrame(d, 60);
+            }
+            long frameNs = System.nanoTime() - t0;
+            if (round == 1) {
+                System.out.printf("cost: onSpeed %.0f ns/sample, onFrame %.0f ns/frame (incl. building the frame)%n",
+                    (double) speedNs / samples, (double) frameNs / frames);
+            }
+        }
+    }
+
+    private static boolean near(String what, double got, double want, double tol) {
+        boolean ok = Math.abs(got - want) <= Math.max(1e-6, Math.abs(want) * tol);
+        System.out.printf("  %-32s %12.1f  expected %12.1f  %s%n", what, got, want, ok ? "ok" : "MISMATCH");
+        return ok;
+    }
+
+    private static boolean same(String what, int got, int want) {
+        boolean ok = got == want;
+        System.out.printf("  %-32s %12d  expected %12d  %s%n", what, got, want, ok ? "ok" : "MISMATCH");
+        return ok;
+    }
+}